@@ -40,4 +40,15 @@ public class AnalyticsController {
     public ResponseEntity<SalesSummaryResponse> getSalesSummary() {
         return ResponseEntity.ok(analyticsService.getSalesSummary());
     }
+
+    @Operation(summary = "Live Sales Summary",
+            description = "Sales since this instance started, kept up to date as orders are placed and cancelled")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Live sales summary retrieved successfully"),
+            @ApiResponse(responseCode = "500", description = "Internal Server Error"),
+    })
+    @GetMapping("/sales-summary/live")
+    public ResponseEntity<SalesSummaryResponse> getLiveSalesSummary() {
+        return ResponseEntity.ok(analyticsService.getLiveSalesSummary());
+    }
 }
@@ -0,0 +1,55 @@
+package com.cloudbook.analytics.pipeline;
+
+import com.cloudbook.order.pipeline.OrderActivity;
+import com.cloudbook.order.pipeline.OrderActivityHandler;
+import com.cloudbook.order.pipeline.OrderActivityType;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Running sales totals kept from the order pipeline: units sold per book and
+ * revenue per order day, net of cancellations. Totals cover orders since this
+ * instance started and back the live sales summary; the other analytics
+ * endpoints read the full history from the orders table.
+ */
+@Component
+public class SalesRollupStage implements OrderActivityHandler {
+
+    private final Map<UUID, Long> unitsSold = new ConcurrentHashMap<>();
+    private final Map<LocalDate, BigDecimal> revenueByDay = new ConcurrentHashMap<>();
+
+    @Override
+    public String name() {
+        return "sales-rollup";
+    }
+
+    @Override
+    public void onEvent(OrderActivity activity, boolean endOfBatch) {
+        int sign = activity.getType() == OrderActivityType.PLACED ? 1 : -1;
+        for (OrderActivity.Line line : activity.getLines()) {
+            unitsSold.merge(line.bookId(), (long) sign * line.quantity(), Long::sum);
+        }
+        if (activity.getTotalAmount() != null && activity.getOrderDate() != null) {
+            BigDecimal amount = sign > 0 ? activity.getTotalAmount() : activity.getTotalAmount().negate();
+            revenueByDay.merge(activity.getOrderDate().toLocalDate(), amount, BigDecimal::add);
+        }
+    }
+
+    public long unitsSold(UUID bookId) {
+        return unitsSold.getOrDefault(bookId, 0L);
+    }
+
+    public BigDecimal revenue(LocalDate day) {
+        return revenueByDay.getOrDefault(day, BigDecimal.ZERO);
+    }
+
+    public Map<LocalDate, BigDecimal> revenueByDay() {
+        return new TreeMap<>(revenueByDay);
+    }
+}
@@ -2,6 +2,7 @@ package com.cloudbook.analytics.service;
 
 import com.cloudbook.analytics.dto.SalesSummaryResponse;
 import com.cloudbook.analytics.dto.TopBookResponse;
+import com.cloudbook.analytics.pipeline.SalesRollupStage;
 import com.cloudbook.order.model.Order;
 import com.cloudbook.order.model.OrderItem;
 import com.cloudbook.order.model.OrderStatus;
@@ -24,6 +25,9 @@ public class AnalyticsService {
     @Autowired
     private OrderRepository orderRepository;
 
+    @Autowired
+    private SalesRollupStage salesRollup;
+
     public List<TopBookResponse> getTopBooks() {
         List<Order> allOrders = orderRepository.findAll();
 
@@ -62,4 +66,16 @@ public class AnalyticsService {
                 .dailyBreakdown(dailySales)
                 .build();
     }
+
+    // Kept up to date by the order pipeline, so no orders are read; covers orders since this instance started
+    public SalesSummaryResponse getLiveSalesSummary() {
+        Map<LocalDate, BigDecimal> dailySales = salesRollup.revenueByDay();
+        BigDecimal total = dailySales.values().stream()
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+
+        return SalesSummaryResponse.builder()
+                .totalRevenue(total)
+                .dailyBreakdown(dailySales)
+                .build();
+    }
 }
@@ -8,12 +8,15 @@ import com.cloudbook.cart.model.Cart;
 import com.cloudbook.cart.model.CartItem;
 import com.cloudbook.cart.repository.CartRepository;
 import com.cloudbook.cart.util.CartMapper;
+import com.cloudbook.catalog.cache.BookCache;
 import com.cloudbook.catalog.model.Book;
-import com.cloudbook.catalog.repository.CatalogRepository;
+import com.cloudbook.inventory.service.ReservationService;
+import io.github.resilience4j.retry.annotation.Retry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 import java.util.UUID;
@@ -25,11 +28,14 @@ public class CartService {
     private CartRepository cartRepository;
 
     @Autowired
-    private CatalogRepository bookRepository;
+    private BookCache bookCache;
 
     @Autowired
     private CartMapper cartMapper;
 
+    @Autowired
+    private ReservationService reservationService;
+
     public CartResponse getCurrentUserCart() {
         String username = getCurrentUsername();
         Cart cart = cartRepository.findByUsername(username).orElseGet(() -> {
@@ -39,18 +45,25 @@ public class CartService {
         return cartMapper.toResponse(cart);
     }
 
+    // Two first adds of a book race to insert its hold; the loser fails on the unique key
+    // at commit and its retry finds the winner's hold and locks it
+    @Retry(name = "reservationInsertRetry")
+    @Transactional
     public CartResponse addToCart(CartRequest request) {
         String username = getCurrentUsername();
         Cart cart = cartRepository.findByUsername(username)
                 .orElseGet(() -> new Cart(username));
 
-        Book book = bookRepository.findById(request.getBookId())
+        Book book = bookCache.get(request.getBookId())
                 .orElseThrow(() -> new RuntimeException("Book not found"));
 
         if (request.getQuantity() <= 0) {
             throw new RuntimeException("Quantity must be positive");
         }
 
+        // Hold the quantity now so checkout cannot fail late for lack of stock
+        reservationService.reserve(username, book.getId(), request.getQuantity());
+
         Optional<CartItem> existing = cart.getItems().stream()
                 .filter(i -> i.getBook().getId().equals(book.getId()))
                 .findFirst();
@@ -65,21 +78,25 @@ public class CartService {
         return cartMapper.toResponse(saved);
     }
 
+    @Transactional
     public CartResponse removeItem(String bookId) {
         String username = getCurrentUsername();
         UUID bookUUID = UUID.fromString(bookId);
         Cart cart = cartRepository.findByUsername(username)
                 .orElseThrow(() -> new RuntimeException("Cart not found"));
         cart.getItems().removeIf(i -> i.getBook().getId().equals(bookUUID));
+        reservationService.release(username, bookUUID);
         Cart saved = cartRepository.save(cart);
         return cartMapper.toResponse(saved);
     }
 
+    @Transactional
     public CartResponse clearCart() {
         String username = getCurrentUsername();
         Cart cart = cartRepository.findByUsername(username)
                 .orElseThrow(() -> new RuntimeException("Cart not found"));
         cart.getItems().clear();
+        reservationService.releaseAll(username);
         Cart saved = cartRepository.save(cart);
         return cartMapper.toResponse(saved);
     }
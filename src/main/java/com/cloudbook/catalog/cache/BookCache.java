@@ -0,0 +1,105 @@
+package com.cloudbook.catalog.cache;
+
+import com.cloudbook.catalog.event.BookChangedEvent;
+import com.cloudbook.catalog.model.Book;
+import com.cloudbook.catalog.repository.CatalogRepository;
+import com.cloudbook.inventory.event.StockChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Bounded read-through cache of books keyed by id. Caffeine's W-TinyLFU policy
+ * keeps frequently read titles resident while a burst of one-off lookups cannot
+ * flush them out. Cached instances are detached and shared, so callers must
+ * treat them as read-only and go to the repository for anything they modify.
+ */
+@Component
+public class BookCache {
+
+    private static final String CACHE_NAME = "books";
+
+    private final CatalogRepository catalogRepository;
+    private final Cache<UUID, Book> cache;
+
+    public BookCache(CatalogRepository catalogRepository,
+                     MeterRegistry meterRegistry,
+                     @Value("${catalog.cache.maximum-size:10000}") long maximumSize,
+                     @Value("${catalog.cache.expire-after-write:10m}") Duration expireAfterWrite) {
+        this.catalogRepository = catalogRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+
+        // cache.gets{result=hit|miss}, cache.evictions, cache.load.duration, cache.size
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        Gauge.builder("cache.hit.ratio", cache, c -> c.stats().hitRate())
+                .tag("cache", CACHE_NAME)
+                .description("Fraction of book lookups served from the cache")
+                .register(meterRegistry);
+    }
+
+    public Optional<Book> get(UUID bookId) {
+        return Optional.ofNullable(cache.get(bookId, id -> catalogRepository.findById(id).orElse(null)));
+    }
+
+    /**
+     * Bulk read-through: ids already cached are served from memory and the rest are
+     * loaded with a single findAllById. Ids with no matching book are left out.
+     */
+    public Map<UUID, Book> getAll(Collection<UUID> bookIds) {
+        return cache.getAll(bookIds, missing -> catalogRepository.findAllById(List.copyOf(missing)).stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity())));
+    }
+
+    public void evict(UUID bookId) {
+        cache.invalidate(bookId);
+    }
+
+    /**
+     * Evicts now and again once the surrounding transaction commits, so a reader
+     * that reloads the old row before commit cannot leave it cached afterwards.
+     */
+    public void evictAfterCommit(UUID bookId) {
+        evict(bookId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(bookId);
+                }
+            });
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        Book book = event.getCurrent() != null ? event.getCurrent() : event.getPrevious();
+        if (book != null) {
+            evict(book.getId());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(StockChangedEvent event) {
+        evict(event.getBookId());
+    }
+}
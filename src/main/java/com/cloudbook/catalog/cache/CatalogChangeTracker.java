@@ -0,0 +1,41 @@
+package com.cloudbook.catalog.cache;
+
+import com.cloudbook.catalog.dto.CatalogRevision;
+import com.cloudbook.catalog.event.BookChangedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Catalog-wide change counter used as the validator for list and search
+ * responses. It is bumped after every committed book write, so a client that
+ * revalidates can be answered from memory. The counter starts again on every
+ * restart, hence the per-process epoch in the tag.
+ */
+@Component
+public class CatalogChangeTracker {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong changes = new AtomicLong();
+    private volatile Instant lastModified = Instant.now();
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        markChanged();
+    }
+
+    public void markChanged() {
+        lastModified = Instant.now();
+        changes.incrementAndGet();
+    }
+
+    /**
+     * Read this before querying: a write that commits in between only makes the
+     * tag older than the body, which costs the client one extra full response.
+     */
+    public CatalogRevision current() {
+        return new CatalogRevision("\"" + epoch + "-" + changes.get() + "\"", lastModified);
+    }
+}
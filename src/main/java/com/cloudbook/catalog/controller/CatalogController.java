@@ -1,19 +1,48 @@
 package com.cloudbook.catalog.controller;
 
+import com.cloudbook.catalog.dto.CatalogBatchRequest;
+import com.cloudbook.catalog.dto.CatalogBatchResponse;
+import com.cloudbook.catalog.dto.CatalogFacetResponse;
+import com.cloudbook.catalog.dto.CatalogImportResponse;
 import com.cloudbook.catalog.dto.CatalogRequest;
 import com.cloudbook.catalog.dto.CatalogResponse;
+import com.cloudbook.catalog.dto.CatalogRevision;
+import com.cloudbook.catalog.dto.CatalogSlice;
+import com.cloudbook.catalog.dto.CatalogStockBatchRequest;
+import com.cloudbook.catalog.dto.CatalogStockBatchResponse;
+import com.cloudbook.catalog.dto.CatalogStockShardRequest;
+import com.cloudbook.catalog.dto.CatalogStockShardResponse;
+import com.cloudbook.catalog.service.CatalogExportService;
+import com.cloudbook.catalog.service.CatalogFacetService;
+import com.cloudbook.catalog.service.CatalogImportService;
+import com.cloudbook.catalog.service.CatalogSearchService;
 import com.cloudbook.catalog.service.CatalogService;
+import com.cloudbook.catalog.stream.BookChangeStream;
+import com.cloudbook.inventory.limit.StockUpdateLimiter;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/books")
@@ -23,9 +52,28 @@ public class CatalogController {
     @Autowired
     private CatalogService catalogService;
 
+    @Autowired
+    private CatalogSearchService catalogSearchService;
+
+    @Autowired
+    private CatalogImportService catalogImportService;
+
+    @Autowired
+    private CatalogFacetService catalogFacetService;
+
+    @Autowired
+    private CatalogExportService catalogExportService;
+
+    @Autowired
+    private BookChangeStream bookChangeStream;
+
+    @Autowired
+    private StockUpdateLimiter stockUpdateLimiter;
+
     @Operation(summary = "Get All Book Details With Pagination")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Book details fetched successfully"),
+            @ApiResponse(responseCode = "304", description = "Catalog unchanged since the given ETag"),
             @ApiResponse(responseCode = "500", description = "Internal Server Error"),
     })
     @GetMapping
@@ -33,22 +81,130 @@ public class CatalogController {
                                                            @RequestParam(required = false) String author,
                                                            @RequestParam(required = false) BigDecimal minPrice,
                                                            @RequestParam(required = false) BigDecimal maxPrice,
+                                                           @RequestParam(defaultValue = "title") String sortBy,
+                                                           @RequestParam(defaultValue = "asc") String direction,
                                                            @RequestParam(defaultValue = "0") int page,
-                                                           @RequestParam(defaultValue = "10") int size) {
+                                                           @RequestParam(defaultValue = "10") int size,
+                                                           @RequestParam(required = false) String cursor,
+                                                           WebRequest webRequest) {
         log.info("Fetching book details with filters...");
-        List<CatalogResponse> response = catalogService.listBooks(genre, author, minPrice, maxPrice, page, size);
+        CatalogRevision revision = catalogService.getCatalogRevision();
+        if (webRequest.checkNotModified(revision.etag(), revision.lastModifiedMillis())) {
+            return null;
+        }
+        if (cursor != null) {
+            // Keyset mode: an empty cursor starts from the beginning, later pages follow X-Next-Cursor
+            CatalogSlice slice = catalogService.listBooksAfter(genre, author, minPrice, maxPrice, sortBy, direction, cursor, size);
+            ResponseEntity.BodyBuilder builder = ResponseEntity.ok().cacheControl(CacheControl.noCache());
+            if (slice.hasNext()) {
+                String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                        .replaceQueryParam("cursor", slice.getNextCursor())
+                        .replaceQueryParam("page")
+                        .toUriString();
+                builder.header("X-Next-Cursor", slice.getNextCursor())
+                        .header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+            }
+            return builder.body(slice.getBooks());
+        }
+
+        Page<CatalogResponse> response = catalogService.listBooks(genre, author, minPrice, maxPrice, sortBy, direction, page, size);
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .header("X-Total-Count", String.valueOf(response.getTotalElements()))
+                .header("X-Total-Pages", String.valueOf(response.getTotalPages()))
+                .header("X-Page", String.valueOf(response.getNumber()))
+                .header("X-Page-Size", String.valueOf(response.getSize()))
+                .body(response.getContent());
+    }
+
+    @Operation(summary = "Search Books By Title, Author Or Genre")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Search results fetched successfully"),
+            @ApiResponse(responseCode = "304", description = "Catalog unchanged since the given ETag"),
+            @ApiResponse(responseCode = "500", description = "Internal Server Error"),
+    })
+    @GetMapping("/search")
+    public ResponseEntity<List<CatalogResponse>> searchBooks(@RequestParam("q") String query,
+                                                             @RequestParam(defaultValue = "20") int limit,
+                                                             WebRequest webRequest) {
+        log.info("Searching books for query: {}", query);
+        CatalogRevision revision = catalogService.getCatalogRevision();
+        if (webRequest.checkNotModified(revision.etag(), revision.lastModifiedMillis())) {
+            return null;
+        }
+        List<CatalogResponse> response = catalogSearchService.search(query, limit);
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(response);
+    }
+
+    @Operation(summary = "Get Facet Counts For Catalog Filters")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Facet counts fetched successfully"),
+            @ApiResponse(responseCode = "500", description = "Internal Server Error"),
+    })
+    @GetMapping("/facets")
+    public ResponseEntity<CatalogFacetResponse> getFacets(@RequestParam(required = false) String genre,
+                                                          @RequestParam(required = false) String author,
+                                                          @Parameter(description = "Must be one of the price bucket bounds")
+                                                          @RequestParam(required = false) BigDecimal minPrice,
+                                                          @Parameter(description = "Must be one of the price bucket bounds; exclusive")
+                                                          @RequestParam(required = false) BigDecimal maxPrice) {
+        log.info("Fetching catalog facets...");
+        CatalogFacetResponse response = catalogFacetService.getFacets(genre, author, minPrice, maxPrice);
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
 
+    @Operation(summary = "Export The Full Catalog As NDJSON")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Catalog streamed, one book per line"),
+            @ApiResponse(responseCode = "500", description = "Internal Server Error")
+    })
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportBooks() {
+        log.info("Exporting full catalog...");
+        StreamingResponseBody body = catalogExportService::exportBooks;
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"catalog.ndjson\"")
+                .body(body);
+    }
+
+    @Operation(summary = "Stream Stock And Price Changes For A Set Of Books")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Event stream opened; current state is sent first"),
+            @ApiResponse(responseCode = "429", description = "Too many open streams")
+    })
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamBooks(@RequestParam List<String> ids) {
+        log.info("Opening change stream for {} books", ids.size());
+        return bookChangeStream.subscribe(ids);
+    }
+
     @Operation(summary = "Get Book By ID")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Book fetched successfully"),
+            @ApiResponse(responseCode = "304", description = "Book unchanged since the given ETag"),
             @ApiResponse(responseCode = "404", description = "Book not found")
     })
     @GetMapping("/{bookId}")
-    public ResponseEntity<CatalogResponse> getBookById(@PathVariable String bookId) {
+    public ResponseEntity<CatalogResponse> getBookById(@PathVariable String bookId, WebRequest webRequest) {
         log.info("Fetching book details for ID: {}", bookId);
+        CatalogRevision revision = catalogService.getBookRevision(bookId);
+        if (webRequest.checkNotModified(revision.etag(), revision.lastModifiedMillis())) {
+            return null;
+        }
         CatalogResponse response = catalogService.getBookById(bookId);
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(response);
+    }
+
+    @Operation(summary = "Get Many Books By ID")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Books fetched successfully, misses are marked"),
+            @ApiResponse(responseCode = "500", description = "Internal Server Error")
+    })
+    @PostMapping("/batch-get")
+    public ResponseEntity<CatalogBatchResponse> getBooksByIds(@RequestBody CatalogBatchRequest request) {
+        log.info("Fetching book details for {} IDs", request.getIds() == null ? 0 : request.getIds().size());
+        CatalogBatchResponse response = catalogService.getBooksByIds(request.getIds());
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
 
@@ -64,6 +220,22 @@ public class CatalogController {
         return new ResponseEntity<>(response, HttpStatus.CREATED);
     }
 
+    @Operation(summary = "Bulk Import Books From An NDJSON Or CSV Feed")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Feed processed, see per-row errors"),
+            @ApiResponse(responseCode = "415", description = "Unsupported feed format")
+    })
+    @PostMapping(value = "/import", consumes = {"application/x-ndjson", "text/csv"})
+    public ResponseEntity<CatalogImportResponse> importBooks(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                                             InputStream body) {
+        CatalogImportService.Format format = contentType.toLowerCase().startsWith("text/csv")
+                ? CatalogImportService.Format.CSV
+                : CatalogImportService.Format.NDJSON;
+        log.info("Importing books from {} feed...", format);
+        CatalogImportResponse response = catalogImportService.importBooks(body, format);
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
     @Operation(summary = "Update Book Details")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Book updated successfully"),
@@ -92,12 +264,57 @@ public class CatalogController {
     @Operation(summary = "Update Book Stock")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Stock updated successfully"),
-            @ApiResponse(responseCode = "404", description = "Book not found")
+            @ApiResponse(responseCode = "404", description = "Book not found"),
+            @ApiResponse(responseCode = "429", description = "Too many stock updates for the book or from the caller")
     })
     @PatchMapping("/{bookId}/stock")
     public ResponseEntity<CatalogResponse> updateStock(@PathVariable String bookId, @RequestBody CatalogRequest request) {
         log.info("Updating stock for book ID: {}", bookId);
+        // Charged here, once per request: the service call below is retried on contention
+        stockUpdateLimiter.acquire(UUID.fromString(bookId), currentCaller());
         CatalogResponse response = catalogService.updateStock(bookId, request.getDelta());
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
+
+    @Operation(summary = "Apply a Batch of Stock Deltas")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Batch applied, per-item outcomes are reported"),
+            @ApiResponse(responseCode = "500", description = "Internal Server Error")
+    })
+    @PostMapping("/stock/batch")
+    public ResponseEntity<CatalogStockBatchResponse> updateStockBatch(@RequestBody CatalogStockBatchRequest request) {
+        log.info("Applying stock batch with {} items", request.getItems() == null ? 0 : request.getItems().size());
+        CatalogStockBatchResponse response = catalogService.updateStockBatch(request.getItems());
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    @Operation(summary = "Split A Hot Book's Stock Across Shards Or Rebalance Them")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Stock sharded and evenly balanced"),
+            @ApiResponse(responseCode = "404", description = "Book not found")
+    })
+    @PutMapping("/{bookId}/stock/shards")
+    public ResponseEntity<CatalogStockShardResponse> reshardStock(@PathVariable String bookId,
+                                                                  @RequestBody CatalogStockShardRequest request) {
+        log.info("Sharding stock for book ID: {} across {} shards", bookId, request.getShards());
+        CatalogStockShardResponse response = catalogService.reshardStock(bookId, request.getShards());
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    @Operation(summary = "Fold A Book's Stock Shards Back Into One Counter")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Stock sharding disabled"),
+            @ApiResponse(responseCode = "404", description = "Book not found")
+    })
+    @DeleteMapping("/{bookId}/stock/shards")
+    public ResponseEntity<CatalogStockShardResponse> unshardStock(@PathVariable String bookId) {
+        log.info("Disabling stock sharding for book ID: {}", bookId);
+        CatalogStockShardResponse response = catalogService.unshardStock(bookId);
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    private String currentCaller() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication == null ? "anonymous" : authentication.getName();
+    }
 }
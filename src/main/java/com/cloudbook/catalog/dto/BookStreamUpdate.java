@@ -0,0 +1,22 @@
+package com.cloudbook.catalog.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Current availability of one book as pushed to stream subscribers. A removed
+ * book carries only its id.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BookStreamUpdate(UUID bookId, Integer stock, BigDecimal price, boolean removed) {
+
+    public BookStreamUpdate(UUID bookId, Integer stock, BigDecimal price) {
+        this(bookId, stock, price, false);
+    }
+
+    public static BookStreamUpdate removed(UUID bookId) {
+        return new BookStreamUpdate(bookId, null, null, true);
+    }
+}
@@ -0,0 +1,16 @@
+package com.cloudbook.catalog.dto;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Read-only projection with just the columns a catalog listing needs; built by
+ * the query itself, so nothing is added to the persistence context.
+ */
+public record BookSummary(UUID id,
+                          String title,
+                          String author,
+                          String genre,
+                          BigDecimal price,
+                          BigDecimal rating) {
+}
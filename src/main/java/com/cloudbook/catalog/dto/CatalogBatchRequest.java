@@ -0,0 +1,15 @@
+package com.cloudbook.catalog.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogBatchRequest {
+
+    private List<String> ids;
+}
@@ -0,0 +1,20 @@
+package com.cloudbook.catalog.dto;
+
+import com.cloudbook.common.dto.BaseResponse;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CatalogBatchResponse extends BaseResponse {
+
+    // One entry per requested id, in request order; misses carry only bookId and message
+    private List<CatalogResponse> books;
+    private List<String> notFound;
+}
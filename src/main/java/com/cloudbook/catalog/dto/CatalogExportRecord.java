@@ -0,0 +1,21 @@
+package com.cloudbook.catalog.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogExportRecord {
+
+    private String bookId;
+    private String title;
+    private String author;
+    private String genre;
+    private BigDecimal price;
+    private int stock;
+    private BigDecimal rating;
+}
@@ -0,0 +1,20 @@
+package com.cloudbook.catalog.dto;
+
+import com.cloudbook.common.dto.BaseResponse;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CatalogFacetResponse extends BaseResponse {
+
+    private Map<String, Long> genres;
+    private Map<String, Long> authors;
+    private Map<String, Long> priceRanges;
+}
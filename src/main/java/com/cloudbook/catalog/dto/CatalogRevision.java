@@ -0,0 +1,14 @@
+package com.cloudbook.catalog.dto;
+
+import java.time.Instant;
+
+/**
+ * Validators for a conditional GET: the entity tag and, when known, the
+ * last modification time of the resource.
+ */
+public record CatalogRevision(String etag, Instant lastModified) {
+
+    public long lastModifiedMillis() {
+        return lastModified == null ? -1 : lastModified.toEpochMilli();
+    }
+}
@@ -0,0 +1,13 @@
+package com.cloudbook.catalog.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogStockShardRequest {
+
+    private int shards;
+}
@@ -0,0 +1,20 @@
+package com.cloudbook.catalog.dto;
+
+import com.cloudbook.common.dto.BaseResponse;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogStockShardResponse extends BaseResponse {
+
+    private String bookId;
+    private int stock;
+    // Stock per shard in shard order; empty when the book is not sharded
+    private List<Integer> shards = new ArrayList<>();
+}
@@ -0,0 +1,29 @@
+package com.cloudbook.catalog.event;
+
+import com.cloudbook.catalog.model.Book;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published whenever a book is created, updated or deleted. {@code previous} is null
+ * for a newly added book and {@code current} is null for a deleted one; both are
+ * detached copies, safe to read after the transaction has ended.
+ */
+public class BookChangedEvent extends ApplicationEvent {
+
+    private final Book previous;
+    private final Book current;
+
+    public BookChangedEvent(Object source, Book previous, Book current) {
+        super(source);
+        this.previous = previous == null ? null : previous.toBuilder().build();
+        this.current = current == null ? null : current.toBuilder().build();
+    }
+
+    public Book getPrevious() {
+        return previous;
+    }
+
+    public Book getCurrent() {
+        return current;
+    }
+}
@@ -0,0 +1,202 @@
+package com.cloudbook.catalog.facet;
+
+import com.cloudbook.catalog.dto.BookSummary;
+import com.cloudbook.catalog.dto.CatalogFacetResponse;
+import com.cloudbook.catalog.model.Book;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Maintained book counts per (genre, author, price bucket) cell, together with
+ * the same counts summed over genres, authors or both. A facet query reads one
+ * pre-summed counter per price bucket and facet, so its cost depends on the
+ * number of buckets and of values returned rather than on the number of books or
+ * combinations. Each facet is counted with the filters of the other dimensions
+ * applied, which is what a storefront shows next to a filter that is already
+ * selected.
+ * <p>
+ * The cell each book is counted in is remembered, so putting a book replaces
+ * whatever was counted for it before, and applying the same state twice changes
+ * nothing.
+ * <p>
+ * Counts are only kept per bucket, so price filters select whole buckets:
+ * {@code minPrice} and {@code maxPrice} must be bucket bounds, and a book priced
+ * exactly at {@code maxPrice} belongs to the next bucket and is not counted.
+ */
+public class CatalogFacetCounter {
+
+    private final List<BigDecimal> bucketBounds;
+    private final Counts counts = new Counts();
+    private final Map<UUID, Cell> books = new ConcurrentHashMap<>();
+    private final Map<String, String> genreNames = new ConcurrentHashMap<>();
+    private final Map<String, String> authorNames = new ConcurrentHashMap<>();
+
+    public CatalogFacetCounter(List<BigDecimal> bucketBounds) {
+        if (bucketBounds.isEmpty()) {
+            throw new IllegalArgumentException("At least one price bucket bound is required");
+        }
+        this.bucketBounds = bucketBounds.stream().sorted().toList();
+    }
+
+    public void put(Book book) {
+        put(book.getId(), book.getGenre(), book.getAuthor(), book.getPrice());
+    }
+
+    public void put(BookSummary book) {
+        put(book.id(), book.genre(), book.author(), book.price());
+    }
+
+    public void remove(UUID bookId) {
+        books.computeIfPresent(bookId, (id, counted) -> {
+            counts.add(counted, -1);
+            return null;
+        });
+    }
+
+    public int size() {
+        return books.size();
+    }
+
+    public CatalogFacetResponse count(String genre, String author, BigDecimal minPrice, BigDecimal maxPrice, int maxValues) {
+        String genreFilter = Book.normalize(blankToNull(genre));
+        String authorFilter = Book.normalize(blankToNull(author));
+        int fromBucket = minPrice == null ? 0 : boundIndex(minPrice);
+        int toBucket = maxPrice == null ? bucketBounds.size() : boundIndex(maxPrice);
+
+        Counts current = counts;
+        Map<String, Long> genres = new HashMap<>();
+        Map<String, Long> authors = new HashMap<>();
+        Map<String, Long> priceRanges = new LinkedHashMap<>();
+        for (int bucket = 0; bucket < bucketBounds.size(); bucket++) {
+            long inBucket = current.total(new Cell(genreFilter, authorFilter, bucket));
+            if (inBucket > 0) {
+                priceRanges.put(bucketLabel(bucket), inBucket);
+            }
+            if (bucket >= fromBucket && bucket < toBucket) {
+                current.sumInto(current.genres, new Cell(null, authorFilter, bucket), genres);
+                current.sumInto(current.authors, new Cell(genreFilter, null, bucket), authors);
+            }
+        }
+        return new CatalogFacetResponse(top(genres, genreNames, maxValues), top(authors, authorNames, maxValues), priceRanges);
+    }
+
+    // A book without a genre, author or price is not counted
+    private void put(UUID bookId, String genre, String author, BigDecimal price) {
+        if (genre == null || author == null || price == null) {
+            remove(bookId);
+            return;
+        }
+        remember(genre, author);
+        Cell cell = cellOf(genre, author, price);
+        books.compute(bookId, (id, counted) -> {
+            if (!cell.equals(counted)) {
+                if (counted != null) {
+                    counts.add(counted, -1);
+                }
+                counts.add(cell, 1);
+            }
+            return cell;
+        });
+    }
+
+    private void remember(String genre, String author) {
+        genreNames.putIfAbsent(Book.normalize(genre), genre.trim());
+        authorNames.putIfAbsent(Book.normalize(author), author.trim());
+    }
+
+    private Cell cellOf(String genre, String author, BigDecimal price) {
+        return new Cell(Book.normalize(genre), Book.normalize(author), bucketOf(price));
+    }
+
+    private int bucketOf(BigDecimal price) {
+        for (int i = bucketBounds.size() - 1; i > 0; i--) {
+            if (price.compareTo(bucketBounds.get(i)) >= 0) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    private int boundIndex(BigDecimal price) {
+        for (int i = 0; i < bucketBounds.size(); i++) {
+            if (price.compareTo(bucketBounds.get(i)) == 0) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Facet price filters must be one of the bucket bounds "
+                + bucketBounds.stream().map(BigDecimal::toPlainString).toList());
+    }
+
+    private String bucketLabel(int bucket) {
+        BigDecimal lower = bucketBounds.get(bucket);
+        if (bucket + 1 == bucketBounds.size()) {
+            return lower.toPlainString() + "+";
+        }
+        return lower.toPlainString() + "-" + bucketBounds.get(bucket + 1).toPlainString();
+    }
+
+    private Map<String, Long> top(Map<String, Long> counts, Map<String, String> names, int maxValues) {
+        return counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .limit(maxValues)
+                .collect(Collectors.toMap(e -> names.getOrDefault(e.getKey(), e.getKey()), Map.Entry::getValue,
+                        Long::sum, LinkedHashMap::new));
+    }
+
+    private static String blankToNull(String value) {
+        return Optional.ofNullable(value).filter(Predicate.not(String::isBlank)).orElse(null);
+    }
+
+    /**
+     * A genre or author of {@code null} stands for all of them, so
+     * {@code (null, null, bucket)} is the whole bucket.
+     */
+    public record Cell(String genre, String author, int bucket) {
+    }
+
+    private static final class Counts {
+
+        // Every cell, plus the same summed over genres, authors or both
+        private final Map<Cell, AtomicLong> cells = new ConcurrentHashMap<>();
+        // Genre counts per (author or all, bucket) and author counts per (genre or all, bucket)
+        private final Map<Cell, Map<String, AtomicLong>> genres = new ConcurrentHashMap<>();
+        private final Map<Cell, Map<String, AtomicLong>> authors = new ConcurrentHashMap<>();
+
+        void add(Cell cell, long delta) {
+            for (String genre : Arrays.asList(cell.genre(), null)) {
+                for (String author : Arrays.asList(cell.author(), null)) {
+                    cells.computeIfAbsent(new Cell(genre, author, cell.bucket()), c -> new AtomicLong()).addAndGet(delta);
+                }
+            }
+            tally(genres, new Cell(null, cell.author(), cell.bucket()), cell.genre(), delta);
+            tally(genres, new Cell(null, null, cell.bucket()), cell.genre(), delta);
+            tally(authors, new Cell(cell.genre(), null, cell.bucket()), cell.author(), delta);
+            tally(authors, new Cell(null, null, cell.bucket()), cell.author(), delta);
+        }
+
+        long total(Cell cell) {
+            AtomicLong count = cells.get(cell);
+            return count == null ? 0 : count.get();
+        }
+
+        void sumInto(Map<Cell, Map<String, AtomicLong>> index, Cell key, Map<String, Long> into) {
+            index.getOrDefault(key, Map.of()).forEach((value, count) -> {
+                long n = count.get();
+                if (n > 0) {
+                    into.merge(value, n, Long::sum);
+                }
+            });
+        }
+
+        private static void tally(Map<Cell, Map<String, AtomicLong>> index, Cell key, String value, long delta) {
+            index.computeIfAbsent(key, k -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(value, v -> new AtomicLong())
+                    .addAndGet(delta);
+        }
+    }
+}
@@ -8,14 +8,23 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Locale;
 import java.util.UUID;
 
 @Entity
-@Table(name = "book")
+@Table(name = "book", indexes = {
+        @Index(name = "idx_book_genre_normalized", columnList = "genre_normalized"),
+        @Index(name = "idx_book_author_normalized", columnList = "author_normalized"),
+        @Index(name = "idx_book_price_id", columnList = "price, id"),
+        @Index(name = "idx_book_title_id", columnList = "title, id"),
+        @Index(name = "idx_book_author_id", columnList = "author, id"),
+        @Index(name = "idx_book_rating_id", columnList = "rating, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 public class Book {
 
     @Id
@@ -37,10 +46,37 @@ public class Book {
     @Column(nullable = false)
     private int stock;
 
+    // When positive, stock lives in this many stock_shard rows and the column above is their rolled-up sum
+    @Column(name = "stock_shards", nullable = false)
+    private int stockShards;
+
     @Column(nullable = false)
     private BigDecimal rating;
 
     @Version
     @Column(nullable = false)
     private long version;
+
+    // Lower-cased copies of genre/author so case-insensitive filters can use an index
+    @Column(name = "genre_normalized")
+    private String genreNormalized;
+
+    @Column(name = "author_normalized")
+    private String authorNormalized;
+
+    // Backs the Last-Modified header of the book endpoint
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    void beforeSave() {
+        this.genreNormalized = normalize(genre);
+        this.authorNormalized = normalize(author);
+        this.updatedAt = Instant.now();
+    }
+
+    public static String normalize(String value) {
+        return value == null ? null : value.trim().toLowerCase(Locale.ROOT);
+    }
 }
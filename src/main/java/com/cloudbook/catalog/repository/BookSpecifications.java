@@ -0,0 +1,80 @@
+package com.cloudbook.catalog.repository;
+
+import com.cloudbook.catalog.model.Book;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+public final class BookSpecifications {
+
+    private BookSpecifications() {
+    }
+
+    public static Specification<Book> withFilters(String genre,
+                                                  String author,
+                                                  BigDecimal minPrice,
+                                                  BigDecimal maxPrice) {
+        return Specification.where(hasGenre(genre))
+                .and(hasAuthor(author))
+                .and(priceAtLeast(minPrice))
+                .and(priceAtMost(maxPrice));
+    }
+
+    public static Specification<Book> hasGenre(String genre) {
+        if (genre == null || genre.isBlank()) {
+            return null;
+        }
+        return (root, query, cb) -> cb.equal(root.get("genreNormalized"), Book.normalize(genre));
+    }
+
+    public static Specification<Book> hasAuthor(String author) {
+        if (author == null || author.isBlank()) {
+            return null;
+        }
+        return (root, query, cb) -> cb.equal(root.get("authorNormalized"), Book.normalize(author));
+    }
+
+    public static Specification<Book> priceAtLeast(BigDecimal minPrice) {
+        if (minPrice == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("price"), minPrice);
+    }
+
+    public static Specification<Book> priceAtMost(BigDecimal maxPrice) {
+        if (maxPrice == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.lessThanOrEqualTo(root.get("price"), maxPrice);
+    }
+
+    public static Specification<Book> idAfter(UUID lastId) {
+        if (lastId == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.greaterThan(root.get("id"), lastId);
+    }
+
+    /**
+     * Keyset predicate: rows strictly after (value, lastId) in the given sort order,
+     * so the database can seek on the (field, id) index instead of skipping an offset.
+     */
+    public static <T extends Comparable<? super T>> Specification<Book> after(String field,
+                                                                             boolean descending,
+                                                                             T value,
+                                                                             UUID lastId) {
+        return (root, query, cb) -> {
+            Path<T> path = root.get(field);
+            Path<UUID> id = root.get("id");
+            // field >= value AND (field > value OR id > lastId): the leading range lets the
+            // database seek straight to the boundary instead of evaluating the OR per row
+            Predicate bound = descending ? cb.lessThanOrEqualTo(path, value) : cb.greaterThanOrEqualTo(path, value);
+            Predicate beyond = descending ? cb.lessThan(path, value) : cb.greaterThan(path, value);
+            Predicate tieBreak = descending ? cb.lessThan(id, lastId) : cb.greaterThan(id, lastId);
+            return cb.and(bound, cb.or(beyond, tieBreak));
+        };
+    }
+}
@@ -1,9 +1,31 @@
 package com.cloudbook.catalog.repository;
 
+import com.cloudbook.catalog.dto.BookStreamUpdate;
 import com.cloudbook.catalog.model.Book;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
-public interface CatalogRepository extends JpaRepository<Book, UUID> {
+public interface CatalogRepository extends JpaRepository<Book, UUID>, JpaSpecificationExecutor<Book>, CatalogRepositoryCustom {
+
+    // Forward-only cursor for exports; must be consumed inside a transaction and closed
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("select b from Book b order by b.id")
+    Stream<Book> streamAllOrderById();
+
+    @Query("select new com.cloudbook.catalog.dto.BookStreamUpdate(b.id, b.stock, b.price) from Book b where b.id in :ids")
+    List<BookStreamUpdate> findStreamUpdates(@Param("ids") Collection<UUID> ids);
 }
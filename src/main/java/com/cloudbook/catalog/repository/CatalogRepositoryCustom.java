@@ -0,0 +1,17 @@
+package com.cloudbook.catalog.repository;
+
+import com.cloudbook.catalog.dto.BookSummary;
+import com.cloudbook.catalog.model.Book;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+public interface CatalogRepositoryCustom {
+
+    Page<BookSummary> findSummaries(Specification<Book> spec, Pageable pageable);
+
+    List<BookSummary> findSummaries(Specification<Book> spec, Sort sort, int limit);
+}
@@ -0,0 +1,284 @@
+package com.cloudbook.catalog.search;
+
+import com.cloudbook.catalog.dto.BookSummary;
+import com.cloudbook.catalog.model.Book;
+
+import java.math.BigDecimal;
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over book title, author and genre.
+ * <p>
+ * Query terms match indexed terms exactly, by prefix, or within one edit
+ * (insert, delete, substitute or transpose). Typo candidates come from a
+ * deletion-neighbourhood map, so a lookup costs a handful of hash probes
+ * rather than a scan of the vocabulary. Every query term must match for a
+ * book to be returned; hits are ranked by match quality, field and term rarity.
+ */
+public class BookSearchIndex {
+
+    private static final int TITLE_WEIGHT = 3;
+    private static final int AUTHOR_WEIGHT = 2;
+    private static final int GENRE_WEIGHT = 1;
+
+    private static final double EXACT_BOOST = 3.0;
+    private static final double PREFIX_BOOST = 2.0;
+    private static final double FUZZY_BOOST = 1.0;
+
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final int MIN_FUZZY_LENGTH = 4;
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+
+    private final Map<UUID, IndexedBook> documents = new HashMap<>();
+    private final TreeMap<String, Map<UUID, Integer>> postings = new TreeMap<>();
+    private final Map<String, Set<String>> deletions = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public void put(Book book) {
+        put(new IndexedBook(book.getId(), book.getTitle(), book.getAuthor(), book.getGenre(), book.getPrice(),
+                fieldWeights(book.getTitle(), book.getAuthor(), book.getGenre())));
+    }
+
+    public void put(BookSummary book) {
+        put(new IndexedBook(book.id(), book.title(), book.author(), book.genre(), book.price(),
+                fieldWeights(book.title(), book.author(), book.genre())));
+    }
+
+    private void put(IndexedBook doc) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(doc.id());
+            documents.put(doc.id(), doc);
+            doc.terms().forEach((term, weight) -> {
+                Map<UUID, Integer> posting = postings.get(term);
+                if (posting == null) {
+                    posting = new HashMap<>();
+                    postings.put(term, posting);
+                    for (String variant : deletionsOf(term)) {
+                        deletions.computeIfAbsent(variant, v -> new HashSet<>()).add(term);
+                    }
+                }
+                posting.put(doc.id(), weight);
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(UUID bookId) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(bookId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<IndexedBook> search(String query, int limit) {
+        List<String> tokens = tokenize(query).stream().distinct().toList();
+        if (tokens.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            Map<UUID, Double> scores = null;
+            for (String token : tokens) {
+                Map<UUID, Double> tokenScores = scoreToken(token);
+                if (scores == null) {
+                    scores = tokenScores;
+                } else {
+                    scores.keySet().retainAll(tokenScores.keySet());
+                    scores.replaceAll((id, score) -> score + tokenScores.get(id));
+                }
+                if (scores.isEmpty()) {
+                    return List.of();
+                }
+            }
+
+            Comparator<Map.Entry<UUID, Double>> byRelevance = Map.Entry.<UUID, Double>comparingByValue()
+                    .thenComparing(e -> documents.get(e.getKey()).title(), Comparator.reverseOrder());
+            PriorityQueue<Map.Entry<UUID, Double>> top = new PriorityQueue<>(limit + 1, byRelevance);
+            for (Map.Entry<UUID, Double> entry : scores.entrySet()) {
+                top.offer(entry);
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+
+            List<IndexedBook> results = new ArrayList<>(top.size());
+            while (!top.isEmpty()) {
+                results.add(documents.get(top.poll().getKey()));
+            }
+            Collections.reverse(results);
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<UUID, Double> scoreToken(String token) {
+        Map<UUID, Double> scores = new HashMap<>();
+
+        Map<UUID, Integer> exact = postings.get(token);
+        if (exact != null) {
+            accumulate(scores, exact, EXACT_BOOST);
+        }
+
+        if (token.length() >= MIN_PREFIX_LENGTH) {
+            int expanded = 0;
+            for (Map.Entry<String, Map<UUID, Integer>> entry
+                    : postings.subMap(token, false, token + Character.MAX_VALUE, false).entrySet()) {
+                accumulate(scores, entry.getValue(), PREFIX_BOOST);
+                if (++expanded >= MAX_PREFIX_EXPANSIONS) {
+                    break;
+                }
+            }
+        }
+
+        if (token.length() >= MIN_FUZZY_LENGTH) {
+            for (String term : fuzzyCandidates(token)) {
+                accumulate(scores, postings.get(term), FUZZY_BOOST);
+            }
+        }
+        return scores;
+    }
+
+    private void accumulate(Map<UUID, Double> scores, Map<UUID, Integer> posting, double boost) {
+        double idf = Math.log(1.0 + (double) documents.size() / posting.size());
+        posting.forEach((id, weight) -> scores.merge(id, boost * weight * idf, Math::max));
+    }
+
+    private Set<String> fuzzyCandidates(String token) {
+        Set<String> candidates = new HashSet<>();
+        Set<String> probes = deletionsOf(token);
+        probes.add(token);
+        for (String probe : probes) {
+            if (postings.containsKey(probe)) {
+                candidates.add(probe);
+            }
+            Set<String> terms = deletions.get(probe);
+            if (terms != null) {
+                candidates.addAll(terms);
+            }
+        }
+        candidates.remove(token);
+        candidates.removeIf(term -> !withinOneEdit(token, term));
+        return candidates;
+    }
+
+    private void removeInternal(UUID bookId) {
+        IndexedBook existing = documents.remove(bookId);
+        if (existing == null) {
+            return;
+        }
+        for (String term : existing.terms().keySet()) {
+            Map<UUID, Integer> posting = postings.get(term);
+            if (posting == null) {
+                continue;
+            }
+            posting.remove(bookId);
+            if (posting.isEmpty()) {
+                postings.remove(term);
+                for (String variant : deletionsOf(term)) {
+                    Set<String> terms = deletions.get(variant);
+                    if (terms != null) {
+                        terms.remove(term);
+                        if (terms.isEmpty()) {
+                            deletions.remove(variant);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static Map<String, Integer> fieldWeights(String title, String author, String genre) {
+        Map<String, Integer> terms = new HashMap<>();
+        addTerms(terms, genre, GENRE_WEIGHT);
+        addTerms(terms, author, AUTHOR_WEIGHT);
+        addTerms(terms, title, TITLE_WEIGHT);
+        return terms;
+    }
+
+    private static void addTerms(Map<String, Integer> terms, String text, int weight) {
+        for (String token : tokenize(text)) {
+            terms.merge(token, weight, Math::max);
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String folded = Normalizer.normalize(text, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT);
+        List<String> tokens = new ArrayList<>();
+        for (String token : folded.split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static Set<String> deletionsOf(String term) {
+        Set<String> variants = new HashSet<>();
+        if (term.length() < MIN_FUZZY_LENGTH - 1) {
+            return variants;
+        }
+        for (int i = 0; i < term.length(); i++) {
+            variants.add(term.substring(0, i) + term.substring(i + 1));
+        }
+        return variants;
+    }
+
+    // Optimal string alignment distance <= 1, without building the full matrix
+    static boolean withinOneEdit(String a, String b) {
+        int la = a.length();
+        int lb = b.length();
+        if (Math.abs(la - lb) > 1) {
+            return false;
+        }
+        int i = 0;
+        while (i < la && i < lb && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        if (la == lb) {
+            if (i == la) {
+                return true;
+            }
+            if (a.substring(i + 1).equals(b.substring(i + 1))) {
+                return true;
+            }
+            return i + 1 < la
+                    && a.charAt(i) == b.charAt(i + 1)
+                    && a.charAt(i + 1) == b.charAt(i)
+                    && a.substring(i + 2).equals(b.substring(i + 2));
+        }
+        return la > lb
+                ? a.substring(i + 1).equals(b.substring(i))
+                : a.substring(i).equals(b.substring(i + 1));
+    }
+
+    public record IndexedBook(UUID id,
+                              String title,
+                              String author,
+                              String genre,
+                              BigDecimal price,
+                              Map<String, Integer> terms) {
+    }
+}
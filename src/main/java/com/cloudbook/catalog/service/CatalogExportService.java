@@ -0,0 +1,94 @@
+package com.cloudbook.catalog.service;
+
+import com.cloudbook.catalog.dto.CatalogExportRecord;
+import com.cloudbook.catalog.model.Book;
+import com.cloudbook.catalog.repository.CatalogRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes the whole catalog as NDJSON, one book per line, in id order. Rows come
+ * from a forward-only database cursor and are detached as soon as they are
+ * written, and the response is flushed every few hundred rows, so memory use
+ * stays flat whatever the catalog size. The connection is taken when the first
+ * byte is about to be written and released as soon as the cursor is exhausted.
+ */
+@Service
+@Slf4j
+public class CatalogExportService {
+
+    @Autowired
+    private CatalogRepository catalogRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${catalog.export.flush-every:500}")
+    private int flushEvery;
+
+    public void exportBooks(OutputStream out) {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        ObjectWriter writer = objectMapper.writerFor(CatalogExportRecord.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        long start = System.currentTimeMillis();
+
+        long exported = readOnly.execute(status -> {
+            long rows = 0;
+            try (Stream<Book> books = catalogRepository.streamAllOrderById();
+                 JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                Iterator<Book> iterator = books.iterator();
+                while (iterator.hasNext()) {
+                    Book book = iterator.next();
+                    writer.writeValue(generator, toRecord(book));
+                    generator.writeRaw('\n');
+                    entityManager.detach(book);
+                    if (++rows % flushEvery == 0) {
+                        generator.flush();
+                    }
+                }
+                generator.flush();
+            } catch (IOException ex) {
+                // Usually the client went away; stop reading so the connection is returned
+                throw new RuntimeException("Catalog export aborted after " + rows + " rows: " + ex.getMessage());
+            }
+            return rows;
+        });
+
+        log.info("Catalog export finished: {} books in {} ms", exported, System.currentTimeMillis() - start);
+    }
+
+    private CatalogExportRecord toRecord(Book book) {
+        return new CatalogExportRecord(
+                book.getId().toString(),
+                book.getTitle(),
+                book.getAuthor(),
+                book.getGenre(),
+                book.getPrice(),
+                book.getStock(),
+                book.getRating()
+        );
+    }
+}
@@ -0,0 +1,123 @@
+package com.cloudbook.catalog.service;
+
+import com.cloudbook.catalog.dto.BookSummary;
+import com.cloudbook.catalog.dto.CatalogFacetResponse;
+import com.cloudbook.catalog.event.BookChangedEvent;
+import com.cloudbook.catalog.facet.CatalogFacetCounter;
+import com.cloudbook.catalog.repository.BookSpecifications;
+import com.cloudbook.catalog.repository.CatalogRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Serves facet counts from a {@link CatalogFacetCounter} kept up to date from
+ * committed book changes. The counter is rebuilt on start and then periodically
+ * by walking the book table in id order into a new counter, which is swapped in
+ * once complete. Changes committed while a rebuild runs go to both counters and
+ * win over the rows the rebuild loads afterwards.
+ */
+@Service
+@Slf4j
+public class CatalogFacetService {
+
+    private final List<BigDecimal> priceBuckets;
+    private volatile CatalogFacetCounter counter;
+    // Guarded by this service while a rebuild runs; ids changed since the rebuild started
+    private CatalogFacetCounter rebuilding;
+    private final Set<UUID> changedDuringRebuild = new HashSet<>();
+
+    @Autowired
+    private CatalogRepository catalogRepository;
+
+    @Value("${catalog.facets.max-values:50}")
+    private int maxValues;
+
+    @Value("${catalog.facets.reconcile-batch-size:1000}")
+    private int reconcileBatchSize;
+
+    public CatalogFacetService(@Value("${catalog.facets.price-buckets:0,100,250,500,1000}") List<BigDecimal> priceBuckets) {
+        this.priceBuckets = List.copyOf(priceBuckets);
+        this.counter = new CatalogFacetCounter(this.priceBuckets);
+    }
+
+    public CatalogFacetResponse getFacets(String genre, String author, BigDecimal minPrice, BigDecimal maxPrice) {
+        return counter.count(genre, author, minPrice, maxPrice, maxValues);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onBookChanged(BookChangedEvent event) {
+        apply(counter, event);
+        if (rebuilding != null) {
+            apply(rebuilding, event);
+            changedDuringRebuild.add(event.getCurrent() != null ? event.getCurrent().getId() : event.getPrevious().getId());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        reconcile();
+    }
+
+    /**
+     * Recounts every book into a new counter, correcting any drift in the live
+     * one. Pages are read by id after the last one seen, so the cost stays linear
+     * in the number of books.
+     */
+    @Scheduled(initialDelayString = "${catalog.facets.reconcile-interval:5m}",
+            fixedDelayString = "${catalog.facets.reconcile-interval:5m}")
+    public void reconcile() {
+        long start = System.currentTimeMillis();
+        CatalogFacetCounter next = new CatalogFacetCounter(priceBuckets);
+        synchronized (this) {
+            rebuilding = next;
+            changedDuringRebuild.clear();
+        }
+        try {
+            UUID lastId = null;
+            List<BookSummary> page;
+            do {
+                page = catalogRepository.findSummaries(BookSpecifications.idAfter(lastId), Sort.by("id"), reconcileBatchSize);
+                synchronized (this) {
+                    for (BookSummary book : page) {
+                        if (!changedDuringRebuild.contains(book.id())) {
+                            next.put(book);
+                        }
+                    }
+                }
+                if (!page.isEmpty()) {
+                    lastId = page.get(page.size() - 1).id();
+                }
+            } while (page.size() == reconcileBatchSize);
+            synchronized (this) {
+                counter = next;
+            }
+        } finally {
+            synchronized (this) {
+                rebuilding = null;
+                changedDuringRebuild.clear();
+            }
+        }
+        log.info("Facet counters reconciled from {} books in {} ms", next.size(), System.currentTimeMillis() - start);
+    }
+
+    private static void apply(CatalogFacetCounter target, BookChangedEvent event) {
+        if (event.getCurrent() != null) {
+            target.put(event.getCurrent());
+        } else if (event.getPrevious() != null) {
+            target.remove(event.getPrevious().getId());
+        }
+    }
+}
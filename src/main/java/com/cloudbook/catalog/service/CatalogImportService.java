@@ -0,0 +1,247 @@
+package com.cloudbook.catalog.service;
+
+import com.cloudbook.catalog.dto.CatalogImportResponse;
+import com.cloudbook.catalog.dto.CatalogRequest;
+import com.cloudbook.catalog.event.BookChangedEvent;
+import com.cloudbook.catalog.model.Book;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Streams a supplier feed (NDJSON or CSV with a header row) into the catalog.
+ * Rows are validated as they are read and written in fixed-size chunks, each in
+ * its own transaction with JDBC batching, and the persistence context is cleared
+ * after every chunk, so heap use does not grow with the size of the feed.
+ */
+@Service
+@Slf4j
+public class CatalogImportService {
+
+    public enum Format {
+        NDJSON, CSV
+    }
+
+    private static final BigDecimal MAX_RATING = BigDecimal.valueOf(5);
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${catalog.import.batch-size:500}")
+    private int batchSize;
+
+    @Value("${catalog.import.max-reported-errors:1000}")
+    private int maxReportedErrors;
+
+    public CatalogImportResponse importBooks(InputStream body, Format format) {
+        CatalogImportResponse response = new CatalogImportResponse();
+        List<Book> batch = new ArrayList<>(batchSize);
+        List<Long> batchLines = new ArrayList<>(batchSize);
+        long start = System.currentTimeMillis();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            Map<String, Integer> csvColumns = null;
+            long lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (format == Format.CSV && csvColumns == null) {
+                    csvColumns = parseCsvHeader(line);
+                    continue;
+                }
+
+                response.setProcessed(response.getProcessed() + 1);
+                try {
+                    CatalogRequest row = format == Format.CSV
+                            ? parseCsvRow(line, csvColumns)
+                            : objectMapper.readValue(line, CatalogRequest.class);
+                    batch.add(toBook(row));
+                    batchLines.add(lineNumber);
+                } catch (Exception ex) {
+                    reject(response, lineNumber, ex.getMessage());
+                }
+
+                if (batch.size() >= batchSize) {
+                    flush(batch, batchLines, response);
+                }
+            }
+            flush(batch, batchLines, response);
+        } catch (IOException ex) {
+            throw new RuntimeException("Failed to read import feed: " + ex.getMessage());
+        }
+
+        log.info("Catalog import finished: processed {}, imported {}, failed {} in {} ms",
+                response.getProcessed(), response.getImported(), response.getFailed(),
+                System.currentTimeMillis() - start);
+        response.setMessage("Catalog import completed");
+        return response;
+    }
+
+    private void flush(List<Book> batch, List<Long> batchLines, CatalogImportResponse response) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+                for (Book book : batch) {
+                    entityManager.persist(book);
+                }
+                entityManager.flush();
+                for (Book book : batch) {
+                    eventPublisher.publishEvent(new BookChangedEvent(this, null, book));
+                }
+                entityManager.clear();
+            });
+            response.setImported(response.getImported() + batch.size());
+        } catch (RuntimeException ex) {
+            log.error("Import batch starting at line {} failed: {}", batchLines.get(0), ex.getMessage());
+            for (Long line : batchLines) {
+                reject(response, line, "Batch write failed: " + ex.getMessage());
+            }
+        } finally {
+            batch.clear();
+            batchLines.clear();
+        }
+    }
+
+    private void reject(CatalogImportResponse response, long line, String error) {
+        response.setFailed(response.getFailed() + 1);
+        if (response.getErrors().size() < maxReportedErrors) {
+            response.getErrors().add(new CatalogImportResponse.RowError(line, error));
+        } else {
+            response.setErrorsTruncated(true);
+        }
+    }
+
+    private Book toBook(CatalogRequest row) {
+        requireText(row.getTitle(), "title");
+        requireText(row.getAuthor(), "author");
+        requireText(row.getGenre(), "genre");
+        if (row.getPrice() == null || row.getPrice().signum() < 0) {
+            throw new IllegalArgumentException("price must be zero or positive");
+        }
+        if (row.getStock() < 0) {
+            throw new IllegalArgumentException("stock must be zero or positive");
+        }
+        BigDecimal rating = row.getRating() == null ? BigDecimal.ZERO : row.getRating();
+        if (rating.signum() < 0 || rating.compareTo(MAX_RATING) > 0) {
+            throw new IllegalArgumentException("rating must be between 0 and 5");
+        }
+        return Book.builder()
+                .title(row.getTitle().trim())
+                .author(row.getAuthor().trim())
+                .genre(row.getGenre().trim())
+                .price(row.getPrice())
+                .stock(row.getStock())
+                .rating(rating)
+                .build();
+    }
+
+    private void requireText(String value, String field) {
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException(field + " is required");
+        }
+    }
+
+    private Map<String, Integer> parseCsvHeader(String line) {
+        List<String> names = splitCsv(line);
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        for (String required : List.of("title", "author", "genre", "price")) {
+            if (!columns.containsKey(required)) {
+                throw new RuntimeException("CSV header is missing column: " + required);
+            }
+        }
+        return columns;
+    }
+
+    private CatalogRequest parseCsvRow(String line, Map<String, Integer> columns) {
+        List<String> values = splitCsv(line);
+        CatalogRequest row = new CatalogRequest();
+        row.setTitle(column(values, columns, "title"));
+        row.setAuthor(column(values, columns, "author"));
+        row.setGenre(column(values, columns, "genre"));
+        String price = column(values, columns, "price");
+        row.setPrice(price == null ? null : new BigDecimal(price.trim()));
+        String stock = column(values, columns, "stock");
+        row.setStock(stock == null ? 0 : Integer.parseInt(stock.trim()));
+        String rating = column(values, columns, "rating");
+        row.setRating(rating == null ? null : new BigDecimal(rating.trim()));
+        return row;
+    }
+
+    private String column(List<String> values, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= values.size()) {
+            return null;
+        }
+        String value = values.get(index);
+        return value.isBlank() ? null : value;
+    }
+
+    // RFC 4180 style: comma separated, optional double quotes, "" escapes a quote
+    private List<String> splitCsv(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted value");
+        }
+        values.add(current.toString());
+        return values;
+    }
+}
@@ -0,0 +1,113 @@
+package com.cloudbook.catalog.service;
+
+import com.cloudbook.catalog.dto.BookSummary;
+import com.cloudbook.catalog.dto.CatalogResponse;
+import com.cloudbook.catalog.event.BookChangedEvent;
+import com.cloudbook.catalog.repository.BookSpecifications;
+import com.cloudbook.catalog.repository.CatalogRepository;
+import com.cloudbook.catalog.search.BookSearchIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Answers catalog searches from an in-memory {@link BookSearchIndex}. The index
+ * is rebuilt on start by walking the book table in id order and swapped in once
+ * complete, so searches keep using the previous index until then. Changes
+ * committed while a rebuild runs go to both indexes and win over the rows the
+ * rebuild loads afterwards.
+ */
+@Service
+@Slf4j
+public class CatalogSearchService {
+
+    @Autowired
+    private CatalogRepository catalogRepository;
+
+    @Value("${catalog.search.rebuild-batch-size:1000}")
+    private int rebuildBatchSize;
+
+    @Value("${catalog.search.max-results:50}")
+    private int maxResults;
+
+    private volatile BookSearchIndex index = new BookSearchIndex();
+    // Guarded by this service while a rebuild runs; ids changed since the rebuild started
+    private BookSearchIndex rebuilding;
+    private final Set<UUID> changedDuringRebuild = new HashSet<>();
+
+    public List<CatalogResponse> search(String query, int limit) {
+        return index.search(query, Math.min(limit, maxResults)).stream()
+                .map(hit -> new CatalogResponse(
+                        hit.id().toString(),
+                        hit.title(),
+                        hit.author(),
+                        hit.price(),
+                        hit.genre()
+                ))
+                .toList();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        BookSearchIndex next = new BookSearchIndex();
+        synchronized (this) {
+            rebuilding = next;
+            changedDuringRebuild.clear();
+        }
+        try {
+            // Keyset pages of projections: each page is an index seek, and no count query is needed
+            UUID lastId = null;
+            List<BookSummary> page;
+            do {
+                page = catalogRepository.findSummaries(BookSpecifications.idAfter(lastId), Sort.by("id"), rebuildBatchSize);
+                synchronized (this) {
+                    for (BookSummary book : page) {
+                        if (!changedDuringRebuild.contains(book.id())) {
+                            next.put(book);
+                        }
+                    }
+                }
+                if (!page.isEmpty()) {
+                    lastId = page.get(page.size() - 1).id();
+                }
+            } while (page.size() == rebuildBatchSize);
+            synchronized (this) {
+                index = next;
+            }
+        } finally {
+            synchronized (this) {
+                rebuilding = null;
+                changedDuringRebuild.clear();
+            }
+        }
+        log.info("Search index rebuilt with {} books in {} ms", next.size(), System.currentTimeMillis() - start);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onBookChanged(BookChangedEvent event) {
+        apply(index, event);
+        if (rebuilding != null) {
+            apply(rebuilding, event);
+            changedDuringRebuild.add(event.getCurrent() != null ? event.getCurrent().getId() : event.getPrevious().getId());
+        }
+    }
+
+    private static void apply(BookSearchIndex target, BookChangedEvent event) {
+        if (event.getCurrent() != null) {
+            target.put(event.getCurrent());
+        } else if (event.getPrevious() != null) {
+            target.remove(event.getPrevious().getId());
+        }
+    }
+}
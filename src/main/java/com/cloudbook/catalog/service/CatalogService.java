@@ -1,22 +1,41 @@
 package com.cloudbook.catalog.service;
 
+import com.cloudbook.catalog.cache.BookCache;
+import com.cloudbook.catalog.cache.CatalogChangeTracker;
+import com.cloudbook.catalog.dto.BookSummary;
+import com.cloudbook.catalog.dto.CatalogBatchResponse;
 import com.cloudbook.catalog.dto.CatalogRequest;
 import com.cloudbook.catalog.dto.CatalogResponse;
+import com.cloudbook.catalog.dto.CatalogRevision;
+import com.cloudbook.catalog.dto.CatalogSlice;
+import com.cloudbook.catalog.dto.CatalogStockBatchRequest;
+import com.cloudbook.catalog.dto.CatalogStockBatchResponse;
+import com.cloudbook.catalog.dto.CatalogStockShardResponse;
+import com.cloudbook.catalog.event.BookChangedEvent;
 import com.cloudbook.catalog.model.Book;
+import com.cloudbook.catalog.repository.BookSpecifications;
 import com.cloudbook.catalog.repository.CatalogRepository;
-import io.github.resilience4j.ratelimiter.annotation.RateLimiter;
+import com.cloudbook.catalog.util.CatalogCursor;
+import com.cloudbook.catalog.util.CatalogMapper;
+import com.cloudbook.common.exception.custom.StockConflict;
+import com.cloudbook.inventory.dto.StockAdjustmentResult;
+import com.cloudbook.inventory.model.StockShard;
+import com.cloudbook.inventory.retry.StockContentionMetrics;
+import com.cloudbook.inventory.service.StockService;
+import com.cloudbook.inventory.service.StockShardService;
 import io.github.resilience4j.retry.annotation.Retry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.data.domain.*;
-import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.UUID;
+import java.util.*;
 
 @Service
 @Slf4j
@@ -25,65 +44,194 @@ public class CatalogService {
     @Autowired
     private CatalogRepository catalogRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private BookCache bookCache;
+
+    @Autowired
+    private CatalogMapper catalogMapper;
+
+    @Autowired
+    private CatalogChangeTracker catalogChangeTracker;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private StockShardService stockShardService;
 
-    public List<CatalogResponse> listBooks(String genre,
+    @Autowired
+    private StockContentionMetrics contentionMetrics;
+
+    @Value("${catalog.batch-get.max-ids:100}")
+    private int maxBatchIds;
+
+    @Value("${catalog.stock-batch.max-items:5000}")
+    private int maxStockBatchItems;
+
+    @Value("${catalog.browse.max-page-size:100}")
+    private int maxPageSize;
+
+
+    private static final Set<String> SORTABLE_FIELDS = Set.of("title", "author", "price", "rating");
+
+    @Transactional(readOnly = true)
+    public Page<CatalogResponse> listBooks(String genre,
                                            String author,
                                            BigDecimal minPrice,
                                            BigDecimal maxPrice,
+                                           String sortBy,
+                                           String direction,
                                            int page,
                                            int size) {
 
-        Pageable pageable = PageRequest.of(page, size, Sort.by("title").ascending());
-
-        List<Book> allBooks = catalogRepository.findAll();
-        List<Book> filtered = new ArrayList<>();
+        if (size < 1) {
+            throw new RuntimeException("Page size must be at least 1");
+        }
+        size = Math.min(size, maxPageSize);
+        Pageable pageable = PageRequest.of(page, size, resolveSort(sortBy, direction));
         log.info("Filtering book details with filters - genre: {}, author: {}, minPrice: {}, maxPrice: {}, page: {}, size: {}",
                 genre, author, minPrice, maxPrice, page, size);
 
-        for (Book book : allBooks) {
-            boolean matches = genre == null || genre.isBlank() || book.getGenre().equalsIgnoreCase(genre);
+        return catalogRepository.findSummaries(BookSpecifications.withFilters(genre, author, minPrice, maxPrice), pageable)
+                .map(catalogMapper::toResponse);
+    }
 
-            if (author != null && !author.isBlank() && !book.getAuthor().equalsIgnoreCase(author)) {
-                matches = false;
-            }
-            if (minPrice != null && book.getPrice().compareTo(minPrice) < 0) {
-                matches = false;
-            }
-            if (maxPrice != null && book.getPrice().compareTo(maxPrice) > 0) {
-                matches = false;
-            }
+    @Transactional(readOnly = true)
+    public CatalogSlice listBooksAfter(String genre,
+                                       String author,
+                                       BigDecimal minPrice,
+                                       BigDecimal maxPrice,
+                                       String sortBy,
+                                       String direction,
+                                       String cursor,
+                                       int size) {
+
+        if (size < 1) {
+            throw new RuntimeException("Page size must be at least 1");
+        }
+        size = Math.min(size, maxPageSize);
+        String field = resolveSortField(sortBy);
+        Sort.Direction dir = resolveDirection(direction);
+        log.info("Keyset browsing with filters - genre: {}, author: {}, minPrice: {}, maxPrice: {}, sort: {} {}, size: {}",
+                genre, author, minPrice, maxPrice, field, dir, size);
 
-            if (matches) filtered.add(book);
+        Specification<Book> spec = BookSpecifications.withFilters(genre, author, minPrice, maxPrice);
+        if (cursor != null && !cursor.isBlank()) {
+            CatalogCursor position = CatalogCursor.decode(cursor);
+            if (!field.equals(position.getSortBy()) || !dir.name().equals(position.getDirection())) {
+                throw new RuntimeException("Cursor does not match the requested sort");
+            }
+            spec = spec.and(afterCursor(field, dir, position));
         }
 
-        int start = Math.min((int) pageable.getOffset(), filtered.size());
-        int end = Math.min((start + pageable.getPageSize()), filtered.size());
-        List<Book> pagedBooks = filtered.subList(start, end);
+        // Fetch one extra row to learn whether another page exists without a count query
+        List<BookSummary> books = catalogRepository.findSummaries(spec, resolveSort(field, dir), size + 1);
 
-        List<CatalogResponse> bookResponses = pagedBooks.stream()
-                .map(book -> new CatalogResponse(
-                        book.getId().toString(),
-                        book.getTitle(),
-                        book.getAuthor(),
-                        book.getPrice(),
-                        book.getGenre()
-                ))
+        String nextCursor = null;
+        if (books.size() > size) {
+            books = books.subList(0, size);
+            BookSummary last = books.get(size - 1);
+            nextCursor = new CatalogCursor(field, dir.name(), sortValue(last, field), last.id()).encode();
+        }
+
+        List<CatalogResponse> responses = books.stream()
+                .map(catalogMapper::toResponse)
                 .toList();
+        return new CatalogSlice(responses, nextCursor);
+    }
 
-        return new PageImpl<>(bookResponses, pageable, filtered.size()).get().toList();
+    private Specification<Book> afterCursor(String field, Sort.Direction dir, CatalogCursor position) {
+        boolean descending = dir.isDescending();
+        return switch (field) {
+            case "price", "rating" -> BookSpecifications.after(field, descending,
+                    new BigDecimal(position.getLastValue()), position.getLastId());
+            default -> BookSpecifications.after(field, descending, position.getLastValue(), position.getLastId());
+        };
+    }
+
+    private String sortValue(BookSummary book, String field) {
+        return switch (field) {
+            case "author" -> book.author();
+            case "price" -> book.price().toPlainString();
+            case "rating" -> book.rating().toPlainString();
+            default -> book.title();
+        };
+    }
+
+    private Sort resolveSort(String sortBy, String direction) {
+        return resolveSort(resolveSortField(sortBy), resolveDirection(direction));
+    }
+
+    private Sort resolveSort(String field, Sort.Direction dir) {
+        // id as tie-breaker keeps page boundaries stable when sort values repeat
+        return Sort.by(dir, field).and(Sort.by(dir, "id"));
+    }
+
+    private String resolveSortField(String sortBy) {
+        String field = (sortBy == null || sortBy.isBlank()) ? "title" : sortBy;
+        if (!SORTABLE_FIELDS.contains(field)) {
+            throw new RuntimeException("Unsupported sort field: " + sortBy);
+        }
+        return field;
+    }
+
+    private Sort.Direction resolveDirection(String direction) {
+        return "desc".equalsIgnoreCase(direction) ? Sort.Direction.DESC : Sort.Direction.ASC;
     }
 
     public CatalogResponse getBookById(String bookId) {
-        Book book = catalogRepository.findById(UUID.fromString(bookId))
+        Book book = bookCache.get(UUID.fromString(bookId))
+                .orElseThrow(() -> new RuntimeException("Book not found with id: " + bookId));
+
+        return catalogMapper.toResponse(book);
+    }
+
+    public CatalogRevision getBookRevision(String bookId) {
+        Book book = bookCache.get(UUID.fromString(bookId))
                 .orElseThrow(() -> new RuntimeException("Book not found with id: " + bookId));
+        return new CatalogRevision("\"" + book.getVersion() + "\"", book.getUpdatedAt());
+    }
+
+    public CatalogRevision getCatalogRevision() {
+        return catalogChangeTracker.current();
+    }
+
+    public CatalogBatchResponse getBooksByIds(List<String> bookIds) {
+        if (bookIds == null || bookIds.isEmpty()) {
+            throw new RuntimeException("At least one book id is required");
+        }
+        if (bookIds.size() > maxBatchIds) {
+            throw new RuntimeException("At most " + maxBatchIds + " book ids can be fetched at once");
+        }
+
+        Map<String, UUID> parsed = new LinkedHashMap<>();
+        for (String bookId : bookIds) {
+            try {
+                parsed.putIfAbsent(bookId, UUID.fromString(bookId));
+            } catch (IllegalArgumentException | NullPointerException ex) {
+                parsed.putIfAbsent(bookId, null);
+            }
+        }
+        Map<UUID, Book> found = bookCache.getAll(parsed.values().stream().filter(Objects::nonNull).toList());
 
-        return new CatalogResponse(
-                book.getId().toString(),
-                book.getTitle(),
-                book.getAuthor(),
-                book.getPrice(),
-                book.getGenre()
-        );
+        List<CatalogResponse> books = new ArrayList<>(bookIds.size());
+        List<String> notFound = new ArrayList<>();
+        for (String bookId : bookIds) {
+            Book book = Optional.ofNullable(parsed.get(bookId)).map(found::get).orElse(null);
+            if (book == null) {
+                CatalogResponse miss = new CatalogResponse();
+                miss.setBookId(bookId);
+                miss.setMessage(parsed.get(bookId) == null ? "Invalid book id" : "Book not found");
+                books.add(miss);
+                notFound.add(bookId);
+            } else {
+                books.add(catalogMapper.toResponse(book));
+            }
+        }
+        return new CatalogBatchResponse(books, notFound);
     }
 
     public CatalogResponse addBook(CatalogRequest request) {
@@ -98,18 +246,14 @@ public class CatalogService {
                 .build();
 
         Book savedBook = catalogRepository.save(book);
-        return new CatalogResponse(
-                savedBook.getId().toString(),
-                savedBook.getTitle(),
-                savedBook.getAuthor(),
-                savedBook.getPrice(),
-                savedBook.getGenre()
-        );
+        eventPublisher.publishEvent(new BookChangedEvent(this, null, savedBook));
+        return catalogMapper.toResponse(savedBook);
     }
 
     public CatalogResponse updateBook(String bookId, CatalogRequest request) {
         Book existingBook = catalogRepository.findById(UUID.fromString(bookId))
                 .orElseThrow(() -> new RuntimeException("Book not found with id: " + bookId));
+        Book previous = existingBook.toBuilder().build();
 
         existingBook.setTitle(request.getTitle());
         existingBook.setAuthor(request.getAuthor());
@@ -120,13 +264,8 @@ public class CatalogService {
         existingBook.setVersion(existingBook.getVersion() + 1);
 
         Book updatedBook = catalogRepository.save(existingBook);
-        return new CatalogResponse(
-                updatedBook.getId().toString(),
-                updatedBook.getTitle(),
-                updatedBook.getAuthor(),
-                updatedBook.getPrice(),
-                updatedBook.getGenre()
-        );
+        eventPublisher.publishEvent(new BookChangedEvent(this, previous, updatedBook));
+        return catalogMapper.toResponse(updatedBook);
     }
 
     public CatalogResponse deleteBook(String bookId) {
@@ -134,40 +273,110 @@ public class CatalogService {
                 .orElseThrow(() -> new RuntimeException("Book not found with id: " + bookId));
 
         catalogRepository.delete(existingBook);
+        eventPublisher.publishEvent(new BookChangedEvent(this, existingBook, null));
         CatalogResponse response = new CatalogResponse();
         response.setMessage("Book deleted successfully");
         return response;
     }
 
+    // Rate limited by the controller, once per request rather than once per attempt
     @Transactional
     @Retry(name = "stockUpdateRetry", fallbackMethod = "handleStockUpdateFailure")
-    @RateLimiter(name = "stockUpdateRate")
     public CatalogResponse updateStock(String bookId, int delta) {
-        Book existingBook = catalogRepository.findById(UUID.fromString(bookId))
+        UUID id = UUID.fromString(bookId);
+        stockService.adjust(id, delta);
+        Book updatedBook = catalogRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Book not found with id: " + bookId));
+        return catalogMapper.toResponse(updatedBook);
+    }
 
-        int newStock = existingBook.getStock() + delta;
-        if (newStock < 0) {
-            throw new RuntimeException("Insufficient stock for book id: " + bookId);
+    public CatalogResponse handleStockUpdateFailure(String bookId, int delta, ConcurrencyFailureException ex) {
+        contentionMetrics.fallback(ex instanceof StockConflict conflict ? conflict.getBookId().toString() : bookId);
+        log.error("Stock update failed for book " + bookId + ": " + ex.getMessage());
+        throw new RuntimeException("Could not update stock after retries. Please try again later.");
+    }
+
+    // Business failures (unknown book, insufficient stock) were never retried and keep their own message
+    public CatalogResponse handleStockUpdateFailure(String bookId, int delta, Throwable ex) {
+        if (ex instanceof RuntimeException runtimeException) {
+            throw runtimeException;
         }
-        existingBook.setStock(newStock);
-        Book updatedBook;
-        try {
-            updatedBook = catalogRepository.save(existingBook);
-        } catch (ObjectOptimisticLockingFailureException ex) {
-            throw new RuntimeException("Concurrent stock update detected for book: " + bookId);
+        throw new RuntimeException(ex.getMessage(), ex);
+    }
+
+    /**
+     * Applies a warehouse sync in one transaction. Items for the same book are
+     * summed first, so the outcome does not depend on their order in the request;
+     * each item then reports its book's outcome and resulting stock.
+     */
+    public CatalogStockBatchResponse updateStockBatch(List<CatalogStockBatchRequest.Item> items) {
+        if (items == null || items.isEmpty()) {
+            throw new RuntimeException("At least one stock item is required");
+        }
+        if (items.size() > maxStockBatchItems) {
+            throw new RuntimeException("At most " + maxStockBatchItems + " stock items can be applied at once");
+        }
+
+        Map<UUID, Integer> deltas = new HashMap<>();
+        List<UUID> parsed = new ArrayList<>(items.size());
+        for (CatalogStockBatchRequest.Item item : items) {
+            UUID id = parseId(item.getBookId());
+            parsed.add(id);
+            if (id != null) {
+                deltas.merge(id, item.getDelta(), Integer::sum);
+            }
         }
-        return new CatalogResponse(
-                updatedBook.getId().toString(),
-                updatedBook.getTitle(),
-                updatedBook.getAuthor(),
-                updatedBook.getPrice(),
-                updatedBook.getGenre()
-        );
+        Map<UUID, StockAdjustmentResult> outcomes = deltas.isEmpty() ? Map.of() : stockService.adjustAll(deltas);
+
+        CatalogStockBatchResponse response = new CatalogStockBatchResponse();
+        for (int i = 0; i < items.size(); i++) {
+            CatalogStockBatchRequest.Item item = items.get(i);
+            StockAdjustmentResult outcome = parsed.get(i) == null ? null : outcomes.get(parsed.get(i));
+            String status = outcome == null ? "INVALID_ID" : outcome.status().name();
+            Integer stock = outcome == null ? null : outcome.currentStock();
+            response.getResults().add(new CatalogStockBatchResponse.ItemResult(item.getBookId(), item.getDelta(), status, stock));
+            if (outcome != null && outcome.status() == StockAdjustmentResult.Status.APPLIED) {
+                response.setApplied(response.getApplied() + 1);
+            } else {
+                response.setFailed(response.getFailed() + 1);
+            }
+        }
+        response.setMessage("Stock batch processed");
+        log.info("Stock batch processed: {} items, {} applied, {} failed",
+                items.size(), response.getApplied(), response.getFailed());
+        return response;
     }
 
-    public CatalogResponse handleStockUpdateFailure(String bookId, int delta, Throwable ex) {
-        log.error("Stock update failed for book " + bookId + ": " + ex.getMessage());
-        throw new RuntimeException("Could not update stock after retries. Please try again later.");
+    /**
+     * Splits a hot book's stock evenly across the given number of shard rows, or
+     * rebalances it if it is already sharded.
+     */
+    public CatalogStockShardResponse reshardStock(String bookId, int shards) {
+        List<StockShard> created = stockShardService.reshard(UUID.fromString(bookId), shards);
+        CatalogStockShardResponse response = new CatalogStockShardResponse();
+        response.setBookId(bookId);
+        for (StockShard shard : created) {
+            response.getShards().add(shard.getStock());
+            response.setStock(response.getStock() + shard.getStock());
+        }
+        response.setMessage("Stock split across " + shards + " shards");
+        return response;
+    }
+
+    public CatalogStockShardResponse unshardStock(String bookId) {
+        int stock = stockShardService.unshard(UUID.fromString(bookId));
+        CatalogStockShardResponse response = new CatalogStockShardResponse();
+        response.setBookId(bookId);
+        response.setStock(stock);
+        response.setMessage("Stock sharding disabled");
+        return response;
+    }
+
+    private UUID parseId(String bookId) {
+        try {
+            return UUID.fromString(bookId);
+        } catch (IllegalArgumentException | NullPointerException ex) {
+            return null;
+        }
     }
 }
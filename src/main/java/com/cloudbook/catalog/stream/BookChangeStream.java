@@ -0,0 +1,347 @@
+package com.cloudbook.catalog.stream;
+
+import com.cloudbook.catalog.dto.BookStreamUpdate;
+import com.cloudbook.catalog.event.BookChangedEvent;
+import com.cloudbook.catalog.model.Book;
+import com.cloudbook.catalog.repository.CatalogRepository;
+import com.cloudbook.common.exception.custom.RateLimitExceeded;
+import com.cloudbook.inventory.event.StockChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes stock and price changes to server-sent event subscribers, each watching
+ * a set of book ids.
+ * <p>
+ * Committed changes only mark a book dirty. Every flush interval the dirty ids
+ * are read back in one query and the current state is handed to each watching
+ * subscriber, so a burst of orders on one title becomes a single update, and
+ * what is sent is always the committed value rather than whatever event
+ * happened to arrive last. Each subscriber keeps at most one pending update per
+ * book and is written to from a small sender pool; a subscriber that has not
+ * accepted a write for {@code slow-subscriber-timeout} is dropped, and its
+ * client reconnects and receives a fresh snapshot.
+ * <p>
+ * A blocking write may not return when its emitter is completed, so dropping a
+ * subscriber also interrupts its sender, and until that write does return the
+ * pool runs one more thread in its place. Stalled clients therefore never take
+ * the senders away from the others.
+ */
+@Component
+@Slf4j
+public class BookChangeStream {
+
+    private static final int QUERY_CHUNK_SIZE = 1000;
+
+    private final CatalogRepository catalogRepository;
+    private final int maxSubscribers;
+    private final int maxIdsPerSubscription;
+    private final long emitterTimeoutMillis;
+    private final long slowSubscriberNanos;
+    private final int sendThreads;
+    private final ThreadPoolExecutor sender;
+    private final Counter dropped;
+
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final Map<UUID, Set<Subscription>> subscribersByBook = new ConcurrentHashMap<>();
+    private final Set<UUID> dirty = ConcurrentHashMap.newKeySet();
+
+    public BookChangeStream(CatalogRepository catalogRepository,
+                            MeterRegistry meterRegistry,
+                            @Value("${catalog.stream.max-subscribers:10000}") int maxSubscribers,
+                            @Value("${catalog.stream.max-ids:100}") int maxIdsPerSubscription,
+                            @Value("${catalog.stream.timeout:30m}") Duration emitterTimeout,
+                            @Value("${catalog.stream.slow-subscriber-timeout:10s}") Duration slowSubscriberTimeout,
+                            @Value("${catalog.stream.send-threads:4}") int sendThreads) {
+        this.catalogRepository = catalogRepository;
+        this.maxSubscribers = maxSubscribers;
+        this.maxIdsPerSubscription = maxIdsPerSubscription;
+        this.emitterTimeoutMillis = emitterTimeout.toMillis();
+        this.slowSubscriberNanos = slowSubscriberTimeout.toNanos();
+        this.sendThreads = sendThreads;
+        AtomicInteger threadCount = new AtomicInteger();
+        // A subscriber has at most one queued drain task, so the queue never needs more than one slot each
+        this.sender = new ThreadPoolExecutor(sendThreads, sendThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxSubscribers), runnable -> {
+                    Thread thread = new Thread(runnable, "book-stream-sender-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.dropped = Counter.builder("catalog.stream.dropped")
+                .description("Stream subscribers dropped for not keeping up")
+                .register(meterRegistry);
+        Gauge.builder("catalog.stream.subscribers", subscriptions, Set::size)
+                .description("Open book change streams")
+                .register(meterRegistry);
+    }
+
+    public SseEmitter subscribe(List<String> bookIds) {
+        if (bookIds == null || bookIds.isEmpty()) {
+            throw new RuntimeException("At least one book id is required");
+        }
+        if (bookIds.size() > maxIdsPerSubscription) {
+            throw new RuntimeException("At most " + maxIdsPerSubscription + " book ids can be watched per stream");
+        }
+        Set<UUID> ids = new HashSet<>();
+        for (String bookId : bookIds) {
+            try {
+                ids.add(UUID.fromString(bookId.trim()));
+            } catch (IllegalArgumentException ex) {
+                throw new RuntimeException("Invalid book id: " + bookId);
+            }
+        }
+        if (subscriptions.size() >= maxSubscribers) {
+            throw new RateLimitExceeded("Too many open book streams", 5);
+        }
+
+        Subscription subscription = new Subscription(newEmitter(emitterTimeoutMillis), Set.copyOf(ids));
+        subscription.emitter.onCompletion(() -> unsubscribe(subscription));
+        subscription.emitter.onTimeout(() -> unsubscribe(subscription));
+        subscription.emitter.onError(ex -> unsubscribe(subscription));
+        subscriptions.add(subscription);
+        for (UUID id : subscription.bookIds) {
+            subscribersByBook.compute(id, (key, watchers) -> {
+                Set<Subscription> set = watchers == null ? ConcurrentHashMap.newKeySet() : watchers;
+                set.add(subscription);
+                return set;
+            });
+        }
+
+        // Current state first, so the client never has to poll before it starts listening
+        Map<UUID, BookStreamUpdate> current = load(subscription.bookIds);
+        for (UUID id : subscription.bookIds) {
+            subscription.pending.put(id, current.getOrDefault(id, BookStreamUpdate.removed(id)));
+        }
+        schedule(subscription);
+        return subscription.emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(StockChangedEvent event) {
+        markDirty(event.getBookId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        Book previous = event.getPrevious();
+        Book current = event.getCurrent();
+        if (previous != null && current != null && previous.getStock() == current.getStock()
+                && previous.getPrice().compareTo(current.getPrice()) == 0) {
+            return;
+        }
+        markDirty(current != null ? current.getId() : previous.getId());
+    }
+
+    @Scheduled(fixedDelayString = "${catalog.stream.flush-interval:500ms}")
+    public void flush() {
+        dropStalled();
+        if (dirty.isEmpty()) {
+            return;
+        }
+        // Ids marked again after being taken here stay dirty for the next flush
+        List<UUID> changed = new ArrayList<>();
+        for (Iterator<UUID> it = dirty.iterator(); it.hasNext(); ) {
+            changed.add(it.next());
+            it.remove();
+        }
+
+        Map<UUID, BookStreamUpdate> current = load(changed);
+        Set<Subscription> touched = new HashSet<>();
+        for (UUID id : changed) {
+            Set<Subscription> watchers = subscribersByBook.get(id);
+            if (watchers == null) {
+                continue;
+            }
+            BookStreamUpdate update = current.getOrDefault(id, BookStreamUpdate.removed(id));
+            for (Subscription subscription : watchers) {
+                subscription.pending.put(id, update);
+                touched.add(subscription);
+            }
+        }
+        touched.forEach(this::schedule);
+    }
+
+    @Scheduled(fixedDelayString = "${catalog.stream.heartbeat-interval:15s}")
+    public void heartbeat() {
+        for (Subscription subscription : subscriptions) {
+            subscription.heartbeatDue = true;
+            schedule(subscription);
+        }
+    }
+
+    public int subscriberCount() {
+        return subscriptions.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+        for (Subscription subscription : subscriptions) {
+            subscription.emitter.complete();
+        }
+    }
+
+    protected SseEmitter newEmitter(long timeoutMillis) {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    private void markDirty(UUID bookId) {
+        if (subscribersByBook.containsKey(bookId)) {
+            dirty.add(bookId);
+        }
+    }
+
+    private Map<UUID, BookStreamUpdate> load(Collection<UUID> bookIds) {
+        List<UUID> ids = List.copyOf(bookIds);
+        Map<UUID, BookStreamUpdate> current = new HashMap<>(ids.size() * 2);
+        for (int from = 0; from < ids.size(); from += QUERY_CHUNK_SIZE) {
+            List<UUID> chunk = ids.subList(from, Math.min(from + QUERY_CHUNK_SIZE, ids.size()));
+            for (BookStreamUpdate update : catalogRepository.findStreamUpdates(chunk)) {
+                current.put(update.bookId(), update);
+            }
+        }
+        return current;
+    }
+
+    private void schedule(Subscription subscription) {
+        if (!subscription.draining.compareAndSet(false, true)) {
+            return;
+        }
+        subscription.lastProgressNanos = System.nanoTime();
+        try {
+            sender.execute(() -> drain(subscription));
+        } catch (RejectedExecutionException ex) {
+            drop(subscription, "sender queue is full");
+        }
+    }
+
+    private void drain(Subscription subscription) {
+        synchronized (subscription) {
+            subscription.writer = Thread.currentThread();
+        }
+        try {
+            do {
+                for (UUID id : subscription.pending.keySet()) {
+                    BookStreamUpdate update = subscription.pending.remove(id);
+                    if (update != null) {
+                        subscription.emitter.send(SseEmitter.event()
+                                .name(update.removed() ? "removed" : "update")
+                                .data(update, MediaType.APPLICATION_JSON));
+                        subscription.lastProgressNanos = System.nanoTime();
+                    }
+                }
+                if (subscription.heartbeatDue) {
+                    subscription.heartbeatDue = false;
+                    subscription.emitter.send(SseEmitter.event().comment("keep-alive"));
+                }
+                subscription.draining.set(false);
+            } while (subscription.hasWork() && subscription.draining.compareAndSet(false, true));
+        } catch (IOException | IllegalStateException ex) {
+            // Client went away; the emitter callbacks may not fire for a broken connection
+            unsubscribe(subscription);
+        } finally {
+            boolean replaced;
+            synchronized (subscription) {
+                subscription.writer = null;
+                replaced = subscription.replaced;
+                // An interrupt that arrived after the last write must not reach the next task
+                Thread.interrupted();
+            }
+            if (replaced) {
+                resizeSender(-1);
+            }
+        }
+    }
+
+    private void dropStalled() {
+        long now = System.nanoTime();
+        for (Subscription subscription : subscriptions) {
+            if (subscription.draining.get() && now - subscription.lastProgressNanos > slowSubscriberNanos) {
+                drop(subscription, "no progress for " + Duration.ofNanos(now - subscription.lastProgressNanos).toSeconds() + "s");
+            }
+        }
+    }
+
+    private void drop(Subscription subscription, String reason) {
+        if (unsubscribe(subscription)) {
+            dropped.increment();
+            log.warn("Dropping book stream subscriber watching {} books: {}", subscription.bookIds.size(), reason);
+            subscription.emitter.complete();
+            release(subscription);
+        }
+    }
+
+    private void release(Subscription subscription) {
+        synchronized (subscription) {
+            if (subscription.writer == null || subscription.replaced) {
+                return;
+            }
+            subscription.replaced = true;
+            subscription.writer.interrupt();
+        }
+        resizeSender(1);
+    }
+
+    private synchronized void resizeSender(int delta) {
+        int size = sender.getCorePoolSize() + delta;
+        if (delta > 0) {
+            sender.setMaximumPoolSize(size);
+            sender.setCorePoolSize(size);
+        } else {
+            sender.setCorePoolSize(size);
+            sender.setMaximumPoolSize(size);
+        }
+    }
+
+    private boolean unsubscribe(Subscription subscription) {
+        if (!subscriptions.remove(subscription)) {
+            return false;
+        }
+        for (UUID id : subscription.bookIds) {
+            subscribersByBook.computeIfPresent(id, (key, watchers) -> {
+                watchers.remove(subscription);
+                return watchers.isEmpty() ? null : watchers;
+            });
+        }
+        return true;
+    }
+
+    private static final class Subscription {
+
+        private final SseEmitter emitter;
+        private final Set<UUID> bookIds;
+        // Latest unsent state per book; a slow client skips intermediate values instead of queueing them
+        private final Map<UUID, BookStreamUpdate> pending = new ConcurrentHashMap<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean heartbeatDue;
+        private volatile long lastProgressNanos;
+        // Guarded by the subscription: the sender thread while a drain runs, and whether it was given up on
+        private Thread writer;
+        private boolean replaced;
+
+        private Subscription(SseEmitter emitter, Set<UUID> bookIds) {
+            this.emitter = emitter;
+            this.bookIds = bookIds;
+        }
+
+        private boolean hasWork() {
+            return heartbeatDue || !pending.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.cloudbook.catalog.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Opaque keyset position for catalog browsing: the sort field and direction the
+ * cursor was issued for, plus the (sort value, id) of the last row returned.
+ */
+@Data
+@AllArgsConstructor
+public class CatalogCursor {
+
+    private static final String SEPARATOR = "\u001F";
+
+    private String sortBy;
+    private String direction;
+    private String lastValue;
+    private UUID lastId;
+
+    public String encode() {
+        String raw = String.join(SEPARATOR, sortBy, direction, lastValue, lastId.toString());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static CatalogCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(SEPARATOR, -1);
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            return new CatalogCursor(parts[0], parts[1], parts[2], UUID.fromString(parts[3]));
+        } catch (IllegalArgumentException ex) {
+            throw new RuntimeException("Invalid cursor: " + cursor);
+        }
+    }
+}
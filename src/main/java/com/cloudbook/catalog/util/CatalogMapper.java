@@ -0,0 +1,30 @@
+package com.cloudbook.catalog.util;
+
+import com.cloudbook.catalog.dto.BookSummary;
+import com.cloudbook.catalog.dto.CatalogResponse;
+import com.cloudbook.catalog.model.Book;
+import org.springframework.stereotype.Component;
+
+@Component
+public class CatalogMapper {
+
+    public CatalogResponse toResponse(Book book) {
+        return new CatalogResponse(
+                book.getId().toString(),
+                book.getTitle(),
+                book.getAuthor(),
+                book.getPrice(),
+                book.getGenre()
+        );
+    }
+
+    public CatalogResponse toResponse(BookSummary book) {
+        return new CatalogResponse(
+                book.id().toString(),
+                book.title(),
+                book.author(),
+                book.price(),
+                book.genre()
+        );
+    }
+}
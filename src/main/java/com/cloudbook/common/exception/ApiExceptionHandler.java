@@ -1,8 +1,11 @@
 package com.cloudbook.common.exception;
 
+import com.cloudbook.common.exception.custom.CheckoutQueueFull;
+import com.cloudbook.common.exception.custom.RateLimitExceeded;
 import com.cloudbook.common.exception.payload.ExceptionMessage;
 import io.swagger.v3.oas.annotations.Hidden;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -13,6 +16,28 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 @Slf4j
 public class ApiExceptionHandler {
 
+    @ExceptionHandler(RateLimitExceeded.class)
+    public ResponseEntity<ExceptionMessage> handleRateLimitExceeded(RateLimitExceeded ex) {
+        log.warn("Rate limit exceeded: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(ExceptionMessage.builder()
+                        .msg(ex.getMessage())
+                        .httpStatus(HttpStatus.TOO_MANY_REQUESTS)
+                        .build());
+    }
+
+    @ExceptionHandler(CheckoutQueueFull.class)
+    public ResponseEntity<ExceptionMessage> handleCheckoutQueueFull(CheckoutQueueFull ex) {
+        log.warn("Checkout queue full: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(ExceptionMessage.builder()
+                        .msg(ex.getMessage())
+                        .httpStatus(HttpStatus.SERVICE_UNAVAILABLE)
+                        .build());
+    }
+
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<ExceptionMessage> handleRuntimeException(Exception ex) {
         log.error("Unexpected Exception Occurred: {}", ex.getMessage());
@@ -0,0 +1,23 @@
+package com.cloudbook.common.exception.custom;
+
+import java.util.UUID;
+
+public class InsufficientStock extends RuntimeException {
+
+    private final UUID bookId;
+    private final int available;
+
+    public InsufficientStock(final UUID bookId, final int available) {
+        super("Insufficient stock for book id: " + bookId + " (available: " + available + ")");
+        this.bookId = bookId;
+        this.available = available;
+    }
+
+    public UUID getBookId() {
+        return bookId;
+    }
+
+    public int getAvailable() {
+        return available;
+    }
+}
@@ -0,0 +1,15 @@
+package com.cloudbook.common.exception.custom;
+
+public class RateLimitExceeded extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public RateLimitExceeded(final String message, final long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,19 @@
+package com.cloudbook.common.exception.custom;
+
+import org.springframework.dao.ConcurrencyFailureException;
+
+import java.util.UUID;
+
+public class StockConflict extends ConcurrencyFailureException {
+
+    private final UUID bookId;
+
+    public StockConflict(final UUID bookId, final Throwable cause) {
+        super("Concurrent stock update conflict for book id: " + bookId, cause);
+        this.bookId = bookId;
+    }
+
+    public UUID getBookId() {
+        return bookId;
+    }
+}
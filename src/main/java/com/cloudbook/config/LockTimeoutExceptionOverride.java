@@ -0,0 +1,23 @@
+package com.cloudbook.config;
+
+import com.zaxxer.hikari.SQLExceptionOverride;
+
+import java.sql.SQLException;
+
+/**
+ * Keeps pooled connections alive across lock timeouts. H2 reports a row lock wait
+ * that ran out as a {@link java.sql.SQLTimeoutException}, which HikariCP otherwise
+ * takes for a dead connection and closes; the rollback that follows then fails and
+ * a retryable stock conflict surfaces as a generic error instead.
+ * Registered through {@code spring.datasource.hikari.exception-override-class-name}.
+ */
+public class LockTimeoutExceptionOverride implements SQLExceptionOverride {
+
+    // H2's LOCK_TIMEOUT_1
+    private static final int H2_LOCK_TIMEOUT = 50200;
+
+    @java.lang.Override
+    public Override adjudicate(SQLException sqlException) {
+        return sqlException.getErrorCode() == H2_LOCK_TIMEOUT ? Override.DO_NOT_EVICT : Override.CONTINUE_EVICT;
+    }
+}
@@ -0,0 +1,55 @@
+package com.cloudbook.config;
+
+import com.cloudbook.common.exception.custom.StockConflict;
+import com.cloudbook.inventory.retry.StockContentionMetrics;
+import com.cloudbook.inventory.retry.StockRetryBudget;
+import io.github.resilience4j.common.retry.configuration.RetryConfigCustomizer;
+import io.github.resilience4j.core.registry.EntryAddedEvent;
+import io.github.resilience4j.core.registry.EntryRemovedEvent;
+import io.github.resilience4j.core.registry.EntryReplacedEvent;
+import io.github.resilience4j.core.registry.RegistryEventConsumer;
+import io.github.resilience4j.retry.Retry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.function.Predicate;
+
+@Configuration
+public class StockRetryConfig {
+
+    public static final String STOCK_UPDATE_RETRY = "stockUpdateRetry";
+
+    // Backoff and attempts come from application.properties; which failures are retried is decided here
+    @Bean
+    public RetryConfigCustomizer stockUpdateRetryCustomizer(StockRetryBudget stockRetryBudget) {
+        Predicate<Throwable> retryable = stockRetryBudget::shouldRetry;
+        return RetryConfigCustomizer.of(STOCK_UPDATE_RETRY, builder -> builder.retryOnException(retryable));
+    }
+
+    @Bean
+    public RegistryEventConsumer<Retry> stockUpdateRetryEvents(StockContentionMetrics contentionMetrics,
+                                                               StockRetryBudget stockRetryBudget) {
+        return new RegistryEventConsumer<>() {
+            @Override
+            public void onEntryAddedEvent(EntryAddedEvent<Retry> event) {
+                Retry retry = event.getAddedEntry();
+                if (STOCK_UPDATE_RETRY.equals(retry.getName())) {
+                    // Published only when another attempt follows, unlike the retry predicate
+                    retry.getEventPublisher().onRetry(e -> {
+                        stockRetryBudget.retried();
+                        contentionMetrics.retry(e.getLastThrowable() instanceof StockConflict conflict
+                                ? conflict.getBookId().toString() : null);
+                    });
+                }
+            }
+
+            @Override
+            public void onEntryRemovedEvent(EntryRemovedEvent<Retry> event) {
+            }
+
+            @Override
+            public void onEntryReplacedEvent(EntryReplacedEvent<Retry> event) {
+            }
+        };
+    }
+}
@@ -45,7 +45,10 @@ public class UserSecurityConfig {
                                 .requestMatchers("/api/admin/**").hasAuthority("ADMIN")
                                 .requestMatchers("/api/cart/**").hasAuthority("CUSTOMER")
                                 .requestMatchers("/api/orders/**").hasAuthority("CUSTOMER")
+                                .requestMatchers("/api/waitlist/**").hasAuthority("CUSTOMER")
+                                .requestMatchers(HttpMethod.GET, "/api/books/export").hasAuthority("ADMIN")
                                 .requestMatchers(HttpMethod.GET, "/api/books/**").hasAnyAuthority("ADMIN", "CUSTOMER")
+                                .requestMatchers(HttpMethod.POST, "/api/books/batch-get").hasAnyAuthority("ADMIN", "CUSTOMER")
                                 .requestMatchers("/api/books/**").hasAuthority("ADMIN")
 
                                 .requestMatchers("/api/**").authenticated()
@@ -0,0 +1,6 @@
+package com.cloudbook.inventory.dto;
+
+import java.util.UUID;
+
+public record ShardedStockTotal(UUID bookId, Long stock) {
+}
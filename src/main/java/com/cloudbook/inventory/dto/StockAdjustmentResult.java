@@ -0,0 +1,15 @@
+package com.cloudbook.inventory.dto;
+
+import java.util.UUID;
+
+/**
+ * Outcome of one book's net delta in a batch adjustment. Stock values are null
+ * when the book does not exist; a rejected delta reports the untouched stock
+ * in both fields.
+ */
+public record StockAdjustmentResult(UUID bookId, int delta, Status status, Integer previousStock, Integer currentStock) {
+
+    public enum Status {
+        APPLIED, INSUFFICIENT_STOCK, NOT_FOUND
+    }
+}
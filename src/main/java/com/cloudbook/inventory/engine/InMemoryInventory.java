@@ -0,0 +1,289 @@
+package com.cloudbook.inventory.engine;
+
+import com.cloudbook.catalog.event.BookChangedEvent;
+import com.cloudbook.catalog.model.Book;
+import com.cloudbook.inventory.event.StockChangedEvent;
+import com.cloudbook.inventory.model.InventoryCommit;
+import com.cloudbook.inventory.repository.StockRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Takes stock decisions from an {@link InventoryEngine} instead of the book row,
+ * so an order line costs a journal append rather than a database round trip.
+ * Enabled with {@code inventory.engine.enabled}; only one application instance
+ * may own the engine, since the counts it holds are authoritative.
+ * <p>
+ * Books are seeded into the engine from {@code book.stock} the first time they
+ * are touched (or all at once on a first start). Changes made inside a
+ * transaction go into one engine transaction: decrements apply immediately and
+ * are given back if the caller's transaction rolls back; increments apply once
+ * it commits, so a rolled-back restock is never sold. An {@link InventoryCommit}
+ * row committed with the caller's transaction settles engine transactions left
+ * open by a crash on the next start. Changed books are
+ * written back to {@code book.stock} every {@code write-through-interval}, which
+ * is also when {@link StockChangedEvent} is published. An absolute stock set by
+ * a book update replaces the engine's count.
+ */
+@Component
+@ConditionalOnProperty(name = "inventory.engine.enabled", havingValue = "true")
+@Slf4j
+public class InMemoryInventory {
+
+    private static final String COMMIT_SQL = "insert into inventory_commit (transaction_id, committed_at) values (?, ?)";
+    private static final String COMMITTED_SQL = "select count(*) from inventory_commit where transaction_id = ?";
+    private static final String FORGET_SQL = "delete from inventory_commit where transaction_id = ?";
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${inventory.engine.directory:./data/inventory}")
+    private Path directory;
+
+    @Value("${inventory.engine.journal-capacity:1000000}")
+    private int journalCapacity;
+
+    @Value("${inventory.engine.force-on-append:false}")
+    private boolean forceOnAppend;
+
+    @Value("${inventory.engine.write-through-batch-size:500}")
+    private int writeThroughBatchSize;
+
+    private InventoryEngine engine;
+    private final Set<UUID> dirty = ConcurrentHashMap.newKeySet();
+    // Engine transactions whose commit is journaled, so their InventoryCommit rows can go
+    private final Queue<Long> settled = new ConcurrentLinkedQueue<>();
+
+    @PostConstruct
+    public void start() {
+        boolean recovering = InventoryEngine.hasState(directory);
+        engine = InventoryEngine.open(directory, journalCapacity, forceOnAppend);
+        if (recovering) {
+            settleInDoubt();
+            // The database may be behind what was acknowledged before the restart
+            dirty.addAll(engine.bookIds());
+        } else {
+            jdbcTemplate.query("select id, stock from book",
+                    rs -> {
+                        engine.seed(rs.getObject("id", UUID.class), rs.getInt("stock"));
+                    });
+            engine.snapshot();
+        }
+        log.info("Inventory engine started with {} books, {} to write through", engine.bookIds().size(), dirty.size());
+    }
+
+    @PreDestroy
+    public void stop() {
+        try {
+            writeThrough();
+            engine.snapshot();
+        } finally {
+            engine.close();
+        }
+    }
+
+    public int current(UUID bookId) {
+        return ensureKnown(bookId);
+    }
+
+    public int decrement(UUID bookId, int quantity) {
+        ensureKnown(bookId);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return apply(bookId, -quantity);
+        }
+        int current = engine.adjust(transaction(), bookId, -quantity);
+        dirty.add(bookId);
+        return current;
+    }
+
+    /**
+     * Inside a transaction the increment applies when it commits, so the count
+     * returned is the one the book will have then if nothing else changes it
+     * meanwhile, not what {@link #current} reports before the commit.
+     */
+    public int increment(UUID bookId, int quantity) {
+        ensureKnown(bookId);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return apply(bookId, quantity);
+        }
+        return engine.adjust(transaction(), bookId, quantity) + quantity;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        Book previous = event.getPrevious();
+        Book current = event.getCurrent();
+        if (current == null) {
+            engine.remove(previous.getId());
+            dirty.remove(previous.getId());
+        } else if (previous != null && engine.current(current.getId()).isPresent()) {
+            if (previous.getStock() != current.getStock()) {
+                engine.seed(current.getId(), current.getStock());
+            }
+            // An entity save writes whatever stock it read, which may be behind the engine
+            dirty.add(current.getId());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.engine.write-through-interval:200ms}")
+    public void writeThrough() {
+        forgetSettled();
+        if (dirty.isEmpty()) {
+            return;
+        }
+        // Books changed again after being taken here stay dirty for the next pass
+        List<UUID> changed = new ArrayList<>();
+        for (Iterator<UUID> it = dirty.iterator(); it.hasNext(); ) {
+            changed.add(it.next());
+            it.remove();
+        }
+        for (int from = 0; from < changed.size(); from += writeThroughBatchSize) {
+            List<UUID> chunk = changed.subList(from, Math.min(from + writeThroughBatchSize, changed.size()));
+            try {
+                transactionTemplate.executeWithoutResult(status -> write(chunk));
+            } catch (RuntimeException ex) {
+                log.error("Inventory write-through of {} books failed, will retry: {}", chunk.size(), ex.getMessage());
+                dirty.addAll(chunk);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.engine.snapshot-interval:5m}")
+    public void snapshot() {
+        long sequence = engine.snapshot();
+        log.debug("Inventory snapshot written at sequence {}", sequence);
+    }
+
+    private void write(List<UUID> chunk) {
+        Map<UUID, Integer> persisted = stockRepository.lockStock(chunk);
+        List<Map.Entry<UUID, Integer>> changes = new ArrayList<>();
+        for (UUID bookId : chunk) {
+            OptionalInt stock = engine.current(bookId);
+            Integer previous = persisted.get(bookId);
+            if (stock.isPresent() && previous != null && previous != stock.getAsInt()) {
+                changes.add(Map.entry(bookId, stock.getAsInt()));
+            }
+        }
+        stockRepository.writeStock(changes, Instant.now());
+        for (Map.Entry<UUID, Integer> change : changes) {
+            eventPublisher.publishEvent(new StockChangedEvent(this, change.getKey(),
+                    persisted.get(change.getKey()), change.getValue()));
+        }
+    }
+
+    private int ensureKnown(UUID bookId) {
+        OptionalInt stock = engine.current(bookId);
+        if (stock.isPresent()) {
+            return stock.getAsInt();
+        }
+        int persisted = stockRepository.findStockById(bookId)
+                .orElseThrow(() -> new RuntimeException("Book not found with id: " + bookId));
+        return engine.seedIfAbsent(bookId, persisted);
+    }
+
+    private int apply(UUID bookId, int delta) {
+        int current = engine.adjust(bookId, delta);
+        dirty.add(bookId);
+        return current;
+    }
+
+    // One engine transaction per database transaction, settled when it completes
+    private long transaction() {
+        Long bound = (Long) TransactionSynchronizationManager.getResource(this);
+        if (bound != null) {
+            return bound;
+        }
+        long transaction = engine.begin();
+        TransactionSynchronizationManager.bindResource(this, transaction);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void suspend() {
+                TransactionSynchronizationManager.unbindResource(InMemoryInventory.this);
+            }
+
+            @Override
+            public void resume() {
+                TransactionSynchronizationManager.bindResource(InMemoryInventory.this, transaction);
+            }
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                jdbcTemplate.update(COMMIT_SQL, transaction, Timestamp.from(Instant.now()));
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(InMemoryInventory.this);
+                if (status == STATUS_COMMITTED) {
+                    dirty.addAll(engine.commit(transaction));
+                    settled.add(transaction);
+                } else if (status == STATUS_ROLLED_BACK) {
+                    dirty.addAll(engine.abort(transaction));
+                } else {
+                    // Left open, holding its decrements, until the next start settles it from the database
+                    log.warn("Outcome of inventory transaction {} is unknown", transaction);
+                }
+            }
+        });
+        return transaction;
+    }
+
+    private void settleInDoubt() {
+        for (long transaction : engine.openTransactions()) {
+            Integer commits = jdbcTemplate.queryForObject(COMMITTED_SQL, Integer.class, transaction);
+            boolean committed = commits != null && commits > 0;
+            if (committed) {
+                engine.commit(transaction);
+                settled.add(transaction);
+            } else {
+                engine.abort(transaction);
+            }
+            log.info("Inventory transaction {} left open before the restart {}", transaction,
+                    committed ? "committed" : "rolled back");
+        }
+    }
+
+    private void forgetSettled() {
+        List<Object[]> transactions = new ArrayList<>();
+        for (Long transaction; (transaction = settled.poll()) != null; ) {
+            transactions.add(new Object[]{transaction});
+        }
+        if (transactions.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.batchUpdate(FORGET_SQL, transactions);
+        } catch (RuntimeException ex) {
+            log.error("Could not delete {} settled inventory commits, will retry: {}", transactions.size(), ex.getMessage());
+            transactions.forEach(transaction -> settled.add((Long) transaction[0]));
+        }
+    }
+}
@@ -0,0 +1,468 @@
+package com.cloudbook.inventory.engine;
+
+import com.cloudbook.common.exception.custom.InsufficientStock;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Per-book stock counts held in memory, with every change appended to a
+ * memory-mapped journal before it is applied and acknowledged.
+ * <p>
+ * State on disk is one snapshot (the counts as of a sequence number) plus the
+ * journal files written since. {@link #open} loads the snapshot and replays the
+ * journals after it up to the first torn or missing record. {@link #snapshot}
+ * rotates to a new journal, writes the counts to a temporary file, moves it
+ * into place atomically and only then deletes the journals it covers, so a
+ * crash at any point leaves a state that recovers to the same counts.
+ * <p>
+ * Changes made on behalf of a database transaction are journaled as provisional
+ * records under a transaction id from {@link #begin}, and settled by a commit or
+ * abort record. Provisional decrements are held back from the count at once, so
+ * they cannot be sold twice; provisional increments count only once committed.
+ * Transactions still open at a crash are open again after {@link #open}, and
+ * whoever owns the database transaction decides whether to commit or abort them.
+ * <p>
+ * Changes are serialized by one lock; each is a map update plus a 48-byte write
+ * into mapped memory.
+ */
+@Slf4j
+public class InventoryEngine implements Closeable {
+
+    static final int TYPE_SEED = 1;
+    static final int TYPE_DELTA = 2;
+    static final int TYPE_REMOVE = 3;
+    static final int TYPE_BEGIN = 4;
+    static final int TYPE_PENDING = 5;
+    static final int TYPE_COMMIT = 6;
+    static final int TYPE_ABORT = 7;
+
+    private static final String SNAPSHOT = "snapshot.dat";
+    private static final String SNAPSHOT_TMP = "snapshot.tmp";
+    private static final int SNAPSHOT_MAGIC = 0x534E4150;
+    private static final int SNAPSHOT_FORMAT = 2;
+    // Transaction records name no book
+    private static final UUID NO_BOOK = new UUID(0, 0);
+
+    private final Path directory;
+    private final int journalCapacity;
+    private final boolean force;
+    private final Map<UUID, Integer> counts = new ConcurrentHashMap<>();
+    // Provisional changes per open transaction, in journal order; guarded by lock
+    private final Map<Long, List<PendingChange>> open = new HashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Object snapshotLock = new Object();
+    private long sequence;
+    private InventoryJournal journal;
+
+    private InventoryEngine(Path directory, int journalCapacity, boolean force) {
+        this.directory = directory;
+        this.journalCapacity = journalCapacity;
+        this.force = force;
+    }
+
+    public static boolean hasState(Path directory) {
+        if (Files.exists(directory.resolve(SNAPSHOT))) {
+            return true;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.anyMatch(InventoryJournal::isJournal);
+        } catch (NoSuchFileException ex) {
+            return false;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    public static InventoryEngine open(Path directory, int journalCapacity, boolean force) {
+        if (journalCapacity <= 0) {
+            throw new IllegalArgumentException("Journal capacity must be positive");
+        }
+        InventoryEngine engine = new InventoryEngine(directory, journalCapacity, force);
+        try {
+            Files.createDirectories(directory);
+            long snapshotSequence = engine.readSnapshot();
+            long last = snapshotSequence;
+            for (Path file : engine.journalFiles()) {
+                if (InventoryJournal.startSequenceOf(file) > last + 1) {
+                    log.error("Inventory journal gap before {}, recovering up to sequence {}", file.getFileName(), last);
+                    break;
+                }
+                last = InventoryJournal.replay(file, last, engine::applyRecord);
+            }
+            engine.sequence = last;
+            engine.journal = InventoryJournal.create(directory, last + 1, journalCapacity, force);
+            log.info("Inventory engine recovered {} books at sequence {} ({} journal records after snapshot)",
+                    engine.counts.size(), last, last - snapshotSequence);
+            return engine;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not open inventory engine in " + directory, ex);
+        }
+    }
+
+    public OptionalInt current(UUID bookId) {
+        Integer stock = counts.get(bookId);
+        return stock == null ? OptionalInt.empty() : OptionalInt.of(stock);
+    }
+
+    public Set<UUID> bookIds() {
+        return Collections.unmodifiableSet(counts.keySet());
+    }
+
+    public long sequence() {
+        lock.lock();
+        try {
+            return sequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Applies a delta and returns the new count. A delta that would take the
+     * count below zero is rejected without touching the journal.
+     */
+    public int adjust(UUID bookId, int delta) {
+        lock.lock();
+        try {
+            Integer stock = counts.get(bookId);
+            if (stock == null) {
+                throw new RuntimeException("Book not found with id: " + bookId);
+            }
+            if ((long) stock + delta < 0) {
+                throw new InsufficientStock(bookId, stock);
+            }
+            append(TYPE_DELTA, 0, bookId, delta);
+            int current = stock + delta;
+            counts.put(bookId, current);
+            return current;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Opens a transaction and returns its id, the sequence of its begin record,
+     * which is never reused.
+     */
+    public long begin() {
+        lock.lock();
+        try {
+            long transaction = sequence + 1;
+            append(TYPE_BEGIN, transaction, null, 0);
+            open.put(transaction, new ArrayList<>());
+            return transaction;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Journals a provisional delta under an open transaction and returns the
+     * count now available: a decrement is taken off at once, and rejected without
+     * touching the journal if stock is short; an increment waits for the commit.
+     */
+    public int adjust(long transaction, UUID bookId, int delta) {
+        lock.lock();
+        try {
+            List<PendingChange> changes = open.get(transaction);
+            if (changes == null) {
+                throw new IllegalStateException("Inventory transaction " + transaction + " is not open");
+            }
+            Integer stock = counts.get(bookId);
+            if (stock == null) {
+                throw new RuntimeException("Book not found with id: " + bookId);
+            }
+            if ((long) stock + delta < 0) {
+                throw new InsufficientStock(bookId, stock);
+            }
+            append(TYPE_PENDING, transaction, bookId, delta);
+            changes.add(new PendingChange(bookId, delta));
+            if (delta < 0) {
+                counts.put(bookId, stock + delta);
+                return stock + delta;
+            }
+            return stock;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Makes a transaction's provisional increments count and returns the books
+     * it touched. Committing a transaction that is not open does nothing.
+     */
+    public Set<UUID> commit(long transaction) {
+        return settle(TYPE_COMMIT, transaction);
+    }
+
+    /**
+     * Gives a transaction's provisional decrements back and returns the books it
+     * touched. Aborting a transaction that is not open does nothing.
+     */
+    public Set<UUID> abort(long transaction) {
+        return settle(TYPE_ABORT, transaction);
+    }
+
+    public Set<Long> openTransactions() {
+        lock.lock();
+        try {
+            return Set.copyOf(open.keySet());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sets an absolute count, replacing whatever the engine held, including the
+     * provisional changes open transactions hold for the book: settling them
+     * later no longer moves the new count.
+     */
+    public void seed(UUID bookId, int stock) {
+        lock.lock();
+        try {
+            append(TYPE_SEED, 0, bookId, stock);
+            applyRecord(TYPE_SEED, 0, bookId, stock);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Seeds a book the engine has not seen yet and returns its count; a book
+     * already known keeps its count.
+     */
+    public int seedIfAbsent(UUID bookId, int stock) {
+        lock.lock();
+        try {
+            Integer existing = counts.get(bookId);
+            if (existing != null) {
+                return existing;
+            }
+            append(TYPE_SEED, 0, bookId, stock);
+            applyRecord(TYPE_SEED, 0, bookId, stock);
+            return stock;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void remove(UUID bookId) {
+        lock.lock();
+        try {
+            if (counts.containsKey(bookId)) {
+                append(TYPE_REMOVE, 0, bookId, 0);
+                applyRecord(TYPE_REMOVE, 0, bookId, 0);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the current counts as the new snapshot and deletes the journals it
+     * makes redundant. Changes keep flowing into a fresh journal meanwhile.
+     */
+    public long snapshot() {
+        synchronized (snapshotLock) {
+            Map<UUID, Integer> copy;
+            Map<Long, List<PendingChange>> openCopy = new HashMap<>();
+            long snapshotSequence;
+            lock.lock();
+            try {
+                copy = new HashMap<>(counts);
+                open.forEach((transaction, changes) -> openCopy.put(transaction, List.copyOf(changes)));
+                snapshotSequence = sequence;
+                rotate();
+            } finally {
+                lock.unlock();
+            }
+            try {
+                writeSnapshot(copy, openCopy, snapshotSequence);
+                for (Path file : journalFiles()) {
+                    if (InventoryJournal.startSequenceOf(file) <= snapshotSequence) {
+                        Files.deleteIfExists(file);
+                    }
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Could not write inventory snapshot", ex);
+            }
+            return snapshotSequence;
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            journal.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Set<UUID> settle(int type, long transaction) {
+        lock.lock();
+        try {
+            List<PendingChange> changes = open.get(transaction);
+            if (changes == null) {
+                return Set.of();
+            }
+            Set<UUID> books = new HashSet<>();
+            changes.forEach(change -> books.add(change.bookId()));
+            append(type, transaction, null, 0);
+            applyRecord(type, transaction, null, 0);
+            return books;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void append(int type, long transaction, UUID bookId, int value) {
+        if (journal.isFull()) {
+            rotate();
+        }
+        journal.append(sequence + 1, type, transaction, bookId == null ? NO_BOOK : bookId, value);
+        sequence++;
+    }
+
+    private void rotate() {
+        InventoryJournal previous = journal;
+        journal = InventoryJournal.create(directory, sequence + 1, journalCapacity, force);
+        previous.close();
+    }
+
+    // Replay and live changes go through here alike, so a recovered engine matches the one that crashed
+    private void applyRecord(int type, long transaction, UUID bookId, int value) {
+        switch (type) {
+            case TYPE_SEED -> {
+                counts.put(bookId, value);
+                dropPending(bookId);
+            }
+            case TYPE_DELTA -> counts.merge(bookId, value, Integer::sum);
+            case TYPE_REMOVE -> {
+                counts.remove(bookId);
+                dropPending(bookId);
+            }
+            case TYPE_BEGIN -> open.put(transaction, new ArrayList<>());
+            case TYPE_PENDING -> {
+                open.computeIfAbsent(transaction, id -> new ArrayList<>()).add(new PendingChange(bookId, value));
+                if (value < 0) {
+                    counts.merge(bookId, value, Integer::sum);
+                }
+            }
+            case TYPE_COMMIT -> {
+                // A book removed meanwhile has nothing left to add to
+                for (PendingChange change : open.getOrDefault(transaction, List.of())) {
+                    if (change.delta() > 0) {
+                        counts.computeIfPresent(change.bookId(), (id, stock) -> stock + change.delta());
+                    }
+                }
+                open.remove(transaction);
+            }
+            case TYPE_ABORT -> {
+                for (PendingChange change : open.getOrDefault(transaction, List.of())) {
+                    if (change.delta() < 0) {
+                        counts.computeIfPresent(change.bookId(), (id, stock) -> stock - change.delta());
+                    }
+                }
+                open.remove(transaction);
+            }
+            default -> throw new IllegalStateException("Unknown inventory journal record type " + type);
+        }
+    }
+
+    // An absolute count or a removal supersedes what open transactions held for the book
+    private void dropPending(UUID bookId) {
+        open.values().forEach(changes -> changes.removeIf(change -> change.bookId().equals(bookId)));
+    }
+
+    private List<Path> journalFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(InventoryJournal::isJournal)
+                    .sorted(Comparator.comparingLong(InventoryJournal::startSequenceOf))
+                    .toList();
+        }
+    }
+
+    private long readSnapshot() throws IOException {
+        Path path = directory.resolve(SNAPSHOT);
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        CRC32C crc = new CRC32C();
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(path)), crc))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_FORMAT) {
+                throw new IOException("Not an inventory snapshot: " + path);
+            }
+            long snapshotSequence = in.readLong();
+            int size = in.readInt();
+            Map<UUID, Integer> loaded = new HashMap<>(size * 2);
+            for (int i = 0; i < size; i++) {
+                loaded.put(new UUID(in.readLong(), in.readLong()), in.readInt());
+            }
+            int transactions = in.readInt();
+            Map<Long, List<PendingChange>> loadedOpen = new HashMap<>(transactions * 2);
+            for (int i = 0; i < transactions; i++) {
+                long transaction = in.readLong();
+                int changeCount = in.readInt();
+                List<PendingChange> changes = new ArrayList<>(changeCount);
+                for (int j = 0; j < changeCount; j++) {
+                    changes.add(new PendingChange(new UUID(in.readLong(), in.readLong()), in.readInt()));
+                }
+                loadedOpen.put(transaction, changes);
+            }
+            int expected = (int) crc.getValue();
+            if (in.readInt() != expected) {
+                throw new IOException("Inventory snapshot checksum mismatch: " + path);
+            }
+            counts.putAll(loaded);
+            open.putAll(loadedOpen);
+            return snapshotSequence;
+        }
+    }
+
+    private void writeSnapshot(Map<UUID, Integer> copy, Map<Long, List<PendingChange>> openCopy,
+                               long snapshotSequence) throws IOException {
+        Path tmp = directory.resolve(SNAPSHOT_TMP);
+        CRC32C crc = new CRC32C();
+        try (FileOutputStream file = new FileOutputStream(tmp.toFile());
+             DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(file), crc))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_FORMAT);
+            out.writeLong(snapshotSequence);
+            out.writeInt(copy.size());
+            for (Map.Entry<UUID, Integer> entry : copy.entrySet()) {
+                out.writeLong(entry.getKey().getMostSignificantBits());
+                out.writeLong(entry.getKey().getLeastSignificantBits());
+                out.writeInt(entry.getValue());
+            }
+            out.writeInt(openCopy.size());
+            for (Map.Entry<Long, List<PendingChange>> entry : openCopy.entrySet()) {
+                out.writeLong(entry.getKey());
+                out.writeInt(entry.getValue().size());
+                for (PendingChange change : entry.getValue()) {
+                    out.writeLong(change.bookId().getMostSignificantBits());
+                    out.writeLong(change.bookId().getLeastSignificantBits());
+                    out.writeInt(change.delta());
+                }
+            }
+            out.writeInt((int) crc.getValue());
+            out.flush();
+            file.getFD().sync();
+        }
+        Files.move(tmp, directory.resolve(SNAPSHOT), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private record PendingChange(UUID bookId, int delta) {
+    }
+}
@@ -0,0 +1,143 @@
+package com.cloudbook.inventory.engine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+import java.util.zip.CRC32C;
+
+/**
+ * One memory-mapped journal file of fixed-size records, named after the sequence
+ * of its first record. A record is written in place in the mapping, so once
+ * {@link #append} returns it survives the process dying; with {@code force}
+ * set it is also flushed to the device before returning.
+ * <p>
+ * Record layout (48 bytes): sequence, book id (two longs), type, value,
+ * transaction id, CRC32C of the preceding 40 bytes, padding. A zeroed or torn
+ * record fails its checksum and marks the end of the file.
+ */
+final class InventoryJournal implements Closeable {
+
+    static final int RECORD_SIZE = 48;
+    private static final int CHECKSUMMED_BYTES = 40;
+    private static final String PREFIX = "journal-";
+    private static final String SUFFIX = ".log";
+
+    interface RecordHandler {
+        void apply(int type, long transaction, UUID bookId, int value);
+    }
+
+    private final Path path;
+    private final long startSequence;
+    private final int capacity;
+    private final boolean force;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final CRC32C crc = new CRC32C();
+    private int written;
+
+    private InventoryJournal(Path path, long startSequence, int capacity, boolean force) throws IOException {
+        this.path = path;
+        this.startSequence = startSequence;
+        this.capacity = capacity;
+        this.force = force;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) capacity * RECORD_SIZE);
+    }
+
+    static InventoryJournal create(Path directory, long startSequence, int capacity, boolean force) {
+        Path path = directory.resolve(PREFIX + startSequence + SUFFIX);
+        try {
+            // Left behind by a crash before its first record; nothing in it is valid
+            Files.deleteIfExists(path);
+            return new InventoryJournal(path, startSequence, capacity, force);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not create inventory journal " + path, ex);
+        }
+    }
+
+    static boolean isJournal(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+    }
+
+    static long startSequenceOf(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    /**
+     * Applies the records of a journal file that follow {@code lastSequence}, in
+     * order, stopping at the first record that is torn, unwritten or out of
+     * sequence. Returns the sequence of the last record applied.
+     */
+    static long replay(Path path, long lastSequence, RecordHandler handler) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer records = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            CRC32C crc = new CRC32C();
+            byte[] record = new byte[RECORD_SIZE];
+            while (records.remaining() >= RECORD_SIZE) {
+                records.get(record);
+                ByteBuffer view = ByteBuffer.wrap(record);
+                crc.reset();
+                crc.update(record, 0, CHECKSUMMED_BYTES);
+                long sequence = view.getLong(0);
+                if ((int) crc.getValue() != view.getInt(CHECKSUMMED_BYTES) || sequence <= 0) {
+                    break;
+                }
+                if (sequence <= lastSequence) {
+                    continue;
+                }
+                if (sequence != lastSequence + 1) {
+                    break;
+                }
+                handler.apply(view.getInt(24), view.getLong(32), new UUID(view.getLong(8), view.getLong(16)), view.getInt(28));
+                lastSequence = sequence;
+            }
+            return lastSequence;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not read inventory journal " + path, ex);
+        }
+    }
+
+    boolean isFull() {
+        return written == capacity;
+    }
+
+    long startSequence() {
+        return startSequence;
+    }
+
+    void append(long sequence, int type, long transaction, UUID bookId, int value) {
+        int offset = written * RECORD_SIZE;
+        buffer.putLong(offset, sequence);
+        buffer.putLong(offset + 8, bookId.getMostSignificantBits());
+        buffer.putLong(offset + 16, bookId.getLeastSignificantBits());
+        buffer.putInt(offset + 24, type);
+        buffer.putInt(offset + 28, value);
+        buffer.putLong(offset + 32, transaction);
+        crc.reset();
+        crc.update(buffer.slice(offset, CHECKSUMMED_BYTES));
+        buffer.putInt(offset + CHECKSUMMED_BYTES, (int) crc.getValue());
+        if (force) {
+            buffer.force(offset, RECORD_SIZE);
+        }
+        written++;
+    }
+
+    @Override
+    public void close() {
+        try {
+            buffer.force();
+            channel.close();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not close inventory journal " + path, ex);
+        }
+    }
+}
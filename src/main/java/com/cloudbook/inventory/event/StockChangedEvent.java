@@ -0,0 +1,36 @@
+package com.cloudbook.inventory.event;
+
+import org.springframework.context.ApplicationEvent;
+
+import java.util.UUID;
+
+/**
+ * Published by {@code StockService} after every successful stock mutation, inside
+ * the mutating transaction. Listeners that act on committed state should use
+ * {@code @TransactionalEventListener}.
+ */
+public class StockChangedEvent extends ApplicationEvent {
+
+    private final UUID bookId;
+    private final int previousStock;
+    private final int currentStock;
+
+    public StockChangedEvent(Object source, UUID bookId, int previousStock, int currentStock) {
+        super(source);
+        this.bookId = bookId;
+        this.previousStock = previousStock;
+        this.currentStock = currentStock;
+    }
+
+    public UUID getBookId() {
+        return bookId;
+    }
+
+    public int getPreviousStock() {
+        return previousStock;
+    }
+
+    public int getCurrentStock() {
+        return currentStock;
+    }
+}
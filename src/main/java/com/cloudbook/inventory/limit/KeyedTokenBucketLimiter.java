@@ -0,0 +1,166 @@
+package com.cloudbook.inventory.limit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+
+/**
+ * One token bucket per key. A bucket holds up to {@code capacity} tokens (the
+ * burst) and refills continuously at {@code refillPerSecond}. Buckets live in a
+ * bounded Caffeine map and are dropped after {@code idleExpiry} without use,
+ * together with their rejection counter, so memory and meter cardinality follow
+ * the set of recently active keys. A dropped bucket comes back full, which is
+ * the state it would have refilled to anyway once idle for longer than
+ * capacity / refillPerSecond.
+ */
+public class KeyedTokenBucketLimiter {
+
+    public static final String REJECTED_METRIC = "stock.update.rejected";
+
+    private final String name;
+    private final double capacity;
+    private final double tokensPerNano;
+    private final Ticker ticker;
+    private final MeterRegistry meterRegistry;
+    private final Cache<String, Bucket> buckets;
+
+    public KeyedTokenBucketLimiter(String name, int capacity, double refillPerSecond, Duration idleExpiry,
+                                   long maxKeys, MeterRegistry meterRegistry) {
+        this(name, capacity, refillPerSecond, idleExpiry, maxKeys, meterRegistry, Ticker.systemTicker());
+    }
+
+    public KeyedTokenBucketLimiter(String name, int capacity, double refillPerSecond, Duration idleExpiry,
+                                   long maxKeys, MeterRegistry meterRegistry, Ticker ticker) {
+        if (capacity <= 0 || refillPerSecond <= 0) {
+            throw new IllegalArgumentException("Rate limit capacity and refill rate must be positive");
+        }
+        this.name = name;
+        this.capacity = capacity;
+        this.tokensPerNano = refillPerSecond / 1_000_000_000d;
+        this.ticker = ticker;
+        this.meterRegistry = meterRegistry;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterAccess(idleExpiry)
+                .ticker(ticker)
+                .executor(Runnable::run)
+                .<String, Bucket>removalListener((key, bucket, cause) -> {
+                    if (bucket != null && bucket.rejected != null) {
+                        meterRegistry.remove(bucket.rejected);
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Takes one token for the key. Returns 0 when granted, otherwise the number of
+     * nanoseconds until a token will be available.
+     */
+    public long tryAcquire(String key) {
+        Bucket bucket = buckets.get(key, k -> new Bucket(capacity, ticker.read()));
+        long waitNanos = bucket.tryConsume(ticker.read(), capacity, tokensPerNano);
+        if (waitNanos > 0) {
+            bucket.rejected(meterRegistry, name, key).increment();
+        }
+        return waitNanos;
+    }
+
+    /**
+     * Reports whether the key has a token to spend, without taking it. A refusal
+     * counts as a rejection, as with {@link #tryAcquire}.
+     */
+    public boolean hasToken(String key) {
+        Bucket bucket = buckets.get(key, k -> new Bucket(capacity, ticker.read()));
+        if (bucket.hasToken(ticker.read(), capacity, tokensPerNano)) {
+            return true;
+        }
+        bucket.rejected(meterRegistry, name, key).increment();
+        return false;
+    }
+
+    /**
+     * Takes one token after {@link #hasToken} allowed it. Callers that raced for
+     * the last token are all charged, leaving the bucket in debt until refill
+     * pays it off.
+     */
+    public void take(String key) {
+        buckets.get(key, k -> new Bucket(capacity, ticker.read())).take(ticker.read(), capacity, tokensPerNano);
+    }
+
+    /**
+     * Gives back a token taken by {@link #tryAcquire} for a request that was
+     * refused elsewhere, up to the bucket's capacity.
+     */
+    public void refund(String key) {
+        Bucket bucket = buckets.getIfPresent(key);
+        if (bucket != null) {
+            bucket.refund(capacity);
+        }
+    }
+
+    public long trackedKeys() {
+        buckets.cleanUp();
+        return buckets.estimatedSize();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    private static final class Bucket {
+
+        private double tokens;
+        private long lastRefillNanos;
+        private volatile Counter rejected;
+
+        private Bucket(double tokens, long now) {
+            this.tokens = tokens;
+            this.lastRefillNanos = now;
+        }
+
+        private synchronized long tryConsume(long now, double capacity, double tokensPerNano) {
+            refill(now, capacity, tokensPerNano);
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) / tokensPerNano);
+        }
+
+        private synchronized boolean hasToken(long now, double capacity, double tokensPerNano) {
+            refill(now, capacity, tokensPerNano);
+            return tokens >= 1;
+        }
+
+        private synchronized void take(long now, double capacity, double tokensPerNano) {
+            refill(now, capacity, tokensPerNano);
+            tokens -= 1;
+        }
+
+        private void refill(long now, double capacity, double tokensPerNano) {
+            tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * tokensPerNano);
+            lastRefillNanos = now;
+        }
+
+        private synchronized void refund(double capacity) {
+            tokens = Math.min(capacity, tokens + 1);
+        }
+
+        private Counter rejected(MeterRegistry registry, String limit, String key) {
+            Counter counter = rejected;
+            if (counter == null) {
+                counter = Counter.builder(REJECTED_METRIC)
+                        .tag("limit", limit)
+                        .tag("key", key)
+                        .description("Stock updates rejected by the rate limiter")
+                        .register(registry);
+                rejected = counter;
+            }
+            return counter;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.cloudbook.inventory.limit;
+
+import com.cloudbook.common.exception.custom.RateLimitExceeded;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate limits manual stock updates independently per book and per caller, so a
+ * burst of restocks on one title or from one client does not slow anyone else.
+ * Charged once per request, before any retried work; a request refused by either
+ * limit uses up neither.
+ */
+@Component
+public class StockUpdateLimiter {
+
+    private final KeyedTokenBucketLimiter byBook;
+    private final KeyedTokenBucketLimiter byCaller;
+
+    public StockUpdateLimiter(MeterRegistry meterRegistry,
+                              @Value("${inventory.rate-limit.book.capacity:10}") int bookCapacity,
+                              @Value("${inventory.rate-limit.book.refill-per-second:5}") double bookRefill,
+                              @Value("${inventory.rate-limit.caller.capacity:50}") int callerCapacity,
+                              @Value("${inventory.rate-limit.caller.refill-per-second:20}") double callerRefill,
+                              @Value("${inventory.rate-limit.idle-expiry:10m}") Duration idleExpiry,
+                              @Value("${inventory.rate-limit.max-keys:100000}") long maxKeys) {
+        this.byBook = new KeyedTokenBucketLimiter("book", bookCapacity, bookRefill, idleExpiry, maxKeys, meterRegistry);
+        this.byCaller = new KeyedTokenBucketLimiter("caller", callerCapacity, callerRefill, idleExpiry, maxKeys, meterRegistry);
+    }
+
+    public void acquire(UUID bookId, String caller) {
+        check(byCaller, caller, "Too many stock updates from " + caller);
+        try {
+            check(byBook, bookId.toString(), "Too many stock updates for book " + bookId);
+        } catch (RateLimitExceeded ex) {
+            byCaller.refund(caller);
+            throw ex;
+        }
+    }
+
+    private void check(KeyedTokenBucketLimiter limiter, String key, String message) {
+        long waitNanos = limiter.tryAcquire(key);
+        if (waitNanos > 0) {
+            long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999));
+            throw new RateLimitExceeded(message + ", retry in " + retryAfter + "s", retryAfter);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.cloudbook.inventory.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Written in the same database transaction as the orders an inventory engine
+ * transaction belongs to, so after a crash the engine can tell whether a
+ * transaction it never saw settled did commit. Deleted once the engine has
+ * journaled the commit.
+ */
+@Entity
+@Table(name = "inventory_commit")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryCommit {
+
+    @Id
+    @Column(name = "transaction_id")
+    private Long transactionId;
+
+    @Column(name = "committed_at", nullable = false)
+    private Instant committedAt;
+}
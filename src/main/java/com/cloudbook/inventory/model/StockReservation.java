@@ -0,0 +1,43 @@
+package com.cloudbook.inventory.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * A cart's hold on a quantity of a book. The held quantity has already been taken
+ * out of {@code book.stock}, so stock is what is still available to other carts;
+ * the hold is either consumed by checkout or handed back when it is released or
+ * expires.
+ */
+@Entity
+@Table(name = "stock_reservation",
+        uniqueConstraints = @UniqueConstraint(name = "uk_reservation_user_book", columnNames = {"username", "book_id"}),
+        indexes = @Index(name = "idx_reservation_expires_at", columnList = "expires_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockReservation {
+
+    @Id
+    @GeneratedValue
+    private UUID id;
+
+    @Column(nullable = false)
+    private String username;
+
+    @Column(name = "book_id", nullable = false)
+    private UUID bookId;
+
+    @Column(nullable = false)
+    private int quantity;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+}
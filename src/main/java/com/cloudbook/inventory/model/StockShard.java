@@ -0,0 +1,37 @@
+package com.cloudbook.inventory.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * One of the sub-counters a hot book's stock is split across. Orders for the
+ * book take from a random shard, so concurrent checkouts lock different rows
+ * instead of queueing on the book row; the book's stock is the sum of its shards.
+ */
+@Entity
+@Table(name = "stock_shard",
+        uniqueConstraints = @UniqueConstraint(name = "uk_stock_shard_book_index", columnNames = {"book_id", "shard_index"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockShard {
+
+    @Id
+    @GeneratedValue
+    private UUID id;
+
+    @Column(name = "book_id", nullable = false)
+    private UUID bookId;
+
+    @Column(name = "shard_index", nullable = false)
+    private int shardIndex;
+
+    @Column(nullable = false)
+    private int stock;
+}
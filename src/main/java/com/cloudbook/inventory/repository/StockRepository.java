@@ -0,0 +1,49 @@
+package com.cloudbook.inventory.repository;
+
+import com.cloudbook.catalog.model.Book;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Single-statement stock mutations on the book row. Each update checks and
+ * changes the count in one round trip under the row lock, so concurrent
+ * writers queue on the lock instead of failing a version check and retrying.
+ * The version is still bumped so entity writes of the same row stay guarded.
+ * The delta updates only match unsharded books; a sharded book's stock is
+ * changed through its {@code stock_shard} rows instead.
+ */
+public interface StockRepository extends Repository<Book, UUID>, StockRepositoryCustom {
+
+    @Modifying(flushAutomatically = true)
+    @Query("update Book b set b.stock = b.stock - :quantity, b.version = b.version + 1, b.updatedAt = :now " +
+            "where b.id = :bookId and b.stock >= :quantity and b.stockShards = 0")
+    int decrementIfAvailable(@Param("bookId") UUID bookId, @Param("quantity") int quantity, @Param("now") Instant now);
+
+    @Modifying(flushAutomatically = true)
+    @Query("update Book b set b.stock = b.stock + :quantity, b.version = b.version + 1, b.updatedAt = :now " +
+            "where b.id = :bookId and b.stockShards = 0")
+    int increment(@Param("bookId") UUID bookId, @Param("quantity") int quantity, @Param("now") Instant now);
+
+    @Query("select b.stock from Book b where b.id = :bookId")
+    Optional<Integer> findStockById(@Param("bookId") UUID bookId);
+
+    @Query("select b.stockShards from Book b where b.id = :bookId")
+    Optional<Integer> findStockShardsById(@Param("bookId") UUID bookId);
+
+    @Query("select b.id from Book b where b.id in :bookIds and b.stockShards > 0 order by b.id")
+    List<UUID> findShardedIds(@Param("bookIds") Collection<UUID> bookIds);
+
+    @Modifying(flushAutomatically = true)
+    @Query("update Book b set b.stockShards = :shards, b.stock = :stock, b.version = b.version + 1, b.updatedAt = :now " +
+            "where b.id = :bookId")
+    int updateStockShards(@Param("bookId") UUID bookId, @Param("shards") int shards, @Param("stock") int stock,
+                          @Param("now") Instant now);
+}
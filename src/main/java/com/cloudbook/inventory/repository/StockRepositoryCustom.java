@@ -0,0 +1,40 @@
+package com.cloudbook.inventory.repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+public interface StockRepositoryCustom {
+
+    /**
+     * The order the database sorts UUID ids in: most, then least significant
+     * bits, both unsigned. {@link UUID#compareTo} compares them signed, so ids
+     * with the top bit set sort first there and last here.
+     */
+    Comparator<UUID> LOCK_ORDER = Comparator
+            .comparing(UUID::getMostSignificantBits, Long::compareUnsigned)
+            .thenComparing(UUID::getLeastSignificantBits, Long::compareUnsigned);
+
+    /**
+     * Locks the given book rows in {@link #LOCK_ORDER} and returns their current
+     * stock, iterating in the order the rows were locked. Ids that do not exist
+     * are simply absent from the result. Callers that lock several books should
+     * all go through here, or lock in the same order.
+     */
+    Map<UUID, Integer> lockStock(Collection<UUID> bookIds);
+
+    /**
+     * Applies every delta as one JDBC batch of guarded updates and returns the
+     * affected-row count per entry, in input order.
+     */
+    int[] applyDeltas(List<Map.Entry<UUID, Integer>> deltas, Instant now);
+
+    /**
+     * Overwrites stock with absolute values as one JDBC batch and returns the
+     * affected-row count per entry, in input order.
+     */
+    int[] writeStock(List<Map.Entry<UUID, Integer>> stock, Instant now);
+}
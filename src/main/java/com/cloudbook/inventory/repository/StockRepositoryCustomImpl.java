@@ -0,0 +1,104 @@
+package com.cloudbook.inventory.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+public class StockRepositoryCustomImpl implements StockRepositoryCustom {
+
+    // Keeps IN lists within what every supported database accepts
+    private static final int LOCK_CHUNK_SIZE = 1000;
+
+    private static final String LOCK_SQL =
+            "select id, stock from book where id in (:ids) order by id for update";
+
+    private static final String APPLY_SQL =
+            "update book set stock = stock + ?, version = version + 1, updated_at = ? " +
+                    "where id = ? and stock + ? >= 0 and stock_shards = 0";
+
+    private static final String WRITE_SQL =
+            "update book set stock = ?, version = version + 1, updated_at = ? where id = ?";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Override
+    public Map<UUID, Integer> lockStock(Collection<UUID> bookIds) {
+        // Pending entity writes go out first, same as flushAutomatically on the JPQL updates
+        entityManager.flush();
+        // Sorted the way the database orders ids, so the chunks lock in one global order
+        List<UUID> sorted = bookIds.stream().distinct().sorted(LOCK_ORDER).toList();
+        Map<UUID, Integer> stock = new LinkedHashMap<>(sorted.size() * 2);
+        for (int from = 0; from < sorted.size(); from += LOCK_CHUNK_SIZE) {
+            List<UUID> chunk = sorted.subList(from, Math.min(from + LOCK_CHUNK_SIZE, sorted.size()));
+            namedParameterJdbcTemplate.query(LOCK_SQL, Map.of("ids", chunk),
+                    rs -> {
+                        stock.put(rs.getObject("id", UUID.class), rs.getInt("stock"));
+                    });
+        }
+        return stock;
+    }
+
+    @Override
+    public int[] applyDeltas(List<Map.Entry<UUID, Integer>> deltas, Instant now) {
+        if (deltas.isEmpty()) {
+            return new int[0];
+        }
+        entityManager.flush();
+        OffsetDateTime updatedAt = now.atOffset(ZoneOffset.UTC);
+        return jdbcTemplate.batchUpdate(APPLY_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Map.Entry<UUID, Integer> delta = deltas.get(i);
+                ps.setInt(1, delta.getValue());
+                ps.setObject(2, updatedAt);
+                ps.setObject(3, delta.getKey());
+                ps.setInt(4, delta.getValue());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return deltas.size();
+            }
+        });
+    }
+
+    @Override
+    public int[] writeStock(List<Map.Entry<UUID, Integer>> stock, Instant now) {
+        if (stock.isEmpty()) {
+            return new int[0];
+        }
+        entityManager.flush();
+        OffsetDateTime updatedAt = now.atOffset(ZoneOffset.UTC);
+        return jdbcTemplate.batchUpdate(WRITE_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Map.Entry<UUID, Integer> entry = stock.get(i);
+                ps.setInt(1, entry.getValue());
+                ps.setObject(2, updatedAt);
+                ps.setObject(3, entry.getKey());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return stock.size();
+            }
+        });
+    }
+}
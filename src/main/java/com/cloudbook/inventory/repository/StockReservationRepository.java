@@ -0,0 +1,29 @@
+package com.cloudbook.inventory.repository;
+
+import com.cloudbook.inventory.model.StockReservation;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+// Holds are always locked in id order, before any book row, so checkout and the sweeper cannot deadlock
+public interface StockReservationRepository extends JpaRepository<StockReservation, UUID> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<StockReservation> findByUsernameAndBookId(String username, UUID bookId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select r from StockReservation r where r.username = :username order by r.id")
+    List<StockReservation> lockByUsername(@Param("username") String username);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select r from StockReservation r where r.expiresAt < :now order by r.id")
+    List<StockReservation> lockExpired(@Param("now") Instant now, Limit limit);
+}
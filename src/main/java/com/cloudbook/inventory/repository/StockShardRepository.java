@@ -0,0 +1,47 @@
+package com.cloudbook.inventory.repository;
+
+import com.cloudbook.inventory.dto.ShardedStockTotal;
+import com.cloudbook.inventory.model.StockShard;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+// Shards of a book are always locked in index order, after the book row when both are needed
+public interface StockShardRepository extends JpaRepository<StockShard, UUID> {
+
+    @Modifying(flushAutomatically = true)
+    @Query("update StockShard s set s.stock = s.stock - :quantity " +
+            "where s.bookId = :bookId and s.shardIndex = :shardIndex and s.stock >= :quantity")
+    int decrementIfAvailable(@Param("bookId") UUID bookId, @Param("shardIndex") int shardIndex,
+                             @Param("quantity") int quantity);
+
+    @Query("select s.shardIndex from StockShard s where s.bookId = :bookId and s.stock >= :quantity")
+    List<Integer> findShardsWithStock(@Param("bookId") UUID bookId, @Param("quantity") int quantity);
+
+    @Modifying(flushAutomatically = true)
+    @Query("update StockShard s set s.stock = s.stock + :quantity " +
+            "where s.bookId = :bookId and s.shardIndex = :shardIndex")
+    int increment(@Param("bookId") UUID bookId, @Param("shardIndex") int shardIndex, @Param("quantity") int quantity);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from StockShard s where s.bookId = :bookId order by s.shardIndex")
+    List<StockShard> lockByBookId(@Param("bookId") UUID bookId);
+
+    @Query("select coalesce(sum(s.stock), 0) from StockShard s where s.bookId = :bookId")
+    long sumStock(@Param("bookId") UUID bookId);
+
+    @Query("select new com.cloudbook.inventory.dto.ShardedStockTotal(s.bookId, sum(s.stock)) " +
+            "from StockShard s where s.bookId in :bookIds group by s.bookId")
+    List<ShardedStockTotal> sumStockByBookIds(@Param("bookIds") Collection<UUID> bookIds);
+
+    @Modifying(flushAutomatically = true)
+    @Query("delete from StockShard s where s.bookId = :bookId")
+    int deleteByBookId(@Param("bookId") UUID bookId);
+}
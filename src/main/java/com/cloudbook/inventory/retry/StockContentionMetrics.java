@@ -0,0 +1,68 @@
+package com.cloudbook.inventory.retry;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Per-book counters for stock write contention: lock conflicts seen by
+ * {@code StockService}, retries taken by {@code stockUpdateRetry} and calls that
+ * ended in a fallback. Counters are dropped from the registry once a book has
+ * been quiet for {@code idleExpiry}, so only hot books stay on the dashboard.
+ */
+@Component
+public class StockContentionMetrics {
+
+    public static final String CONFLICTS_METRIC = "stock.update.conflicts";
+    public static final String RETRIES_METRIC = "stock.update.retries";
+    public static final String FALLBACKS_METRIC = "stock.update.fallbacks";
+
+    // Tag value for contention that is not tied to one book, such as a conflict on the order row
+    public static final String UNATTRIBUTED = "unattributed";
+
+    private final MeterRegistry meterRegistry;
+    private final Cache<Key, Counter> counters;
+
+    public StockContentionMetrics(MeterRegistry meterRegistry,
+                                  @Value("${inventory.contention-metrics.idle-expiry:10m}") Duration idleExpiry,
+                                  @Value("${inventory.contention-metrics.max-keys:10000}") long maxKeys) {
+        this.meterRegistry = meterRegistry;
+        this.counters = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterAccess(idleExpiry)
+                .executor(Runnable::run)
+                .<Key, Counter>removalListener((key, counter, cause) -> {
+                    if (counter != null) {
+                        meterRegistry.remove(counter);
+                    }
+                })
+                .build();
+    }
+
+    public void conflict(String book) {
+        counter(CONFLICTS_METRIC, book, "Stock writes that hit a lock conflict").increment();
+    }
+
+    public void retry(String book) {
+        counter(RETRIES_METRIC, book, "Stock update retries after a conflict").increment();
+    }
+
+    public void fallback(String book) {
+        counter(FALLBACKS_METRIC, book, "Stock updates that gave up and ran their fallback").increment();
+    }
+
+    private Counter counter(String name, String book, String description) {
+        return counters.get(new Key(name, book == null ? UNATTRIBUTED : book), key -> Counter.builder(name)
+                .tag("book", key.book())
+                .description(description)
+                .register(meterRegistry));
+    }
+
+    private record Key(String name, String book) {
+    }
+}
@@ -0,0 +1,51 @@
+package com.cloudbook.inventory.retry;
+
+import com.cloudbook.inventory.limit.KeyedTokenBucketLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Decides whether {@code stockUpdateRetry} may retry a failure. Only concurrency
+ * failures (lock timeouts, deadlocks, optimistic conflicts) are retried, and each
+ * retry spends a token from one process-wide bucket. When contention is high
+ * enough to drain the bucket, further conflicts fail fast instead of adding
+ * more load to the rows everyone is waiting on. Refused retries are visible as
+ * {@code stock.update.rejected} with {@code limit=retry-budget}.
+ * <p>
+ * Resilience4j asks {@link #shouldRetry} before it checks the attempt limit, so
+ * the question only peeks at the bucket; the token is spent by {@link #retried},
+ * called once a retry is really about to run. A conflict on the last attempt
+ * therefore costs nothing, and only counts as rejected if the bucket was empty
+ * anyway.
+ */
+@Component
+public class StockRetryBudget {
+
+    private static final String KEY = "process";
+
+    private final KeyedTokenBucketLimiter budget;
+
+    @Autowired
+    public StockRetryBudget(MeterRegistry meterRegistry,
+                            @Value("${inventory.retry-budget.capacity:20}") int capacity,
+                            @Value("${inventory.retry-budget.refill-per-second:10}") double refillPerSecond) {
+        this(new KeyedTokenBucketLimiter("retry-budget", capacity, refillPerSecond, Duration.ofDays(1), 1, meterRegistry));
+    }
+
+    public StockRetryBudget(KeyedTokenBucketLimiter budget) {
+        this.budget = budget;
+    }
+
+    public boolean shouldRetry(Throwable ex) {
+        return ex instanceof ConcurrencyFailureException && budget.hasToken(KEY);
+    }
+
+    public void retried() {
+        budget.take(KEY);
+    }
+}
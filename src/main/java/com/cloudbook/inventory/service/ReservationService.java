@@ -0,0 +1,120 @@
+package com.cloudbook.inventory.service;
+
+import com.cloudbook.inventory.model.StockReservation;
+import com.cloudbook.inventory.repository.StockReservationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Time-limited holds placed from the cart. Reserving takes the quantity out of
+ * stock straight away, so other carts only see what is really left, and checkout
+ * turns holds into a sale by deleting them. Expired holds are handed back to
+ * stock by a background sweeper in batches.
+ */
+@Service
+@Slf4j
+public class ReservationService {
+
+    @Autowired
+    private StockReservationRepository reservationRepository;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${inventory.reservation.ttl:15m}")
+    private Duration ttl;
+
+    @Value("${inventory.reservation.sweep-batch-size:500}")
+    private int sweepBatchSize;
+
+    /**
+     * Adds to the caller's hold on a book and restarts its expiry. Fails without
+     * side effects when the book does not have the quantity available.
+     */
+    @Transactional
+    public StockReservation reserve(String username, UUID bookId, int quantity) {
+        StockReservation hold = reservationRepository.findByUsernameAndBookId(username, bookId)
+                .orElseGet(() -> StockReservation.builder().username(username).bookId(bookId).build());
+        stockService.decrement(bookId, quantity);
+        hold.setQuantity(hold.getQuantity() + quantity);
+        hold.setExpiresAt(Instant.now().plus(ttl));
+        return reservationRepository.save(hold);
+    }
+
+    @Transactional
+    public void release(String username, UUID bookId) {
+        reservationRepository.findByUsernameAndBookId(username, bookId).ifPresent(hold -> {
+            reservationRepository.delete(hold);
+            stockService.increment(bookId, hold.getQuantity());
+        });
+    }
+
+    @Transactional
+    public void releaseAll(String username) {
+        List<StockReservation> holds = reservationRepository.lockByUsername(username);
+        reservationRepository.deleteAllInBatch(holds);
+        if (!holds.isEmpty()) {
+            stockService.applyAll(byBook(holds));
+        }
+    }
+
+    /**
+     * Deletes all of the caller's holds and returns the held quantity per book, in
+     * id order. The stock is already deducted; the caller settles any difference
+     * between held and purchased quantities.
+     */
+    @Transactional
+    public Map<UUID, Integer> consumeAll(String username) {
+        List<StockReservation> holds = reservationRepository.lockByUsername(username);
+        reservationRepository.deleteAllInBatch(holds);
+        return byBook(holds);
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.reservation.sweep-interval:30s}",
+            initialDelayString = "${inventory.reservation.sweep-interval:30s}")
+    public void releaseExpired() {
+        long start = System.currentTimeMillis();
+        int total = 0;
+        int released;
+        do {
+            released = transactionTemplate.execute(status -> releaseExpiredBatch(Instant.now()));
+            total += released;
+        } while (released == sweepBatchSize);
+        if (total > 0) {
+            log.info("Released {} expired stock reservations in {} ms", total, System.currentTimeMillis() - start);
+        }
+    }
+
+    private int releaseExpiredBatch(Instant now) {
+        List<StockReservation> expired = reservationRepository.lockExpired(now, Limit.of(sweepBatchSize));
+        if (expired.isEmpty()) {
+            return 0;
+        }
+        reservationRepository.deleteAllInBatch(expired);
+        // One locking read of the book rows and one batch of increments
+        stockService.applyAll(byBook(expired));
+        return expired.size();
+    }
+
+    private Map<UUID, Integer> byBook(List<StockReservation> holds) {
+        return holds.stream().collect(Collectors.groupingBy(StockReservation::getBookId, TreeMap::new,
+                Collectors.summingInt(StockReservation::getQuantity)));
+    }
+}
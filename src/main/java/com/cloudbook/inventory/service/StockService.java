@@ -0,0 +1,272 @@
+package com.cloudbook.inventory.service;
+
+import com.cloudbook.common.exception.custom.InsufficientStock;
+import com.cloudbook.common.exception.custom.StockConflict;
+import com.cloudbook.inventory.dto.StockAdjustmentResult;
+import com.cloudbook.inventory.engine.InMemoryInventory;
+import com.cloudbook.inventory.event.StockChangedEvent;
+import com.cloudbook.inventory.repository.StockRepository;
+import com.cloudbook.inventory.retry.StockContentionMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * The only write path for book stock. Every mutation is one guarded UPDATE whose
+ * affected-row count says whether it applied, so there is no read-modify-write
+ * window and nothing to retry on contention. Calls join the caller's transaction;
+ * the row stays locked until that transaction ends, so callers touching several
+ * books should do so in a consistent (id) order.
+ * <p>
+ * With {@code inventory.engine.enabled} the decisions are taken by
+ * {@link InMemoryInventory} instead, and the book row follows asynchronously.
+ * Books whose stock is split across shards are handed to {@link StockShardService}.
+ */
+@Service
+@Slf4j
+public class StockService {
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private StockContentionMetrics contentionMetrics;
+
+    @Autowired(required = false)
+    private InMemoryInventory inMemoryInventory;
+
+    @Autowired
+    private StockShardService stockShardService;
+
+    @Transactional
+    public int decrement(UUID bookId, int quantity) {
+        requirePositive(quantity);
+        if (inMemoryInventory != null) {
+            return inMemoryInventory.decrement(bookId, quantity);
+        }
+        if (stockShardService.isSharded(bookId)) {
+            OptionalInt sharded = sharded(bookId, () -> stockShardService.decrement(bookId, quantity));
+            if (sharded.isPresent()) {
+                return sharded.getAsInt();
+            }
+        }
+        int updated;
+        try {
+            updated = stockRepository.decrementIfAvailable(bookId, quantity, Instant.now());
+        } catch (ConcurrencyFailureException ex) {
+            throw conflict(bookId, ex);
+        }
+        if (updated == 0 && shardedSince(bookId)) {
+            return sharded(bookId, () -> stockShardService.decrement(bookId, quantity)).orElseThrow();
+        }
+        if (updated == 0) {
+            int available = stockRepository.findStockById(bookId)
+                    .orElseThrow(() -> new RuntimeException("Book not found with id: " + bookId));
+            throw new InsufficientStock(bookId, available);
+        }
+        return published(bookId, -quantity);
+    }
+
+    @Transactional
+    public int increment(UUID bookId, int quantity) {
+        requirePositive(quantity);
+        if (inMemoryInventory != null) {
+            return inMemoryInventory.increment(bookId, quantity);
+        }
+        if (stockShardService.isSharded(bookId)) {
+            OptionalInt sharded = sharded(bookId, () -> stockShardService.increment(bookId, quantity));
+            if (sharded.isPresent()) {
+                return sharded.getAsInt();
+            }
+        }
+        int updated;
+        try {
+            updated = stockRepository.increment(bookId, quantity, Instant.now());
+        } catch (ConcurrencyFailureException ex) {
+            throw conflict(bookId, ex);
+        }
+        if (updated == 0 && shardedSince(bookId)) {
+            return sharded(bookId, () -> stockShardService.increment(bookId, quantity)).orElseThrow();
+        }
+        if (updated == 0) {
+            throw new RuntimeException("Book not found with id: " + bookId);
+        }
+        return published(bookId, quantity);
+    }
+
+    @Transactional
+    public int adjust(UUID bookId, int delta) {
+        if (delta == 0 && inMemoryInventory != null) {
+            return inMemoryInventory.current(bookId);
+        }
+        if (delta == 0 && stockShardService.isSharded(bookId)) {
+            return stockShardService.currentStock(bookId);
+        }
+        if (delta == 0) {
+            return stockRepository.findStockById(bookId)
+                    .orElseThrow(() -> new RuntimeException("Book not found with id: " + bookId));
+        }
+        return delta > 0 ? increment(bookId, delta) : decrement(bookId, -delta);
+    }
+
+    /**
+     * Applies net deltas to many books in one transaction. Sharded books are
+     * changed first, one at a time in id order; the rest take one locking read of
+     * all rows in id order, then one JDBC batch of guarded updates for the deltas
+     * that fit. A delta that would take stock below zero, or names a missing book,
+     * is reported and skipped without affecting the others.
+     */
+    @Transactional
+    public Map<UUID, StockAdjustmentResult> adjustAll(Map<UUID, Integer> deltas) {
+        if (inMemoryInventory != null) {
+            return adjustInMemory(deltas);
+        }
+        Map<UUID, StockAdjustmentResult> results = new TreeMap<>();
+        Map<UUID, Integer> unsharded = new TreeMap<>(deltas);
+        for (UUID bookId : stockRepository.findShardedIds(deltas.keySet())) {
+            results.put(bookId, adjustSharded(bookId, unsharded.remove(bookId)));
+        }
+
+        Map<UUID, Integer> current = stockRepository.lockStock(unsharded.keySet());
+        List<Map.Entry<UUID, Integer>> applicable = new ArrayList<>();
+        for (Map.Entry<UUID, Integer> entry : unsharded.entrySet()) {
+            UUID bookId = entry.getKey();
+            int delta = entry.getValue();
+            Integer stock = current.get(bookId);
+            if (stock == null) {
+                results.put(bookId, new StockAdjustmentResult(bookId, delta,
+                        StockAdjustmentResult.Status.NOT_FOUND, null, null));
+            } else if ((long) stock + delta < 0) {
+                results.put(bookId, new StockAdjustmentResult(bookId, delta,
+                        StockAdjustmentResult.Status.INSUFFICIENT_STOCK, stock, stock));
+            } else {
+                results.put(bookId, new StockAdjustmentResult(bookId, delta,
+                        StockAdjustmentResult.Status.APPLIED, stock, stock + delta));
+                if (delta != 0) {
+                    applicable.add(entry);
+                }
+            }
+        }
+
+        int[] counts = stockRepository.applyDeltas(applicable, Instant.now());
+        for (int i = 0; i < applicable.size(); i++) {
+            // Rows are locked, so the guard cannot fail here unless the locking read missed a row
+            if (counts[i] == 0) {
+                throw new RuntimeException("Stock changed during batch adjustment for book id: " + applicable.get(i).getKey());
+            }
+            StockAdjustmentResult result = results.get(applicable.get(i).getKey());
+            eventPublisher.publishEvent(new StockChangedEvent(this, result.bookId(),
+                    result.previousStock(), result.currentStock()));
+        }
+        log.debug("Batch stock adjustment: {} books, {} updated", deltas.size(), applicable.size());
+        return results;
+    }
+
+    /**
+     * Applies all deltas or none, for checkout: {@link #adjustAll}, then a failure
+     * for the first book in id order that was missing or short of stock, which
+     * rolls back the caller's transaction with whatever was applied.
+     */
+    @Transactional
+    public Map<UUID, StockAdjustmentResult> applyAll(Map<UUID, Integer> deltas) {
+        Map<UUID, StockAdjustmentResult> results = adjustAll(deltas);
+        for (StockAdjustmentResult result : results.values()) {
+            if (result.status() == StockAdjustmentResult.Status.NOT_FOUND) {
+                throw new RuntimeException("Book not found with id: " + result.bookId());
+            }
+            if (result.status() == StockAdjustmentResult.Status.INSUFFICIENT_STOCK) {
+                throw new InsufficientStock(result.bookId(), result.currentStock());
+            }
+        }
+        return results;
+    }
+
+    private StockAdjustmentResult adjustSharded(UUID bookId, int delta) {
+        int stock = stockShardService.currentStock(bookId);
+        if (delta == 0) {
+            return new StockAdjustmentResult(bookId, delta, StockAdjustmentResult.Status.APPLIED, stock, stock);
+        }
+        try {
+            OptionalInt current = delta > 0 ? stockShardService.increment(bookId, delta)
+                    : stockShardService.decrement(bookId, -delta);
+            int after = current.orElseThrow(() -> new RuntimeException(
+                    "Stock changed during batch adjustment for book id: " + bookId));
+            return new StockAdjustmentResult(bookId, delta, StockAdjustmentResult.Status.APPLIED, after - delta, after);
+        } catch (InsufficientStock ex) {
+            return new StockAdjustmentResult(bookId, delta, StockAdjustmentResult.Status.INSUFFICIENT_STOCK,
+                    ex.getAvailable(), ex.getAvailable());
+        }
+    }
+
+    private OptionalInt sharded(UUID bookId, Supplier<OptionalInt> change) {
+        try {
+            return change.get();
+        } catch (ConcurrencyFailureException ex) {
+            throw conflict(bookId, ex);
+        }
+    }
+
+    // The guarded row update skips sharded books; a miss may mean sharding was just enabled
+    private boolean shardedSince(UUID bookId) {
+        int shards = stockRepository.findStockShardsById(bookId).orElse(0);
+        stockShardService.remember(bookId, shards);
+        return shards > 0;
+    }
+
+    private Map<UUID, StockAdjustmentResult> adjustInMemory(Map<UUID, Integer> deltas) {
+        Map<UUID, StockAdjustmentResult> results = new TreeMap<>();
+        for (Map.Entry<UUID, Integer> entry : new TreeMap<>(deltas).entrySet()) {
+            UUID bookId = entry.getKey();
+            int delta = entry.getValue();
+            int stock;
+            try {
+                stock = inMemoryInventory.current(bookId);
+            } catch (RuntimeException ex) {
+                results.put(bookId, new StockAdjustmentResult(bookId, delta,
+                        StockAdjustmentResult.Status.NOT_FOUND, null, null));
+                continue;
+            }
+            try {
+                int current = delta == 0 ? stock
+                        : delta > 0 ? inMemoryInventory.increment(bookId, delta)
+                        : inMemoryInventory.decrement(bookId, -delta);
+                results.put(bookId, new StockAdjustmentResult(bookId, delta,
+                        StockAdjustmentResult.Status.APPLIED, current - delta, current));
+            } catch (InsufficientStock ex) {
+                results.put(bookId, new StockAdjustmentResult(bookId, delta,
+                        StockAdjustmentResult.Status.INSUFFICIENT_STOCK, stock, stock));
+            }
+        }
+        return results;
+    }
+
+    private int published(UUID bookId, int delta) {
+        // Our update still holds the row lock, so this reads exactly the value we wrote
+        int current = stockRepository.findStockById(bookId)
+                .orElseThrow(() -> new RuntimeException("Book not found with id: " + bookId));
+        eventPublisher.publishEvent(new StockChangedEvent(this, bookId, current - delta, current));
+        return current;
+    }
+
+    // Lock timeouts and deadlocks carry the book id from here on, for retry metrics
+    private StockConflict conflict(UUID bookId, ConcurrencyFailureException ex) {
+        contentionMetrics.conflict(bookId.toString());
+        return ex instanceof StockConflict stockConflict ? stockConflict : new StockConflict(bookId, ex);
+    }
+
+    private void requirePositive(int quantity) {
+        if (quantity <= 0) {
+            throw new RuntimeException("Quantity must be positive");
+        }
+    }
+}
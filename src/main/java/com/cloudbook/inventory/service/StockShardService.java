@@ -0,0 +1,300 @@
+package com.cloudbook.inventory.service;
+
+import com.cloudbook.catalog.event.BookChangedEvent;
+import com.cloudbook.catalog.model.Book;
+import com.cloudbook.common.exception.custom.InsufficientStock;
+import com.cloudbook.inventory.dto.ShardedStockTotal;
+import com.cloudbook.inventory.engine.InMemoryInventory;
+import com.cloudbook.inventory.event.StockChangedEvent;
+import com.cloudbook.inventory.model.StockShard;
+import com.cloudbook.inventory.repository.StockRepository;
+import com.cloudbook.inventory.repository.StockShardRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Stock for hot books split across {@code stock_shard} rows. A decrement picks a
+ * random shard that has the quantity and takes it with a guarded single-row
+ * update, falling back to the others if it lost a race, so concurrent orders for
+ * the same book mostly lock different rows. Only when no single shard holds the
+ * quantity are all shards locked, in index order, and the quantity gathered
+ * across them.
+ * <p>
+ * The book row's stock is the sum of its shards, rolled up every
+ * {@code rollup-interval} rather than on each order, which is also when
+ * {@link StockChangedEvent} is published for sharded books.
+ */
+@Service
+@Slf4j
+public class StockShardService {
+
+    private static final int ROLLUP_CHUNK_SIZE = 1000;
+
+    @Autowired
+    private StockShardRepository shardRepository;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired(required = false)
+    private InMemoryInventory inMemoryInventory;
+
+    @Value("${inventory.sharding.max-shards:64}")
+    private int maxShards;
+
+    private final Set<UUID> dirty = ConcurrentHashMap.newKeySet();
+
+    // Shard count per book as last seen, possibly stale either way. A stale count finds no shard rows under
+    // lockByBookId, which drops it and sends the caller back to the book row; a stale zero misses the guarded
+    // book-row update, which StockService rechecks
+    private final Cache<UUID, Integer> shardCounts;
+
+    public StockShardService(@Value("${inventory.sharding.hint-ttl:10s}") Duration hintTtl) {
+        this.shardCounts = Caffeine.newBuilder()
+                .expireAfterWrite(hintTtl)
+                .maximumSize(100_000)
+                .build();
+    }
+
+    public boolean isSharded(UUID bookId) {
+        return shardCounts.get(bookId, id -> stockRepository.findStockShardsById(id).orElse(0)) > 0;
+    }
+
+    public void remember(UUID bookId, int shards) {
+        shardCounts.put(bookId, shards);
+    }
+
+    /**
+     * Takes the quantity from the book's shards and returns the remaining total,
+     * or nothing if the book turns out not to be sharded.
+     */
+    public OptionalInt decrement(UUID bookId, int quantity) {
+        int shards = shardCounts.get(bookId, id -> stockRepository.findStockShardsById(id).orElse(0));
+        // Candidates come from a plain read, so a guarded update is only attempted where it should succeed;
+        // some databases lock the row an update examines even when its condition fails
+        for (int attempt = 0; attempt < shards; attempt++) {
+            List<Integer> candidates = shardRepository.findShardsWithStock(bookId, quantity);
+            if (candidates.isEmpty()) {
+                break;
+            }
+            int shard = candidates.get(ThreadLocalRandom.current().nextInt(candidates.size()));
+            if (shardRepository.decrementIfAvailable(bookId, shard, quantity) == 1) {
+                return OptionalInt.of(changed(bookId));
+            }
+        }
+        // A positive sum proves the shards exist; zero may also mean the hint is stale, which the locking read tells
+        int total = shards > 0 ? currentStock(bookId) : 0;
+        if (total > 0 && total < quantity) {
+            throw new InsufficientStock(bookId, total);
+        }
+
+        // The quantity is split across shards; gather it under their locks
+        List<StockShard> locked = shardRepository.lockByBookId(bookId);
+        if (locked.isEmpty()) {
+            shardCounts.invalidate(bookId);
+            return OptionalInt.empty();
+        }
+        int available = locked.stream().mapToInt(StockShard::getStock).sum();
+        if (available < quantity) {
+            throw new InsufficientStock(bookId, available);
+        }
+        int remaining = quantity;
+        for (StockShard shard : locked) {
+            int taken = Math.min(shard.getStock(), remaining);
+            shard.setStock(shard.getStock() - taken);
+            remaining -= taken;
+        }
+        shardRepository.flush();
+        return OptionalInt.of(changed(bookId));
+    }
+
+    /**
+     * Adds the quantity to a random shard of the book and returns the new total,
+     * or nothing if the book turns out not to be sharded.
+     */
+    public OptionalInt increment(UUID bookId, int quantity) {
+        int shards = shardCounts.get(bookId, id -> stockRepository.findStockShardsById(id).orElse(0));
+        if (shards > 0 && shardRepository.increment(bookId, ThreadLocalRandom.current().nextInt(shards), quantity) == 1) {
+            return OptionalInt.of(changed(bookId));
+        }
+        List<StockShard> locked = shardRepository.lockByBookId(bookId);
+        if (locked.isEmpty()) {
+            shardCounts.invalidate(bookId);
+            return OptionalInt.empty();
+        }
+        locked.get(0).setStock(locked.get(0).getStock() + quantity);
+        shardRepository.flush();
+        return OptionalInt.of(changed(bookId));
+    }
+
+    public int currentStock(UUID bookId) {
+        return (int) shardRepository.sumStock(bookId);
+    }
+
+    /**
+     * Splits the book's stock evenly across the given number of shards, taking the
+     * current total from its shards if it is already sharded. Also how an
+     * unbalanced book is rebalanced.
+     */
+    @Transactional
+    public List<StockShard> reshard(UUID bookId, int shards) {
+        if (shards < 2 || shards > maxShards) {
+            throw new RuntimeException("Shard count must be between 2 and " + maxShards);
+        }
+        if (inMemoryInventory != null) {
+            throw new RuntimeException("Stock sharding is not used while the inventory engine is enabled");
+        }
+        return redistribute(bookId, shards, null);
+    }
+
+    /**
+     * Folds the book's shards back into its stock column.
+     */
+    @Transactional
+    public int unshard(UUID bookId) {
+        Integer mirrored = stockRepository.lockStock(List.of(bookId)).get(bookId);
+        if (mirrored == null) {
+            throw new RuntimeException("Book not found with id: " + bookId);
+        }
+        List<StockShard> existing = shardRepository.lockByBookId(bookId);
+        if (existing.isEmpty()) {
+            return mirrored;
+        }
+        int total = existing.stream().mapToInt(StockShard::getStock).sum();
+        shardRepository.deleteAllInBatch(existing);
+        stockRepository.updateStockShards(bookId, 0, total, Instant.now());
+        afterCommit(() -> shardCounts.put(bookId, 0));
+        publishIfChanged(bookId, mirrored, total);
+        log.info("Unsharded stock of book {}: {} units", bookId, total);
+        return total;
+    }
+
+    // Entity updates set an absolute stock and deletes leave shards behind; both are applied here
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        Book previous = event.getPrevious();
+        Book current = event.getCurrent();
+        if (current == null && previous.getStockShards() > 0) {
+            transactionTemplate.executeWithoutResult(status -> shardRepository.deleteByBookId(previous.getId()));
+            shardCounts.invalidate(previous.getId());
+        } else if (previous != null && current != null && current.getStockShards() > 0) {
+            if (previous.getStock() != current.getStock()) {
+                transactionTemplate.executeWithoutResult(status ->
+                        redistribute(current.getId(), current.getStockShards(), current.getStock()));
+            } else {
+                // The save wrote back the rolled-up stock it read, which may be behind the shards
+                dirty.add(current.getId());
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.sharding.rollup-interval:500ms}")
+    public void rollUp() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        // Books changed again after being taken here stay dirty for the next pass
+        List<UUID> changed = new ArrayList<>();
+        for (Iterator<UUID> it = dirty.iterator(); it.hasNext(); ) {
+            changed.add(it.next());
+            it.remove();
+        }
+        for (int from = 0; from < changed.size(); from += ROLLUP_CHUNK_SIZE) {
+            List<UUID> chunk = changed.subList(from, Math.min(from + ROLLUP_CHUNK_SIZE, changed.size()));
+            try {
+                transactionTemplate.executeWithoutResult(status -> rollUp(chunk));
+            } catch (RuntimeException ex) {
+                log.error("Stock shard roll-up of {} books failed, will retry: {}", chunk.size(), ex.getMessage());
+                dirty.addAll(chunk);
+            }
+        }
+    }
+
+    private void rollUp(List<UUID> chunk) {
+        Map<UUID, Integer> mirrored = stockRepository.lockStock(chunk);
+        List<Map.Entry<UUID, Integer>> changes = new ArrayList<>();
+        for (ShardedStockTotal total : shardRepository.sumStockByBookIds(chunk)) {
+            Integer previous = mirrored.get(total.bookId());
+            if (previous != null && previous != total.stock().intValue()) {
+                changes.add(Map.entry(total.bookId(), total.stock().intValue()));
+            }
+        }
+        stockRepository.writeStock(changes, Instant.now());
+        for (Map.Entry<UUID, Integer> change : changes) {
+            publishIfChanged(change.getKey(), mirrored.get(change.getKey()), change.getValue());
+        }
+    }
+
+    private List<StockShard> redistribute(UUID bookId, int shards, Integer newTotal) {
+        Integer mirrored = stockRepository.lockStock(List.of(bookId)).get(bookId);
+        if (mirrored == null) {
+            throw new RuntimeException("Book not found with id: " + bookId);
+        }
+        List<StockShard> existing = shardRepository.lockByBookId(bookId);
+        int total = newTotal != null ? newTotal
+                : existing.isEmpty() ? mirrored : existing.stream().mapToInt(StockShard::getStock).sum();
+
+        shardRepository.deleteAllInBatch(existing);
+        shardRepository.flush();
+        List<StockShard> created = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            // The remainder goes to the first shards, so no two differ by more than one
+            int stock = total / shards + (i < total % shards ? 1 : 0);
+            created.add(StockShard.builder().bookId(bookId).shardIndex(i).stock(stock).build());
+        }
+        shardRepository.saveAll(created);
+        stockRepository.updateStockShards(bookId, shards, total, Instant.now());
+        afterCommit(() -> shardCounts.put(bookId, shards));
+        publishIfChanged(bookId, mirrored, total);
+        log.info("Sharded stock of book {}: {} units across {} shards", bookId, total, shards);
+        return created;
+    }
+
+    private int changed(UUID bookId) {
+        // Rolled up only once committed, so the sum read then includes this change
+        afterCommit(() -> dirty.add(bookId));
+        return currentStock(bookId);
+    }
+
+    private void publishIfChanged(UUID bookId, int previous, int current) {
+        if (previous != current) {
+            eventPublisher.publishEvent(new StockChangedEvent(this, bookId, previous, current));
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -1,7 +1,10 @@
 package com.cloudbook.order.controller;
 
 import com.cloudbook.common.dto.BaseResponse;
+import com.cloudbook.order.service.AsyncCheckoutService;
+import com.cloudbook.order.service.OrderIdempotencyService;
 import com.cloudbook.order.service.OrderService;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
@@ -17,18 +20,53 @@ public class OrderController {
     @Autowired
     private OrderService orderService;
 
-    @Operation(summary = "Create Order")
+    @Autowired
+    private OrderIdempotencyService orderIdempotencyService;
+
+    @Autowired
+    private AsyncCheckoutService asyncCheckoutService;
+
+    @Operation(summary = "Create Order",
+            description = "Repeats with the same Idempotency-Key return the original order instead of placing another")
     @ApiResponses({
             @ApiResponse(responseCode = "201", description = "Order created successfully"),
             @ApiResponse(responseCode = "500", description = "Internal Server Error"),
             @ApiResponse(responseCode = "400", description = "Bad request")
     })
     @PostMapping
-    public ResponseEntity<BaseResponse> createOrder() {
-        final BaseResponse response = orderService.placeOrder();
+    public ResponseEntity<BaseResponse> createOrder(
+            @Parameter(description = "Client-chosen key, unique per order attempt")
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        final BaseResponse response = idempotencyKey == null ? orderService.placeOrder()
+                : orderIdempotencyService.placeOrder(idempotencyKey);
         return new ResponseEntity<>(response, HttpStatus.CREATED);
     }
 
+    @Operation(summary = "Create Order Asynchronously",
+            description = "Accepts the order as PENDING and checks it out in the background; poll its status for the outcome")
+    @ApiResponses({
+            @ApiResponse(responseCode = "202", description = "Order accepted"),
+            @ApiResponse(responseCode = "503", description = "Checkout queue is full, retry after the Retry-After delay"),
+            @ApiResponse(responseCode = "500", description = "Internal Server Error"),
+    })
+    @PostMapping("async")
+    public ResponseEntity<BaseResponse> createOrderAsync() {
+        final BaseResponse response = asyncCheckoutService.acceptOrder();
+        return new ResponseEntity<>(response, HttpStatus.ACCEPTED);
+    }
+
+    @Operation(summary = "View Order Status",
+            description = "PENDING while checkout is queued, then PLACED or FAILED with a reason")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Order status fetched successfully"),
+            @ApiResponse(responseCode = "500", description = "Internal Server Error"),
+    })
+    @GetMapping("{orderId}/status")
+    public ResponseEntity<BaseResponse> viewOrderStatus(@PathVariable("orderId") String orderId) {
+        final BaseResponse response = orderService.getOrderStatus(orderId);
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
     @Operation(summary = "View Order by ID")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Order fetched successfully"),
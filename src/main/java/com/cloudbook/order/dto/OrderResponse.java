@@ -24,6 +24,7 @@ public class OrderResponse extends BaseResponse {
     private BigDecimal totalAmount;
     private LocalDateTime orderDate;
     private String status;
+    private String failureReason;
 
     @Data
     @AllArgsConstructor
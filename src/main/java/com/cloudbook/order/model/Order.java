@@ -34,5 +34,9 @@ public class Order {
     @Enumerated(EnumType.STRING)
     private OrderStatus status = OrderStatus.PLACED;
 
+    // Why an asynchronous checkout ended FAILED
+    @Column(length = 500)
+    private String failureReason;
+
 }
 
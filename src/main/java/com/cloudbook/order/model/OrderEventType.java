@@ -0,0 +1,5 @@
+package com.cloudbook.order.model;
+
+public enum OrderEventType {
+    ORDER_PLACED
+}
@@ -0,0 +1,47 @@
+package com.cloudbook.order.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Outbox row for an order event. Rows are written in the same transaction as the
+ * order change that caused them and deleted once every listener has handled the
+ * event; a row whose delivery failed is tried again from {@code availableAt}.
+ */
+@Entity
+@Table(name = "order_event_outbox",
+        indexes = @Index(name = "idx_order_outbox_available_at", columnList = "available_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderOutboxEvent {
+
+    @Id
+    @GeneratedValue
+    private UUID id;
+
+    @Column(name = "order_id", nullable = false)
+    private UUID orderId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private OrderEventType type;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "available_at", nullable = false)
+    private Instant availableAt;
+
+    private int attempts;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+}
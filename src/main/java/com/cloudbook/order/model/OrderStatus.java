@@ -1,7 +1,9 @@
 package com.cloudbook.order.model;
 
 public enum OrderStatus {
+    PENDING,
     PLACED,
+    FAILED,
     CANCELLED,
     FULFILLED;
 }
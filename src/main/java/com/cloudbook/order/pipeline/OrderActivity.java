@@ -0,0 +1,58 @@
+package com.cloudbook.order.pipeline;
+
+import com.cloudbook.order.model.Order;
+import com.cloudbook.order.model.OrderItem;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A ring buffer entry describing one placed or cancelled order. Entries are
+ * allocated once and overwritten in place; a null {@link #getType()} marks an
+ * entry whose publisher failed part way, which stages skip.
+ */
+@Getter
+public class OrderActivity {
+
+    private OrderActivityType type;
+    private UUID orderId;
+    private String username;
+    private BigDecimal totalAmount;
+    private LocalDateTime orderDate;
+    private long publishedAtNanos;
+    private final List<Line> lines = new ArrayList<>();
+
+    public List<Line> getLines() {
+        return Collections.unmodifiableList(lines);
+    }
+
+    void fill(OrderActivityType type, Order order, long publishedAtNanos) {
+        clear();
+        for (OrderItem item : order.getItems()) {
+            lines.add(new Line(item.getBook().getId(), item.getQuantity(), item.getPriceAtPurchase()));
+        }
+        this.orderId = order.getId();
+        this.username = order.getUsername();
+        this.totalAmount = order.getTotalAmount();
+        this.orderDate = order.getOrderDate();
+        this.publishedAtNanos = publishedAtNanos;
+        this.type = type;
+    }
+
+    void clear() {
+        type = null;
+        orderId = null;
+        username = null;
+        totalAmount = null;
+        orderDate = null;
+        lines.clear();
+    }
+
+    public record Line(UUID bookId, int quantity, BigDecimal priceAtPurchase) {
+    }
+}
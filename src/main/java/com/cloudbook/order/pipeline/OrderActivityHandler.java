@@ -0,0 +1,18 @@
+package com.cloudbook.order.pipeline;
+
+/**
+ * A stage of the post-order pipeline. Each handler bean gets its own thread and
+ * sees every activity after the stages ordered before it (by {@code @Order}) have.
+ */
+public interface OrderActivityHandler {
+
+    /** Used for the stage's thread name and metric tag. */
+    String name();
+
+    /**
+     * Handles one activity. The entry is reused once this returns, so anything kept
+     * must be copied out. {@code endOfBatch} is true for the last activity of the
+     * batch currently available, the point to flush any buffered work.
+     */
+    void onEvent(OrderActivity activity, boolean endOfBatch);
+}
@@ -0,0 +1,231 @@
+package com.cloudbook.order.pipeline;
+
+import com.cloudbook.order.model.Order;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Hands committed order placements and cancellations to post-order work off the
+ * checkout thread. Publishing copies the order into a pre-allocated
+ * {@link RingBuffer} entry and returns; each {@link OrderActivityHandler} runs on
+ * its own thread as one stage of a chain, taking everything published since its
+ * last pass as one batch, and a stage only reaches entries the stage before it
+ * has finished.
+ * <p>
+ * Checkout never waits for the stages: when the ring is full because a stage
+ * has fallen behind, the activity is dropped and counted. Work that must not be
+ * lost belongs on the order outbox instead.
+ */
+@Component
+@Slf4j
+public class OrderActivityPipeline {
+
+    public static final String PROCESSED_METRIC = "orders.pipeline.processed";
+    public static final String BATCH_SIZE_METRIC = "orders.pipeline.batch.size";
+    public static final String LATENCY_METRIC = "orders.pipeline.latency";
+    public static final String LAG_METRIC = "orders.pipeline.lag";
+    public static final String ERRORS_METRIC = "orders.pipeline.errors";
+    public static final String DROPPED_METRIC = "orders.pipeline.dropped";
+
+    private static final Duration STOP_TIMEOUT = Duration.ofSeconds(5);
+
+    private final RingBuffer<OrderActivity> ringBuffer;
+    private final WaitStrategy waitStrategy;
+    private final List<Stage> stages = new ArrayList<>();
+    private final Counter dropped;
+    private volatile boolean running;
+
+    @Autowired
+    public OrderActivityPipeline(MeterRegistry meterRegistry,
+                                 ObjectProvider<OrderActivityHandler> handlers,
+                                 @Value("${order.pipeline.buffer-size:1024}") int bufferSize,
+                                 @Value("${order.pipeline.wait-strategy:blocking}") String waitStrategy) {
+        this(meterRegistry, handlers.orderedStream().toList(), bufferSize, WaitStrategy.of(waitStrategy));
+    }
+
+    public OrderActivityPipeline(MeterRegistry meterRegistry, List<OrderActivityHandler> handlers,
+                                 int bufferSize, WaitStrategy waitStrategy) {
+        this.waitStrategy = waitStrategy;
+        this.ringBuffer = new RingBuffer<>(OrderActivity::new, bufferSize, waitStrategy);
+        LongSupplier barrier = ringBuffer::cursor;
+        for (OrderActivityHandler handler : handlers) {
+            Stage stage = new Stage(handler, barrier, meterRegistry);
+            stages.add(stage);
+            barrier = stage.sequence::get;
+        }
+        // Only the last stage gates publishers; every earlier one is at least as far along
+        if (!stages.isEmpty()) {
+            ringBuffer.addGatingSequence(stages.get(stages.size() - 1).sequence);
+        }
+        this.dropped = Counter.builder(DROPPED_METRIC)
+                .description("Order activities dropped because the pipeline was full")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        for (Stage stage : stages) {
+            stage.thread.start();
+        }
+        log.info("Order activity pipeline started with stages {}", stages.stream().map(stage -> stage.name).toList());
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        // Let the stages finish what was already published before stopping them
+        long deadline = System.nanoTime() + STOP_TIMEOUT.toNanos();
+        while (!stages.isEmpty() && stages.get(stages.size() - 1).sequence.get() < ringBuffer.cursor()
+                && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        running = false;
+        waitStrategy.signalAll();
+        for (Stage stage : stages) {
+            stage.thread.join(STOP_TIMEOUT.toMillis());
+        }
+    }
+
+    /**
+     * Publishes the order once the current transaction commits, or right away when
+     * there is none. A rolled-back order publishes nothing.
+     */
+    public void publishAfterCommit(OrderActivityType type, Order order) {
+        if (stages.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish(type, order);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                publish(type, order);
+            }
+        });
+    }
+
+    private void publish(OrderActivityType type, Order order) {
+        long sequence = ringBuffer.tryNext();
+        if (sequence < 0) {
+            dropped.increment();
+            log.debug("Order activity pipeline full, dropped {} for order {}", type, order.getId());
+            return;
+        }
+        OrderActivity activity = ringBuffer.get(sequence);
+        try {
+            activity.fill(type, order, System.nanoTime());
+        } catch (RuntimeException ex) {
+            activity.clear();
+            log.error("Could not publish {} for order {}: {}", type, order.getId(), ex.getMessage());
+        } finally {
+            ringBuffer.publish(sequence);
+        }
+    }
+
+    private final class Stage implements Runnable {
+
+        private final String name;
+        private final OrderActivityHandler handler;
+        private final LongSupplier barrier;
+        private final AtomicLong sequence = new AtomicLong(-1);
+        private final Thread thread;
+        private final Counter processed;
+        private final Counter errors;
+        private final DistributionSummary batchSizes;
+        private final Timer latency;
+
+        private Stage(OrderActivityHandler handler, LongSupplier barrier, MeterRegistry meterRegistry) {
+            this.name = handler.name();
+            this.handler = handler;
+            this.barrier = barrier;
+            this.thread = new Thread(this, "order-pipeline-" + name);
+            this.thread.setDaemon(true);
+            this.processed = Counter.builder(PROCESSED_METRIC)
+                    .description("Order activities handled by a pipeline stage")
+                    .tag("stage", name)
+                    .register(meterRegistry);
+            this.errors = Counter.builder(ERRORS_METRIC)
+                    .description("Order activities a pipeline stage failed to handle")
+                    .tag("stage", name)
+                    .register(meterRegistry);
+            this.batchSizes = DistributionSummary.builder(BATCH_SIZE_METRIC)
+                    .description("Order activities a pipeline stage took in one pass")
+                    .tag("stage", name)
+                    .register(meterRegistry);
+            this.latency = Timer.builder(LATENCY_METRIC)
+                    .description("Time from an order activity being published to a stage handling it")
+                    .tag("stage", name)
+                    .register(meterRegistry);
+            Gauge.builder(LAG_METRIC, this, stage -> ringBuffer.cursor() - stage.sequence.get())
+                    .description("Published order activities a pipeline stage has not handled yet")
+                    .tag("stage", name)
+                    .register(meterRegistry);
+        }
+
+        @Override
+        public void run() {
+            long next = sequence.get() + 1;
+            while (running) {
+                long available;
+                try {
+                    available = waitStrategy.waitFor(next, barrier, () -> running);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (available < next) {
+                    continue;
+                }
+                for (long current = next; current <= available; current++) {
+                    handle(ringBuffer.get(current), current == available);
+                }
+                long batchSize = available - next + 1;
+                processed.increment(batchSize);
+                batchSizes.record(batchSize);
+                sequence.set(available);
+                // The next stage may be waiting on this one
+                waitStrategy.signalAll();
+                next = available + 1;
+            }
+        }
+
+        private void handle(OrderActivity activity, boolean endOfBatch) {
+            if (activity.getType() == null) {
+                return;
+            }
+            try {
+                handler.onEvent(activity, endOfBatch);
+            } catch (RuntimeException ex) {
+                // A failing stage must not stall the ones after it or the publishers
+                errors.increment();
+                log.error("Pipeline stage {} failed on {} for order {}: {}",
+                        name, activity.getType(), activity.getOrderId(), ex.getMessage());
+            }
+            latency.record(System.nanoTime() - activity.getPublishedAtNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+}
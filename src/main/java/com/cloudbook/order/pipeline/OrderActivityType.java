@@ -0,0 +1,6 @@
+package com.cloudbook.order.pipeline;
+
+public enum OrderActivityType {
+    PLACED,
+    CANCELLED
+}
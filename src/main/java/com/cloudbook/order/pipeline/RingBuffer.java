@@ -0,0 +1,107 @@
+package com.cloudbook.order.pipeline;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * A fixed ring of entries allocated up front and reused, written by any number of
+ * publishing threads and read by a chain of stages.
+ * <p>
+ * A publisher claims the next sequence, fills the entry at that slot and
+ * publishes it by flagging the slot with the lap it belongs to. Publishers never
+ * wait for one another; {@link #cursor()} only moves past a run of flagged slots,
+ * so a stage never reads an entry that is still being written. A claim fails
+ * rather than waits when it would overwrite an entry the slowest stage has not
+ * consumed yet.
+ */
+public class RingBuffer<T> {
+
+    private final Object[] entries;
+    private final int mask;
+    private final int indexShift;
+    private final WaitStrategy waitStrategy;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private final AtomicLong cursor = new AtomicLong(-1);
+    // Lap of the entry last published in each slot
+    private final AtomicIntegerArray publishedLaps;
+    private volatile AtomicLong[] gatingSequences = new AtomicLong[0];
+
+    public RingBuffer(Supplier<T> factory, int size, WaitStrategy waitStrategy) {
+        if (size <= 0 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("Ring buffer size must be a power of two: " + size);
+        }
+        this.entries = new Object[size];
+        for (int i = 0; i < size; i++) {
+            entries[i] = factory.get();
+        }
+        this.mask = size - 1;
+        this.indexShift = Integer.numberOfTrailingZeros(size);
+        this.waitStrategy = waitStrategy;
+        this.publishedLaps = new AtomicIntegerArray(size);
+        for (int i = 0; i < size; i++) {
+            publishedLaps.set(i, -1);
+        }
+    }
+
+    /** Registers a stage whose progress publishers must not lap. */
+    public synchronized void addGatingSequence(AtomicLong sequence) {
+        AtomicLong[] current = gatingSequences;
+        AtomicLong[] updated = new AtomicLong[current.length + 1];
+        System.arraycopy(current, 0, updated, 0, current.length);
+        updated[current.length] = sequence;
+        gatingSequences = updated;
+    }
+
+    public int size() {
+        return entries.length;
+    }
+
+    /** The highest sequence up to which every entry has been published. */
+    public long cursor() {
+        long current = cursor.get();
+        long next = current + 1;
+        long upTo = claimed.get();
+        while (next <= upTo && publishedLaps.get((int) (next & mask)) == (int) (next >>> indexShift)) {
+            next++;
+        }
+        return next - 1 > current ? cursor.accumulateAndGet(next - 1, Math::max) : current;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(long sequence) {
+        return (T) entries[(int) (sequence & mask)];
+    }
+
+    /** Claims the next sequence, or returns -1 when the ring is full. */
+    public long tryNext() {
+        while (true) {
+            long current = claimed.get();
+            long next = current + 1;
+            if (next - entries.length > minimumGatingSequence()) {
+                return -1;
+            }
+            if (claimed.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    /** Makes a claimed entry visible to the stages; every claimed sequence must be published. */
+    public void publish(long sequence) {
+        publishedLaps.set((int) (sequence & mask), (int) (sequence >>> indexShift));
+        waitStrategy.signalAll();
+    }
+
+    public long remainingCapacity() {
+        return entries.length - (claimed.get() - minimumGatingSequence());
+    }
+
+    private long minimumGatingSequence() {
+        long minimum = claimed.get();
+        for (AtomicLong sequence : gatingSequences) {
+            minimum = Math.min(minimum, sequence.get());
+        }
+        return minimum;
+    }
+}
@@ -0,0 +1,139 @@
+package com.cloudbook.order.pipeline;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * How a stage waits for the sequence it needs next. The choice trades idle CPU for
+ * hand-off latency: {@code blocking} parks on a condition and costs every
+ * publisher a lock, {@code sleeping} spins, yields and then parks briefly,
+ * {@code yielding} spins and yields, and {@code busy-spin} keeps a core busy per
+ * stage for the lowest latency.
+ */
+public interface WaitStrategy {
+
+    /**
+     * Waits until {@code dependency} reaches {@code sequence} and returns the highest
+     * sequence available, which may be beyond it. Returns something lower only once
+     * {@code running} turns false.
+     */
+    long waitFor(long sequence, LongSupplier dependency, BooleanSupplier running) throws InterruptedException;
+
+    /** Wakes stages waiting for a sequence that has just moved. */
+    void signalAll();
+
+    static WaitStrategy of(String name) {
+        return switch (name.trim().toLowerCase()) {
+            case "blocking" -> new Blocking();
+            case "sleeping" -> new Sleeping();
+            case "yielding" -> new Yielding();
+            case "busy-spin" -> new BusySpin();
+            default -> throw new IllegalArgumentException("Unknown wait strategy: " + name
+                    + " (expected blocking, sleeping, yielding or busy-spin)");
+        };
+    }
+
+    final class Blocking implements WaitStrategy {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition moved = lock.newCondition();
+
+        @Override
+        public long waitFor(long sequence, LongSupplier dependency, BooleanSupplier running) throws InterruptedException {
+            long available = dependency.getAsLong();
+            if (available >= sequence) {
+                return available;
+            }
+            lock.lock();
+            try {
+                // Checked under the lock that signalAll takes, so a move cannot slip in between
+                while ((available = dependency.getAsLong()) < sequence && running.getAsBoolean()) {
+                    moved.await();
+                }
+                return available;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void signalAll() {
+            lock.lock();
+            try {
+                moved.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    final class Sleeping implements WaitStrategy {
+
+        private static final int SPINS = 100;
+        private static final int YIELDS = 100;
+        private static final long PARK_NANOS = 100_000;
+
+        @Override
+        public long waitFor(long sequence, LongSupplier dependency, BooleanSupplier running) {
+            int attempts = 0;
+            long available;
+            while ((available = dependency.getAsLong()) < sequence && running.getAsBoolean()) {
+                if (attempts < SPINS) {
+                    Thread.onSpinWait();
+                } else if (attempts < SPINS + YIELDS) {
+                    Thread.yield();
+                } else {
+                    LockSupport.parkNanos(PARK_NANOS);
+                }
+                attempts++;
+            }
+            return available;
+        }
+
+        @Override
+        public void signalAll() {
+        }
+    }
+
+    final class Yielding implements WaitStrategy {
+
+        private static final int SPINS = 100;
+
+        @Override
+        public long waitFor(long sequence, LongSupplier dependency, BooleanSupplier running) {
+            int attempts = 0;
+            long available;
+            while ((available = dependency.getAsLong()) < sequence && running.getAsBoolean()) {
+                if (attempts++ < SPINS) {
+                    Thread.onSpinWait();
+                } else {
+                    Thread.yield();
+                }
+            }
+            return available;
+        }
+
+        @Override
+        public void signalAll() {
+        }
+    }
+
+    final class BusySpin implements WaitStrategy {
+
+        @Override
+        public long waitFor(long sequence, LongSupplier dependency, BooleanSupplier running) {
+            long available;
+            while ((available = dependency.getAsLong()) < sequence && running.getAsBoolean()) {
+                Thread.onSpinWait();
+            }
+            return available;
+        }
+
+        @Override
+        public void signalAll() {
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.cloudbook.order.repository;
+
+import com.cloudbook.order.model.OrderOutboxEvent;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface OrderOutboxRepository extends JpaRepository<OrderOutboxEvent, UUID> {
+
+    // Oldest first, so events for one order are delivered in the order they were written
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select e from OrderOutboxEvent e where e.availableAt <= :now order by e.createdAt, e.id")
+    List<OrderOutboxEvent> lockDue(@Param("now") Instant now, Limit limit);
+
+    @Query("select min(e.createdAt) from OrderOutboxEvent e")
+    Optional<Instant> findOldestCreatedAt();
+}
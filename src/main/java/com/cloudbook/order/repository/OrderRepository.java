@@ -1,13 +1,26 @@
 package com.cloudbook.order.repository;
 
 import com.cloudbook.order.model.Order;
+import com.cloudbook.order.model.OrderStatus;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 public interface OrderRepository extends JpaRepository<Order, UUID> {
 
     List<Order> findByUsername(String username);
+
+    List<Order> findByStatus(OrderStatus status);
+
+    // Held until commit, so a pending order queued on several instances is checked out by one of them
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select o from Order o where o.id = :id")
+    Optional<Order> lockById(@Param("id") UUID id);
 }
 
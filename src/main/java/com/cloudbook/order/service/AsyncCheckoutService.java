@@ -0,0 +1,175 @@
+package com.cloudbook.order.service;
+
+import com.cloudbook.common.exception.custom.CheckoutQueueFull;
+import com.cloudbook.order.dto.OrderResponse;
+import com.cloudbook.order.model.Order;
+import com.cloudbook.order.model.OrderStatus;
+import com.cloudbook.order.repository.OrderRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Accepts orders without holding the request thread for checkout. An accepted
+ * order is saved as {@code PENDING} and its checkout runs later on a fixed pool
+ * of workers, so at most {@code workers} checkouts hold a database connection
+ * at a time however many requests arrive. Accepted checkouts are bounded by
+ * {@code queue-capacity}; beyond that new orders are refused before anything is
+ * written, and the client is told to retry.
+ * <p>
+ * Orders still pending when the application stops are queued again on the next
+ * start. Every instance queues all pending orders it finds; checkout locks the
+ * order row first, so each order is still checked out only once.
+ */
+@Service
+@Slf4j
+public class AsyncCheckoutService {
+
+    public static final String QUEUE_DEPTH_METRIC = "orders.checkout.queue.depth";
+    public static final String QUEUE_WAIT_METRIC = "orders.checkout.queue.wait";
+    public static final String PROCESSING_METRIC = "orders.checkout.processing";
+    public static final String REJECTED_METRIC = "orders.checkout.rejected";
+
+    private static final int MAX_FAILURE_REASON_LENGTH = 500;
+    private static final long RETRY_AFTER_SECONDS = 5;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private final ThreadPoolExecutor workers;
+    // Queued plus running checkouts; taken before the pending order is written
+    private final Semaphore slots;
+    private final Duration shutdownTimeout;
+    private final MeterRegistry meterRegistry;
+    private final Timer queueWait;
+    private final Counter rejected;
+
+    public AsyncCheckoutService(MeterRegistry meterRegistry,
+                                @Value("${order.checkout.workers:4}") int workerCount,
+                                @Value("${order.checkout.queue-capacity:500}") int queueCapacity,
+                                @Value("${order.checkout.shutdown-timeout:30s}") Duration shutdownTimeout) {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "checkout-worker-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.slots = new Semaphore(queueCapacity);
+        this.shutdownTimeout = shutdownTimeout;
+        this.meterRegistry = meterRegistry;
+        this.queueWait = Timer.builder(QUEUE_WAIT_METRIC)
+                .description("Time accepted orders wait for a checkout worker")
+                .register(meterRegistry);
+        this.rejected = Counter.builder(REJECTED_METRIC)
+                .description("Orders refused because the checkout queue was full")
+                .register(meterRegistry);
+        Gauge.builder(QUEUE_DEPTH_METRIC, workers, executor -> executor.getQueue().size())
+                .description("Accepted orders waiting for a checkout worker")
+                .register(meterRegistry);
+    }
+
+    public OrderResponse acceptOrder() {
+        if (!slots.tryAcquire()) {
+            rejected.increment();
+            throw new CheckoutQueueFull("Too many orders are being processed. Please try again shortly.", RETRY_AFTER_SECONDS);
+        }
+        Order order;
+        try {
+            order = orderService.createPendingOrder();
+        } catch (RuntimeException ex) {
+            slots.release();
+            throw ex;
+        }
+        submit(order.getId());
+        return OrderResponse.builder()
+                .id(order.getId())
+                .status(order.getStatus().name())
+                .orderDate(order.getOrderDate())
+                .build();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumePendingOrders() {
+        List<Order> pending = orderRepository.findByStatus(OrderStatus.PENDING);
+        for (Order order : pending) {
+            if (slots.tryAcquire()) {
+                submit(order.getId());
+            } else {
+                rejected.increment();
+                orderService.failPendingOrder(order.getId(), "Checkout queue was full after a restart");
+            }
+        }
+        if (!pending.isEmpty()) {
+            log.info("Resumed {} pending orders", pending.size());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        workers.shutdown();
+        if (!workers.awaitTermination(shutdownTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            // Whatever is left stays PENDING and is picked up on the next start
+            workers.shutdownNow();
+        }
+    }
+
+    private void submit(UUID orderId) {
+        long queuedAt = System.nanoTime();
+        try {
+            workers.execute(() -> process(orderId, queuedAt));
+        } catch (RejectedExecutionException ex) {
+            slots.release();
+            orderService.failPendingOrder(orderId, "Checkout is shutting down");
+            throw new CheckoutQueueFull("Checkout is shutting down. Please try again shortly.", RETRY_AFTER_SECONDS);
+        }
+    }
+
+    private void process(UUID orderId, long queuedAt) {
+        long startedAt = System.nanoTime();
+        queueWait.record(startedAt - queuedAt, TimeUnit.NANOSECONDS);
+        String outcome = "placed";
+        try {
+            orderService.placePendingOrder(orderId);
+        } catch (RuntimeException ex) {
+            outcome = "failed";
+            log.warn("Checkout failed for order {}: {}", orderId, ex.getMessage());
+            try {
+                orderService.failPendingOrder(orderId, truncate(ex.getMessage()));
+            } catch (RuntimeException markEx) {
+                log.error("Could not mark order {} as failed: {}", orderId, markEx.getMessage());
+            }
+        } finally {
+            slots.release();
+            Timer.builder(PROCESSING_METRIC)
+                    .description("Time a checkout worker spends on one order")
+                    .tag("outcome", outcome)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static String truncate(String reason) {
+        if (reason == null) {
+            return "Checkout failed";
+        }
+        return reason.length() <= MAX_FAILURE_REASON_LENGTH ? reason : reason.substring(0, MAX_FAILURE_REASON_LENGTH);
+    }
+}
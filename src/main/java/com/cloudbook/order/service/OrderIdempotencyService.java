@@ -0,0 +1,112 @@
+package com.cloudbook.order.service;
+
+import com.cloudbook.order.dto.OrderResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Order placement keyed by the client's {@code Idempotency-Key}. The first
+ * request for a key runs checkout; repeats of it get the same
+ * {@link OrderResponse} from memory without touching the cart, catalog or stock,
+ * and repeats that arrive while it is still running wait for its outcome. Keys
+ * are per user and kept for {@code ttl}. A failed checkout is not remembered, so
+ * the client can retry it with the same key.
+ * <p>
+ * Results live in this instance only; behind a load balancer duplicates must be
+ * routed to the same instance for the guarantee to hold.
+ */
+@Service
+@Slf4j
+public class OrderIdempotencyService {
+
+    public static final String REPLAYS_METRIC = "orders.idempotency.replays";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    @Autowired
+    private OrderService orderService;
+
+    private final Cache<Key, CompletableFuture<OrderResponse>> results;
+    private final Duration waitTimeout;
+    private final Counter replays;
+
+    public OrderIdempotencyService(MeterRegistry meterRegistry,
+                                   @Value("${order.idempotency.ttl:24h}") Duration ttl,
+                                   @Value("${order.idempotency.max-keys:100000}") long maxKeys,
+                                   @Value("${order.idempotency.wait-timeout:30s}") Duration waitTimeout) {
+        this.results = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxKeys)
+                .build();
+        this.waitTimeout = waitTimeout;
+        this.replays = Counter.builder(REPLAYS_METRIC)
+                .description("Order submissions answered from an earlier request with the same Idempotency-Key")
+                .register(meterRegistry);
+    }
+
+    public OrderResponse placeOrder(String idempotencyKey) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new RuntimeException("Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        Key key = new Key(currentUsername(), idempotencyKey);
+        CompletableFuture<OrderResponse> placing = new CompletableFuture<>();
+        CompletableFuture<OrderResponse> earlier = results.asMap().putIfAbsent(key, placing);
+        if (earlier != null) {
+            replays.increment();
+            return await(earlier);
+        }
+
+        try {
+            OrderResponse response = orderService.placeOrder();
+            placing.complete(response);
+            return response;
+        } catch (Throwable ex) {
+            // Errors too: waiting duplicates share this failure; later ones run checkout again
+            results.asMap().remove(key, placing);
+            placing.completeExceptionally(ex);
+            throw ex;
+        }
+    }
+
+    private OrderResponse await(CompletableFuture<OrderResponse> earlier) {
+        try {
+            return earlier.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException(ex.getCause().getMessage(), ex.getCause());
+        } catch (TimeoutException ex) {
+            throw new RuntimeException("An order with this Idempotency-Key is still being placed. Please try again.");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for an order with the same Idempotency-Key");
+        }
+    }
+
+    // Only the authenticated name: a replay must not touch any table, the users table included
+    private String currentUsername() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication.getName() == null || authentication.getName().isEmpty()) {
+            throw new RuntimeException("Unauthenticated access");
+        }
+        return authentication.getName();
+    }
+
+    private record Key(String username, String idempotencyKey) {
+    }
+}
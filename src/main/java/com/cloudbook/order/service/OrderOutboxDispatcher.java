@@ -0,0 +1,154 @@
+package com.cloudbook.order.service;
+
+import com.cloudbook.order.event.OrderPlacedEvent;
+import com.cloudbook.order.model.OrderOutboxEvent;
+import com.cloudbook.order.repository.OrderOutboxRepository;
+import com.cloudbook.order.repository.OrderRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivers order events from the outbox to in-process listeners. Each batch is
+ * locked and deleted in one transaction, so an event is removed only after its
+ * listeners returned; a crash in between delivers it again. Listeners must
+ * therefore tolerate seeing an event more than once. Every event is delivered in
+ * a transaction of its own, so a listener that fails only rolls back its own
+ * work; the event is then retried with exponential backoff without holding up
+ * the rest of its batch.
+ */
+@Service
+@Slf4j
+public class OrderOutboxDispatcher {
+
+    public static final String LAG_METRIC = "orders.outbox.lag";
+    public static final String BACKLOG_METRIC = "orders.outbox.backlog";
+    public static final String OLDEST_AGE_METRIC = "orders.outbox.oldest.age";
+    public static final String FAILURES_METRIC = "orders.outbox.failures";
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    @Autowired
+    private OrderOutboxRepository outboxRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${order.outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${order.outbox.retry-backoff:1s}")
+    private Duration retryBackoff;
+
+    @Value("${order.outbox.max-retry-backoff:5m}")
+    private Duration maxRetryBackoff;
+
+    private final Timer lag;
+    private final Counter failures;
+    private final AtomicLong backlog = new AtomicLong();
+    private final AtomicLong oldestAgeMillis = new AtomicLong();
+
+    public OrderOutboxDispatcher(MeterRegistry meterRegistry) {
+        this.lag = Timer.builder(LAG_METRIC)
+                .description("Time from an order event being written to its delivery")
+                .register(meterRegistry);
+        this.failures = Counter.builder(FAILURES_METRIC)
+                .description("Order event deliveries that failed and will be retried")
+                .register(meterRegistry);
+        Gauge.builder(BACKLOG_METRIC, backlog, AtomicLong::get)
+                .description("Order events waiting for delivery")
+                .register(meterRegistry);
+        Gauge.builder(OLDEST_AGE_METRIC, oldestAgeMillis, value -> value.get() / 1000.0)
+                .description("Age in seconds of the oldest undelivered order event")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${order.outbox.poll-interval:500ms}")
+    public void dispatch() {
+        TransactionTemplate delivery = new TransactionTemplate(transactionManager);
+        delivery.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        int locked;
+        do {
+            locked = transactionTemplate.execute(status -> dispatchBatch(delivery, Instant.now()));
+        } while (locked == batchSize);
+
+        backlog.set(outboxRepository.count());
+        oldestAgeMillis.set(outboxRepository.findOldestCreatedAt()
+                .map(createdAt -> Math.max(0, Duration.between(createdAt, Instant.now()).toMillis()))
+                .orElse(0L));
+    }
+
+    private int dispatchBatch(TransactionTemplate delivery, Instant now) {
+        List<OrderOutboxEvent> batch = outboxRepository.lockDue(now, Limit.of(batchSize));
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        List<OrderOutboxEvent> delivered = new ArrayList<>(batch.size());
+        for (OrderOutboxEvent event : batch) {
+            try {
+                // A listener failure rolls back only this transaction; the batch records the outcome
+                delivery.executeWithoutResult(status -> deliver(event));
+                delivered.add(event);
+                lag.record(Duration.between(event.getCreatedAt(), Instant.now()));
+            } catch (RuntimeException ex) {
+                failures.increment();
+                event.setAttempts(event.getAttempts() + 1);
+                event.setLastError(truncate(ex.getMessage()));
+                event.setAvailableAt(now.plus(backoff(event.getAttempts())));
+                log.warn("Delivery of {} for order {} failed (attempt {}), retrying at {}: {}",
+                        event.getType(), event.getOrderId(), event.getAttempts(), event.getAvailableAt(), ex.getMessage());
+            }
+        }
+        outboxRepository.deleteAllInBatch(delivered);
+        return batch.size();
+    }
+
+    private void deliver(OrderOutboxEvent event) {
+        switch (event.getType()) {
+            // An order deleted since has nothing left to announce
+            case ORDER_PLACED -> orderRepository.findById(event.getOrderId())
+                    .ifPresent(order -> eventPublisher.publishEvent(new OrderPlacedEvent(this, order)));
+            default -> throw new IllegalStateException("No delivery for order event type " + event.getType());
+        }
+    }
+
+    private Duration backoff(int attempts) {
+        Duration delay = retryBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(maxRetryBackoff) > 0 ? maxRetryBackoff : delay;
+    }
+
+    private static String truncate(String error) {
+        if (error == null) {
+            return null;
+        }
+        return error.length() <= MAX_ERROR_LENGTH ? error : error.substring(0, MAX_ERROR_LENGTH);
+    }
+}
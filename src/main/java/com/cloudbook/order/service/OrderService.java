@@ -6,25 +6,35 @@ import com.cloudbook.cart.model.Cart;
 import com.cloudbook.cart.model.CartItem;
 import com.cloudbook.cart.repository.CartRepository;
 import com.cloudbook.catalog.model.Book;
-import com.cloudbook.catalog.repository.CatalogRepository;
+import com.cloudbook.common.exception.custom.StockConflict;
+import com.cloudbook.inventory.retry.StockContentionMetrics;
+import com.cloudbook.inventory.service.ReservationService;
+import com.cloudbook.inventory.service.StockService;
 import com.cloudbook.order.dto.OrderResponse;
-import com.cloudbook.order.event.OrderPlacedEvent;
 import com.cloudbook.order.model.Order;
+import com.cloudbook.order.model.OrderEventType;
 import com.cloudbook.order.model.OrderItem;
+import com.cloudbook.order.model.OrderOutboxEvent;
 import com.cloudbook.order.model.OrderStatus;
+import com.cloudbook.order.pipeline.OrderActivityPipeline;
+import com.cloudbook.order.pipeline.OrderActivityType;
+import com.cloudbook.order.repository.OrderOutboxRepository;
 import com.cloudbook.order.repository.OrderRepository;
 import com.cloudbook.order.util.OrderMapper;
 import io.github.resilience4j.retry.annotation.Retry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.UUID;
 
 @Service
@@ -38,7 +48,10 @@ public class OrderService {
     private CartRepository cartRepository;
 
     @Autowired
-    private CatalogRepository catalogRepository;
+    private StockService stockService;
+
+    @Autowired
+    private ReservationService reservationService;
 
     @Autowired
     private UserRepository userRepository;
@@ -47,39 +60,76 @@ public class OrderService {
     private OrderMapper orderMapper;
 
     @Autowired
-    private ApplicationEventPublisher eventPublisher;
+    private OrderOutboxRepository outboxRepository;
+
+    @Autowired
+    private StockContentionMetrics contentionMetrics;
+
+    @Autowired
+    private OrderActivityPipeline activityPipeline;
 
     @Transactional
     public OrderResponse placeOrder() {
-        String username = getCurrentUsername();
-
-        Cart cart = cartRepository.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("Cart not found"));
+        Order order = new Order();
+        order.setUsername(getCurrentUsername());
+        order.setOrderDate(LocalDateTime.now());
+        return orderMapper.toResponse(checkout(order));
+    }
 
-        if (cart.getItems().isEmpty()) {
-            throw new RuntimeException("Cart is empty");
-        }
+    /**
+     * Records an order to be checked out later by {@link AsyncCheckoutService}. Only the
+     * cart is checked here; stock is taken when the order is processed.
+     */
+    @Transactional
+    public Order createPendingOrder() {
+        String username = getCurrentUsername();
+        requireCartItems(username);
 
         Order order = new Order();
         order.setUsername(username);
         order.setOrderDate(LocalDateTime.now());
+        order.setStatus(OrderStatus.PENDING);
+        return orderRepository.save(order);
+    }
+
+    /**
+     * Checks out a pending order from its owner's current cart. Does nothing if the order
+     * is gone or no longer pending. The order row stays locked until commit, so another
+     * instance checking out the same order waits and then finds it no longer pending.
+     */
+    @Transactional
+    public void placePendingOrder(UUID orderId) {
+        Order order = orderRepository.lockById(orderId).orElse(null);
+        if (order == null || order.getStatus() != OrderStatus.PENDING) {
+            return;
+        }
+        checkout(order);
+    }
+
+    @Transactional
+    public void failPendingOrder(UUID orderId, String reason) {
+        orderRepository.lockById(orderId)
+                .filter(order -> order.getStatus() == OrderStatus.PENDING)
+                .ifPresent(order -> {
+                    order.setStatus(OrderStatus.FAILED);
+                    order.setFailureReason(reason);
+                    orderRepository.save(order);
+                });
+    }
+
+    private Order checkout(Order order) {
+        String username = order.getUsername();
+        Cart cart = requireCartItems(username);
         order.setStatus(OrderStatus.PLACED);
 
         BigDecimal total = BigDecimal.ZERO;
 
+        // Held quantities are already out of stock; only the difference to the cart touches book rows
+        Map<UUID, Integer> stockChanges = new TreeMap<>(reservationService.consumeAll(username));
         for (CartItem cartItem : cart.getItems()) {
-            UUID bookId = cartItem.getBook().getId();
-            Book book = catalogRepository.findById(bookId)
-                    .orElseThrow(() -> new RuntimeException("Book not found: " + bookId));
-
+            Book book = cartItem.getBook();
             int quantity = cartItem.getQuantity();
-            if (book.getStock() < quantity) {
-                throw new RuntimeException("Insufficient stock for book: " + book.getTitle());
-            }
-
-            // Update stock in memory
-            book.setStock(book.getStock() - quantity);
-            catalogRepository.save(book);
+            stockChanges.merge(book.getId(), -quantity, Integer::sum);
 
             OrderItem orderItem = new OrderItem();
             orderItem.setBook(book);
@@ -93,15 +143,40 @@ public class OrderService {
             total = total.add(itemTotal);
         }
 
+        // Sharded books first, then one locking read of the other book rows, each in id order so concurrent
+        // checkouts of overlapping carts take their locks in the same order; a line short of stock fails the order
+        stockChanges.values().removeIf(change -> change == 0);
+        if (!stockChanges.isEmpty()) {
+            stockService.applyAll(stockChanges);
+        }
+
         order.setTotalAmount(total);
         Order savedOrder = orderRepository.save(order);
 
         cart.getItems().clear();
         cartRepository.save(cart);
 
-        eventPublisher.publishEvent(new OrderPlacedEvent(this, savedOrder));
+        // Delivered by OrderOutboxDispatcher once this transaction commits
+        Instant now = Instant.now();
+        outboxRepository.save(OrderOutboxEvent.builder()
+                .orderId(savedOrder.getId())
+                .type(OrderEventType.ORDER_PLACED)
+                .createdAt(now)
+                .availableAt(now)
+                .build());
+        activityPipeline.publishAfterCommit(OrderActivityType.PLACED, savedOrder);
+
+        return savedOrder;
+    }
+
+    private Cart requireCartItems(String username) {
+        Cart cart = cartRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("Cart not found"));
 
-        return orderMapper.toResponse(savedOrder);
+        if (cart.getItems().isEmpty()) {
+            throw new RuntimeException("Cart is empty");
+        }
+        return cart;
     }
 
     public OrderResponse getUserOrders() {
@@ -115,7 +190,7 @@ public class OrderService {
     public OrderResponse getOrderById(String orderId) {
         String username = getCurrentUsername();
         UUID orderUUID = UUID.fromString(orderId);
-        Order order = orderRepository.findById(orderUUID)
+        Order order = orderRepository.lockById(orderUUID)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
 
         if (!order.getUsername().equals(username)) {
@@ -125,12 +200,29 @@ public class OrderService {
         return orderMapper.toResponse(order);
     }
 
+    public OrderResponse getOrderStatus(String orderId) {
+        String username = getCurrentUsername();
+        Order order = orderRepository.findById(UUID.fromString(orderId))
+                .orElseThrow(() -> new RuntimeException("Order not found"));
+
+        if (!order.getUsername().equals(username)) {
+            throw new RuntimeException("Access denied");
+        }
+
+        return OrderResponse.builder()
+                .id(order.getId())
+                .status(order.getStatus().name())
+                .failureReason(order.getFailureReason())
+                .build();
+    }
+
     @Retry(name = "stockUpdateRetry", fallbackMethod = "handleCancelOrderFailure")
     @Transactional
     public void cancelOrder(String orderId) {
         String username = getCurrentUsername();
         UUID orderUUID = UUID.fromString(orderId);
-        Order order = orderRepository.findById(orderUUID)
+        // Locked before the status check, so a concurrent cancel waits and then finds it no longer placed
+        Order order = orderRepository.lockById(orderUUID)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
 
         if (!order.getUsername().equals(username)) {
@@ -143,22 +235,32 @@ public class OrderService {
 
         order.setStatus(OrderStatus.CANCELLED);
 
-        // Restock books with optimistic locking
+        // Same locking read as checkout, so a cancellation and a checkout lock shared books in the same order
+        Map<UUID, Integer> stockChanges = new TreeMap<>();
         for (OrderItem item : order.getItems()) {
-            Book book = catalogRepository.findById(item.getBook().getId())
-                    .orElseThrow(() -> new RuntimeException("Book not found"));
-            book.setStock(book.getStock() + item.getQuantity());
-            catalogRepository.save(book);
+            stockChanges.merge(item.getBook().getId(), item.getQuantity(), Integer::sum);
+        }
+        if (!stockChanges.isEmpty()) {
+            stockService.applyAll(stockChanges);
         }
 
         orderRepository.save(order);
+        activityPipeline.publishAfterCommit(OrderActivityType.CANCELLED, order);
     }
 
-    public void handleCancelOrderFailure(String orderId, Throwable ex) {
+    public void handleCancelOrderFailure(String orderId, ConcurrencyFailureException ex) {
+        contentionMetrics.fallback(ex instanceof StockConflict conflict ? conflict.getBookId().toString() : null);
         log.error("Failed to cancel order " + orderId + ": " + ex.getMessage());
         throw new RuntimeException("Could not cancel order due to concurrent stock updates. Please try again.");
     }
 
+    public void handleCancelOrderFailure(String orderId, Throwable ex) {
+        if (ex instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        throw new RuntimeException(ex.getMessage(), ex);
+    }
+
 
     private String getCurrentUsername() {
         String username = SecurityContextHolder.getContext().getAuthentication().getName();
@@ -0,0 +1,53 @@
+package com.cloudbook.waitlist.controller;
+
+import com.cloudbook.common.dto.BaseResponse;
+import com.cloudbook.waitlist.service.WaitlistService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/waitlist")
+public class WaitlistController {
+
+    @Autowired
+    private WaitlistService waitlistService;
+
+    @Operation(summary = "View Waitlist")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Waitlist retrieved successfully"),
+            @ApiResponse(responseCode = "500", description = "Internal Server Error"),
+    })
+    @GetMapping
+    public ResponseEntity<BaseResponse> viewWaitlist() {
+        final BaseResponse response = waitlistService.getCurrentUserWaitlist();
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    @Operation(summary = "Join the waitlist of a sold-out book",
+            description = "A back-in-stock notification is recorded once the book is restocked")
+    @ApiResponses({
+            @ApiResponse(responseCode = "201", description = "Added to the waitlist"),
+            @ApiResponse(responseCode = "500", description = "Book not found or in stock"),
+    })
+    @PostMapping("/{bookId}")
+    public ResponseEntity<BaseResponse> joinWaitlist(@PathVariable("bookId") String bookId) {
+        final BaseResponse response = waitlistService.join(bookId);
+        return new ResponseEntity<>(response, HttpStatus.CREATED);
+    }
+
+    @Operation(summary = "Leave the waitlist of a book")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Removed from the waitlist"),
+            @ApiResponse(responseCode = "500", description = "Internal Server Error"),
+    })
+    @DeleteMapping("/{bookId}")
+    public ResponseEntity<BaseResponse> leaveWaitlist(@PathVariable("bookId") String bookId) {
+        final BaseResponse response = waitlistService.leave(bookId);
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+}
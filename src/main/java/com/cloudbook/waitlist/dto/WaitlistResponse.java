@@ -0,0 +1,27 @@
+package com.cloudbook.waitlist.dto;
+
+import com.cloudbook.common.dto.BaseResponse;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WaitlistResponse extends BaseResponse {
+
+    private List<Entry> entries = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Entry {
+        private UUID bookId;
+        private Instant joinedAt;
+    }
+}
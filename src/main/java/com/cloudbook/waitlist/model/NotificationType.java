@@ -0,0 +1,5 @@
+package com.cloudbook.waitlist.model;
+
+public enum NotificationType {
+    BACK_IN_STOCK
+}
@@ -0,0 +1,38 @@
+package com.cloudbook.waitlist.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * A customer waiting for a sold-out book. Entries are removed once the
+ * back-in-stock notification for them has been recorded.
+ */
+@Entity
+@Table(name = "waitlist_entry",
+        uniqueConstraints = @UniqueConstraint(name = "uk_waitlist_user_book", columnNames = {"username", "book_id"}),
+        indexes = @Index(name = "idx_waitlist_book_created_at", columnList = "book_id, created_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WaitlistEntry {
+
+    @Id
+    @GeneratedValue
+    private UUID id;
+
+    @Column(nullable = false)
+    private String username;
+
+    @Column(name = "book_id", nullable = false)
+    private UUID bookId;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+}
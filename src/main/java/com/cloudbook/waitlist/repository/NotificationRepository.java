@@ -0,0 +1,12 @@
+package com.cloudbook.waitlist.repository;
+
+import com.cloudbook.waitlist.model.Notification;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface NotificationRepository extends JpaRepository<Notification, UUID> {
+
+    List<Notification> findByBookId(UUID bookId);
+}
@@ -0,0 +1,38 @@
+package com.cloudbook.waitlist.repository;
+
+import com.cloudbook.waitlist.model.WaitlistEntry;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface WaitlistRepository extends JpaRepository<WaitlistEntry, UUID> {
+
+    Optional<WaitlistEntry> findByUsernameAndBookId(String username, UUID bookId);
+
+    List<WaitlistEntry> findByUsernameOrderByCreatedAt(String username);
+
+    @Modifying
+    @Query("delete from WaitlistEntry w where w.username = :username and w.bookId = :bookId")
+    int deleteByUsernameAndBookId(@Param("username") String username, @Param("bookId") UUID bookId);
+
+    @Modifying
+    @Query("delete from WaitlistEntry w where w.bookId = :bookId")
+    int deleteByBookId(@Param("bookId") UUID bookId);
+
+    // Oldest first, so the customers who waited longest hear first
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select w from WaitlistEntry w where w.bookId = :bookId order by w.createdAt, w.id")
+    List<WaitlistEntry> lockOldest(@Param("bookId") UUID bookId, Limit limit);
+
+    @Query("select distinct w.bookId from WaitlistEntry w " +
+            "where exists (select b.id from Book b where b.id = w.bookId and b.stock > 0)")
+    List<UUID> findBookIdsBackInStock();
+}
@@ -0,0 +1,196 @@
+package com.cloudbook.waitlist.service;
+
+import com.cloudbook.auth.model.User;
+import com.cloudbook.auth.service.auth.AuthUserDetails;
+import com.cloudbook.catalog.event.BookChangedEvent;
+import com.cloudbook.inventory.event.StockChangedEvent;
+import com.cloudbook.inventory.repository.StockRepository;
+import com.cloudbook.waitlist.dto.WaitlistResponse;
+import com.cloudbook.waitlist.model.Notification;
+import com.cloudbook.waitlist.model.NotificationType;
+import com.cloudbook.waitlist.model.WaitlistEntry;
+import com.cloudbook.waitlist.repository.NotificationRepository;
+import com.cloudbook.waitlist.repository.WaitlistRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Back-in-stock waitlists. A stock change from zero to positive only marks the
+ * book; a background worker later turns its waitlist into outbox notifications in
+ * batches, oldest entry first, so a restock costs the request that caused it the
+ * same however many customers are waiting.
+ */
+@Service
+@Slf4j
+public class WaitlistService {
+
+    @Autowired
+    private WaitlistRepository waitlistRepository;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${waitlist.drain-batch-size:500}")
+    private int drainBatchSize;
+
+    private final Set<UUID> restocked = ConcurrentHashMap.newKeySet();
+
+    // Not one transaction: the insert commits on its own, so a concurrent join of the
+    // same book that got there first surfaces here as a unique key violation
+    public WaitlistResponse join(String bookId) {
+        String username = getCurrentUsername();
+        UUID id = UUID.fromString(bookId);
+        int stock = stockRepository.findStockById(id)
+                .orElseThrow(() -> new RuntimeException("Book not found with id: " + bookId));
+        if (stock > 0) {
+            throw new RuntimeException("Book is in stock: " + bookId);
+        }
+        if (waitlistRepository.findByUsernameAndBookId(username, id).isEmpty()) {
+            try {
+                waitlistRepository.save(WaitlistEntry.builder().username(username).bookId(id)
+                        .createdAt(Instant.now()).build());
+            } catch (DataIntegrityViolationException ex) {
+                log.debug("{} is already waiting for book {}", username, id);
+            }
+        }
+        return toResponse(username, "Added to the waitlist");
+    }
+
+    @Transactional
+    public WaitlistResponse leave(String bookId) {
+        String username = getCurrentUsername();
+        waitlistRepository.deleteByUsernameAndBookId(username, UUID.fromString(bookId));
+        return toResponse(username, "Removed from the waitlist");
+    }
+
+    public WaitlistResponse getCurrentUserWaitlist() {
+        return toResponse(getCurrentUsername(), null);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(StockChangedEvent event) {
+        if (event.getPreviousStock() <= 0 && event.getCurrentStock() > 0) {
+            restocked.add(event.getBookId());
+        }
+    }
+
+    // Entity updates set stock directly and publish no StockChangedEvent
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        if (event.getCurrent() == null) {
+            transactionTemplate.executeWithoutResult(status ->
+                    waitlistRepository.deleteByBookId(event.getPrevious().getId()));
+        } else if (event.getPrevious() != null && event.getPrevious().getStock() <= 0
+                && event.getCurrent().getStock() > 0) {
+            restocked.add(event.getCurrent().getId());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${waitlist.drain-interval:1s}")
+    public void drain() {
+        if (restocked.isEmpty()) {
+            return;
+        }
+        List<UUID> bookIds = new ArrayList<>();
+        for (Iterator<UUID> it = restocked.iterator(); it.hasNext(); ) {
+            bookIds.add(it.next());
+            it.remove();
+        }
+        for (UUID bookId : bookIds) {
+            try {
+                drain(bookId);
+            } catch (RuntimeException ex) {
+                log.error("Waitlist drain for book {} failed, will retry: {}", bookId, ex.getMessage());
+                restocked.add(bookId);
+            }
+        }
+    }
+
+    // Picks up restocks whose signal was lost, such as those just before a restart
+    @Scheduled(fixedDelayString = "${waitlist.reconcile-interval:5m}",
+            initialDelayString = "${waitlist.reconcile-interval:5m}")
+    public void reconcile() {
+        restocked.addAll(waitlistRepository.findBookIdsBackInStock());
+    }
+
+    private void drain(UUID bookId) {
+        long start = System.currentTimeMillis();
+        int total = 0;
+        int recorded;
+        do {
+            recorded = transactionTemplate.execute(status -> drainBatch(bookId, Instant.now()));
+            total += recorded;
+        } while (recorded == drainBatchSize);
+        if (total > 0) {
+            log.info("Recorded {} back-in-stock notifications for book {} in {} ms",
+                    total, bookId, System.currentTimeMillis() - start);
+        }
+    }
+
+    private int drainBatch(UUID bookId, Instant now) {
+        // Sold out again since the restock; the rest of the list waits for the next one
+        if (stockRepository.findStockById(bookId).orElse(0) <= 0) {
+            return 0;
+        }
+        List<WaitlistEntry> batch = waitlistRepository.lockOldest(bookId, Limit.of(drainBatchSize));
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        notificationRepository.saveAll(batch.stream().map(entry -> Notification.builder()
+                .username(entry.getUsername())
+                .type(NotificationType.BACK_IN_STOCK)
+                .bookId(bookId)
+                .createdAt(now)
+                .build()).toList());
+        waitlistRepository.deleteAllInBatch(batch);
+        return batch.size();
+    }
+
+    private WaitlistResponse toResponse(String username, String message) {
+        WaitlistResponse response = new WaitlistResponse();
+        response.setMessage(message);
+        for (WaitlistEntry entry : waitlistRepository.findByUsernameOrderByCreatedAt(username)) {
+            response.getEntries().add(new WaitlistResponse.Entry(entry.getBookId(), entry.getCreatedAt()));
+        }
+        return response;
+    }
+
+    private String getCurrentUsername() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || auth.getPrincipal() == null) {
+            throw new RuntimeException("Unauthenticated");
+        }
+
+        Object principal = auth.getPrincipal();
+        if (principal instanceof User user) {
+            return user.getUsername();
+        } else if (principal instanceof AuthUserDetails userDetails) {
+            return userDetails.getUsername();
+        }
+        throw new RuntimeException("Invalid authentication principal");
+    }
+}
@@ -71,4 +71,17 @@ class AnalyticsControllerTest {
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON));
         verify(analyticsService).getSalesSummary();
     }
+
+    @Test
+    void testGetLiveSalesSummary() throws Exception {
+        SalesSummaryResponse summary = new SalesSummaryResponse(BigDecimal.valueOf(200),
+                Map.of(LocalDate.of(2024, 1, 1), BigDecimal.valueOf(200)));
+        when(analyticsService.getLiveSalesSummary()).thenReturn(summary);
+
+        mockMvc.perform(get("/api/admin/analytics/sales-summary/live")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON));
+        verify(analyticsService).getLiveSalesSummary();
+    }
 }
\ No newline at end of file
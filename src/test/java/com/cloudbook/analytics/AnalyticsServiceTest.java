@@ -2,6 +2,7 @@ package com.cloudbook.analytics;
 
 import com.cloudbook.analytics.dto.SalesSummaryResponse;
 import com.cloudbook.analytics.dto.TopBookResponse;
+import com.cloudbook.analytics.pipeline.SalesRollupStage;
 import com.cloudbook.analytics.service.AnalyticsService;
 import com.cloudbook.catalog.model.Book;
 import com.cloudbook.order.model.Order;
@@ -18,10 +19,12 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 public class AnalyticsServiceTest {
@@ -29,6 +32,9 @@ public class AnalyticsServiceTest {
     @Mock
     private OrderRepository orderRepository;
 
+    @Mock
+    private SalesRollupStage salesRollup;
+
     @InjectMocks
     private AnalyticsService analyticsService;
 
@@ -105,4 +111,17 @@ public class AnalyticsServiceTest {
         assertTrue(response.getDailyBreakdown().containsKey(LocalDate.now()));
     }
 
+    @Test
+    void testGetLiveSalesSummaryReadsTheRollup() {
+        when(salesRollup.revenueByDay()).thenReturn(Map.of(
+                LocalDate.of(2026, 10, 1), new BigDecimal("150"),
+                LocalDate.of(2026, 10, 2), new BigDecimal("50")));
+
+        SalesSummaryResponse response = analyticsService.getLiveSalesSummary();
+
+        assertEquals(new BigDecimal("200"), response.getTotalRevenue());
+        assertEquals(2, response.getDailyBreakdown().size());
+        verifyNoInteractions(orderRepository);
+    }
+
 }
@@ -0,0 +1,62 @@
+package com.cloudbook.analytics;
+
+import com.cloudbook.analytics.pipeline.SalesRollupStage;
+import com.cloudbook.catalog.model.Book;
+import com.cloudbook.order.model.Order;
+import com.cloudbook.order.model.OrderItem;
+import com.cloudbook.order.pipeline.OrderActivityPipeline;
+import com.cloudbook.order.pipeline.OrderActivityType;
+import com.cloudbook.order.pipeline.WaitStrategy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SalesRollupStageTest {
+
+    @Test
+    void testCancellationsAreNettedOut() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        SalesRollupStage rollup = new SalesRollupStage();
+        OrderActivityPipeline pipeline = new OrderActivityPipeline(meterRegistry, List.of(rollup), 8, new WaitStrategy.Blocking());
+        pipeline.start();
+
+        UUID bookId = UUID.randomUUID();
+        LocalDateTime orderDate = LocalDateTime.of(2026, 10, 1, 12, 0);
+        Order first = order(bookId, 3, orderDate);
+        pipeline.publishAfterCommit(OrderActivityType.PLACED, first);
+        pipeline.publishAfterCommit(OrderActivityType.PLACED, order(bookId, 2, orderDate));
+        pipeline.publishAfterCommit(OrderActivityType.CANCELLED, first);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (meterRegistry.get(OrderActivityPipeline.PROCESSED_METRIC).tag("stage", rollup.name()).counter().count() < 3) {
+            assertTrue(System.currentTimeMillis() < deadline, "rollup did not catch up");
+            Thread.onSpinWait();
+        }
+        pipeline.stop();
+
+        assertEquals(2, rollup.unitsSold(bookId));
+        assertEquals(0, BigDecimal.valueOf(20).compareTo(rollup.revenue(orderDate.toLocalDate())));
+        assertEquals(List.of(orderDate.toLocalDate()), List.copyOf(rollup.revenueByDay().keySet()));
+    }
+
+    private static Order order(UUID bookId, int quantity, LocalDateTime orderDate) {
+        Order order = new Order();
+        order.setId(UUID.randomUUID());
+        order.setUsername("john");
+        order.setOrderDate(orderDate);
+        order.setTotalAmount(BigDecimal.TEN.multiply(BigDecimal.valueOf(quantity)));
+        OrderItem item = new OrderItem();
+        item.setBook(Book.builder().id(bookId).build());
+        item.setQuantity(quantity);
+        item.setPriceAtPurchase(BigDecimal.TEN);
+        order.getItems().add(item);
+        return order;
+    }
+}
@@ -0,0 +1,128 @@
+package com.cloudbook.cart;
+
+import com.cloudbook.auth.model.User;
+import com.cloudbook.cart.dto.CartRequest;
+import com.cloudbook.cart.model.Cart;
+import com.cloudbook.cart.repository.CartRepository;
+import com.cloudbook.cart.service.CartService;
+import com.cloudbook.cart.util.CartMapper;
+import com.cloudbook.catalog.cache.BookCache;
+import com.cloudbook.catalog.model.Book;
+import com.cloudbook.catalog.repository.CatalogRepository;
+import com.cloudbook.common.enums.Role;
+import com.cloudbook.inventory.model.StockReservation;
+import com.cloudbook.inventory.repository.StockReservationRepository;
+import com.cloudbook.inventory.retry.StockContentionMetrics;
+import com.cloudbook.inventory.service.ReservationService;
+import com.cloudbook.inventory.service.StockService;
+import com.cloudbook.inventory.service.StockShardService;
+import io.github.resilience4j.springboot3.retry.autoconfigure.RetryAutoConfiguration;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.aop.AopAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@DataJpaTest(properties = {"spring.jpa.show-sql=false", "inventory.sharding.rollup-interval=1h"})
+@ImportAutoConfiguration({AopAutoConfiguration.class, RetryAutoConfiguration.class})
+@Import({CartService.class, ReservationService.class, StockService.class, StockShardService.class,
+        StockContentionMetrics.class, SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CartConcurrencyTest {
+
+    private static final String USERNAME = "shopper";
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private StockReservationRepository reservationRepository;
+
+    @Autowired
+    private CatalogRepository catalogRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockitoBean
+    private BookCache bookCache;
+
+    @MockitoBean
+    private CartMapper cartMapper;
+
+    @AfterEach
+    void cleanup() {
+        jdbcTemplate.update("delete from cart_items");
+        cartRepository.deleteAllInBatch();
+        reservationRepository.deleteAllInBatch();
+        catalogRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void testConcurrentFirstAddsOfABookShareOneHold() throws Exception {
+        Book book = catalogRepository.save(Book.builder().title("Book").author("Author").genre("Fiction")
+                .price(BigDecimal.TEN).stock(5).rating(BigDecimal.ONE).build());
+        cartRepository.save(new Cart(USERNAME));
+        when(bookCache.get(book.getId())).thenReturn(Optional.of(book));
+
+        // Holds the first add open while the second looks for the hold; the second then waits on the book row
+        CountDownLatch inside = new CountDownLatch(2);
+        when(cartMapper.toResponse(any(Cart.class))).thenAnswer(invocation -> {
+            inside.countDown();
+            inside.await(500, TimeUnit.MILLISECONDS);
+            return null;
+        });
+
+        User user = new User(UUID.randomUUID(), USERNAME, "x", Role.CUSTOMER, LocalDateTime.now());
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        List<Future<?>> adds = new ArrayList<>();
+        for (int quantity = 1; quantity <= 2; quantity++) {
+            CartRequest request = new CartRequest();
+            request.setBookId(book.getId());
+            request.setQuantity(quantity);
+            adds.add(pool.submit(() -> {
+                SecurityContextHolder.getContext().setAuthentication(
+                        new UsernamePasswordAuthenticationToken(user, null, List.of()));
+                try {
+                    return cartService.addToCart(request);
+                } finally {
+                    SecurityContextHolder.clearContext();
+                }
+            }));
+        }
+        for (Future<?> add : adds) {
+            add.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        StockReservation hold = reservationRepository.findAll().get(0);
+        assertEquals(1, reservationRepository.count());
+        assertEquals(3, hold.getQuantity());
+        assertEquals(2, catalogRepository.findById(book.getId()).orElseThrow().getStock());
+        assertEquals(3, jdbcTemplate.queryForObject("select sum(quantity) from cart_items", Integer.class));
+    }
+}
@@ -9,9 +9,10 @@ import com.cloudbook.cart.model.CartItem;
 import com.cloudbook.cart.repository.CartRepository;
 import com.cloudbook.cart.service.CartService;
 import com.cloudbook.cart.util.CartMapper;
+import com.cloudbook.catalog.cache.BookCache;
 import com.cloudbook.catalog.model.Book;
-import com.cloudbook.catalog.repository.CatalogRepository;
 import com.cloudbook.common.enums.Role;
+import com.cloudbook.inventory.service.ReservationService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
@@ -33,11 +34,14 @@ class CartServiceTest {
     private CartRepository cartRepository;
 
     @Mock
-    private CatalogRepository catalogRepository;
+    private BookCache bookCache;
 
     @Mock
     private CartMapper cartMapper;
 
+    @Mock
+    private ReservationService reservationService;
+
     @InjectMocks
     private CartService cartService;
 
@@ -80,7 +84,7 @@ class CartServiceTest {
         req.setQuantity(2);
 
         when(cartRepository.findByUsername("testuser")).thenReturn(Optional.of(cart));
-        when(catalogRepository.findById(book.getId())).thenReturn(Optional.of(book));
+        when(bookCache.get(book.getId())).thenReturn(Optional.of(book));
         when(cartRepository.save(any(Cart.class))).thenReturn(cart);
         when(cartMapper.toResponse(any(Cart.class))).thenReturn(response);
 
@@ -88,6 +92,23 @@ class CartServiceTest {
 
         assertNotNull(result);
         verify(cartRepository).save(any(Cart.class));
+        verify(reservationService).reserve("username", book.getId(), 2);
+    }
+
+    @Test
+    void testAddToCart_NoStockToHold() {
+        CartRequest req = new CartRequest();
+        req.setBookId(book.getId());
+        req.setQuantity(2);
+
+        when(cartRepository.findByUsername("username")).thenReturn(Optional.of(cart));
+        when(bookCache.get(book.getId())).thenReturn(Optional.of(book));
+        when(reservationService.reserve("username", book.getId(), 2))
+                .thenThrow(new RuntimeException("Insufficient stock"));
+
+        assertThrows(RuntimeException.class, () -> cartService.addToCart(req));
+        verify(cartRepository, never()).save(any());
+        assertTrue(cart.getItems().isEmpty());
     }
 
     @Test
@@ -103,6 +124,7 @@ class CartServiceTest {
 
         assertNotNull(result);
         verify(cartRepository).save(any(Cart.class));
+        verify(reservationService).release("username", book.getId());
         assertTrue(cart.getItems().isEmpty());
     }
 
@@ -117,6 +139,7 @@ class CartServiceTest {
 
         assertNotNull(result);
         assertTrue(cart.getItems().isEmpty());
+        verify(reservationService).releaseAll("username");
     }
 
     @Test
@@ -126,7 +149,7 @@ class CartServiceTest {
         req.setQuantity(1);
 
         when(cartRepository.findByUsername("testuser")).thenReturn(Optional.of(cart));
-        when(catalogRepository.findById(any())).thenReturn(Optional.empty());
+        when(bookCache.get(any())).thenReturn(Optional.empty());
 
         assertThrows(RuntimeException.class, () -> cartService.addToCart(req));
     }
@@ -138,7 +161,7 @@ class CartServiceTest {
         req.setQuantity(0);
 
         when(cartRepository.findByUsername("testuser")).thenReturn(Optional.of(cart));
-        when(catalogRepository.findById(book.getId())).thenReturn(Optional.of(book));
+        when(bookCache.get(book.getId())).thenReturn(Optional.of(book));
 
         assertThrows(RuntimeException.class, () -> cartService.addToCart(req));
     }
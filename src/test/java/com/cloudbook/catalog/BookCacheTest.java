@@ -0,0 +1,89 @@
+package com.cloudbook.catalog;
+
+import com.cloudbook.catalog.cache.BookCache;
+import com.cloudbook.catalog.event.BookChangedEvent;
+import com.cloudbook.catalog.model.Book;
+import com.cloudbook.catalog.repository.CatalogRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class BookCacheTest {
+
+    private CatalogRepository catalogRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private BookCache bookCache;
+    private Book book;
+
+    @BeforeEach
+    void setup() {
+        catalogRepository = mock(CatalogRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        bookCache = new BookCache(catalogRepository, meterRegistry, 100, Duration.ofMinutes(5));
+        book = Book.builder()
+                .id(UUID.randomUUID())
+                .title("Book A")
+                .price(BigDecimal.TEN)
+                .build();
+        when(catalogRepository.findById(book.getId())).thenReturn(Optional.of(book));
+    }
+
+    @Test
+    void testReadThroughLoadsOnce() {
+        assertTrue(bookCache.get(book.getId()).isPresent());
+        assertTrue(bookCache.get(book.getId()).isPresent());
+
+        verify(catalogRepository, times(1)).findById(book.getId());
+        assertEquals(0.5, meterRegistry.get("cache.hit.ratio").tag("cache", "books").gauge().value());
+    }
+
+    @Test
+    void testMissingBookIsNotCached() {
+        UUID missing = UUID.randomUUID();
+        when(catalogRepository.findById(missing)).thenReturn(Optional.empty());
+
+        assertTrue(bookCache.get(missing).isEmpty());
+        assertTrue(bookCache.get(missing).isEmpty());
+
+        verify(catalogRepository, times(2)).findById(missing);
+    }
+
+    @Test
+    void testGetAllLoadsOnlyMisses() {
+        UUID missing = UUID.randomUUID();
+        bookCache.get(book.getId());
+
+        Map<UUID, Book> result = bookCache.getAll(List.of(book.getId(), missing));
+
+        assertEquals(Map.of(book.getId(), book), result);
+        verify(catalogRepository).findAllById(List.of(missing));
+    }
+
+    @Test
+    void testEvictForcesReload() {
+        bookCache.get(book.getId());
+        bookCache.evictAfterCommit(book.getId());
+        bookCache.get(book.getId());
+
+        verify(catalogRepository, times(2)).findById(book.getId());
+    }
+
+    @Test
+    void testBookChangedEventEvicts() {
+        bookCache.get(book.getId());
+        bookCache.onBookChanged(new BookChangedEvent(this, book, null));
+        bookCache.get(book.getId());
+
+        verify(catalogRepository, times(2)).findById(book.getId());
+    }
+}
@@ -0,0 +1,203 @@
+package com.cloudbook.catalog;
+
+import com.cloudbook.catalog.dto.BookStreamUpdate;
+import com.cloudbook.catalog.repository.CatalogRepository;
+import com.cloudbook.catalog.stream.BookChangeStream;
+import com.cloudbook.common.exception.custom.RateLimitExceeded;
+import com.cloudbook.inventory.event.StockChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+class BookChangeStreamTest {
+
+    private final CatalogRepository catalogRepository = mock(CatalogRepository.class);
+    private final UUID bookId = UUID.randomUUID();
+    private final List<RecordingEmitter> emitters = new CopyOnWriteArrayList<>();
+    private BookChangeStream stream;
+    private volatile CountDownLatch blockNext;
+
+    @BeforeEach
+    void setup() {
+        stream = newStream(Duration.ofSeconds(10), 2);
+        when(catalogRepository.findStreamUpdates(anyCollection()))
+                .thenReturn(List.of(new BookStreamUpdate(bookId, 5, BigDecimal.TEN)));
+    }
+
+    @AfterEach
+    void shutdown() {
+        stream.shutdown();
+    }
+
+    @Test
+    void testSubscribeSendsCurrentStateFirst() throws Exception {
+        stream.subscribe(List.of(bookId.toString()));
+
+        RecordingEmitter emitter = emitters.get(0);
+        assertTrue(emitter.awaitSends(1));
+        assertTrue(emitter.sent.get(0).contains("event:update"));
+        assertTrue(emitter.sent.get(0).contains("stock=5"));
+    }
+
+    @Test
+    void testCoalescesChangesIntoOneReadPerFlush() throws Exception {
+        stream.subscribe(List.of(bookId.toString()));
+        RecordingEmitter emitter = emitters.get(0);
+        assertTrue(emitter.awaitSends(1));
+        when(catalogRepository.findStreamUpdates(anyCollection()))
+                .thenReturn(List.of(new BookStreamUpdate(bookId, 2, BigDecimal.TEN)));
+
+        for (int stock = 4; stock >= 2; stock--) {
+            stream.onStockChanged(new StockChangedEvent(this, bookId, stock + 1, stock));
+        }
+        stream.flush();
+        stream.flush();
+
+        assertTrue(emitter.awaitSends(2));
+        assertTrue(emitter.sent.get(1).contains("stock=2"));
+        // one read for the snapshot, one for the three coalesced changes
+        verify(catalogRepository, times(2)).findStreamUpdates(anyCollection());
+        Thread.sleep(100);
+        assertEquals(2, emitter.sent.size());
+    }
+
+    @Test
+    void testUnwatchedBooksAreIgnored() {
+        stream.onStockChanged(new StockChangedEvent(this, UUID.randomUUID(), 1, 0));
+        stream.flush();
+
+        verifyNoInteractions(catalogRepository);
+    }
+
+    @Test
+    void testRemovedBookIsReported() throws Exception {
+        stream.subscribe(List.of(bookId.toString()));
+        RecordingEmitter emitter = emitters.get(0);
+        assertTrue(emitter.awaitSends(1));
+        when(catalogRepository.findStreamUpdates(anyCollection())).thenReturn(List.of());
+
+        stream.onStockChanged(new StockChangedEvent(this, bookId, 5, 0));
+        stream.flush();
+
+        assertTrue(emitter.awaitSends(2));
+        assertTrue(emitter.sent.get(1).contains("event:removed"));
+    }
+
+    @Test
+    void testStalledSubscriberIsDropped() throws Exception {
+        stream.shutdown();
+        stream = newStream(Duration.ofMillis(50), 1);
+        CountDownLatch release = new CountDownLatch(1);
+        // Blocked from creation, so the first send is the one that stalls
+        blockNext = release;
+        stream.subscribe(List.of(bookId.toString()));
+        assertTrue(emitters.get(emitters.size() - 1).entered.await(2, TimeUnit.SECONDS));
+
+        Thread.sleep(150);
+        stream.flush();
+
+        assertEquals(0, stream.subscriberCount());
+        assertTrue(emitters.get(emitters.size() - 1).completed);
+        release.countDown();
+    }
+
+    @Test
+    void testStalledWriteDoesNotHoldUpOtherSubscribers() throws Exception {
+        stream.shutdown();
+        stream = newStream(Duration.ofMillis(50), 2);
+        CountDownLatch release = new CountDownLatch(1);
+        blockNext = release;
+        stream.subscribe(List.of(bookId.toString()));
+        RecordingEmitter stalled = emitters.get(emitters.size() - 1);
+        assertTrue(stalled.entered.await(2, TimeUnit.SECONDS));
+        Thread.sleep(150);
+        stream.flush();
+        assertTrue(stalled.completed);
+
+        // The only sender is still stuck in the write, yet the next subscriber is served
+        blockNext = null;
+        stream.subscribe(List.of(bookId.toString()));
+        RecordingEmitter next = emitters.get(emitters.size() - 1);
+        assertTrue(next.awaitSends(1));
+        assertTrue(stalled.interrupted);
+        assertTrue(stalled.sent.isEmpty());
+        release.countDown();
+    }
+
+    @Test
+    void testRejectsWhenFull() {
+        stream.subscribe(List.of(bookId.toString()));
+        stream.subscribe(List.of(bookId.toString()));
+
+        assertThrows(RateLimitExceeded.class, () -> stream.subscribe(List.of(bookId.toString())));
+        assertThrows(RuntimeException.class, () -> stream.subscribe(List.of("not-a-uuid")));
+    }
+
+    private BookChangeStream newStream(Duration slowTimeout, int maxSubscribers) {
+        return new BookChangeStream(catalogRepository, new SimpleMeterRegistry(), maxSubscribers, 10,
+                Duration.ofMinutes(1), slowTimeout, 1) {
+            @Override
+            protected SseEmitter newEmitter(long timeoutMillis) {
+                RecordingEmitter emitter = new RecordingEmitter();
+                emitter.block = blockNext;
+                emitters.add(emitter);
+                return emitter;
+            }
+        };
+    }
+
+    private static final class RecordingEmitter extends SseEmitter {
+
+        private final List<String> sent = new CopyOnWriteArrayList<>();
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private volatile CountDownLatch block;
+        private volatile boolean completed;
+        private volatile boolean interrupted;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            entered.countDown();
+            // Like a blocked socket write, an interrupt does not end the wait
+            while (block != null) {
+                try {
+                    block.await(5, TimeUnit.SECONDS);
+                    break;
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+            StringBuilder text = new StringBuilder();
+            builder.build().forEach(part -> text.append(part.getData()));
+            sent.add(text.toString());
+        }
+
+        @Override
+        public synchronized void complete() {
+            completed = true;
+        }
+
+        private boolean awaitSends(int count) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+            while (sent.size() < count && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            return sent.size() >= count;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.cloudbook.catalog;
+
+import com.cloudbook.catalog.model.Book;
+import com.cloudbook.catalog.search.BookSearchIndex;
+import com.cloudbook.catalog.search.BookSearchIndex.IndexedBook;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BookSearchIndexTest {
+
+    private BookSearchIndex index;
+    private Book hobbit;
+    private Book silmarillion;
+    private Book dune;
+
+    @BeforeEach
+    void setup() {
+        index = new BookSearchIndex();
+        hobbit = book("The Hobbit", "J.R.R. Tolkien", "Fantasy");
+        silmarillion = book("The Silmarillion", "J.R.R. Tolkien", "Fantasy");
+        dune = book("Dune", "Frank Herbert", "Science Fiction");
+        index.put(hobbit);
+        index.put(silmarillion);
+        index.put(dune);
+    }
+
+    @Test
+    void testExactAndMultiTokenMatch() {
+        List<IndexedBook> hits = index.search("tolkien hobbit", 10);
+
+        assertEquals(1, hits.size());
+        assertEquals(hobbit.getId(), hits.get(0).id());
+    }
+
+    @Test
+    void testPrefixMatch() {
+        List<IndexedBook> hits = index.search("silma", 10);
+
+        assertEquals(1, hits.size());
+        assertEquals(silmarillion.getId(), hits.get(0).id());
+    }
+
+    @Test
+    void testTypoTolerantMatch() {
+        assertEquals(hobbit.getId(), index.search("hobbti", 10).get(0).id());
+        assertEquals(dune.getId(), index.search("herbret", 10).get(0).id());
+        assertEquals(dune.getId(), index.search("frnak", 10).get(0).id());
+    }
+
+    @Test
+    void testTitleMatchesRankAboveGenreMatches() {
+        Book fantasyTitle = book("Fantasy Worlds", "Someone Else", "Reference");
+        index.put(fantasyTitle);
+
+        List<IndexedBook> hits = index.search("fantasy", 10);
+
+        assertEquals(3, hits.size());
+        assertEquals(fantasyTitle.getId(), hits.get(0).id());
+    }
+
+    @Test
+    void testUpdateAndRemoveKeepIndexCurrent() {
+        hobbit.setTitle("There and Back Again");
+        index.put(hobbit);
+
+        assertTrue(index.search("hobbit", 10).isEmpty());
+        assertEquals(hobbit.getId(), index.search("back again", 10).get(0).id());
+
+        index.remove(dune.getId());
+        assertTrue(index.search("dune", 10).isEmpty());
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void testLimitAndBlankQuery() {
+        assertEquals(1, index.search("tolkien", 1).size());
+        assertTrue(index.search("   ", 10).isEmpty());
+    }
+
+    private Book book(String title, String author, String genre) {
+        return Book.builder()
+                .id(UUID.randomUUID())
+                .title(title)
+                .author(author)
+                .genre(genre)
+                .price(BigDecimal.TEN)
+                .build();
+    }
+}
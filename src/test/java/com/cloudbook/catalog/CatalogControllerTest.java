@@ -3,26 +3,52 @@ package com.cloudbook.catalog;
 import com.cloudbook.auth.service.auth.JwtService;
 import com.cloudbook.auth.service.auth.filter.JwtAuthFilter;
 import com.cloudbook.catalog.controller.CatalogController;
+import com.cloudbook.catalog.dto.CatalogBatchRequest;
+import com.cloudbook.catalog.dto.CatalogBatchResponse;
+import com.cloudbook.catalog.dto.CatalogFacetResponse;
+import com.cloudbook.catalog.dto.CatalogImportResponse;
 import com.cloudbook.catalog.dto.CatalogRequest;
 import com.cloudbook.catalog.dto.CatalogResponse;
+import com.cloudbook.catalog.dto.CatalogRevision;
+import com.cloudbook.catalog.dto.CatalogSlice;
+import com.cloudbook.catalog.service.CatalogExportService;
+import com.cloudbook.catalog.service.CatalogFacetService;
+import com.cloudbook.catalog.service.CatalogImportService;
+import com.cloudbook.catalog.service.CatalogSearchService;
 import com.cloudbook.catalog.service.CatalogService;
+import com.cloudbook.catalog.stream.BookChangeStream;
+import com.cloudbook.common.exception.custom.RateLimitExceeded;
+import com.cloudbook.inventory.limit.StockUpdateLimiter;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.mockito.ArgumentMatchers.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(CatalogController.class)
@@ -35,6 +61,24 @@ class CatalogControllerTest {
     @MockitoBean
     private CatalogService catalogService;
 
+    @MockitoBean
+    private CatalogSearchService catalogSearchService;
+
+    @MockitoBean
+    private CatalogImportService catalogImportService;
+
+    @MockitoBean
+    private CatalogFacetService catalogFacetService;
+
+    @MockitoBean
+    private CatalogExportService catalogExportService;
+
+    @MockitoBean
+    private BookChangeStream bookChangeStream;
+
+    @MockitoBean
+    private StockUpdateLimiter stockUpdateLimiter;
+
     @MockitoBean
     private JwtService jwtService;
 
@@ -44,20 +88,105 @@ class CatalogControllerTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @BeforeEach
+    void setup() {
+        Mockito.when(catalogService.getCatalogRevision())
+                .thenReturn(new CatalogRevision("\"epoch-7\"", Instant.parse("2025-01-01T00:00:00Z")));
+        Mockito.when(catalogService.getBookRevision(anyString()))
+                .thenReturn(new CatalogRevision("\"3\"", Instant.parse("2025-01-01T00:00:00Z")));
+    }
+
     @Test
     void testListBooks() throws Exception {
         CatalogResponse res = new CatalogResponse();
         res.setTitle("Book 1");
 
-        Mockito.when(catalogService.listBooks(any(), any(), any(), any(), anyInt(), anyInt()))
-                .thenReturn(List.of(res));
+        Mockito.when(catalogService.listBooks(any(), any(), any(), any(), any(), any(), anyInt(), anyInt()))
+                .thenReturn(new PageImpl<>(List.of(res), PageRequest.of(0, 10), 1));
 
         mockMvc.perform(get("/api/books")
                         .param("genre", "Fiction")
                         .param("author", "Author")
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$[0].title").value("Book 1"));
+                .andExpect(jsonPath("$[0].title").value("Book 1"))
+                .andExpect(header().string("X-Total-Count", "1"))
+                .andExpect(header().string("X-Total-Pages", "1"));
+    }
+
+    @Test
+    void testListBooksWithCursor() throws Exception {
+        CatalogResponse res = new CatalogResponse();
+        res.setTitle("Book 1");
+
+        Mockito.when(catalogService.listBooksAfter(any(), any(), any(), any(), any(), any(), eq(""), anyInt()))
+                .thenReturn(new CatalogSlice(List.of(res), "next-token"));
+
+        mockMvc.perform(get("/api/books")
+                        .param("cursor", "")
+                        .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].title").value("Book 1"))
+                .andExpect(header().string("X-Next-Cursor", "next-token"))
+                .andExpect(header().string("Link", containsString("cursor=next-token")));
+    }
+
+    @Test
+    void testSearchBooks() throws Exception {
+        CatalogResponse res = new CatalogResponse();
+        res.setTitle("The Hobbit");
+
+        Mockito.when(catalogSearchService.search("hobbit", 20)).thenReturn(List.of(res));
+
+        mockMvc.perform(get("/api/books/search").param("q", "hobbit"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].title").value("The Hobbit"));
+    }
+
+    @Test
+    void testGetFacets() throws Exception {
+        CatalogFacetResponse res = new CatalogFacetResponse(Map.of("Fiction", 3L), Map.of(), Map.of());
+
+        Mockito.when(catalogFacetService.getFacets(eq("Fiction"), any(), any(), any())).thenReturn(res);
+
+        mockMvc.perform(get("/api/books/facets").param("genre", "Fiction"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.genres.Fiction").value(3));
+    }
+
+    @Test
+    void testExportBooks() throws Exception {
+        Mockito.doAnswer(i -> {
+            i.getArgument(0, OutputStream.class).write("{\"title\":\"Book 1\"}\n".getBytes());
+            return null;
+        }).when(catalogExportService).exportBooks(any());
+
+        MvcResult result = mockMvc.perform(get("/api/books/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "application/x-ndjson"))
+                .andExpect(content().string("{\"title\":\"Book 1\"}\n"));
+    }
+
+    @Test
+    void testStreamBooks_sendsEventsAsServerSentEvents() throws Exception {
+        String bookId = UUID.randomUUID().toString();
+        SseEmitter emitter = new SseEmitter();
+        Mockito.when(bookChangeStream.subscribe(List.of(bookId))).thenReturn(emitter);
+
+        MvcResult result = mockMvc.perform(get("/api/books/stream").param("ids", bookId))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        emitter.send(SseEmitter.event().name("update").data("{\"stock\":3}"));
+        emitter.complete();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "text/event-stream"))
+                .andExpect(content().string("event:update\ndata:{\"stock\":3}\n\n"));
     }
 
     @Test
@@ -70,7 +199,67 @@ class CatalogControllerTest {
 
         mockMvc.perform(get("/api/books/" + bookId))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.title").value("Book Title"));
+                .andExpect(jsonPath("$.title").value("Book Title"))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED));
+    }
+
+    @Test
+    void testGetBookById_notModified() throws Exception {
+        String bookId = UUID.randomUUID().toString();
+
+        mockMvc.perform(get("/api/books/" + bookId).header(HttpHeaders.IF_NONE_MATCH, "\"3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        Mockito.verify(catalogService, Mockito.never()).getBookById(any());
+    }
+
+    @Test
+    void testListBooks_notModified() throws Exception {
+        mockMvc.perform(get("/api/books").header(HttpHeaders.IF_NONE_MATCH, "\"epoch-7\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"epoch-7\""));
+
+        Mockito.verify(catalogService, Mockito.never())
+                .listBooks(any(), any(), any(), any(), any(), any(), anyInt(), anyInt());
+    }
+
+    @Test
+    void testListBooks_staleEtagGetsFullBody() throws Exception {
+        Mockito.when(catalogService.listBooks(any(), any(), any(), any(), any(), any(), anyInt(), anyInt()))
+                .thenReturn(new PageImpl<>(List.of(new CatalogResponse()), PageRequest.of(0, 10), 1));
+
+        mockMvc.perform(get("/api/books").header(HttpHeaders.IF_NONE_MATCH, "\"epoch-6\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"epoch-7\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"));
+    }
+
+    @Test
+    void testSearchBooks_notModified() throws Exception {
+        mockMvc.perform(get("/api/books/search").param("q", "hobbit")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"epoch-7\""))
+                .andExpect(status().isNotModified());
+
+        Mockito.verify(catalogSearchService, Mockito.never()).search(any(), anyInt());
+    }
+
+    @Test
+    void testGetBooksByIds() throws Exception {
+        String bookId = UUID.randomUUID().toString();
+        CatalogResponse res = new CatalogResponse();
+        res.setBookId(bookId);
+        res.setTitle("Book Title");
+
+        Mockito.when(catalogService.getBooksByIds(List.of(bookId)))
+                .thenReturn(new CatalogBatchResponse(List.of(res), List.of()));
+
+        mockMvc.perform(post("/api/books/batch-get")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new CatalogBatchRequest(List.of(bookId)))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.books[0].title").value("Book Title"));
     }
 
     @Test
@@ -91,6 +280,28 @@ class CatalogControllerTest {
                 .andExpect(jsonPath("$.title").value("New Book"));
     }
 
+    @Test
+    void testImportBooksCsv() throws Exception {
+        CatalogImportResponse res = new CatalogImportResponse();
+        res.setImported(1);
+
+        Mockito.when(catalogImportService.importBooks(any(), eq(CatalogImportService.Format.CSV))).thenReturn(res);
+
+        mockMvc.perform(post("/api/books/import")
+                        .contentType("text/csv")
+                        .content("title,author,genre,price\nBook,Author,Fiction,10\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(1));
+    }
+
+    @Test
+    void testImportBooksUnsupportedFormat() throws Exception {
+        mockMvc.perform(post("/api/books/import")
+                        .contentType(MediaType.APPLICATION_XML)
+                        .content("<books/>"))
+                .andExpect(status().isUnsupportedMediaType());
+    }
+
     @Test
     void testUpdateBook() throws Exception {
         String bookId = UUID.randomUUID().toString();
@@ -139,5 +350,23 @@ class CatalogControllerTest {
                         .content(objectMapper.writeValueAsString(req)))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.message").value("Stock updated"));
+        Mockito.verify(stockUpdateLimiter).acquire(UUID.fromString(bookId), "anonymous");
+    }
+
+    @Test
+    void testUpdateStock_rateLimited() throws Exception {
+        String bookId = UUID.randomUUID().toString();
+        CatalogRequest req = new CatalogRequest();
+        req.setDelta(5);
+
+        Mockito.doThrow(new RateLimitExceeded("Too many stock updates for book " + bookId, 2))
+                .when(stockUpdateLimiter).acquire(UUID.fromString(bookId), "anonymous");
+
+        mockMvc.perform(patch("/api/books/" + bookId + "/stock")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(req)))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "2"));
+        Mockito.verifyNoInteractions(catalogService);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,106 @@
+package com.cloudbook.catalog;
+
+import com.cloudbook.catalog.dto.CatalogExportRecord;
+import com.cloudbook.catalog.model.Book;
+import com.cloudbook.catalog.repository.CatalogRepository;
+import com.cloudbook.catalog.service.CatalogExportService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = {
+        "catalog.export.flush-every=3",
+        "spring.jpa.show-sql=false"
+})
+@Import(CatalogExportService.class)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CatalogExportServiceTest {
+
+    @Autowired
+    private CatalogExportService catalogExportService;
+
+    @Autowired
+    private CatalogRepository catalogRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @AfterEach
+    void cleanup() {
+        catalogRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void testExportWritesOneLinePerBookInIdOrder() throws IOException {
+        List<Book> saved = catalogRepository.saveAll(IntStream.range(0, 7)
+                .mapToObj(i -> Book.builder()
+                        .title("Book " + i)
+                        .author("Author")
+                        .genre("Fiction")
+                        .price(BigDecimal.valueOf(10 + i))
+                        .stock(i)
+                        .rating(BigDecimal.valueOf(4))
+                        .build())
+                .toList());
+        CountingOutputStream out = new CountingOutputStream();
+
+        catalogExportService.exportBooks(out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(7, lines.length);
+        // the database orders UUIDs as unsigned bytes, which matches their string form
+        List<String> expectedOrder = saved.stream().map(book -> book.getId().toString())
+                .sorted(Comparator.naturalOrder()).toList();
+        List<String> actualOrder = new ArrayList<>();
+        for (String line : lines) {
+            actualOrder.add(objectMapper.readValue(line, CatalogExportRecord.class).getBookId());
+        }
+        assertEquals(expectedOrder, actualOrder);
+        // flushed after rows 3 and 6, then once at the end
+        assertTrue(out.flushes >= 3);
+    }
+
+    @Test
+    void testExportStopsWhenClientDisconnects() {
+        catalogRepository.save(Book.builder().title("Book").author("Author").genre("Fiction")
+                .price(BigDecimal.TEN).rating(BigDecimal.ONE).build());
+        ByteArrayOutputStream broken = new ByteArrayOutputStream() {
+            @Override
+            public void flush() throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        assertThrows(RuntimeException.class, () -> catalogExportService.exportBooks(broken));
+    }
+
+    private static class CountingOutputStream extends ByteArrayOutputStream {
+        int flushes;
+
+        @Override
+        public void flush() {
+            flushes++;
+        }
+    }
+}
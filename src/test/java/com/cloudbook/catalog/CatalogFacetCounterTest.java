@@ -0,0 +1,106 @@
+package com.cloudbook.catalog;
+
+import com.cloudbook.catalog.dto.CatalogFacetResponse;
+import com.cloudbook.catalog.facet.CatalogFacetCounter;
+import com.cloudbook.catalog.model.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CatalogFacetCounterTest {
+
+    private CatalogFacetCounter counter;
+    private Book poetry;
+
+    @BeforeEach
+    void setup() {
+        counter = new CatalogFacetCounter(List.of(BigDecimal.ZERO, BigDecimal.valueOf(100), BigDecimal.valueOf(500)));
+        poetry = book("Poetry", "Author Y", 80);
+        counter.put(book("Fiction", "Author X", 50));
+        counter.put(book("Fiction", "Author Y", 150));
+        counter.put(book("fiction", "Author X", 700));
+        counter.put(poetry);
+    }
+
+    @Test
+    void testUnfilteredCounts() {
+        CatalogFacetResponse facets = counter.count(null, null, null, null, 10);
+
+        assertEquals(Map.of("Fiction", 3L, "Poetry", 1L), facets.getGenres());
+        assertEquals(Map.of("Author X", 2L, "Author Y", 2L), facets.getAuthors());
+        assertEquals(Map.of("0-100", 2L, "100-500", 1L, "500+", 1L), facets.getPriceRanges());
+    }
+
+    @Test
+    void testEachFacetAppliesTheOtherFilters() {
+        CatalogFacetResponse facets = counter.count("FICTION", "Author Y", null, null, 10);
+
+        // genre counts ignore the genre filter but honour the author filter
+        assertEquals(Map.of("Fiction", 1L, "Poetry", 1L), facets.getGenres());
+        assertEquals(Map.of("Author X", 2L, "Author Y", 1L), facets.getAuthors());
+        assertEquals(Map.of("100-500", 1L), facets.getPriceRanges());
+    }
+
+    @Test
+    void testPriceFilterSelectsWholeBuckets() {
+        CatalogFacetResponse facets = counter.count(null, null, BigDecimal.valueOf(100), new BigDecimal("500.00"), 10);
+
+        assertEquals(Map.of("Fiction", 1L), facets.getGenres());
+        assertEquals(Map.of("Author Y", 1L), facets.getAuthors());
+    }
+
+    @Test
+    void testPriceFilterCombinesWithTheOtherFilters() {
+        CatalogFacetResponse facets = counter.count("fiction", null, BigDecimal.valueOf(100), null, 10);
+
+        assertEquals(Map.of("Fiction", 2L), facets.getGenres());
+        assertEquals(Map.of("Author X", 1L, "Author Y", 1L), facets.getAuthors());
+        assertEquals(Map.of("0-100", 1L, "100-500", 1L, "500+", 1L), facets.getPriceRanges());
+    }
+
+    @Test
+    void testPriceFilterOffABucketBoundIsRejected() {
+        // 150 would split the 100-500 bucket, whose books are not counted by price
+        assertThrows(IllegalArgumentException.class,
+                () -> counter.count(null, null, BigDecimal.valueOf(150), null, 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> counter.count(null, null, null, BigDecimal.valueOf(400), 10));
+    }
+
+    @Test
+    void testPutReplacesWhatWasCountedForTheBook() {
+        counter.put(poetry);
+        assertEquals(Map.of("Fiction", 3L, "Poetry", 1L), counter.count(null, null, null, null, 10).getGenres());
+
+        counter.put(poetry.toBuilder().genre("Drama").price(BigDecimal.valueOf(600)).build());
+        CatalogFacetResponse facets = counter.count(null, null, null, null, 10);
+        assertEquals(Map.of("Fiction", 3L, "Drama", 1L), facets.getGenres());
+        assertEquals(Map.of("0-100", 1L, "100-500", 1L, "500+", 2L), facets.getPriceRanges());
+    }
+
+    @Test
+    void testRemove() {
+        counter.remove(poetry.getId());
+        counter.remove(poetry.getId());
+        counter.remove(UUID.randomUUID());
+
+        assertEquals(Map.of("Fiction", 3L), counter.count(null, null, null, null, 10).getGenres());
+        assertEquals(3, counter.size());
+    }
+
+    @Test
+    void testMaxValuesKeepsLargestCounts() {
+        assertEquals(Map.of("Fiction", 3L), counter.count(null, null, null, null, 1).getGenres());
+    }
+
+    private Book book(String genre, String author, int price) {
+        return Book.builder().id(UUID.randomUUID()).genre(genre).author(author).price(BigDecimal.valueOf(price)).build();
+    }
+}
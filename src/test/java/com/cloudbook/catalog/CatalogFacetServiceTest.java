@@ -0,0 +1,106 @@
+package com.cloudbook.catalog;
+
+import com.cloudbook.catalog.dto.BookSummary;
+import com.cloudbook.catalog.event.BookChangedEvent;
+import com.cloudbook.catalog.model.Book;
+import com.cloudbook.catalog.repository.CatalogRepository;
+import com.cloudbook.catalog.service.CatalogFacetService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.when;
+
+class CatalogFacetServiceTest {
+
+    @Mock
+    private CatalogRepository catalogRepository;
+
+    private CatalogFacetService catalogFacetService;
+
+    private final Book hobbit = book("Fantasy", 50);
+    private final Book dune = book("Science Fiction", 150);
+    private final Book emma = book("Romance", 80);
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.openMocks(this);
+        catalogFacetService = new CatalogFacetService(List.of(BigDecimal.ZERO, BigDecimal.valueOf(100)));
+        ReflectionTestUtils.setField(catalogFacetService, "catalogRepository", catalogRepository);
+        ReflectionTestUtils.setField(catalogFacetService, "maxValues", 10);
+        ReflectionTestUtils.setField(catalogFacetService, "reconcileBatchSize", 2);
+    }
+
+    @Test
+    void testReconcileIsSwappedInOnceComplete() {
+        catalogFacetService.onBookChanged(new BookChangedEvent(this, null, book("Poetry", 10)));
+        when(catalogRepository.findSummaries(any(), any(Sort.class), anyInt()))
+                .thenReturn(List.of(summaryOf(hobbit), summaryOf(dune)))
+                .thenAnswer(invocation -> {
+                    // Half way through, facets still come from the previous counts
+                    assertEquals(Map.of("Poetry", 1L), genres());
+                    return List.of(summaryOf(emma));
+                });
+
+        catalogFacetService.reconcile();
+
+        assertEquals(Map.of("Fantasy", 1L, "Science Fiction", 1L, "Romance", 1L), genres());
+    }
+
+    @Test
+    void testChangesDuringReconcileAreCountedOnce() {
+        Book renamed = emma.toBuilder().genre("Classics").build();
+        when(catalogRepository.findSummaries(any(), any(Sort.class), anyInt()))
+                .thenReturn(List.of(summaryOf(hobbit), summaryOf(dune)))
+                .thenAnswer(invocation -> {
+                    // Already in the first page, and delivered again by its listener
+                    catalogFacetService.onBookChanged(new BookChangedEvent(this, null, hobbit));
+                    catalogFacetService.onBookChanged(new BookChangedEvent(this, dune, null));
+                    catalogFacetService.onBookChanged(new BookChangedEvent(this, emma, renamed));
+                    // Read before the genre change committed
+                    return List.of(summaryOf(emma));
+                });
+
+        catalogFacetService.reconcile();
+
+        assertEquals(Map.of("Fantasy", 1L, "Classics", 1L), genres());
+    }
+
+    @Test
+    void testUpdateOfABookNeverCountedDoesNotGoNegative() {
+        catalogFacetService.onBookChanged(new BookChangedEvent(this, emma, emma.toBuilder().price(BigDecimal.valueOf(120)).build()));
+
+        assertEquals(Map.of("Romance", 1L), genres());
+        assertEquals(Map.of("100+", 1L), catalogFacetService.getFacets(null, null, null, null).getPriceRanges());
+    }
+
+    private Map<String, Long> genres() {
+        return catalogFacetService.getFacets(null, null, null, null).getGenres();
+    }
+
+    private static Book book(String genre, int price) {
+        return Book.builder()
+                .id(UUID.randomUUID())
+                .title("Title")
+                .author("Author X")
+                .genre(genre)
+                .price(BigDecimal.valueOf(price))
+                .build();
+    }
+
+    private static BookSummary summaryOf(Book book) {
+        return new BookSummary(book.getId(), book.getTitle(), book.getAuthor(), book.getGenre(), book.getPrice(),
+                book.getRating());
+    }
+}
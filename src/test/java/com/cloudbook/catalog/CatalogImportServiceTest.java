@@ -0,0 +1,98 @@
+package com.cloudbook.catalog;
+
+import com.cloudbook.catalog.dto.CatalogImportResponse;
+import com.cloudbook.catalog.repository.CatalogRepository;
+import com.cloudbook.catalog.service.CatalogImportService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "catalog.import.batch-size=4",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import(CatalogImportService.class)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CatalogImportServiceTest {
+
+    @Autowired
+    private CatalogImportService catalogImportService;
+
+    @Autowired
+    private CatalogRepository catalogRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @AfterEach
+    void cleanup() {
+        catalogRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void testImportNdjsonReportsRowErrors() {
+        String feed = """
+                {"title":"Book 1","author":"Author A","genre":"Fiction","price":10,"stock":5,"rating":4.5}
+                {"title":"","author":"Author A","genre":"Fiction","price":10}
+                not json
+                {"title":"Book 2","author":"Author B","genre":"Fiction","price":-1}
+                {"title":"Book 3","author":"Author B","genre":"Poetry","price":12.5}
+                """;
+
+        CatalogImportResponse response = catalogImportService.importBooks(stream(feed), CatalogImportService.Format.NDJSON);
+
+        assertEquals(5, response.getProcessed());
+        assertEquals(2, response.getImported());
+        assertEquals(3, response.getFailed());
+        assertEquals(2, response.getErrors().get(0).getLine());
+        assertEquals(3, response.getErrors().get(1).getLine());
+        assertEquals(4, response.getErrors().get(2).getLine());
+        assertEquals(2, catalogRepository.count());
+    }
+
+    @Test
+    void testImportCsvWritesInJdbcBatches() {
+        StringBuilder feed = new StringBuilder("title,author,genre,price,stock,rating\n");
+        for (int i = 0; i < 10; i++) {
+            feed.append("\"Title, Vol ").append(i).append("\",Author,Fiction,9.99,3,4\n");
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        CatalogImportResponse response = catalogImportService.importBooks(stream(feed.toString()), CatalogImportService.Format.CSV);
+
+        assertEquals(10, response.getImported());
+        assertEquals(0, response.getFailed());
+        assertTrue(response.getErrors().isEmpty());
+        assertEquals(10, statistics.getEntityInsertCount());
+        // 10 rows in chunks of 4 -> 3 batched insert statements
+        assertEquals(3, statistics.getPrepareStatementCount());
+        assertTrue(catalogRepository.findAll().stream().anyMatch(b -> b.getTitle().equals("Title, Vol 0")));
+    }
+
+    @Test
+    void testImportCsvWithoutRequiredHeaderFails() {
+        assertThrows(RuntimeException.class, () ->
+                catalogImportService.importBooks(stream("title,author\nA,B\n"), CatalogImportService.Format.CSV));
+    }
+
+    private ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,109 @@
+package com.cloudbook.catalog;
+
+import com.cloudbook.catalog.cache.BookCache;
+import com.cloudbook.catalog.cache.CatalogChangeTracker;
+import com.cloudbook.catalog.dto.CatalogSlice;
+import com.cloudbook.catalog.service.CatalogService;
+import com.cloudbook.catalog.util.CatalogCursor;
+import com.cloudbook.catalog.util.CatalogMapper;
+import com.cloudbook.inventory.retry.StockContentionMetrics;
+import com.cloudbook.inventory.service.StockService;
+import com.cloudbook.inventory.service.StockShardService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares offset and keyset paging at page 1 and page 10,000.
+ * Run with {@code ./mvnw test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+@Import({CatalogService.class, CatalogMapper.class, BookCache.class, CatalogChangeTracker.class, SimpleMeterRegistry.class})
+class CatalogPagingBenchmarkTest {
+
+    private static final int PAGE_SIZE = 10;
+    private static final int DEEP_PAGE = 10_000;
+    private static final int ROWS = (DEEP_PAGE + 1) * PAGE_SIZE;
+
+    @Autowired
+    private CatalogService catalogService;
+
+    // Write-side collaborators; the read paths measured here never call them
+    @MockitoBean
+    private StockService stockService;
+
+    @MockitoBean
+    private StockShardService stockShardService;
+
+    @MockitoBean
+    private StockContentionMetrics contentionMetrics;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void seed() {
+        List<Object[]> rows = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            String genre = "Genre " + (i % 20);
+            String author = "Author " + (i % 500);
+            rows.add(new Object[]{UUID.randomUUID(), String.format("Title %06d", i), author, genre,
+                    BigDecimal.valueOf(i % 1000), 10, BigDecimal.valueOf(4), 0L,
+                    genre.toLowerCase(), author.toLowerCase()});
+        }
+        jdbcTemplate.batchUpdate("insert into book (id, title, author, genre, price, stock, stock_shards, rating, version, " +
+                "genre_normalized, author_normalized) values (?, ?, ?, ?, ?, ?, 0, ?, ?, ?, ?)", rows);
+    }
+
+    @Test
+    void compareOffsetAndKeysetPaging() {
+        Map<String, Object> boundary = jdbcTemplate.queryForMap(
+                "select title, id from book order by title, id offset ? rows fetch next 1 rows only",
+                DEEP_PAGE * PAGE_SIZE - 1);
+        String deepCursor = new CatalogCursor("title", "ASC", (String) boundary.get("TITLE"),
+                (UUID) boundary.get("ID")).encode();
+
+        assertEquals(PAGE_SIZE, catalogService.listBooks(null, null, null, null, "title", "asc", DEEP_PAGE, PAGE_SIZE)
+                .getContent().size());
+        CatalogSlice deepSlice = catalogService.listBooksAfter(null, null, null, null, "title", "asc", deepCursor, PAGE_SIZE);
+        assertEquals(PAGE_SIZE, deepSlice.getBooks().size());
+        assertEquals(String.format("Title %06d", DEEP_PAGE * PAGE_SIZE), deepSlice.getBooks().get(0).getTitle());
+
+        report("offset page 1", () -> catalogService.listBooks(null, null, null, null, "title", "asc", 0, PAGE_SIZE));
+        report("offset page 10,000", () -> catalogService.listBooks(null, null, null, null, "title", "asc", DEEP_PAGE, PAGE_SIZE));
+        report("keyset page 1", () -> catalogService.listBooksAfter(null, null, null, null, "title", "asc", "", PAGE_SIZE));
+        report("keyset page 10,000", () -> catalogService.listBooksAfter(null, null, null, null, "title", "asc", deepCursor, PAGE_SIZE));
+    }
+
+    private void report(String label, Runnable call) {
+        for (int i = 0; i < 5; i++) {
+            call.run();
+        }
+        int runs = 30;
+        long[] nanos = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            call.run();
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        System.out.printf("%-20s median %8.3f ms   p95 %8.3f ms%n", label,
+                nanos[runs / 2] / 1_000_000.0, nanos[(int) (runs * 0.95)] / 1_000_000.0);
+    }
+}
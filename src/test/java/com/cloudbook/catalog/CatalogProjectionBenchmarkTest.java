@@ -0,0 +1,151 @@
+package com.cloudbook.catalog;
+
+import com.cloudbook.catalog.cache.BookCache;
+import com.cloudbook.catalog.cache.CatalogChangeTracker;
+import com.cloudbook.catalog.dto.BookSummary;
+import com.cloudbook.catalog.repository.BookSpecifications;
+import com.cloudbook.catalog.repository.CatalogRepository;
+import com.cloudbook.catalog.service.CatalogService;
+import com.cloudbook.catalog.util.CatalogMapper;
+import com.cloudbook.inventory.retry.StockContentionMetrics;
+import com.cloudbook.inventory.service.StockService;
+import com.cloudbook.inventory.service.StockShardService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares entity loading with column projections on the catalog read paths,
+ * reporting latency and bytes allocated per call.
+ * Run with {@code ./mvnw test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+@Import({CatalogService.class, CatalogMapper.class, BookCache.class, CatalogChangeTracker.class, SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CatalogProjectionBenchmarkTest {
+
+    private static final int ROWS = 20_000;
+    private static final int PAGE_SIZE = 50;
+
+    @Autowired
+    private CatalogService catalogService;
+
+    // Write-side collaborators; the read paths measured here never call them
+    @MockitoBean
+    private StockService stockService;
+
+    @MockitoBean
+    private StockShardService stockShardService;
+
+    @MockitoBean
+    private StockContentionMetrics contentionMetrics;
+
+    @Autowired
+    private CatalogRepository catalogRepository;
+
+    @Autowired
+    private CatalogMapper catalogMapper;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<UUID> ids = new ArrayList<>(ROWS);
+
+    @BeforeEach
+    void seed() {
+        List<Object[]> rows = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            UUID id = UUID.randomUUID();
+            ids.add(id);
+            String genre = "Genre " + (i % 20);
+            String author = "Author " + (i % 500);
+            rows.add(new Object[]{id, String.format("Title %06d", i), author, genre,
+                    BigDecimal.valueOf(i % 1000), 10, BigDecimal.valueOf(4), 0L,
+                    genre.toLowerCase(), author.toLowerCase()});
+        }
+        jdbcTemplate.batchUpdate("insert into book (id, title, author, genre, price, stock, stock_shards, rating, version, " +
+                "genre_normalized, author_normalized) values (?, ?, ?, ?, ?, ?, 0, ?, ?, ?, ?)", rows);
+    }
+
+    @AfterEach
+    void cleanup() {
+        jdbcTemplate.update("delete from book");
+    }
+
+    @Test
+    void compareEntityAndProjectionReads() {
+        PageRequest page = PageRequest.of(10, PAGE_SIZE, Sort.by("title").and(Sort.by("id")));
+        UUID id = ids.get(ROWS / 2);
+
+        assertEquals(PAGE_SIZE, listEntities(page).size());
+        assertEquals(PAGE_SIZE, catalogService.listBooks("Genre 3", null, null, null, "title", "asc", 10, PAGE_SIZE)
+                .getContent().size());
+        assertEquals(id.toString(), catalogService.getBookById(id.toString()).getBookId());
+
+        report("listBooks entity", () -> listEntities(page));
+        report("listBooks projection", () -> catalogService.listBooks("Genre 3", null, null, null, "title", "asc", 10, PAGE_SIZE));
+        report("getBookById entity", () -> catalogRepository.findById(id).map(catalogMapper::toResponse));
+        report("getBookById projection", () -> transactionTemplate.execute(status -> catalogMapper.toResponse(
+                entityManager.createQuery("select new com.cloudbook.catalog.dto.BookSummary(b.id, b.title, b.author, " +
+                                "b.genre, b.price, b.rating) from Book b where b.id = :id", BookSummary.class)
+                        .setParameter("id", id)
+                        .getSingleResult())));
+        report("getBookById cached", () -> catalogService.getBookById(id.toString()));
+    }
+
+    // The listing path as it was before projections: full entities through the repository
+    private List<?> listEntities(PageRequest page) {
+        return catalogRepository.findAll(BookSpecifications.withFilters("Genre 3", null, null, null), page)
+                .map(catalogMapper::toResponse)
+                .getContent();
+    }
+
+    private void report(String label, Runnable call) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        for (int i = 0; i < 50; i++) {
+            call.run();
+        }
+        int runs = 200;
+        long[] nanos = new long[runs];
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            call.run();
+            nanos[i] = System.nanoTime() - start;
+        }
+        long allocated = (threads.getThreadAllocatedBytes(threadId) - allocatedBefore) / runs;
+        Arrays.sort(nanos);
+        System.out.printf("%-24s median %8.3f ms   p95 %8.3f ms   %,10d bytes/call%n", label,
+                nanos[runs / 2] / 1_000_000.0, nanos[(int) (runs * 0.95)] / 1_000_000.0, allocated);
+    }
+}
@@ -0,0 +1,99 @@
+package com.cloudbook.catalog;
+
+import com.cloudbook.catalog.dto.BookSummary;
+import com.cloudbook.catalog.event.BookChangedEvent;
+import com.cloudbook.catalog.model.Book;
+import com.cloudbook.catalog.repository.CatalogRepository;
+import com.cloudbook.catalog.service.CatalogSearchService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class CatalogSearchServiceTest {
+
+    @Mock
+    private CatalogRepository catalogRepository;
+
+    @InjectMocks
+    private CatalogSearchService catalogSearchService;
+
+    private final Book hobbit = book("The Hobbit");
+    private final Book silmarillion = book("The Silmarillion");
+    private final Book emma = book("Emma");
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(catalogSearchService, "rebuildBatchSize", 2);
+        ReflectionTestUtils.setField(catalogSearchService, "maxResults", 50);
+    }
+
+    @Test
+    void testRebuildIsSwappedInOnceComplete() {
+        catalogSearchService.onBookChanged(new BookChangedEvent(this, null, book("Dune")));
+        when(catalogRepository.findSummaries(any(), any(Sort.class), anyInt()))
+                .thenReturn(List.of(summaryOf(hobbit), summaryOf(silmarillion)))
+                .thenAnswer(invocation -> {
+                    // Half way through, searches still see the previous index in full
+                    assertEquals(1, catalogSearchService.search("dune", 10).size());
+                    assertEquals(0, catalogSearchService.search("hobbit", 10).size());
+                    return List.of(summaryOf(emma));
+                });
+
+        catalogSearchService.rebuild();
+
+        assertEquals(1, catalogSearchService.search("hobbit", 10).size());
+        assertEquals(1, catalogSearchService.search("emma", 10).size());
+        assertEquals(0, catalogSearchService.search("dune", 10).size());
+        // A short page ends the walk, with no count query
+        verify(catalogRepository, times(2)).findSummaries(any(), any(Sort.class), anyInt());
+        verifyNoMoreInteractions(catalogRepository);
+    }
+
+    @Test
+    void testChangesDuringRebuildWinOverLoadedRows() {
+        Book persuasion = emma.toBuilder().title("Persuasion").build();
+        when(catalogRepository.findSummaries(any(), any(Sort.class), anyInt()))
+                .thenReturn(List.of(summaryOf(hobbit), summaryOf(silmarillion)))
+                .thenAnswer(invocation -> {
+                    catalogSearchService.onBookChanged(new BookChangedEvent(this, silmarillion, null));
+                    catalogSearchService.onBookChanged(new BookChangedEvent(this, emma, persuasion));
+                    // Read before the rename committed
+                    return List.of(summaryOf(emma));
+                });
+
+        catalogSearchService.rebuild();
+
+        assertEquals(0, catalogSearchService.search("silmarillion", 10).size());
+        assertEquals(0, catalogSearchService.search("emma", 10).size());
+        assertEquals(1, catalogSearchService.search("persuasion", 10).size());
+    }
+
+    private static Book book(String title) {
+        return Book.builder()
+                .id(UUID.randomUUID())
+                .title(title)
+                .author("Author X")
+                .genre("Fiction")
+                .price(BigDecimal.TEN)
+                .build();
+    }
+
+    private static BookSummary summaryOf(Book book) {
+        return new BookSummary(book.getId(), book.getTitle(), book.getAuthor(), book.getGenre(), book.getPrice(),
+                book.getRating());
+    }
+}
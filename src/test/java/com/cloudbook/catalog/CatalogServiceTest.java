@@ -1,23 +1,55 @@
 package com.cloudbook.catalog;
 
+import com.cloudbook.catalog.cache.BookCache;
+import com.cloudbook.catalog.cache.CatalogChangeTracker;
+import com.cloudbook.catalog.dto.BookSummary;
+import com.cloudbook.catalog.dto.CatalogBatchResponse;
 import com.cloudbook.catalog.dto.CatalogRequest;
+import com.cloudbook.catalog.dto.CatalogSlice;
+import com.cloudbook.catalog.dto.CatalogStockBatchRequest;
+import com.cloudbook.catalog.dto.CatalogStockBatchResponse;
+import com.cloudbook.catalog.dto.CatalogStockShardResponse;
+import com.cloudbook.catalog.event.BookChangedEvent;
 import com.cloudbook.catalog.model.Book;
 import com.cloudbook.catalog.repository.CatalogRepository;
 import com.cloudbook.catalog.service.CatalogService;
+import com.cloudbook.catalog.util.CatalogCursor;
+import com.cloudbook.catalog.util.CatalogMapper;
+import com.cloudbook.common.exception.custom.StockConflict;
+import com.cloudbook.inventory.dto.StockAdjustmentResult;
+import com.cloudbook.inventory.model.StockShard;
+import com.cloudbook.inventory.service.StockService;
+import com.cloudbook.inventory.service.StockShardService;
+import com.cloudbook.inventory.retry.StockContentionMetrics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
-import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.mockito.Spy;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
@@ -26,6 +58,27 @@ class CatalogServiceTest {
     @Mock
     private CatalogRepository catalogRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private BookCache bookCache;
+
+    @Spy
+    private CatalogMapper catalogMapper = new CatalogMapper();
+
+    @Spy
+    private CatalogChangeTracker catalogChangeTracker = new CatalogChangeTracker();
+
+    @Mock
+    private StockService stockService;
+
+    @Mock
+    private StockShardService stockShardService;
+
+    @Mock
+    private StockContentionMetrics contentionMetrics;
+
     @InjectMocks
     private CatalogService catalogService;
 
@@ -34,6 +87,7 @@ class CatalogServiceTest {
     @BeforeEach
     void setup() {
         MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(catalogService, "maxPageSize", 100);
         book = Book.builder()
                 .id(UUID.randomUUID())
                 .title("Book A")
@@ -48,34 +102,233 @@ class CatalogServiceTest {
 
     @Test
     void testListBooks_filtersAndPagination() {
-        when(catalogRepository.findAll()).thenReturn(List.of(book));
+        when(catalogRepository.findSummaries(any(Specification.class), any(Pageable.class)))
+                .thenAnswer(i -> new PageImpl<>(List.of(summaryOf(book)), i.getArgument(1), 1));
 
         var result = catalogService.listBooks("Fiction", "Author X",
-                BigDecimal.valueOf(100), BigDecimal.valueOf(1000), 0, 10);
+                BigDecimal.valueOf(100), BigDecimal.valueOf(1000), "title", "asc", 0, 10);
+
+        assertEquals(1, result.getTotalElements());
+        assertEquals("Book A", result.getContent().get(0).getTitle());
+        verify(catalogRepository, never()).findAll(any(Specification.class), any(Pageable.class));
+    }
 
-        assertEquals(1, result.size());
-        assertEquals("Book A", result.get(0).getTitle());
-        verify(catalogRepository, times(1)).findAll();
+    @Test
+    void testListBooks_appliesRequestedSort() {
+        ArgumentCaptor<Pageable> pageableCaptor = ArgumentCaptor.forClass(Pageable.class);
+        when(catalogRepository.findSummaries(any(Specification.class), pageableCaptor.capture()))
+                .thenReturn(Page.empty());
+
+        catalogService.listBooks(null, null, null, null, "price", "desc", 2, 5);
+
+        Pageable pageable = pageableCaptor.getValue();
+        assertEquals(2, pageable.getPageNumber());
+        assertEquals(Sort.Direction.DESC, pageable.getSort().getOrderFor("price").getDirection());
+        assertNotNull(pageable.getSort().getOrderFor("id"));
+    }
+
+    @Test
+    void testListBooks_pageSizeBelowOneRejected() {
+        RuntimeException ex = assertThrows(RuntimeException.class, () ->
+                catalogService.listBooks(null, null, null, null, "title", "asc", 0, 0));
+        assertEquals("Page size must be at least 1", ex.getMessage());
+        assertThrows(RuntimeException.class, () ->
+                catalogService.listBooks(null, null, null, null, "title", "asc", 0, -5));
+        verifyNoInteractions(catalogRepository);
+    }
+
+    @Test
+    void testListBooks_pageSizeIsCapped() {
+        ArgumentCaptor<Pageable> pageableCaptor = ArgumentCaptor.forClass(Pageable.class);
+        when(catalogRepository.findSummaries(any(Specification.class), pageableCaptor.capture()))
+                .thenReturn(Page.empty());
+
+        catalogService.listBooks(null, null, null, null, "title", "asc", 0, 10_000);
+
+        assertEquals(100, pageableCaptor.getValue().getPageSize());
+    }
+
+    @Test
+    void testListBooks_unsupportedSort() {
+        assertThrows(RuntimeException.class, () ->
+                catalogService.listBooks(null, null, null, null, "stock", "asc", 0, 10));
+    }
+
+    @Test
+    void testListBooksAfter_returnsNextCursorWhenMoreRows() {
+        Book second = Book.builder()
+                .id(UUID.randomUUID())
+                .title("Book B")
+                .author("Author X")
+                .genre("Fiction")
+                .price(BigDecimal.valueOf(300))
+                .build();
+        when(catalogRepository.findSummaries(any(Specification.class), any(Sort.class), eq(2)))
+                .thenReturn(List.of(summaryOf(book), summaryOf(second)));
+
+        CatalogSlice slice = catalogService.listBooksAfter(null, null, null, null, "title", "asc", "", 1);
+
+        assertEquals(1, slice.getBooks().size());
+        assertNotNull(slice.getNextCursor());
+        CatalogCursor cursor = CatalogCursor.decode(slice.getNextCursor());
+        assertEquals("Book A", cursor.getLastValue());
+        assertEquals(book.getId(), cursor.getLastId());
+    }
+
+    @Test
+    void testListBooksAfter_lastPageHasNoCursor() {
+        when(catalogRepository.findSummaries(any(Specification.class), any(Sort.class), eq(11)))
+                .thenReturn(List.of(summaryOf(book)));
+        String cursor = new CatalogCursor("title", "ASC", "Aardvark", UUID.randomUUID()).encode();
+
+        CatalogSlice slice = catalogService.listBooksAfter(null, null, null, null, "title", "asc", cursor, 10);
+
+        assertEquals(1, slice.getBooks().size());
+        assertNull(slice.getNextCursor());
+    }
+
+    @Test
+    void testListBooksAfter_pageSizeBelowOneRejected() {
+        assertThrows(RuntimeException.class, () ->
+                catalogService.listBooksAfter(null, null, null, null, "title", "asc", null, 0));
+        assertThrows(RuntimeException.class, () ->
+                catalogService.listBooksAfter(null, null, null, null, "title", "asc", null, -5));
+        verifyNoInteractions(catalogRepository);
+    }
+
+    @Test
+    void testListBooksAfter_pageSizeIsCapped() {
+        when(catalogRepository.findSummaries(any(Specification.class), any(Sort.class), eq(101)))
+                .thenReturn(List.of(summaryOf(book)));
+
+        CatalogSlice slice = catalogService.listBooksAfter(null, null, null, null, "title", "asc", null, 10_000);
+
+        assertEquals(1, slice.getBooks().size());
+        verify(catalogRepository).findSummaries(any(Specification.class), any(Sort.class), eq(101));
+    }
+
+    @Test
+    void testListBooksAfter_cursorForDifferentSortRejected() {
+        String cursor = new CatalogCursor("price", "ASC", "10", UUID.randomUUID()).encode();
+
+        assertThrows(RuntimeException.class, () ->
+                catalogService.listBooksAfter(null, null, null, null, "title", "asc", cursor, 10));
+    }
+
+    @Test
+    void testListBooksAfter_malformedCursorRejected() {
+        assertThrows(RuntimeException.class, () ->
+                catalogService.listBooksAfter(null, null, null, null, "title", "asc", "not-a-cursor", 10));
     }
 
     @Test
     void testGetBookById_success() {
-        when(catalogRepository.findById(any())).thenReturn(Optional.of(book));
+        when(bookCache.get(book.getId())).thenReturn(Optional.of(book));
 
         var result = catalogService.getBookById(book.getId().toString());
 
         assertEquals(book.getTitle(), result.getTitle());
-        verify(catalogRepository).findById(any());
+        verify(bookCache).get(book.getId());
+        verify(catalogRepository, never()).findById(any());
     }
 
     @Test
     void testGetBookById_notFound() {
-        when(catalogRepository.findById(any())).thenReturn(Optional.empty());
+        when(bookCache.get(any())).thenReturn(Optional.empty());
 
         assertThrows(RuntimeException.class, () ->
                 catalogService.getBookById(UUID.randomUUID().toString()));
     }
 
+    @Test
+    void testGetBookRevision_usesCachedVersion() {
+        book.setVersion(4L);
+        when(bookCache.get(book.getId())).thenReturn(Optional.of(book));
+
+        assertEquals("\"4\"", catalogService.getBookRevision(book.getId().toString()).etag());
+        verify(catalogRepository, never()).findById(any());
+    }
+
+    @Test
+    void testGetCatalogRevision_changesAfterWrite() {
+        String before = catalogService.getCatalogRevision().etag();
+        assertEquals(before, catalogService.getCatalogRevision().etag());
+
+        catalogChangeTracker.onBookChanged(new BookChangedEvent(this, null, book));
+
+        assertNotEquals(before, catalogService.getCatalogRevision().etag());
+    }
+
+    @Test
+    void testGetBooksByIds_preservesOrderAndMarksMisses() {
+        ReflectionTestUtils.setField(catalogService, "maxBatchIds", 10);
+        String missing = UUID.randomUUID().toString();
+        when(bookCache.getAll(any())).thenReturn(Map.of(book.getId(), book));
+
+        CatalogBatchResponse result = catalogService.getBooksByIds(
+                List.of(missing, book.getId().toString(), "not-a-uuid"));
+
+        assertEquals(3, result.getBooks().size());
+        assertEquals("Book not found", result.getBooks().get(0).getMessage());
+        assertEquals("Book A", result.getBooks().get(1).getTitle());
+        assertEquals("Invalid book id", result.getBooks().get(2).getMessage());
+        assertEquals(List.of(missing, "not-a-uuid"), result.getNotFound());
+        verify(bookCache, times(1)).getAll(any());
+    }
+
+    @Test
+    void testGetBooksByIds_tooManyIds() {
+        ReflectionTestUtils.setField(catalogService, "maxBatchIds", 1);
+
+        assertThrows(RuntimeException.class, () -> catalogService.getBooksByIds(
+                List.of(UUID.randomUUID().toString(), UUID.randomUUID().toString())));
+    }
+
+    @Test
+    void testUpdateStockBatch_mergesDuplicatesAndReportsPerItem() {
+        ReflectionTestUtils.setField(catalogService, "maxStockBatchItems", 10);
+        UUID id = book.getId();
+        when(stockService.adjustAll(Map.of(id, 3))).thenReturn(Map.of(id,
+                new StockAdjustmentResult(id, 3, StockAdjustmentResult.Status.APPLIED, 5, 8)));
+
+        CatalogStockBatchResponse result = catalogService.updateStockBatch(List.of(
+                new CatalogStockBatchRequest.Item(id.toString(), 5),
+                new CatalogStockBatchRequest.Item("not-a-uuid", 1),
+                new CatalogStockBatchRequest.Item(id.toString(), -2)));
+
+        assertEquals(2, result.getApplied());
+        assertEquals(1, result.getFailed());
+        assertEquals("APPLIED", result.getResults().get(0).getStatus());
+        assertEquals(8, result.getResults().get(0).getStock());
+        assertEquals("INVALID_ID", result.getResults().get(1).getStatus());
+        assertEquals(-2, result.getResults().get(2).getDelta());
+        verify(stockService, times(1)).adjustAll(any());
+    }
+
+    @Test
+    void testUpdateStockBatch_tooManyItems() {
+        ReflectionTestUtils.setField(catalogService, "maxStockBatchItems", 1);
+
+        assertThrows(RuntimeException.class, () -> catalogService.updateStockBatch(List.of(
+                new CatalogStockBatchRequest.Item(UUID.randomUUID().toString(), 1),
+                new CatalogStockBatchRequest.Item(UUID.randomUUID().toString(), 1))));
+        verifyNoInteractions(stockService);
+    }
+
+    @Test
+    void testReshardStock_reportsShards() {
+        UUID id = UUID.randomUUID();
+        when(stockShardService.reshard(id, 3)).thenReturn(List.of(
+                StockShard.builder().bookId(id).shardIndex(0).stock(4).build(),
+                StockShard.builder().bookId(id).shardIndex(1).stock(3).build(),
+                StockShard.builder().bookId(id).shardIndex(2).stock(3).build()));
+
+        CatalogStockShardResponse response = catalogService.reshardStock(id.toString(), 3);
+
+        assertEquals(10, response.getStock());
+        assertEquals(List.of(4, 3, 3), response.getShards());
+    }
+
     @Test
     void testAddBook_success() {
         when(catalogRepository.save(any())).thenReturn(book);
@@ -92,6 +345,7 @@ class CatalogServiceTest {
 
         assertEquals("Book A", response.getTitle());
         verify(catalogRepository).save(any());
+        verify(eventPublisher).publishEvent(any(BookChangedEvent.class));
     }
 
     @Test
@@ -111,6 +365,7 @@ class CatalogServiceTest {
 
         assertEquals("Updated", result.getTitle());
         verify(catalogRepository).save(any());
+        verify(eventPublisher).publishEvent(any(BookChangedEvent.class));
     }
 
     @Test
@@ -128,7 +383,8 @@ class CatalogServiceTest {
         var result = catalogService.deleteBook(book.getId().toString());
 
         assertEquals("Book deleted successfully", result.getMessage());
-        verify(catalogRepository).delete(any());
+        verify(catalogRepository).delete(any(Book.class));
+        verify(eventPublisher).publishEvent(any(BookChangedEvent.class));
     }
 
     @Test
@@ -140,35 +396,45 @@ class CatalogServiceTest {
 
     @Test
     void testUpdateStock_success() {
+        when(stockService.adjust(book.getId(), 5)).thenReturn(15);
         when(catalogRepository.findById(any())).thenReturn(Optional.of(book));
-        when(catalogRepository.save(any())).thenReturn(book);
 
         var result = catalogService.updateStock(book.getId().toString(), 5);
 
         assertEquals(book.getTitle(), result.getTitle());
-        verify(catalogRepository).save(any());
+        verify(stockService).adjust(book.getId(), 5);
+        verify(catalogRepository, never()).save(any());
     }
 
     @Test
     void testUpdateStock_insufficient() {
-        when(catalogRepository.findById(any())).thenReturn(Optional.of(book));
+        when(stockService.adjust(book.getId(), -20)).thenThrow(new RuntimeException("Insufficient stock"));
+
         assertThrows(RuntimeException.class, () ->
                 catalogService.updateStock(book.getId().toString(), -20));
+        verify(catalogRepository, never()).findById(any());
     }
 
     @Test
-    void testUpdateStock_concurrentFailure() {
-        when(catalogRepository.findById(any())).thenReturn(Optional.of(book));
-        when(catalogRepository.save(any())).thenThrow(new ObjectOptimisticLockingFailureException(Book.class, book.getId()));
-
-        assertThrows(RuntimeException.class, () ->
-                catalogService.updateStock(book.getId().toString(), 1));
+    void testHandleStockUpdateFailure() {
+        RuntimeException ex = new RuntimeException("failure");
+        assertSame(ex, assertThrows(RuntimeException.class, () ->
+                catalogService.handleStockUpdateFailure(book.getId().toString(), 1, ex)));
+        verifyNoInteractions(contentionMetrics);
     }
 
     @Test
-    void testHandleStockUpdateFailure() {
-        RuntimeException ex = new RuntimeException("failure");
-        assertThrows(RuntimeException.class, () ->
+    void testHandleStockUpdateFailure_countsContentionFallbackForTheBook() {
+        StockConflict ex = new StockConflict(book.getId(), new CannotAcquireLockException("timeout"));
+
+        RuntimeException thrown = assertThrows(RuntimeException.class, () ->
                 catalogService.handleStockUpdateFailure(book.getId().toString(), 1, ex));
+
+        assertTrue(thrown.getMessage().startsWith("Could not update stock after retries"));
+        verify(contentionMetrics).fallback(book.getId().toString());
+    }
+
+    private BookSummary summaryOf(Book b) {
+        return new BookSummary(b.getId(), b.getTitle(), b.getAuthor(), b.getGenre(), b.getPrice(), b.getRating());
     }
 }
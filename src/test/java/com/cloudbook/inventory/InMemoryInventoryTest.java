@@ -0,0 +1,145 @@
+package com.cloudbook.inventory;
+
+import com.cloudbook.catalog.model.Book;
+import com.cloudbook.catalog.repository.CatalogRepository;
+import com.cloudbook.inventory.engine.InMemoryInventory;
+import com.cloudbook.inventory.event.StockChangedEvent;
+import com.cloudbook.inventory.retry.StockContentionMetrics;
+import com.cloudbook.inventory.service.StockService;
+import com.cloudbook.inventory.service.StockShardService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Long intervals keep the scheduled write-through and snapshot out of the way; tests call them directly
+@DataJpaTest(properties = {"spring.jpa.show-sql=false", "inventory.engine.enabled=true",
+        "inventory.engine.write-through-interval=1h", "inventory.engine.snapshot-interval=1h"})
+@Import({StockService.class, StockShardService.class, InMemoryInventory.class, StockContentionMetrics.class, SimpleMeterRegistry.class})
+@RecordApplicationEvents
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class InMemoryInventoryTest {
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private InMemoryInventory inMemoryInventory;
+
+    @Autowired
+    private CatalogRepository catalogRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEvents events;
+
+    @DynamicPropertySource
+    static void engineDirectory(DynamicPropertyRegistry registry) throws IOException {
+        String directory = Files.createTempDirectory("inventory-engine").toString();
+        registry.add("inventory.engine.directory", () -> directory);
+    }
+
+    @AfterEach
+    void cleanup() {
+        catalogRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void testDecrementsInMemoryAndWritesThrough() {
+        Book book = save(5);
+
+        assertEquals(3, stockService.decrement(book.getId(), 2));
+        assertEquals(5, stock(book), "the row follows asynchronously");
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> stockService.decrement(book.getId(), 4));
+        assertEquals("Insufficient stock for book id: " + book.getId() + " (available: 3)", ex.getMessage());
+
+        inMemoryInventory.writeThrough();
+
+        assertEquals(3, stock(book));
+        StockChangedEvent event = events.stream(StockChangedEvent.class).findFirst().orElseThrow();
+        assertEquals(5, event.getPreviousStock());
+        assertEquals(3, event.getCurrentStock());
+    }
+
+    @Test
+    void testRollbackGivesDecrementBackAndWithholdsIncrement() {
+        Book sold = save(5);
+        Book restocked = save(1);
+
+        assertThrows(IllegalStateException.class, () -> transactionTemplate.executeWithoutResult(status -> {
+            stockService.decrement(sold.getId(), 4);
+            stockService.increment(restocked.getId(), 10);
+            assertEquals(1, inMemoryInventory.current(sold.getId()), "decrements apply immediately");
+            assertEquals(1, inMemoryInventory.current(restocked.getId()), "increments wait for commit");
+            throw new IllegalStateException("payment failed");
+        }));
+
+        assertEquals(5, inMemoryInventory.current(sold.getId()));
+        assertEquals(1, inMemoryInventory.current(restocked.getId()));
+
+        transactionTemplate.executeWithoutResult(status -> stockService.increment(restocked.getId(), 10));
+        assertEquals(11, inMemoryInventory.current(restocked.getId()));
+    }
+
+    @Test
+    void testCommitIsRecordedWithTheTransactionUntilJournaled() {
+        Book book = save(5);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            stockService.decrement(book.getId(), 1);
+            stockService.decrement(book.getId(), 1);
+        });
+        assertThrows(IllegalStateException.class, () -> transactionTemplate.executeWithoutResult(status -> {
+            stockService.decrement(book.getId(), 1);
+            throw new IllegalStateException("payment failed");
+        }));
+
+        assertEquals(1, inventoryCommits(), "one row for the committed transaction, none for the rolled-back one");
+        assertEquals(3, inMemoryInventory.current(book.getId()));
+        inMemoryInventory.writeThrough();
+        assertEquals(0, inventoryCommits());
+        assertEquals(3, stock(book));
+    }
+
+    @Test
+    void testUnknownBookIsRejected() {
+        RuntimeException ex = assertThrows(RuntimeException.class,
+                () -> stockService.decrement(UUID.randomUUID(), 1));
+        assertTrue(ex.getMessage().startsWith("Book not found with id: "));
+    }
+
+    private Book save(int stock) {
+        return catalogRepository.save(Book.builder().title("Book").author("Author").genre("Fiction")
+                .price(BigDecimal.TEN).stock(stock).rating(BigDecimal.ONE).build());
+    }
+
+    private int inventoryCommits() {
+        return jdbcTemplate.queryForObject("select count(*) from inventory_commit", Integer.class);
+    }
+
+    private int stock(Book book) {
+        return catalogRepository.findById(book.getId()).orElseThrow().getStock();
+    }
+}
@@ -0,0 +1,183 @@
+package com.cloudbook.inventory;
+
+import com.cloudbook.inventory.engine.InventoryEngine;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the engine in a child JVM that applies a known stream of deltas, each in
+ * its own transaction and some rolled back, snapshotting and rotating journals
+ * as it goes, and kills it with SIGKILL partway through. One transaction is left
+ * open throughout, as if the process died between its database commit and the
+ * engine's commit record. Everything acknowledged before the kill must be
+ * recovered, transactions without a commit or abort record must come back open
+ * with their decrements still held back, and once settled the counts must be
+ * exactly the committed part of the stream up to the recovered sequence.
+ */
+class InventoryEngineCrashRecoveryTest {
+
+    private static final int BOOKS = 5;
+    private static final int INITIAL_STOCK = 1_000_000;
+    private static final int KILL_AFTER_ACKS = 60_000;
+    private static final int STRAGGLER_UNITS = 7;
+    // The straggler's begin record follows the seeds; its two changes come next
+    private static final long STRAGGLER = BOOKS + 1;
+    private static final int FIRST_OP_SEQUENCE = BOOKS + 4;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testRecoversEveryAcknowledgedDeltaAfterKill() throws Exception {
+        Process child = new ProcessBuilder(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"),
+                Writer.class.getName(), directory.toString())
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+
+        long lastAcked = 0;
+        try (BufferedReader out = new BufferedReader(new InputStreamReader(child.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = out.readLine()) != null) {
+                if (!line.startsWith("ack ")) {
+                    continue;
+                }
+                lastAcked = Long.parseLong(line.substring(4));
+                if (lastAcked >= KILL_AFTER_ACKS) {
+                    break;
+                }
+            }
+            child.destroyForcibly();
+            assertTrue(child.waitFor(30, TimeUnit.SECONDS));
+        }
+        assertTrue(lastAcked >= KILL_AFTER_ACKS, "child stopped early at " + lastAcked);
+
+        try (InventoryEngine recovered = InventoryEngine.open(directory, Writer.JOURNAL_CAPACITY, false)) {
+            long sequence = recovered.sequence();
+            assertTrue(sequence >= lastAcked, "recovered " + sequence + " but " + lastAcked + " were acknowledged");
+
+            // Each op is a begin, a change and a commit or abort; the kill may land inside one
+            long records = sequence - FIRST_OP_SEQUENCE + 1;
+            long completedOps = records / 3;
+            long interruptedOp = records % 3 == 0 ? 0 : completedOps + 1;
+            boolean interruptedChanged = records % 3 == 2;
+
+            Set<Long> expectedOpen = new HashSet<>(Set.of(STRAGGLER));
+            if (interruptedOp > 0) {
+                expectedOpen.add(beginOf(interruptedOp));
+            }
+            assertEquals(expectedOpen, recovered.openTransactions());
+
+            Map<UUID, Integer> held = committedOps(completedOps);
+            held.merge(book(0), -STRAGGLER_UNITS, Integer::sum);
+            if (interruptedChanged && delta(interruptedOp) < 0) {
+                held.merge(book(interruptedOp), delta(interruptedOp), Integer::sum);
+            }
+            assertCounts(held, recovered);
+
+            // Settled the way the database decided: the straggler committed, the interrupted op as the stream says
+            Map<UUID, Integer> expected = committedOps(completedOps);
+            recovered.commit(STRAGGLER);
+            expected.merge(book(0), -STRAGGLER_UNITS, Integer::sum);
+            expected.merge(book(1), STRAGGLER_UNITS, Integer::sum);
+            if (interruptedOp > 0 && rolledBack(interruptedOp)) {
+                recovered.abort(beginOf(interruptedOp));
+            } else if (interruptedOp > 0) {
+                recovered.commit(beginOf(interruptedOp));
+                if (interruptedChanged) {
+                    expected.merge(book(interruptedOp), delta(interruptedOp), Integer::sum);
+                }
+            }
+            assertCounts(expected, recovered);
+            assertTrue(recovered.openTransactions().isEmpty());
+        }
+    }
+
+    private static void assertCounts(Map<UUID, Integer> expected, InventoryEngine engine) {
+        for (Map.Entry<UUID, Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), engine.current(entry.getKey()).getAsInt(), "stock of " + entry.getKey());
+        }
+        assertEquals(expected.keySet(), engine.bookIds());
+    }
+
+    private static Map<UUID, Integer> committedOps(long ops) {
+        Map<UUID, Integer> stock = new HashMap<>();
+        for (int i = 0; i < BOOKS; i++) {
+            stock.put(book(i), INITIAL_STOCK);
+        }
+        for (long op = 1; op <= ops; op++) {
+            if (!rolledBack(op)) {
+                stock.merge(book(op), delta(op), Integer::sum);
+            }
+        }
+        return stock;
+    }
+
+    private static long beginOf(long op) {
+        return FIRST_OP_SEQUENCE + (op - 1) * 3;
+    }
+
+    private static UUID book(long n) {
+        return new UUID(0, n % BOOKS + 1);
+    }
+
+    private static int delta(long op) {
+        return op % 3 == 0 ? 2 : -1;
+    }
+
+    private static boolean rolledBack(long op) {
+        return op % 4 == 0;
+    }
+
+    /**
+     * Child process: seeds the books and opens the straggler, then applies
+     * deltas until killed, printing the engine's sequence after each one is
+     * committed or rolled back.
+     */
+    public static class Writer {
+
+        static final int JOURNAL_CAPACITY = 3_000;
+
+        public static void main(String[] args) {
+            PrintStream out = new PrintStream(System.out, false, StandardCharsets.UTF_8);
+            InventoryEngine engine = InventoryEngine.open(Path.of(args[0]), JOURNAL_CAPACITY, false);
+            for (int i = 0; i < BOOKS; i++) {
+                engine.seed(book(i), INITIAL_STOCK);
+            }
+            long straggler = engine.begin();
+            engine.adjust(straggler, book(0), -STRAGGLER_UNITS);
+            engine.adjust(straggler, book(1), STRAGGLER_UNITS);
+            for (long op = 1; ; op++) {
+                long transaction = engine.begin();
+                engine.adjust(transaction, book(op), delta(op));
+                if (rolledBack(op)) {
+                    engine.abort(transaction);
+                } else {
+                    engine.commit(transaction);
+                }
+                out.println("ack " + engine.sequence());
+                if (op % 100 == 0) {
+                    out.flush();
+                }
+                if (op % 7_500 == 0) {
+                    engine.snapshot();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.cloudbook.inventory;
+
+import com.cloudbook.inventory.engine.InventoryEngine;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InventoryEngineTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testRecoversFromJournalAlone() {
+        UUID book = UUID.randomUUID();
+        try (InventoryEngine engine = InventoryEngine.open(directory, 100, false)) {
+            engine.seed(book, 10);
+            engine.adjust(book, -3);
+            engine.adjust(book, 5);
+        }
+
+        try (InventoryEngine recovered = InventoryEngine.open(directory, 100, false)) {
+            assertEquals(12, recovered.current(book).getAsInt());
+            assertEquals(3, recovered.sequence());
+        }
+    }
+
+    @Test
+    void testRecoversFromSnapshotPlusLaterJournalsAcrossRotations() throws IOException {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        try (InventoryEngine engine = InventoryEngine.open(directory, 4, false)) {
+            engine.seed(first, 100);
+            engine.seed(second, 50);
+            for (int i = 0; i < 10; i++) {
+                engine.adjust(first, -1);
+            }
+            assertEquals(12, engine.snapshot());
+            for (int i = 0; i < 9; i++) {
+                engine.adjust(second, -2);
+            }
+            engine.remove(first);
+        }
+
+        assertTrue(journals().stream().allMatch(p -> startOf(p) > 12), "journals covered by the snapshot are deleted");
+        try (InventoryEngine recovered = InventoryEngine.open(directory, 4, false)) {
+            assertTrue(recovered.current(first).isEmpty());
+            assertEquals(32, recovered.current(second).getAsInt());
+            assertEquals(22, recovered.sequence());
+        }
+    }
+
+    @Test
+    void testStopsAtTornRecord() throws IOException {
+        UUID book = UUID.randomUUID();
+        try (InventoryEngine engine = InventoryEngine.open(directory, 100, false)) {
+            engine.seed(book, 10);
+            engine.adjust(book, -1);
+            engine.adjust(book, -1);
+        }
+        // Flip a byte in the value of the third record, as if the process died mid-write
+        try (RandomAccessFile file = new RandomAccessFile(journals().get(0).toFile(), "rw")) {
+            file.seek(2 * 48 + 28);
+            file.write(0x7F);
+        }
+
+        try (InventoryEngine recovered = InventoryEngine.open(directory, 100, false)) {
+            assertEquals(9, recovered.current(book).getAsInt());
+            assertEquals(2, recovered.sequence());
+            recovered.adjust(book, -4);
+        }
+        try (InventoryEngine again = InventoryEngine.open(directory, 100, false)) {
+            assertEquals(5, again.current(book).getAsInt());
+        }
+    }
+
+    @Test
+    void testReplaysOnlySettledTransactionsAndReopensTheRest() {
+        UUID book = UUID.randomUUID();
+        long committed;
+        long aborted;
+        long inDoubt;
+        try (InventoryEngine engine = InventoryEngine.open(directory, 4, false)) {
+            engine.seed(book, 10);
+            inDoubt = engine.begin();
+            assertEquals(8, engine.adjust(inDoubt, book, -2));
+            committed = engine.begin();
+            assertEquals(8, engine.adjust(committed, book, 5), "increments wait for the commit");
+            engine.snapshot();
+            aborted = engine.begin();
+            assertEquals(5, engine.adjust(aborted, book, -3));
+            engine.commit(committed);
+            assertEquals(Set.of(book), engine.abort(aborted));
+            assertEquals(13, engine.current(book).getAsInt());
+        }
+
+        try (InventoryEngine recovered = InventoryEngine.open(directory, 4, false)) {
+            assertEquals(Set.of(inDoubt), recovered.openTransactions());
+            assertEquals(13, recovered.current(book).getAsInt(), "the open decrement is still held back");
+            recovered.abort(inDoubt);
+            assertEquals(15, recovered.current(book).getAsInt());
+            assertThrows(IllegalStateException.class, () -> recovered.adjust(inDoubt, book, -1));
+            assertTrue(recovered.commit(inDoubt).isEmpty(), "settling twice does nothing");
+        }
+    }
+
+    @Test
+    void testSeedReplacesWhatOpenTransactionsHeldForTheBook() {
+        UUID book = UUID.randomUUID();
+        UUID other = UUID.randomUUID();
+        long live;
+        long inDoubt;
+        try (InventoryEngine engine = InventoryEngine.open(directory, 100, false)) {
+            engine.seed(book, 10);
+            engine.seed(other, 10);
+            live = engine.begin();
+            engine.adjust(live, book, -2);
+            engine.adjust(live, book, 3);
+            inDoubt = engine.begin();
+            engine.adjust(inDoubt, book, -1);
+            engine.adjust(inDoubt, other, -4);
+            engine.seed(book, 20);
+            engine.commit(live);
+            assertEquals(20, engine.current(book).getAsInt(), "settling after the seed leaves it alone");
+        }
+
+        try (InventoryEngine recovered = InventoryEngine.open(directory, 100, false)) {
+            assertEquals(20, recovered.current(book).getAsInt());
+            assertEquals(6, recovered.current(other).getAsInt());
+            recovered.abort(inDoubt);
+            assertEquals(20, recovered.current(book).getAsInt());
+            assertEquals(10, recovered.current(other).getAsInt());
+        }
+    }
+
+    @Test
+    void testRejectsOversellWithoutJournaling() {
+        UUID book = UUID.randomUUID();
+        try (InventoryEngine engine = InventoryEngine.open(directory, 100, false)) {
+            engine.seed(book, 2);
+            RuntimeException ex = assertThrows(RuntimeException.class, () -> engine.adjust(book, -3));
+            assertEquals("Insufficient stock for book id: " + book + " (available: 2)", ex.getMessage());
+            assertThrows(RuntimeException.class, () -> engine.adjust(UUID.randomUUID(), 1));
+            assertEquals(1, engine.sequence());
+        }
+    }
+
+    private List<Path> journals() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(p -> p.getFileName().toString().startsWith("journal-"))
+                    .sorted((a, b) -> Long.compare(startOf(a), startOf(b)))
+                    .toList();
+        }
+    }
+
+    private static long startOf(Path journal) {
+        String name = journal.getFileName().toString();
+        return Long.parseLong(name.substring("journal-".length(), name.length() - ".log".length()));
+    }
+}
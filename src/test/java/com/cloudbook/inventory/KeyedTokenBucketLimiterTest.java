@@ -0,0 +1,123 @@
+package com.cloudbook.inventory;
+
+import com.cloudbook.common.exception.custom.RateLimitExceeded;
+import com.cloudbook.inventory.limit.KeyedTokenBucketLimiter;
+import com.cloudbook.inventory.limit.StockUpdateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeyedTokenBucketLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(1_000);
+    private SimpleMeterRegistry meterRegistry;
+    private KeyedTokenBucketLimiter limiter;
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        // burst of 3, then one token every 500ms
+        limiter = new KeyedTokenBucketLimiter("book", 3, 2, Duration.ofMinutes(1), 100, meterRegistry, now::get);
+    }
+
+    @Test
+    void testBurstThenRefill() {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire("a"));
+        }
+        long wait = limiter.tryAcquire("a");
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(500), wait, 1_000);
+
+        advance(TimeUnit.MILLISECONDS.toNanos(500));
+        assertEquals(0, limiter.tryAcquire("a"));
+        assertTrue(limiter.tryAcquire("a") > 0);
+    }
+
+    @Test
+    void testKeysAreIndependent() {
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire("hot");
+        }
+        assertTrue(limiter.tryAcquire("hot") > 0);
+        assertEquals(0, limiter.tryAcquire("cold"));
+    }
+
+    @Test
+    void testRejectionsCountedPerKey() {
+        for (int i = 0; i < 5; i++) {
+            limiter.tryAcquire("hot");
+        }
+        assertEquals(2.0, meterRegistry.get(KeyedTokenBucketLimiter.REJECTED_METRIC)
+                .tag("limit", "book").tag("key", "hot").counter().count());
+        assertNull(meterRegistry.find(KeyedTokenBucketLimiter.REJECTED_METRIC).tag("key", "cold").counter());
+    }
+
+    @Test
+    void testRefundIsCappedAtCapacity() {
+        limiter.tryAcquire("a");
+        limiter.refund("a");
+        limiter.refund("a");
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire("a"));
+        }
+        assertTrue(limiter.tryAcquire("a") > 0);
+    }
+
+    @Test
+    void testBookRejectionDoesNotChargeTheCaller() {
+        // Refill slow enough not to matter: one book update, two caller updates
+        StockUpdateLimiter stockLimiter = new StockUpdateLimiter(meterRegistry, 1, 0.001, 2, 0.001,
+                Duration.ofMinutes(1), 100);
+        UUID hot = UUID.randomUUID();
+
+        stockLimiter.acquire(hot, "john");
+        assertThrows(RateLimitExceeded.class, () -> stockLimiter.acquire(hot, "john"));
+
+        stockLimiter.acquire(UUID.randomUUID(), "john");
+        RateLimitExceeded ex = assertThrows(RateLimitExceeded.class, () -> stockLimiter.acquire(UUID.randomUUID(), "john"));
+        assertTrue(ex.getMessage().startsWith("Too many stock updates from john"));
+    }
+
+    @Test
+    void testIdleKeysAndTheirMetersAreDropped() {
+        for (int i = 0; i < 4; i++) {
+            limiter.tryAcquire("hot");
+        }
+        assertEquals(1, limiter.trackedKeys());
+
+        advance(TimeUnit.MINUTES.toNanos(2));
+
+        assertEquals(0, limiter.trackedKeys());
+        assertNull(meterRegistry.find(KeyedTokenBucketLimiter.REJECTED_METRIC).tag("key", "hot").counter());
+        assertEquals(0, limiter.tryAcquire("hot"));
+    }
+
+    @Test
+    void testPeekingTakesNothingAndRacedTakesLeaveDebt() {
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.hasToken("a"));
+        }
+        for (int i = 0; i < 4; i++) {
+            limiter.take("a");
+        }
+        assertFalse(limiter.hasToken("a"));
+        assertEquals(1.0, meterRegistry.get(KeyedTokenBucketLimiter.REJECTED_METRIC).tag("key", "a").counter().count());
+
+        // One token short, paid off by the first refill
+        advance(TimeUnit.MILLISECONDS.toNanos(500));
+        assertFalse(limiter.hasToken("a"));
+        advance(TimeUnit.MILLISECONDS.toNanos(500));
+        assertTrue(limiter.hasToken("a"));
+    }
+
+    private void advance(long nanos) {
+        now.addAndGet(nanos);
+    }
+}
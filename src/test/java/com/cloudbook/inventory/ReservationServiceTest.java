@@ -0,0 +1,114 @@
+package com.cloudbook.inventory;
+
+import com.cloudbook.catalog.model.Book;
+import com.cloudbook.catalog.repository.CatalogRepository;
+import com.cloudbook.inventory.model.StockReservation;
+import com.cloudbook.inventory.repository.StockReservationRepository;
+import com.cloudbook.inventory.retry.StockContentionMetrics;
+import com.cloudbook.inventory.service.ReservationService;
+import com.cloudbook.inventory.service.StockService;
+import com.cloudbook.inventory.service.StockShardService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "inventory.reservation.sweep-batch-size=2",
+        "spring.jpa.show-sql=false"
+})
+@Import({ReservationService.class, StockService.class, StockShardService.class, StockContentionMetrics.class, SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReservationServiceTest {
+
+    @Autowired
+    private ReservationService reservationService;
+
+    @Autowired
+    private StockReservationRepository reservationRepository;
+
+    @Autowired
+    private CatalogRepository catalogRepository;
+
+    private Book book;
+
+    @BeforeEach
+    void seed() {
+        book = catalogRepository.save(Book.builder().title("Book").author("Author").genre("Fiction")
+                .price(BigDecimal.TEN).stock(5).rating(BigDecimal.ONE).build());
+    }
+
+    @AfterEach
+    void cleanup() {
+        reservationRepository.deleteAllInBatch();
+        catalogRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void testReserveTakesStockAndAccumulates() {
+        reservationService.reserve("alice", book.getId(), 2);
+        reservationService.reserve("alice", book.getId(), 1);
+
+        assertEquals(2, stock());
+        assertEquals(3, reservationRepository.findAll().get(0).getQuantity());
+        assertThrows(RuntimeException.class, () -> reservationService.reserve("bob", book.getId(), 3));
+        assertEquals(1, reservationRepository.count());
+    }
+
+    @Test
+    void testReleaseReturnsStock() {
+        reservationService.reserve("alice", book.getId(), 4);
+
+        reservationService.releaseAll("alice");
+
+        assertEquals(5, stock());
+        assertEquals(0, reservationRepository.count());
+    }
+
+    @Test
+    void testConsumeDeletesHoldsWithoutTouchingStock() {
+        reservationService.reserve("alice", book.getId(), 2);
+
+        Map<UUID, Integer> held = reservationService.consumeAll("alice");
+
+        assertEquals(Map.of(book.getId(), 2), held);
+        assertEquals(3, stock());
+        assertEquals(0, reservationRepository.count());
+    }
+
+    @Test
+    void testSweeperReleasesOnlyExpiredHoldsInBatches() {
+        for (String user : new String[]{"a", "b", "c"}) {
+            reservationService.reserve(user, book.getId(), 1);
+        }
+        reservationService.reserve("fresh", book.getId(), 1);
+        for (StockReservation hold : reservationRepository.findAll()) {
+            if (!hold.getUsername().equals("fresh")) {
+                hold.setExpiresAt(Instant.now().minusSeconds(1));
+                reservationRepository.save(hold);
+            }
+        }
+
+        reservationService.releaseExpired();
+
+        assertEquals(4, stock());
+        assertEquals(1, reservationRepository.count());
+        assertEquals("fresh", reservationRepository.findAll().get(0).getUsername());
+    }
+
+    private int stock() {
+        return catalogRepository.findById(book.getId()).orElseThrow().getStock();
+    }
+}
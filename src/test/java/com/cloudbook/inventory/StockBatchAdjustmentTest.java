@@ -0,0 +1,142 @@
+package com.cloudbook.inventory;
+
+import com.cloudbook.catalog.model.Book;
+import com.cloudbook.catalog.repository.CatalogRepository;
+import com.cloudbook.inventory.dto.StockAdjustmentResult;
+import com.cloudbook.inventory.event.StockChangedEvent;
+import com.cloudbook.inventory.repository.StockRepository;
+import com.cloudbook.inventory.repository.StockRepositoryCustom;
+import com.cloudbook.inventory.retry.StockContentionMetrics;
+import com.cloudbook.inventory.service.StockService;
+import com.cloudbook.inventory.service.StockShardService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+@Import({StockService.class, StockShardService.class, StockContentionMetrics.class, SimpleMeterRegistry.class})
+@RecordApplicationEvents
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StockBatchAdjustmentTest {
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private CatalogRepository catalogRepository;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEvents events;
+
+    @AfterEach
+    void cleanup() {
+        catalogRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void testAppliesFittingDeltasAndReportsTheRest() {
+        Book restock = save(2);
+        Book sell = save(5);
+        Book oversell = save(1);
+        UUID missing = UUID.randomUUID();
+
+        Map<UUID, Integer> deltas = new HashMap<>();
+        deltas.put(restock.getId(), 10);
+        deltas.put(sell.getId(), -5);
+        deltas.put(oversell.getId(), -2);
+        deltas.put(missing, 3);
+
+        Map<UUID, StockAdjustmentResult> results = stockService.adjustAll(deltas);
+
+        assertEquals(StockAdjustmentResult.Status.APPLIED, results.get(restock.getId()).status());
+        assertEquals(12, results.get(restock.getId()).currentStock());
+        assertEquals(StockAdjustmentResult.Status.APPLIED, results.get(sell.getId()).status());
+        assertEquals(StockAdjustmentResult.Status.INSUFFICIENT_STOCK, results.get(oversell.getId()).status());
+        assertEquals(1, results.get(oversell.getId()).currentStock());
+        assertEquals(StockAdjustmentResult.Status.NOT_FOUND, results.get(missing).status());
+
+        assertEquals(12, stock(restock));
+        assertEquals(0, stock(sell));
+        assertEquals(1, stock(oversell));
+        assertEquals(restock.getVersion() + 1, catalogRepository.findById(restock.getId()).orElseThrow().getVersion());
+        assertEquals(2, events.stream(StockChangedEvent.class).count());
+    }
+
+    @Test
+    void testApplyAllIsAllOrNothing() {
+        Book sell = save(5);
+        Book oversell = save(1);
+        Map<UUID, Integer> deltas = Map.of(sell.getId(), -3, oversell.getId(), -2);
+
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> stockService.applyAll(deltas));
+
+        assertEquals("Insufficient stock for book id: " + oversell.getId() + " (available: 1)", ex.getMessage());
+        assertEquals(5, stock(sell), "the fitting line was rolled back with the rest");
+        assertEquals(1, stock(oversell));
+        assertEquals(2, stockService.applyAll(Map.of(sell.getId(), -3)).get(sell.getId()).currentStock());
+    }
+
+    @Test
+    void testZeroDeltaReportsStockWithoutWriting() {
+        Book book = save(4);
+
+        StockAdjustmentResult result = stockService.adjustAll(Map.of(book.getId(), 0)).get(book.getId());
+
+        assertEquals(StockAdjustmentResult.Status.APPLIED, result.status());
+        assertEquals(4, result.currentStock());
+        assertEquals(book.getVersion(), catalogRepository.findById(book.getId()).orElseThrow().getVersion());
+        assertEquals(0, events.stream(StockChangedEvent.class).count());
+    }
+
+    @Test
+    void testLocksMoreThanOneChunkInDatabaseOrder() {
+        catalogRepository.saveAll(IntStream.range(0, 1200).mapToObj(i -> book(1)).toList());
+        List<UUID> databaseOrder = jdbcTemplate.queryForList("select id from book order by id", UUID.class);
+        List<UUID> shuffled = new ArrayList<>(databaseOrder);
+        Collections.shuffle(shuffled);
+        assertNotEquals(databaseOrder, shuffled.stream().sorted().toList(),
+                "random ids with and without the top bit set sort differently signed");
+
+        Map<UUID, Integer> locked = transactionTemplate.execute(status -> stockRepository.lockStock(shuffled));
+
+        assertEquals(databaseOrder, List.copyOf(locked.keySet()));
+        assertEquals(databaseOrder, shuffled.stream().sorted(StockRepositoryCustom.LOCK_ORDER).toList());
+    }
+
+    private Book save(int stock) {
+        return catalogRepository.save(book(stock));
+    }
+
+    private static Book book(int stock) {
+        return Book.builder().title("Book").author("Author").genre("Fiction")
+                .price(BigDecimal.TEN).stock(stock).rating(BigDecimal.ONE).build();
+    }
+
+    private int stock(Book book) {
+        return catalogRepository.findById(book.getId()).orElseThrow().getStock();
+    }
+}
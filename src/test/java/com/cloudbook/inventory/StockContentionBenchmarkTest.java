@@ -0,0 +1,164 @@
+package com.cloudbook.inventory;
+
+import com.cloudbook.catalog.model.Book;
+import com.cloudbook.catalog.repository.CatalogRepository;
+import com.cloudbook.inventory.retry.StockContentionMetrics;
+import com.cloudbook.inventory.service.StockService;
+import com.cloudbook.inventory.service.StockShardService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Hammers a single book from several threads, comparing the old load/modify/save
+ * path (optimistic version check, three attempts 500ms apart) with the guarded
+ * single-statement decrement. Run with {@code ./mvnw test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+@Import({StockService.class, StockShardService.class, StockContentionMetrics.class, SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StockContentionBenchmarkTest {
+
+    private static final int THREADS = 8;
+    private static final long DURATION_MS = 3_000;
+    private static final int INITIAL_STOCK = 1_000_000;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private CatalogRepository catalogRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Book book;
+
+    @BeforeEach
+    void seed() {
+        book = catalogRepository.save(Book.builder().title("Hot Book").author("Author").genre("Fiction")
+                .price(BigDecimal.TEN).stock(INITIAL_STOCK).rating(BigDecimal.ONE).build());
+    }
+
+    @AfterEach
+    void cleanup() {
+        catalogRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void compareReadModifyWriteAndGuardedDecrement() throws Exception {
+        Runnable guardedDecrement = () -> transactionTemplate.executeWithoutResult(
+                s -> stockService.decrement(book.getId(), 1));
+        // warm up both paths so neither pays for JIT and connection pool start-up
+        run(this::optimisticDecrement, 1_000);
+        run(guardedDecrement, 1_000);
+        int initial = currentStock();
+
+        Result optimistic = run(this::optimisticDecrement, DURATION_MS);
+        int afterOptimistic = currentStock();
+        assertEquals(initial - optimistic.succeeded(), afterOptimistic);
+
+        Result guarded = run(guardedDecrement, DURATION_MS);
+        assertEquals(afterOptimistic - guarded.succeeded(), currentStock());
+
+        optimistic.print("read-modify-write");
+        guarded.print("guarded update");
+    }
+
+    // The pre-existing path: version-checked save, retried like stockUpdateRetry
+    private void optimisticDecrement() {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(s -> {
+                    Book current = catalogRepository.findById(book.getId()).orElseThrow();
+                    current.setStock(current.getStock() - 1);
+                    catalogRepository.saveAndFlush(current);
+                });
+                return;
+            } catch (ObjectOptimisticLockingFailureException ex) {
+                if (attempt == 3) {
+                    throw ex;
+                }
+                sleep(500);
+            }
+        }
+    }
+
+    private Result run(Runnable operation, long durationMs) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicLong succeeded = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        long deadline = System.currentTimeMillis() + durationMs;
+
+        for (int t = 0; t < THREADS; t++) {
+            pool.submit(() -> {
+                start.await();
+                while (System.currentTimeMillis() < deadline) {
+                    long begin = System.nanoTime();
+                    try {
+                        operation.run();
+                        succeeded.incrementAndGet();
+                    } catch (RuntimeException ex) {
+                        failed.incrementAndGet();
+                    }
+                    latencies.add(System.nanoTime() - begin);
+                }
+                return null;
+            });
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+        double seconds = (System.nanoTime() - begin) / 1e9;
+
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        return new Result((int) succeeded.get(), failed.get(), seconds,
+                sorted.get(sorted.size() / 2), sorted.get((int) (sorted.size() * 0.99)));
+    }
+
+    private int currentStock() {
+        return catalogRepository.findById(book.getId()).orElseThrow().getStock();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record Result(int succeeded, long failed, double seconds, long p50Nanos, long p99Nanos) {
+
+        void print(String label) {
+            System.out.printf("%-18s %8.0f ops/s   ok %7d   failed %5d   p50 %8.3f ms   p99 %8.3f ms%n",
+                    label, succeeded / seconds, succeeded, failed, p50Nanos / 1e6, p99Nanos / 1e6);
+        }
+    }
+}
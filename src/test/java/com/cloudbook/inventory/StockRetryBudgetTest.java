@@ -0,0 +1,74 @@
+package com.cloudbook.inventory;
+
+import com.cloudbook.common.exception.custom.StockConflict;
+import com.cloudbook.inventory.limit.KeyedTokenBucketLimiter;
+import com.cloudbook.inventory.retry.StockRetryBudget;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StockRetryBudgetTest {
+
+    private final AtomicLong now = new AtomicLong(1_000);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    // two retries up front, then one every 100ms
+    private final StockRetryBudget budget = new StockRetryBudget(new KeyedTokenBucketLimiter(
+            "retry-budget", 2, 10, Duration.ofDays(1), 1, meterRegistry, now::get));
+
+    @Test
+    void testRetriesConflictsUntilBudgetIsSpent() {
+        StockConflict conflict = new StockConflict(UUID.randomUUID(), new CannotAcquireLockException("timeout"));
+
+        assertTrue(budget.shouldRetry(conflict));
+        budget.retried();
+        assertTrue(budget.shouldRetry(new ObjectOptimisticLockingFailureException("Book", UUID.randomUUID())));
+        budget.retried();
+        assertFalse(budget.shouldRetry(conflict));
+        assertEquals(1, meterRegistry.get(KeyedTokenBucketLimiter.REJECTED_METRIC)
+                .tag("limit", "retry-budget").counter().count());
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        assertTrue(budget.shouldRetry(conflict));
+    }
+
+    @Test
+    void testLastAttemptSpendsNothing() {
+        Retry retry = Retry.of("stock", RetryConfig.custom()
+                .maxAttempts(2)
+                .waitDuration(Duration.ofMillis(1))
+                .retryOnException(budget::shouldRetry)
+                .build());
+        retry.getEventPublisher().onRetry(event -> budget.retried());
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(StockConflict.class, () -> retry.executeRunnable(() -> {
+            calls.incrementAndGet();
+            throw new StockConflict(UUID.randomUUID(), new CannotAcquireLockException("timeout"));
+        }));
+
+        assertEquals(2, calls.get());
+        assertTrue(meterRegistry.find(KeyedTokenBucketLimiter.REJECTED_METRIC).counters().isEmpty());
+        // One retry, one token
+        assertTrue(budget.shouldRetry(new CannotAcquireLockException("timeout")));
+        budget.retried();
+        assertFalse(budget.shouldRetry(new CannotAcquireLockException("timeout")));
+    }
+
+    @Test
+    void testNeverRetriesBusinessFailures() {
+        assertFalse(budget.shouldRetry(new RuntimeException("Insufficient stock for book id: x")));
+        assertFalse(budget.shouldRetry(new IllegalArgumentException("Invalid UUID")));
+        assertTrue(meterRegistry.find(KeyedTokenBucketLimiter.REJECTED_METRIC).counters().isEmpty());
+    }
+}
@@ -0,0 +1,75 @@
+package com.cloudbook.inventory;
+
+import com.cloudbook.common.exception.custom.RateLimitExceeded;
+import com.cloudbook.common.exception.custom.StockConflict;
+import com.cloudbook.config.LockTimeoutExceptionOverride;
+import com.cloudbook.config.StockRetryConfig;
+import com.zaxxer.hikari.SQLExceptionOverride;
+import com.cloudbook.inventory.retry.StockContentionMetrics;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryConfig;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.CannotAcquireLockException;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class StockRetryConfigTest {
+
+    @Autowired
+    private RetryRegistry retryRegistry;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void testStockUpdateRetryOnlyRetriesConflictsWithGrowingBackoff() {
+        RetryConfig config = retryRegistry.retry(StockRetryConfig.STOCK_UPDATE_RETRY).getRetryConfig();
+
+        assertTrue(config.getExceptionPredicate().test(new CannotAcquireLockException("timeout")));
+        assertFalse(config.getExceptionPredicate().test(new RuntimeException("Insufficient stock")));
+        assertFalse(config.getExceptionPredicate().test(new RateLimitExceeded("Too many stock updates", 1)));
+
+        long first = config.getIntervalBiFunction().apply(1, null);
+        long second = config.getIntervalBiFunction().apply(2, null);
+        assertTrue(first >= 25 && first <= 75, "first wait " + first);
+        assertTrue(second >= 50 && second <= 150, "second wait " + second);
+    }
+
+    @Test
+    void testRetriesAreCountedPerBook() {
+        UUID bookId = UUID.randomUUID();
+        Retry retry = retryRegistry.retry(StockRetryConfig.STOCK_UPDATE_RETRY);
+        AtomicInteger calls = new AtomicInteger();
+
+        int result = retry.executeSupplier(() -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new StockConflict(bookId, new CannotAcquireLockException("timeout"));
+            }
+            return 1;
+        });
+
+        assertEquals(1, result);
+        assertEquals(1, meterRegistry.get(StockContentionMetrics.RETRIES_METRIC)
+                .tag("book", bookId.toString()).counter().count());
+    }
+
+    @Test
+    void testLockTimeoutsKeepTheirPooledConnection() {
+        LockTimeoutExceptionOverride override = new LockTimeoutExceptionOverride();
+
+        assertEquals(SQLExceptionOverride.Override.DO_NOT_EVICT,
+                override.adjudicate(new SQLTimeoutException("Timeout trying to lock table", "HYT00", 50200)));
+        assertEquals(SQLExceptionOverride.Override.CONTINUE_EVICT,
+                override.adjudicate(new SQLException("Connection is broken", "08006", 90067)));
+    }
+}
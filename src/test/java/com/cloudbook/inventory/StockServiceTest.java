@@ -0,0 +1,110 @@
+package com.cloudbook.inventory;
+
+import com.cloudbook.common.exception.custom.StockConflict;
+import com.cloudbook.inventory.event.StockChangedEvent;
+import com.cloudbook.inventory.repository.StockRepository;
+import com.cloudbook.inventory.service.StockService;
+import com.cloudbook.inventory.service.StockShardService;
+import com.cloudbook.inventory.retry.StockContentionMetrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.CannotAcquireLockException;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class StockServiceTest {
+
+    @Mock
+    private StockRepository stockRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private StockContentionMetrics contentionMetrics;
+
+    @Mock
+    private StockShardService stockShardService;
+
+    @InjectMocks
+    private StockService stockService;
+
+    private final UUID bookId = UUID.randomUUID();
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void testDecrement_publishesPreviousAndCurrentStock() {
+        when(stockRepository.decrementIfAvailable(eq(bookId), eq(3), any())).thenReturn(1);
+        when(stockRepository.findStockById(bookId)).thenReturn(Optional.of(7));
+
+        assertEquals(7, stockService.decrement(bookId, 3));
+
+        ArgumentCaptor<StockChangedEvent> captor = ArgumentCaptor.forClass(StockChangedEvent.class);
+        verify(eventPublisher).publishEvent(captor.capture());
+        assertEquals(10, captor.getValue().getPreviousStock());
+        assertEquals(7, captor.getValue().getCurrentStock());
+    }
+
+    @Test
+    void testDecrement_insufficientStock() {
+        when(stockRepository.decrementIfAvailable(eq(bookId), eq(5), any())).thenReturn(0);
+        when(stockRepository.findStockById(bookId)).thenReturn(Optional.of(2));
+
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> stockService.decrement(bookId, 5));
+        assertTrue(ex.getMessage().startsWith("Insufficient stock"));
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void testDecrement_unknownBook() {
+        when(stockRepository.decrementIfAvailable(eq(bookId), eq(1), any())).thenReturn(0);
+        when(stockRepository.findStockById(bookId)).thenReturn(Optional.empty());
+
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> stockService.decrement(bookId, 1));
+        assertTrue(ex.getMessage().startsWith("Book not found"));
+    }
+
+    @Test
+    void testAdjust_routesBySign() {
+        when(stockRepository.increment(eq(bookId), eq(4), any())).thenReturn(1);
+        when(stockRepository.findStockById(bookId)).thenReturn(Optional.of(4));
+
+        assertEquals(4, stockService.adjust(bookId, 4));
+        assertEquals(4, stockService.adjust(bookId, 0));
+        verify(stockRepository, never()).decrementIfAvailable(any(), anyInt(), any());
+    }
+
+    @Test
+    void testRejectsNonPositiveQuantity() {
+        assertThrows(RuntimeException.class, () -> stockService.decrement(bookId, 0));
+        assertThrows(RuntimeException.class, () -> stockService.increment(bookId, -1));
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void testLockFailure_becomesStockConflictForTheBook() {
+        when(stockRepository.increment(eq(bookId), eq(2), any())).thenThrow(new CannotAcquireLockException("timeout"));
+
+        StockConflict ex = assertThrows(StockConflict.class, () -> stockService.increment(bookId, 2));
+        assertEquals(bookId, ex.getBookId());
+        verify(contentionMetrics).conflict(bookId.toString());
+        verifyNoInteractions(eventPublisher);
+    }
+}
@@ -0,0 +1,201 @@
+package com.cloudbook.inventory;
+
+import com.cloudbook.catalog.model.Book;
+import com.cloudbook.catalog.repository.CatalogRepository;
+import com.cloudbook.common.exception.custom.StockConflict;
+import com.cloudbook.inventory.dto.StockAdjustmentResult;
+import com.cloudbook.inventory.event.StockChangedEvent;
+import com.cloudbook.inventory.model.StockShard;
+import com.cloudbook.inventory.repository.StockRepository;
+import com.cloudbook.inventory.repository.StockRepositoryCustom;
+import com.cloudbook.inventory.repository.StockShardRepository;
+import com.cloudbook.inventory.retry.StockContentionMetrics;
+import com.cloudbook.inventory.service.StockService;
+import com.cloudbook.inventory.service.StockShardService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// A long roll-up interval keeps the scheduled roll-up out of the way; tests call it directly
+@DataJpaTest(properties = {"spring.jpa.show-sql=false", "inventory.sharding.rollup-interval=1h"})
+@Import({StockService.class, StockShardService.class, StockContentionMetrics.class, SimpleMeterRegistry.class})
+@RecordApplicationEvents
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StockShardingTest {
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private StockShardService stockShardService;
+
+    @Autowired
+    private StockShardRepository shardRepository;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Autowired
+    private CatalogRepository catalogRepository;
+
+    @Autowired
+    private ApplicationEvents events;
+
+    @AfterEach
+    void cleanup() {
+        shardRepository.deleteAllInBatch();
+        catalogRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void testReshardSplitsEvenlyAndRollsUpDecrements() {
+        Book book = save(10);
+
+        List<StockShard> shards = stockShardService.reshard(book.getId(), 4);
+
+        assertEquals(List.of(3, 3, 2, 2), shards.stream().map(StockShard::getStock).toList());
+        assertEquals(4, catalogRepository.findById(book.getId()).orElseThrow().getStockShards());
+
+        assertEquals(7, stockService.decrement(book.getId(), 3));
+        assertEquals(10, stock(book), "the book row follows at the next roll-up");
+        stockShardService.rollUp();
+        assertEquals(7, stock(book));
+        StockChangedEvent event = events.stream(StockChangedEvent.class).findFirst().orElseThrow();
+        assertEquals(10, event.getPreviousStock());
+        assertEquals(7, event.getCurrentStock());
+    }
+
+    @Test
+    void testDecrementGathersAcrossShardsAndRejectsOversell() {
+        Book book = save(8);
+        stockShardService.reshard(book.getId(), 4);
+
+        assertEquals(3, stockService.decrement(book.getId(), 5), "no single shard holds 5");
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> stockService.decrement(book.getId(), 4));
+        assertEquals("Insufficient stock for book id: " + book.getId() + " (available: 3)", ex.getMessage());
+        assertEquals(6, stockService.increment(book.getId(), 3));
+        assertEquals(6, stockService.adjust(book.getId(), 0));
+    }
+
+    @Test
+    void testRebalanceAndUnshard() {
+        Book book = save(9);
+        stockShardService.reshard(book.getId(), 3);
+        stockService.decrement(book.getId(), 2);
+        stockService.decrement(book.getId(), 2);
+
+        List<StockShard> rebalanced = stockShardService.reshard(book.getId(), 2);
+        assertEquals(List.of(3, 2), rebalanced.stream().map(StockShard::getStock).toList());
+
+        assertEquals(5, stockShardService.unshard(book.getId()));
+        assertEquals(5, stock(book));
+        assertEquals(0, catalogRepository.findById(book.getId()).orElseThrow().getStockShards());
+        assertTrue(shardRepository.findAll().isEmpty());
+        assertEquals(4, stockService.decrement(book.getId(), 1), "back on the book row");
+    }
+
+    @Test
+    void testBatchAdjustmentRoutesShardedBooks() {
+        Book sharded = save(6);
+        Book plain = save(6);
+        stockShardService.reshard(sharded.getId(), 2);
+
+        Map<UUID, StockAdjustmentResult> results = stockService.adjustAll(Map.of(
+                sharded.getId(), -4, plain.getId(), -4));
+
+        assertEquals(StockAdjustmentResult.Status.APPLIED, results.get(sharded.getId()).status());
+        assertEquals(2, results.get(sharded.getId()).currentStock());
+        assertEquals(StockAdjustmentResult.Status.APPLIED, results.get(plain.getId()).status());
+        assertEquals(2, stock(plain));
+        assertEquals(StockAdjustmentResult.Status.INSUFFICIENT_STOCK,
+                stockService.adjustAll(Map.of(sharded.getId(), -3)).get(sharded.getId()).status());
+    }
+
+    @Test
+    void testStaleShardCountFallsBackToTheBookRow() {
+        Book book = save(5);
+        stockShardService.remember(book.getId(), 4);
+
+        assertEquals(3, stockService.decrement(book.getId(), 2));
+        assertEquals(3, stock(book));
+        assertFalse(stockShardService.isSharded(book.getId()), "the stale count is dropped");
+        assertEquals(StockAdjustmentResult.Status.INSUFFICIENT_STOCK,
+                stockService.adjustAll(Map.of(book.getId(), -4)).get(book.getId()).status());
+    }
+
+    @Test
+    void testShardedBooksAreFoundInLockOrder() {
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Book book = save(4);
+            stockShardService.reshard(book.getId(), 2);
+            ids.add(book.getId());
+        }
+        ids.add(save(4).getId());
+        Collections.shuffle(ids);
+
+        List<UUID> sharded = stockRepository.findShardedIds(ids);
+
+        assertEquals(8, sharded.size());
+        assertEquals(sharded.stream().sorted(StockRepositoryCustom.LOCK_ORDER).toList(), sharded);
+    }
+
+    @Test
+    void testConcurrentDecrementsNeverOversell() throws Exception {
+        Book book = save(200);
+        stockShardService.reshard(book.getId(), 8);
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            workers.add(pool.submit(() -> {
+                for (int i = 0; i < 40; i++) {
+                    try {
+                        stockService.decrement(book.getId(), 1);
+                        sold.incrementAndGet();
+                    } catch (StockConflict ex) {
+                        // Retried by callers in production; a lost attempt here just means one fewer try
+                        conflicts.incrementAndGet();
+                    } catch (RuntimeException ex) {
+                        if (!ex.getMessage().startsWith("Insufficient stock")) {
+                            throw ex;
+                        }
+                    }
+                }
+            }));
+        }
+        for (Future<?> worker : workers) {
+            worker.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertEquals(200, sold.get() + stockShardService.currentStock(book.getId()), "no unit sold twice or lost");
+        assertTrue(conflicts.get() <= 40, "conflicts are the exception: " + conflicts.get());
+        stockShardService.rollUp();
+        assertEquals(200 - sold.get(), stock(book));
+    }
+
+    private Book save(int stock) {
+        return catalogRepository.save(Book.builder().title("Book").author("Author").genre("Fiction")
+                .price(BigDecimal.TEN).stock(stock).rating(BigDecimal.ONE).build());
+    }
+
+    private int stock(Book book) {
+        return catalogRepository.findById(book.getId()).orElseThrow().getStock();
+    }
+}
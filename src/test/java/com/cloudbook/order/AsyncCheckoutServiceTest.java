@@ -0,0 +1,120 @@
+package com.cloudbook.order;
+
+import com.cloudbook.common.exception.custom.CheckoutQueueFull;
+import com.cloudbook.order.dto.OrderResponse;
+import com.cloudbook.order.model.Order;
+import com.cloudbook.order.model.OrderStatus;
+import com.cloudbook.order.repository.OrderRepository;
+import com.cloudbook.order.service.AsyncCheckoutService;
+import com.cloudbook.order.service.OrderService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AsyncCheckoutServiceTest {
+
+    private final OrderService orderService = mock(OrderService.class);
+    private final OrderRepository orderRepository = mock(OrderRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private AsyncCheckoutService asyncCheckoutService;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        asyncCheckoutService.shutdown();
+    }
+
+    @Test
+    void testAcceptedOrderIsPlacedByAWorker() {
+        create(2, 10);
+        Order pending = pending();
+        when(orderService.createPendingOrder()).thenReturn(pending);
+
+        OrderResponse response = asyncCheckoutService.acceptOrder();
+
+        assertEquals(pending.getId(), response.getId());
+        assertEquals("PENDING", response.getStatus());
+        verify(orderService, timeout(5000)).placePendingOrder(pending.getId());
+        verify(orderService, never()).failPendingOrder(any(), any());
+        assertEquals(1, meterRegistry.get(AsyncCheckoutService.QUEUE_WAIT_METRIC).timer().count());
+        awaitProcessed("placed");
+    }
+
+    @Test
+    void testFullQueueRefusesBeforeWritingAnything() throws Exception {
+        create(1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        Order pending = pending();
+        when(orderService.createPendingOrder()).thenReturn(pending);
+        doAnswer(invocation -> release.await(5, TimeUnit.SECONDS)).when(orderService).placePendingOrder(pending.getId());
+
+        asyncCheckoutService.acceptOrder();
+        assertThrows(CheckoutQueueFull.class, () -> asyncCheckoutService.acceptOrder());
+        verify(orderService, times(1)).createPendingOrder();
+        assertEquals(1, meterRegistry.get(AsyncCheckoutService.REJECTED_METRIC).counter().count());
+
+        release.countDown();
+        awaitProcessed("placed");
+        asyncCheckoutService.acceptOrder();
+        verify(orderService, times(2)).createPendingOrder();
+    }
+
+    @Test
+    void testFailedCheckoutMarksTheOrderFailed() {
+        create(1, 10);
+        Order pending = pending();
+        when(orderService.createPendingOrder()).thenReturn(pending);
+        doThrow(new RuntimeException("Insufficient stock for book id: x (available: 0)"))
+                .when(orderService).placePendingOrder(pending.getId());
+
+        asyncCheckoutService.acceptOrder();
+
+        verify(orderService, timeout(5000)).failPendingOrder(pending.getId(), "Insufficient stock for book id: x (available: 0)");
+        awaitProcessed("failed");
+    }
+
+    @Test
+    void testPendingOrdersAreResumedOnStartup() {
+        create(1, 10);
+        Order pending = pending();
+        when(orderRepository.findByStatus(OrderStatus.PENDING)).thenReturn(List.of(pending));
+
+        asyncCheckoutService.resumePendingOrders();
+
+        verify(orderService, timeout(5000)).placePendingOrder(pending.getId());
+    }
+
+    private void create(int workers, int queueCapacity) {
+        asyncCheckoutService = new AsyncCheckoutService(meterRegistry, workers, queueCapacity, Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(asyncCheckoutService, "orderService", orderService);
+        ReflectionTestUtils.setField(asyncCheckoutService, "orderRepository", orderRepository);
+    }
+
+    // The processing timer is recorded after the worker hands its slot back
+    private void awaitProcessed(String outcome) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (meterRegistry.find(AsyncCheckoutService.PROCESSING_METRIC).tag("outcome", outcome).timer() == null) {
+            assertTrue(System.currentTimeMillis() < deadline, "no " + outcome + " checkout recorded");
+            Thread.onSpinWait();
+        }
+    }
+
+    private static Order pending() {
+        Order order = new Order();
+        order.setId(UUID.randomUUID());
+        order.setUsername("john");
+        order.setOrderDate(LocalDateTime.now());
+        order.setStatus(OrderStatus.PENDING);
+        return order;
+    }
+}
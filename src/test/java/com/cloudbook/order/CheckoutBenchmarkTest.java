@@ -0,0 +1,128 @@
+package com.cloudbook.order;
+
+import com.cloudbook.auth.model.User;
+import com.cloudbook.auth.repository.UserRepository;
+import com.cloudbook.cart.model.Cart;
+import com.cloudbook.cart.model.CartItem;
+import com.cloudbook.cart.repository.CartRepository;
+import com.cloudbook.catalog.model.Book;
+import com.cloudbook.catalog.repository.CatalogRepository;
+import com.cloudbook.common.enums.Role;
+import com.cloudbook.inventory.retry.StockContentionMetrics;
+import com.cloudbook.inventory.service.ReservationService;
+import com.cloudbook.inventory.service.StockService;
+import com.cloudbook.inventory.service.StockShardService;
+import com.cloudbook.order.pipeline.OrderActivityPipeline;
+import com.cloudbook.order.service.OrderService;
+import com.cloudbook.order.util.OrderMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Measures placeOrder latency against cart size. Run with {@code ./mvnw test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@DataJpaTest(properties = {"spring.jpa.show-sql=false", "inventory.sharding.rollup-interval=1h"})
+@Import({OrderService.class, OrderMapper.class, OrderActivityPipeline.class, StockService.class, StockShardService.class, ReservationService.class,
+        StockContentionMetrics.class, SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CheckoutBenchmarkTest {
+
+    private static final int[] CART_SIZES = {1, 5, 10, 30};
+    private static final int WARMUP = 100;
+    private static final int RUNS = 200;
+    private static final String USERNAME = "bench";
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CatalogRepository catalogRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<Book> books = new ArrayList<>();
+
+    @BeforeEach
+    void seed() {
+        for (int i = 0; i < 30; i++) {
+            books.add(catalogRepository.save(Book.builder().title("Book " + i).author("Author").genre("Fiction")
+                    .price(BigDecimal.TEN).stock(1_000_000).rating(BigDecimal.ONE).build()));
+        }
+        userRepository.save(User.builder().username(USERNAME).password("x").role(Role.CUSTOMER)
+                .createdAt(LocalDateTime.now()).build());
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(USERNAME, null, List.of()));
+    }
+
+    @AfterEach
+    void cleanup() {
+        SecurityContextHolder.clearContext();
+        jdbcTemplate.update("delete from order_items");
+        jdbcTemplate.update("delete from orders");
+        jdbcTemplate.update("delete from cart_items");
+        jdbcTemplate.update("delete from carts");
+        userRepository.deleteAllInBatch();
+        catalogRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void placeOrderLatencyByCartSize() {
+        // Every size is warmed up first, so the first one measured does not pay for JIT compilation
+        for (int size : CART_SIZES) {
+            for (int i = 0; i < WARMUP; i++) {
+                checkout(size);
+            }
+        }
+        for (int size : CART_SIZES) {
+            long[] nanos = new long[RUNS];
+            for (int i = 0; i < RUNS; i++) {
+                nanos[i] = checkout(size);
+            }
+            Arrays.sort(nanos);
+            System.out.printf("cart of %2d lines   median %7.3f ms   p95 %7.3f ms%n", size,
+                    nanos[RUNS / 2] / 1e6, nanos[(int) (RUNS * 0.95)] / 1e6);
+        }
+        int perBook = (WARMUP + RUNS) * CART_SIZES.length;
+        assertEquals(1_000_000 - perBook, catalogRepository.findById(books.get(0).getId()).orElseThrow().getStock());
+    }
+
+    // Fills the cart outside the measurement and returns the time placeOrder took
+    private long checkout(int size) {
+        Cart cart = cartRepository.findByUsername(USERNAME).orElseGet(() -> new Cart(USERNAME));
+        cart.getItems().clear();
+        for (int i = 0; i < size; i++) {
+            cart.getItems().add(new CartItem(books.get(i), 1, cart));
+        }
+        cartRepository.save(cart);
+        long start = System.nanoTime();
+        orderService.placeOrder();
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,292 @@
+package com.cloudbook.order;
+
+import com.cloudbook.auth.model.User;
+import com.cloudbook.auth.repository.UserRepository;
+import com.cloudbook.cart.model.Cart;
+import com.cloudbook.cart.model.CartItem;
+import com.cloudbook.cart.repository.CartRepository;
+import com.cloudbook.catalog.model.Book;
+import com.cloudbook.catalog.repository.CatalogRepository;
+import com.cloudbook.catalog.service.CatalogService;
+import com.cloudbook.common.enums.Role;
+import com.cloudbook.inventory.retry.StockContentionMetrics;
+import com.cloudbook.order.dto.OrderItemResponse;
+import com.cloudbook.order.dto.OrderResponse;
+import com.cloudbook.order.service.OrderService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Drives checkout, cancellation and admin stock updates from a few hundred
+ * threads against a handful of hot books on the embedded database, then checks
+ * that no book was oversold and that every unit is accounted for: initial stock
+ * plus applied admin deltas equals remaining stock plus units in placed orders.
+ * Reports throughput, p50/p99 latency and the retries taken on the way.
+ * Run with {@code ./mvnw test -Pstress}.
+ */
+@Tag("stress")
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "spring.datasource.hikari.maximum-pool-size=32"})
+class CheckoutStressTest {
+
+    private static final int CUSTOMERS = 200;
+    private static final int ADMINS = 10;
+    private static final int HOT_BOOKS = 4;
+    private static final int INITIAL_STOCK = 1_500;
+    private static final int CUSTOMER_ROUNDS = 15;
+    private static final int ADMIN_ROUNDS = 30;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CatalogService catalogService;
+
+    @Autowired
+    private CatalogRepository catalogRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<Book> books = new ArrayList<>();
+
+    @BeforeEach
+    void seed() {
+        for (int i = 0; i < HOT_BOOKS; i++) {
+            books.add(catalogRepository.save(Book.builder().title("Hot Book " + i).author("Author").genre("Fiction")
+                    .price(BigDecimal.TEN).stock(INITIAL_STOCK).rating(BigDecimal.ONE).build()));
+        }
+        for (int i = 0; i < CUSTOMERS; i++) {
+            userRepository.save(User.builder().username(customer(i)).password("x").role(Role.CUSTOMER)
+                    .createdAt(LocalDateTime.now()).build());
+        }
+    }
+
+    @AfterEach
+    void cleanup() {
+        jdbcTemplate.update("delete from order_items");
+        jdbcTemplate.update("delete from orders");
+        jdbcTemplate.update("delete from cart_items");
+        jdbcTemplate.update("delete from carts");
+        jdbcTemplate.update("delete from users where username like 'stress-%'");
+        catalogRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void checkoutNeverOversellsAndConservesStock() throws Exception {
+        Stats checkout = new Stats();
+        Stats cancel = new Stats();
+        Stats restock = new Stats();
+        AtomicIntegerArray sold = new AtomicIntegerArray(HOT_BOOKS);
+        AtomicIntegerArray adjusted = new AtomicIntegerArray(HOT_BOOKS);
+        Queue<Throwable> unexpected = new ConcurrentLinkedQueue<>();
+        double retriesBefore = total(StockContentionMetrics.RETRIES_METRIC);
+        double conflictsBefore = total(StockContentionMetrics.CONFLICTS_METRIC);
+
+        ExecutorService pool = Executors.newFixedThreadPool(CUSTOMERS + ADMINS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int c = 0; c < CUSTOMERS; c++) {
+            String username = customer(c);
+            workers.add(pool.submit(() -> asUser(username, "ROLE_CUSTOMER", () -> {
+                start.await();
+                shop(username, checkout, cancel, sold, unexpected);
+                return null;
+            })));
+        }
+        for (int a = 0; a < ADMINS; a++) {
+            workers.add(pool.submit(() -> asUser("stress-admin", "ROLE_ADMIN", () -> {
+                start.await();
+                restock(restock, adjusted, unexpected);
+                return null;
+            })));
+        }
+
+        // Samples committed stock while the workers run; a negative value at any point is an oversell
+        AtomicInteger lowest = new AtomicInteger(Integer.MAX_VALUE);
+        ScheduledExecutorService monitor = Executors.newSingleThreadScheduledExecutor();
+        monitor.scheduleWithFixedDelay(() -> lowest.accumulateAndGet(
+                jdbcTemplate.queryForObject("select min(stock) from book", Integer.class), Math::min),
+                0, 10, TimeUnit.MILLISECONDS);
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get(5, TimeUnit.MINUTES);
+        }
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        pool.shutdown();
+        monitor.shutdown();
+        monitor.awaitTermination(1, TimeUnit.SECONDS);
+
+        System.out.printf("%d threads on %d books in %.2f s, %.0f ops/s%n", CUSTOMERS + ADMINS, HOT_BOOKS, seconds,
+                (checkout.attempts() + cancel.attempts() + restock.attempts()) / seconds);
+        checkout.print("placeOrder", seconds);
+        cancel.print("cancelOrder", seconds);
+        restock.print("updateStock", seconds);
+        System.out.printf("conflicts %.0f   retries %.0f%n",
+                total(StockContentionMetrics.CONFLICTS_METRIC) - conflictsBefore,
+                total(StockContentionMetrics.RETRIES_METRIC) - retriesBefore);
+
+        unexpected.stream().findFirst().ifPresent(Throwable::printStackTrace);
+        assertTrue(unexpected.isEmpty(), () -> unexpected.size() + " unexpected failures, first: " + unexpected.peek());
+        assertTrue(checkout.ok.get() > 0, "some checkouts succeed");
+        assertTrue(lowest.get() >= 0, "stock went negative: " + lowest.get());
+        for (int i = 0; i < HOT_BOOKS; i++) {
+            UUID bookId = books.get(i).getId();
+            int stock = catalogRepository.findById(bookId).orElseThrow().getStock();
+            int placed = jdbcTemplate.queryForObject("select coalesce(sum(i.quantity), 0) from order_items i " +
+                    "join orders o on o.id = i.order_id where o.status = 'PLACED' and i.book_id = ?", Integer.class, bookId);
+            assertTrue(stock >= 0, "oversold " + bookId);
+            assertEquals(sold.get(i), placed, "orders reported as placed match the order table");
+            assertEquals(INITIAL_STOCK + adjusted.get(i), stock + placed, "every unit of " + bookId + " accounted for");
+        }
+    }
+
+    private void shop(String username, Stats checkout, Stats cancel, AtomicIntegerArray sold,
+                      Queue<Throwable> unexpected) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int round = 0; round < CUSTOMER_ROUNDS; round++) {
+            Cart cart = cartRepository.findByUsername(username).orElseGet(() -> new Cart(username));
+            cart.getItems().clear();
+            int first = random.nextInt(HOT_BOOKS);
+            cart.getItems().add(new CartItem(books.get(first), 1 + random.nextInt(3), cart));
+            if (random.nextBoolean()) {
+                Book second = books.get((first + 1 + random.nextInt(HOT_BOOKS - 1)) % HOT_BOOKS);
+                cart.getItems().add(new CartItem(second, 1 + random.nextInt(3), cart));
+            }
+            cartRepository.save(cart);
+
+            OrderResponse order = checkout.time(orderService::placeOrder, unexpected);
+            if (order == null) {
+                continue;
+            }
+            count(order, sold, 1);
+            if (random.nextInt(4) == 0 && cancel.time(() -> {
+                orderService.cancelOrder(order.getId().toString());
+                return order;
+            }, unexpected) != null) {
+                count(order, sold, -1);
+            }
+        }
+    }
+
+    private void restock(Stats restock, AtomicIntegerArray adjusted, Queue<Throwable> unexpected) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int round = 0; round < ADMIN_ROUNDS; round++) {
+            int book = random.nextInt(HOT_BOOKS);
+            // Mostly deliveries, some write-offs that can themselves run into insufficient stock
+            int delta = random.nextInt(4) == 0 ? -(1 + random.nextInt(5)) : 1 + random.nextInt(10);
+            if (restock.time(() -> catalogService.updateStock(books.get(book).getId().toString(), delta),
+                    unexpected) != null) {
+                adjusted.addAndGet(book, delta);
+            }
+        }
+    }
+
+    private void count(OrderResponse order, AtomicIntegerArray sold, int sign) {
+        for (OrderItemResponse item : order.getItems()) {
+            for (int i = 0; i < HOT_BOOKS; i++) {
+                if (books.get(i).getId().equals(item.getBookId())) {
+                    sold.addAndGet(i, sign * item.getQuantity());
+                }
+            }
+        }
+    }
+
+    private static <T> T asUser(String username, String role, Callable<T> work) throws Exception {
+        SecurityContextHolder.getContext().setAuthentication(UsernamePasswordAuthenticationToken.authenticated(
+                username, null, List.of(new SimpleGrantedAuthority(role))));
+        try {
+            return work.call();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    private static String customer(int index) {
+        return "stress-" + index;
+    }
+
+    private double total(String metric) {
+        return meterRegistry.find(metric).counters().stream().mapToDouble(Counter::count).sum();
+    }
+
+    private static class Stats {
+
+        private final Queue<Long> latencies = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger ok = new AtomicInteger();
+        private final AtomicInteger insufficient = new AtomicInteger();
+        private final AtomicInteger conflicts = new AtomicInteger();
+
+        // Returns the result, or null when the call failed the way a contended stock path is allowed to
+        <T> T time(Callable<T> call, Queue<Throwable> unexpected) {
+            long begin = System.nanoTime();
+            try {
+                T result = call.call();
+                ok.incrementAndGet();
+                return result;
+            } catch (ConcurrencyFailureException ex) {
+                conflicts.incrementAndGet();
+            } catch (Exception ex) {
+                String message = String.valueOf(ex.getMessage());
+                if (message.startsWith("Insufficient stock")) {
+                    insufficient.incrementAndGet();
+                } else if (message.startsWith("Could not")) {
+                    // Retries ran out and the fallback gave up
+                    conflicts.incrementAndGet();
+                } else {
+                    unexpected.add(ex);
+                }
+            } finally {
+                latencies.add(System.nanoTime() - begin);
+            }
+            return null;
+        }
+
+        int attempts() {
+            return latencies.size();
+        }
+
+        void print(String label, double seconds) {
+            if (latencies.isEmpty()) {
+                return;
+            }
+            List<Long> sorted = new ArrayList<>(latencies);
+            Collections.sort(sorted);
+            System.out.printf("%-12s %7.0f ops/s   ok %6d   insufficient %6d   conflicts %5d   p50 %8.3f ms   p99 %8.3f ms%n",
+                    label, sorted.size() / seconds, ok.get(), insufficient.get(), conflicts.get(),
+                    sorted.get(sorted.size() / 2) / 1e6, sorted.get((int) (sorted.size() * 0.99)) / 1e6);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.cloudbook.order;
+
+import com.cloudbook.catalog.model.Book;
+import com.cloudbook.order.model.Order;
+import com.cloudbook.order.model.OrderItem;
+import com.cloudbook.order.pipeline.OrderActivity;
+import com.cloudbook.order.pipeline.OrderActivityHandler;
+import com.cloudbook.order.pipeline.OrderActivityPipeline;
+import com.cloudbook.order.pipeline.OrderActivityType;
+import com.cloudbook.order.pipeline.WaitStrategy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderActivityPipelineTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private OrderActivityPipeline pipeline;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        pipeline.stop();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"blocking", "sleeping", "yielding", "busy-spin"})
+    void testEveryStageSeesEveryActivityAfterTheStageBefore(String waitStrategy) throws Exception {
+        Set<UUID> seenByFirst = ConcurrentHashMap.newKeySet();
+        List<UUID> seenBySecond = new CopyOnWriteArrayList<>();
+        List<String> violations = new CopyOnWriteArrayList<>();
+        pipeline = new OrderActivityPipeline(meterRegistry, List.of(
+                stage("first", activity -> seenByFirst.add(activity.getOrderId())),
+                stage("second", activity -> {
+                    if (!seenByFirst.contains(activity.getOrderId())) {
+                        violations.add(activity.getOrderId().toString());
+                    }
+                    seenBySecond.add(activity.getOrderId());
+                })), 64, WaitStrategy.of(waitStrategy));
+        pipeline.start();
+
+        int publishers = 4;
+        int perPublisher = 500;
+        Set<UUID> published = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(publishers);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int p = 0; p < publishers; p++) {
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < perPublisher; i++) {
+                    Order order = order(1);
+                    published.add(order.getId());
+                    pipeline.publishAfterCommit(OrderActivityType.PLACED, order);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        // The ring is much smaller than the load, so some activities may be dropped, never duplicated
+        long delivered = publishers * perPublisher - (long) dropped();
+        awaitProcessed("second", delivered);
+        assertEquals(delivered, seenBySecond.size());
+        assertEquals(seenBySecond.size(), Set.copyOf(seenBySecond).size(), "each activity is handled once per stage");
+        assertTrue(published.containsAll(seenBySecond));
+        assertTrue(violations.isEmpty(), "second stage ran ahead of the first for " + violations);
+    }
+
+    @Test
+    void testStageTakesEverythingPublishedMeanwhileAsOneBatch() throws Exception {
+        CountDownLatch firstEntered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Boolean> endOfBatch = new CopyOnWriteArrayList<>();
+        pipeline = new OrderActivityPipeline(meterRegistry, List.of(new OrderActivityHandler() {
+            @Override
+            public String name() {
+                return "slow";
+            }
+
+            @Override
+            public void onEvent(OrderActivity activity, boolean last) {
+                if (firstEntered.getCount() > 0) {
+                    firstEntered.countDown();
+                    await(release);
+                    return;
+                }
+                endOfBatch.add(last);
+            }
+        }), 16, new WaitStrategy.Blocking());
+        pipeline.start();
+
+        pipeline.publishAfterCommit(OrderActivityType.PLACED, order(1));
+        assertTrue(firstEntered.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 10; i++) {
+            pipeline.publishAfterCommit(OrderActivityType.PLACED, order(1));
+        }
+        release.countDown();
+
+        awaitProcessed("slow", 11);
+        assertEquals(10, endOfBatch.size());
+        assertEquals(List.of(false, false, false, false, false, false, false, false, false, true), endOfBatch);
+        assertEquals(10, meterRegistry.get(OrderActivityPipeline.BATCH_SIZE_METRIC).tag("stage", "slow").summary().max());
+    }
+
+    @Test
+    void testFullRingDropsInsteadOfBlockingThePublisher() {
+        pipeline = new OrderActivityPipeline(meterRegistry, List.of(stage("idle", activity -> { })),
+                4, new WaitStrategy.Blocking());
+        // Not started, so nothing is consumed
+
+        for (int i = 0; i < 6; i++) {
+            pipeline.publishAfterCommit(OrderActivityType.PLACED, order(1));
+        }
+
+        assertEquals(2, dropped());
+        assertEquals(4, meterRegistry.get(OrderActivityPipeline.LAG_METRIC).tag("stage", "idle").gauge().value());
+    }
+
+    @Test
+    void testFailingStageDoesNotStallTheStagesAfterIt() {
+        List<UUID> downstream = new CopyOnWriteArrayList<>();
+        pipeline = new OrderActivityPipeline(meterRegistry, List.of(
+                stage("failing", activity -> {
+                    throw new RuntimeException("projection unavailable");
+                }),
+                stage("downstream", activity -> downstream.add(activity.getOrderId()))),
+                32, new WaitStrategy.Sleeping());
+        pipeline.start();
+
+        for (int i = 0; i < 20; i++) {
+            pipeline.publishAfterCommit(OrderActivityType.CANCELLED, order(2));
+        }
+
+        awaitProcessed("downstream", 20);
+        assertEquals(20, downstream.size());
+        assertEquals(20, meterRegistry.get(OrderActivityPipeline.ERRORS_METRIC).tag("stage", "failing").counter().count());
+    }
+
+    @Test
+    void testActivityCarriesTheOrderLines() {
+        List<String> seen = new CopyOnWriteArrayList<>();
+        pipeline = new OrderActivityPipeline(meterRegistry, List.of(stage("copy", activity ->
+                seen.add(activity.getType() + " " + activity.getUsername() + " " + activity.getLines().size()
+                        + " " + activity.getLines().get(0).quantity()))), 8, new WaitStrategy.Yielding());
+        pipeline.start();
+
+        pipeline.publishAfterCommit(OrderActivityType.PLACED, order(3));
+
+        awaitProcessed("copy", 1);
+        assertEquals(List.of("PLACED john 3 2"), seen);
+    }
+
+    @Test
+    void testUnknownWaitStrategyIsRejected() {
+        pipeline = new OrderActivityPipeline(meterRegistry, List.of(), 8, new WaitStrategy.BusySpin());
+        assertThrows(IllegalArgumentException.class, () -> WaitStrategy.of("spinning"));
+        assertThrows(IllegalArgumentException.class,
+                () -> new OrderActivityPipeline(meterRegistry, List.of(), 12, new WaitStrategy.BusySpin()));
+    }
+
+    private double dropped() {
+        return meterRegistry.get(OrderActivityPipeline.DROPPED_METRIC).counter().count();
+    }
+
+    private void awaitProcessed(String stage, long count) {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (meterRegistry.get(OrderActivityPipeline.PROCESSED_METRIC).tag("stage", stage).counter().count() < count) {
+            assertTrue(System.currentTimeMillis() < deadline, stage + " did not catch up");
+            Thread.onSpinWait();
+        }
+    }
+
+    private static OrderActivityHandler stage(String name, Consumer<OrderActivity> onEvent) {
+        return new OrderActivityHandler() {
+            @Override
+            public String name() {
+                return name;
+            }
+
+            @Override
+            public void onEvent(OrderActivity activity, boolean endOfBatch) {
+                onEvent.accept(activity);
+            }
+        };
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Order order(int lines) {
+        Order order = new Order();
+        order.setId(UUID.randomUUID());
+        order.setUsername("john");
+        order.setOrderDate(LocalDateTime.now());
+        order.setTotalAmount(BigDecimal.valueOf(20L * lines));
+        for (int i = 0; i < lines; i++) {
+            OrderItem item = new OrderItem();
+            item.setBook(Book.builder().id(UUID.randomUUID()).build());
+            item.setQuantity(2);
+            item.setPriceAtPurchase(BigDecimal.TEN);
+            order.getItems().add(item);
+        }
+        return order;
+    }
+}
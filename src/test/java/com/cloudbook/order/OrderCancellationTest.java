@@ -0,0 +1,142 @@
+package com.cloudbook.order;
+
+import com.cloudbook.auth.model.User;
+import com.cloudbook.auth.repository.UserRepository;
+import com.cloudbook.catalog.model.Book;
+import com.cloudbook.catalog.repository.CatalogRepository;
+import com.cloudbook.common.enums.Role;
+import com.cloudbook.inventory.engine.InMemoryInventory;
+import com.cloudbook.inventory.retry.StockContentionMetrics;
+import com.cloudbook.inventory.service.ReservationService;
+import com.cloudbook.inventory.service.StockService;
+import com.cloudbook.inventory.service.StockShardService;
+import com.cloudbook.order.model.Order;
+import com.cloudbook.order.model.OrderItem;
+import com.cloudbook.order.model.OrderStatus;
+import com.cloudbook.order.pipeline.OrderActivityPipeline;
+import com.cloudbook.order.pipeline.OrderActivityType;
+import com.cloudbook.order.repository.OrderRepository;
+import com.cloudbook.order.service.OrderService;
+import com.cloudbook.order.util.OrderMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@DataJpaTest(properties = {"spring.jpa.show-sql=false", "inventory.sharding.rollup-interval=1h"})
+@Import({OrderService.class, OrderMapper.class, StockService.class, StockShardService.class, ReservationService.class,
+        InMemoryInventory.class, StockContentionMetrics.class, SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderCancellationTest {
+
+    private static final String USERNAME = "canceller";
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private CatalogRepository catalogRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockitoBean
+    private OrderActivityPipeline activityPipeline;
+
+    @AfterEach
+    void cleanup() {
+        jdbcTemplate.update("delete from order_items");
+        jdbcTemplate.update("delete from orders");
+        userRepository.deleteAllInBatch();
+        catalogRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void testConcurrentCancelsRestockOnce() throws Exception {
+        userRepository.save(User.builder().username(USERNAME).password("x").role(Role.CUSTOMER)
+                .createdAt(LocalDateTime.now()).build());
+        Book book = catalogRepository.save(Book.builder().title("Book").author("Author").genre("Fiction")
+                .price(BigDecimal.TEN).stock(8).rating(BigDecimal.ONE).build());
+        UUID orderId = placedOrder(book, 2);
+
+        // Holds each cancel inside its transaction until the other arrives, or briefly if it never can
+        CountDownLatch inside = new CountDownLatch(2);
+        doAnswer(invocation -> {
+            inside.countDown();
+            inside.await(500, TimeUnit.MILLISECONDS);
+            return null;
+        }).when(activityPipeline).publishAfterCommit(eq(OrderActivityType.CANCELLED), any());
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        List<Future<Throwable>> attempts = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            attempts.add(pool.submit(() -> {
+                SecurityContextHolder.getContext().setAuthentication(
+                        new UsernamePasswordAuthenticationToken(USERNAME, null, List.of()));
+                try {
+                    orderService.cancelOrder(orderId.toString());
+                    return null;
+                } catch (RuntimeException ex) {
+                    return ex;
+                } finally {
+                    SecurityContextHolder.clearContext();
+                }
+            }));
+        }
+        List<Throwable> failures = new ArrayList<>();
+        for (Future<Throwable> attempt : attempts) {
+            Throwable failure = attempt.get(30, TimeUnit.SECONDS);
+            if (failure != null) {
+                failures.add(failure);
+            }
+        }
+        pool.shutdown();
+
+        assertEquals(1, failures.size());
+        assertEquals("Cannot cancel this order", failures.get(0).getMessage());
+        assertEquals(10, catalogRepository.findById(book.getId()).orElseThrow().getStock());
+        assertEquals(OrderStatus.CANCELLED, orderRepository.findById(orderId).orElseThrow().getStatus());
+        verify(activityPipeline, times(1)).publishAfterCommit(eq(OrderActivityType.CANCELLED), any());
+    }
+
+    private UUID placedOrder(Book book, int quantity) {
+        Order order = new Order();
+        order.setUsername(USERNAME);
+        order.setOrderDate(LocalDateTime.now());
+        order.setStatus(OrderStatus.PLACED);
+        order.setTotalAmount(book.getPrice().multiply(BigDecimal.valueOf(quantity)));
+        OrderItem item = new OrderItem();
+        item.setBook(book);
+        item.setQuantity(quantity);
+        item.setPriceAtPurchase(book.getPrice());
+        item.setOrder(order);
+        order.getItems().add(item);
+        return orderRepository.save(order).getId();
+    }
+}
@@ -2,8 +2,11 @@ package com.cloudbook.order;
 
 import com.cloudbook.auth.service.auth.JwtService;
 import com.cloudbook.auth.service.auth.filter.JwtAuthFilter;
+import com.cloudbook.common.exception.custom.CheckoutQueueFull;
 import com.cloudbook.order.controller.OrderController;
 import com.cloudbook.order.dto.OrderResponse;
+import com.cloudbook.order.service.AsyncCheckoutService;
+import com.cloudbook.order.service.OrderIdempotencyService;
 import com.cloudbook.order.service.OrderService;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -15,8 +18,10 @@ import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -36,6 +41,12 @@ class OrderControllerTest {
     @MockitoBean
     private JwtAuthFilter jwtAuthFilter;
 
+    @MockitoBean
+    private OrderIdempotencyService orderIdempotencyService;
+
+    @MockitoBean
+    private AsyncCheckoutService asyncCheckoutService;
+
 
 
     @Test
@@ -53,6 +64,61 @@ class OrderControllerTest {
         verify(orderService).placeOrder();
     }
 
+    @Test
+    void testCreateOrderWithIdempotencyKey_returns201() throws Exception {
+        OrderResponse mockResponse = new OrderResponse();
+        mockResponse.setMessage("Order created");
+
+        when(orderIdempotencyService.placeOrder("key-1")).thenReturn(mockResponse);
+
+        mockMvc.perform(post("/api/orders")
+                        .header("Idempotency-Key", "key-1")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.message").value("Order created"));
+
+        verify(orderIdempotencyService).placeOrder("key-1");
+        verifyNoInteractions(orderService);
+    }
+
+    @Test
+    void testCreateOrderAsync_returns202() throws Exception {
+        OrderResponse mockResponse = new OrderResponse();
+        mockResponse.setStatus("PENDING");
+
+        when(asyncCheckoutService.acceptOrder()).thenReturn(mockResponse);
+
+        mockMvc.perform(post("/api/orders/async"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.status").value("PENDING"));
+
+        verifyNoInteractions(orderService);
+    }
+
+    @Test
+    void testCreateOrderAsync_queueFullReturns503() throws Exception {
+        when(asyncCheckoutService.acceptOrder()).thenThrow(new CheckoutQueueFull("Too many orders", 5));
+
+        mockMvc.perform(post("/api/orders/async"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "5"))
+                .andExpect(jsonPath("$.msg").value("Too many orders"));
+    }
+
+    @Test
+    void testViewOrderStatus_returns200() throws Exception {
+        OrderResponse mockResponse = new OrderResponse();
+        mockResponse.setStatus("FAILED");
+        mockResponse.setFailureReason("Cart is empty");
+
+        when(orderService.getOrderStatus("123")).thenReturn(mockResponse);
+
+        mockMvc.perform(get("/api/orders/123/status"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("FAILED"))
+                .andExpect(jsonPath("$.failureReason").value("Cart is empty"));
+    }
+
     @Test
     void testViewOrderById_returns200() throws Exception {
         OrderResponse mockResponse = new OrderResponse();
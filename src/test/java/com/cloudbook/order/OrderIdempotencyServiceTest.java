@@ -0,0 +1,130 @@
+package com.cloudbook.order;
+
+import com.cloudbook.order.dto.OrderResponse;
+import com.cloudbook.order.service.OrderIdempotencyService;
+import com.cloudbook.order.service.OrderService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class OrderIdempotencyServiceTest {
+
+    private final OrderService orderService = mock(OrderService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private OrderIdempotencyService idempotencyService;
+
+    @BeforeEach
+    void setUp() {
+        idempotencyService = new OrderIdempotencyService(meterRegistry, Duration.ofHours(1), 1000, Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(idempotencyService, "orderService", orderService);
+        login("john");
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void testRepeatReturnsOriginalOrderWithoutPlacingAgain() {
+        OrderResponse placed = order();
+        when(orderService.placeOrder()).thenReturn(placed);
+
+        assertSame(placed, idempotencyService.placeOrder("key-1"));
+        assertSame(placed, idempotencyService.placeOrder("key-1"));
+
+        verify(orderService, times(1)).placeOrder();
+        assertEquals(1, meterRegistry.get(OrderIdempotencyService.REPLAYS_METRIC).counter().count());
+    }
+
+    @Test
+    void testKeysAreScopedPerUser() {
+        when(orderService.placeOrder()).thenReturn(order(), order());
+
+        OrderResponse johns = idempotencyService.placeOrder("key-1");
+        login("jane");
+        OrderResponse janes = idempotencyService.placeOrder("key-1");
+
+        assertNotEquals(johns.getId(), janes.getId());
+        verify(orderService, times(2)).placeOrder();
+    }
+
+    @Test
+    void testFailedAttemptIsNotRemembered() {
+        OrderResponse placed = order();
+        when(orderService.placeOrder()).thenThrow(new RuntimeException("Insufficient stock")).thenReturn(placed);
+
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> idempotencyService.placeOrder("key-1"));
+        assertEquals("Insufficient stock", ex.getMessage());
+        assertSame(placed, idempotencyService.placeOrder("key-1"));
+    }
+
+    @Test
+    void testAttemptFailingWithAnErrorIsNotRemembered() {
+        OrderResponse placed = order();
+        when(orderService.placeOrder()).thenThrow(new OutOfMemoryError("Java heap space")).thenReturn(placed);
+
+        assertThrows(OutOfMemoryError.class, () -> idempotencyService.placeOrder("key-1"));
+        assertSame(placed, idempotencyService.placeOrder("key-1"));
+        assertEquals(0, meterRegistry.get(OrderIdempotencyService.REPLAYS_METRIC).counter().count());
+    }
+
+    @Test
+    void testConcurrentDuplicateWaitsForTheFirst() throws Exception {
+        OrderResponse placed = order();
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(orderService.placeOrder()).thenAnswer(invocation -> {
+            entered.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return placed;
+        });
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        Callable<OrderResponse> submit = () -> {
+            login("john");
+            return idempotencyService.placeOrder("key-1");
+        };
+
+        Future<OrderResponse> first = pool.submit(submit);
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        Future<OrderResponse> duplicate = pool.submit(submit);
+        Thread.sleep(100);
+        assertFalse(duplicate.isDone(), "the duplicate waits instead of placing its own order");
+        release.countDown();
+
+        assertSame(placed, first.get(5, TimeUnit.SECONDS));
+        assertSame(placed, duplicate.get(5, TimeUnit.SECONDS));
+        verify(orderService, times(1)).placeOrder();
+        pool.shutdown();
+    }
+
+    @Test
+    void testRejectsBlankOrOverlongKeys() {
+        assertThrows(RuntimeException.class, () -> idempotencyService.placeOrder(" "));
+        assertThrows(RuntimeException.class, () -> idempotencyService.placeOrder("k".repeat(256)));
+        verifyNoInteractions(orderService);
+    }
+
+    private static void login(String username) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(username, null, List.of()));
+    }
+
+    private static OrderResponse order() {
+        OrderResponse response = new OrderResponse();
+        response.setId(UUID.randomUUID());
+        return response;
+    }
+}
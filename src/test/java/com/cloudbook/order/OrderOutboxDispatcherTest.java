@@ -0,0 +1,170 @@
+package com.cloudbook.order;
+
+import com.cloudbook.order.event.OrderPlacedEvent;
+import com.cloudbook.order.model.Order;
+import com.cloudbook.order.model.OrderEventType;
+import com.cloudbook.order.model.OrderOutboxEvent;
+import com.cloudbook.order.model.OrderStatus;
+import com.cloudbook.order.repository.OrderOutboxRepository;
+import com.cloudbook.order.repository.OrderRepository;
+import com.cloudbook.order.service.OrderOutboxDispatcher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.event.EventListener;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// A long poll interval keeps the scheduled dispatch out of the way; tests call it directly
+@DataJpaTest(properties = {"spring.jpa.show-sql=false", "order.outbox.poll-interval=1h", "order.outbox.batch-size=2"})
+@Import({OrderOutboxDispatcher.class, SimpleMeterRegistry.class, OrderOutboxDispatcherTest.Listeners.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderOutboxDispatcherTest {
+
+    @Autowired
+    private OrderOutboxDispatcher dispatcher;
+
+    @Autowired
+    private OrderOutboxRepository outboxRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private RecordingListener listener;
+
+    @Autowired
+    private SimpleMeterRegistry meterRegistry;
+
+    @AfterEach
+    void cleanUp() {
+        outboxRepository.deleteAll();
+        orderRepository.deleteAll();
+        listener.received.clear();
+        listener.failuresLeft.set(0);
+        listener.failInsideTransaction.clear();
+    }
+
+    @Test
+    void testEventsAreDeliveredInBatchesAndRemoved() {
+        List<UUID> orderIds = List.of(placedOrder(), placedOrder(), placedOrder());
+        long lagSamples = meterRegistry.get(OrderOutboxDispatcher.LAG_METRIC).timer().count();
+
+        dispatcher.dispatch();
+
+        assertEquals(3, listener.received.size());
+        assertEquals(Set.copyOf(orderIds), Set.copyOf(listener.received));
+        assertEquals(0, outboxRepository.count());
+        assertEquals(lagSamples + 3, meterRegistry.get(OrderOutboxDispatcher.LAG_METRIC).timer().count());
+        assertEquals(0, meterRegistry.get(OrderOutboxDispatcher.BACKLOG_METRIC).gauge().value());
+    }
+
+    @Test
+    void testFailedDeliveryIsKeptAndRetried() {
+        UUID orderId = placedOrder();
+        listener.failuresLeft.set(1);
+
+        dispatcher.dispatch();
+
+        OrderOutboxEvent kept = outboxRepository.findAll().get(0);
+        assertEquals(1, kept.getAttempts());
+        assertEquals("Listener unavailable", kept.getLastError());
+        assertTrue(kept.getAvailableAt().isAfter(Instant.now()));
+        assertEquals(1, meterRegistry.get(OrderOutboxDispatcher.BACKLOG_METRIC).gauge().value());
+
+        // Not due yet
+        dispatcher.dispatch();
+        assertTrue(listener.received.isEmpty());
+
+        kept.setAvailableAt(Instant.now());
+        outboxRepository.save(kept);
+        dispatcher.dispatch();
+
+        assertEquals(List.of(orderId), listener.received);
+        assertEquals(0, outboxRepository.count());
+    }
+
+    @Test
+    void testListenerFailingInsideATransactionOnlyRollsBackItsOwnDelivery() {
+        UUID failing = placedOrder();
+        UUID other = placedOrder();
+        listener.failInsideTransaction.add(failing);
+
+        dispatcher.dispatch();
+
+        assertEquals(List.of(other), listener.received);
+        assertEquals(2, orderRepository.count(), "the failing listener's write was rolled back");
+        OrderOutboxEvent kept = outboxRepository.findAll().get(0);
+        assertEquals(failing, kept.getOrderId());
+        assertEquals(1, kept.getAttempts());
+        assertTrue(kept.getAvailableAt().isAfter(Instant.now()));
+    }
+
+    private UUID placedOrder() {
+        Order order = new Order();
+        order.setUsername("john");
+        order.setOrderDate(LocalDateTime.now());
+        order.setStatus(OrderStatus.PLACED);
+        UUID orderId = orderRepository.save(order).getId();
+        Instant now = Instant.now();
+        outboxRepository.save(OrderOutboxEvent.builder()
+                .orderId(orderId)
+                .type(OrderEventType.ORDER_PLACED)
+                .createdAt(now)
+                .availableAt(now)
+                .build());
+        return orderId;
+    }
+
+    static class RecordingListener {
+        final List<UUID> received = new CopyOnWriteArrayList<>();
+        final AtomicInteger failuresLeft = new AtomicInteger();
+        final Set<UUID> failInsideTransaction = ConcurrentHashMap.newKeySet();
+        private final OrderRepository orderRepository;
+
+        RecordingListener(OrderRepository orderRepository) {
+            this.orderRepository = orderRepository;
+        }
+
+        @EventListener
+        public void onOrderPlaced(OrderPlacedEvent event) {
+            if (failuresLeft.getAndDecrement() > 0) {
+                throw new RuntimeException("Listener unavailable");
+            }
+            if (failInsideTransaction.contains(event.getOrder().getId())) {
+                Order followUp = new Order();
+                followUp.setUsername("john");
+                followUp.setOrderDate(LocalDateTime.now());
+                followUp.setStatus(OrderStatus.PENDING);
+                orderRepository.save(followUp);
+                // Fails inside the repository's transactional proxy, which marks the transaction rollback-only
+                orderRepository.findById(null);
+            }
+            received.add(event.getOrder().getId());
+        }
+    }
+
+    @TestConfiguration
+    static class Listeners {
+        @Bean
+        RecordingListener recordingListener(OrderRepository orderRepository) {
+            return new RecordingListener(orderRepository);
+        }
+    }
+}
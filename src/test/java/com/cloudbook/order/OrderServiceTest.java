@@ -6,28 +6,40 @@ import com.cloudbook.cart.model.Cart;
 import com.cloudbook.cart.model.CartItem;
 import com.cloudbook.cart.repository.CartRepository;
 import com.cloudbook.catalog.model.Book;
-import com.cloudbook.catalog.repository.CatalogRepository;
+import com.cloudbook.inventory.service.ReservationService;
+import com.cloudbook.inventory.service.StockService;
 import com.cloudbook.common.enums.Role;
 import com.cloudbook.order.dto.OrderResponse;
+import com.cloudbook.order.model.Order;
+import com.cloudbook.order.model.OrderEventType;
+import com.cloudbook.order.model.OrderItem;
+import com.cloudbook.order.model.OrderOutboxEvent;
+import com.cloudbook.order.model.OrderStatus;
+import com.cloudbook.order.pipeline.OrderActivityPipeline;
+import com.cloudbook.order.pipeline.OrderActivityType;
+import com.cloudbook.order.repository.OrderOutboxRepository;
 import com.cloudbook.order.repository.OrderRepository;
 import com.cloudbook.order.service.OrderService;
 import com.cloudbook.order.util.OrderMapper;
+import com.cloudbook.inventory.retry.StockContentionMetrics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
-import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
 
 class OrderServiceTest {
@@ -37,13 +49,20 @@ class OrderServiceTest {
     @Mock
     private CartRepository cartRepository;
     @Mock
-    private CatalogRepository catalogRepository;
+    private StockService stockService;
+    @Mock
+    private ReservationService reservationService;
     @Mock
     private UserRepository userRepository;
     @Mock
     private OrderMapper orderMapper;
     @Mock
-    private ApplicationEventPublisher eventPublisher;
+    private OrderOutboxRepository outboxRepository;
+
+    @Mock
+    private StockContentionMetrics contentionMetrics;
+    @Mock
+    private OrderActivityPipeline activityPipeline;
     @InjectMocks
     private OrderService orderService;
 
@@ -71,7 +90,6 @@ class OrderServiceTest {
         cart.getItems().add(item);
 
         when(cartRepository.findByUsername("john")).thenReturn(Optional.of(cart));
-        when(catalogRepository.findById(book.getId())).thenReturn(Optional.of(book));
         when(orderRepository.save(any())).thenAnswer(i -> i.getArgument(0));
 
         OrderResponse mockResponse = new OrderResponse();
@@ -81,6 +99,122 @@ class OrderServiceTest {
 
         assertNotNull(response);
         verify(orderRepository, times(1)).save(any());
-        verify(eventPublisher, times(1)).publishEvent(any());
+        verify(outboxRepository).save(argThat((OrderOutboxEvent event) -> event.getType() == OrderEventType.ORDER_PLACED));
+        verify(activityPipeline).publishAfterCommit(eq(OrderActivityType.PLACED), any());
+        verify(stockService).applyAll(Map.of(book.getId(), -2));
+    }
+
+    @Test
+    void testPlaceOrder_insufficientStockSavesNothing() {
+        Book book = Book.builder()
+                .id(UUID.randomUUID())
+                .title("Test Book")
+                .price(BigDecimal.TEN)
+                .build();
+        Cart cart = new Cart("john");
+        cart.getItems().add(new CartItem(book, 2, null));
+
+        when(cartRepository.findByUsername("john")).thenReturn(Optional.of(cart));
+        when(stockService.applyAll(Map.of(book.getId(), -2))).thenThrow(new RuntimeException("Insufficient stock"));
+
+        assertThrows(RuntimeException.class, () -> orderService.placeOrder());
+        verify(orderRepository, never()).save(any());
+        verify(outboxRepository, never()).save(any());
+        verifyNoInteractions(activityPipeline);
+        assertEquals(1, cart.getItems().size());
+    }
+
+    @Test
+    void testPlaceOrder_heldStockIsNotDecrementedAgain() {
+        Book held = Book.builder().id(UUID.randomUUID()).title("Held").price(BigDecimal.TEN).build();
+        Book partlyHeld = Book.builder().id(UUID.randomUUID()).title("Partly held").price(BigDecimal.ONE).build();
+        Cart cart = new Cart("john");
+        cart.getItems().add(new CartItem(held, 2, null));
+        cart.getItems().add(new CartItem(partlyHeld, 3, null));
+
+        when(cartRepository.findByUsername("john")).thenReturn(Optional.of(cart));
+        when(reservationService.consumeAll("john")).thenReturn(Map.of(held.getId(), 2, partlyHeld.getId(), 1));
+        when(orderRepository.save(any())).thenAnswer(i -> i.getArgument(0));
+
+        orderService.placeOrder();
+
+        verify(stockService).applyAll(Map.of(partlyHeld.getId(), -2));
+        verifyNoMoreInteractions(stockService);
+    }
+
+    @Test
+    void testCancelOrder_returnsStockInOneBatch() {
+        Book first = Book.builder().id(UUID.randomUUID()).title("First").price(BigDecimal.TEN).build();
+        Book second = Book.builder().id(UUID.randomUUID()).title("Second").price(BigDecimal.ONE).build();
+        Order order = new Order();
+        order.setId(UUID.randomUUID());
+        order.setUsername("john");
+        order.setStatus(OrderStatus.PLACED);
+        for (Book book : List.of(first, second, first)) {
+            OrderItem item = new OrderItem();
+            item.setBook(book);
+            item.setQuantity(2);
+            item.setOrder(order);
+            order.getItems().add(item);
+        }
+        when(orderRepository.lockById(order.getId())).thenReturn(Optional.of(order));
+
+        orderService.cancelOrder(order.getId().toString());
+
+        assertEquals(OrderStatus.CANCELLED, order.getStatus());
+        verify(activityPipeline).publishAfterCommit(OrderActivityType.CANCELLED, order);
+        verify(stockService).applyAll(Map.of(first.getId(), 4, second.getId(), 2));
+        verifyNoMoreInteractions(stockService);
+    }
+
+    @Test
+    void testPlacePendingOrder_checksOutFromCart() {
+        Book book = Book.builder().id(UUID.randomUUID()).title("Test Book").price(BigDecimal.TEN).build();
+        Cart cart = new Cart("john");
+        cart.getItems().add(new CartItem(book, 3, null));
+        Order pending = new Order();
+        pending.setId(UUID.randomUUID());
+        pending.setUsername("john");
+        pending.setStatus(OrderStatus.PENDING);
+
+        when(orderRepository.lockById(pending.getId())).thenReturn(Optional.of(pending));
+        when(cartRepository.findByUsername("john")).thenReturn(Optional.of(cart));
+        when(orderRepository.save(any())).thenAnswer(i -> i.getArgument(0));
+
+        orderService.placePendingOrder(pending.getId());
+
+        assertEquals(OrderStatus.PLACED, pending.getStatus());
+        assertEquals(BigDecimal.valueOf(30), pending.getTotalAmount());
+        assertEquals(1, pending.getItems().size());
+        assertEquals(0, cart.getItems().size());
+        verify(stockService).applyAll(Map.of(book.getId(), -3));
+    }
+
+    @Test
+    void testPlacePendingOrder_skipsOrderPlacedByAnotherInstance() {
+        Order placed = new Order();
+        placed.setId(UUID.randomUUID());
+        placed.setUsername("john");
+        placed.setStatus(OrderStatus.PLACED);
+        when(orderRepository.lockById(placed.getId())).thenReturn(Optional.of(placed));
+
+        orderService.placePendingOrder(placed.getId());
+
+        verify(orderRepository, never()).findById(any());
+        verify(orderRepository, never()).save(any());
+        verifyNoInteractions(cartRepository, stockService);
+    }
+
+    @Test
+    void testFailPendingOrder_leavesPlacedOrdersAlone() {
+        Order placed = new Order();
+        placed.setId(UUID.randomUUID());
+        placed.setStatus(OrderStatus.PLACED);
+        when(orderRepository.lockById(placed.getId())).thenReturn(Optional.of(placed));
+
+        orderService.failPendingOrder(placed.getId(), "Cart is empty");
+
+        assertEquals(OrderStatus.PLACED, placed.getStatus());
+        verify(orderRepository, never()).save(any());
     }
 }
@@ -0,0 +1,63 @@
+package com.cloudbook.waitlist;
+
+import com.cloudbook.auth.service.auth.JwtService;
+import com.cloudbook.auth.service.auth.filter.JwtAuthFilter;
+import com.cloudbook.waitlist.controller.WaitlistController;
+import com.cloudbook.waitlist.dto.WaitlistResponse;
+import com.cloudbook.waitlist.service.WaitlistService;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(WaitlistController.class)
+@AutoConfigureMockMvc(addFilters = false) // disables security filters entirely
+class WaitlistControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private WaitlistService waitlistService;
+
+    @MockitoBean
+    private JwtService jwtService;
+
+    @MockitoBean
+    private JwtAuthFilter jwtAuthFilter;
+
+    @Test
+    void testJoinWaitlist() throws Exception {
+        UUID bookId = UUID.randomUUID();
+        WaitlistResponse mockResponse = new WaitlistResponse(List.of(new WaitlistResponse.Entry(bookId, Instant.now())));
+        mockResponse.setMessage("Added to the waitlist");
+        Mockito.when(waitlistService.join(bookId.toString())).thenReturn(mockResponse);
+
+        mockMvc.perform(post("/api/waitlist/" + bookId))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.message").value("Added to the waitlist"))
+                .andExpect(jsonPath("$.entries[0].bookId").value(bookId.toString()));
+    }
+
+    @Test
+    void testLeaveWaitlist() throws Exception {
+        WaitlistResponse mockResponse = new WaitlistResponse();
+        mockResponse.setMessage("Removed from the waitlist");
+        Mockito.when(waitlistService.leave("b1")).thenReturn(mockResponse);
+
+        mockMvc.perform(delete("/api/waitlist/b1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("Removed from the waitlist"));
+    }
+}
@@ -0,0 +1,149 @@
+package com.cloudbook.waitlist;
+
+import com.cloudbook.auth.model.User;
+import com.cloudbook.catalog.model.Book;
+import com.cloudbook.catalog.repository.CatalogRepository;
+import com.cloudbook.inventory.retry.StockContentionMetrics;
+import com.cloudbook.inventory.service.StockService;
+import com.cloudbook.inventory.service.StockShardService;
+import com.cloudbook.waitlist.model.Notification;
+import com.cloudbook.waitlist.dto.WaitlistResponse;
+import com.cloudbook.waitlist.model.NotificationType;
+import com.cloudbook.waitlist.repository.NotificationRepository;
+import com.cloudbook.waitlist.repository.WaitlistRepository;
+import com.cloudbook.waitlist.service.WaitlistService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.doReturn;
+
+// Long intervals keep the scheduled drain out of the way; tests call it directly
+@DataJpaTest(properties = {"spring.jpa.show-sql=false", "waitlist.drain-batch-size=2",
+        "waitlist.drain-interval=1h", "waitlist.reconcile-interval=1h", "inventory.sharding.rollup-interval=1h"})
+@Import({WaitlistService.class, StockService.class, StockShardService.class, StockContentionMetrics.class,
+        SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class WaitlistServiceTest {
+
+    @Autowired
+    private WaitlistService waitlistService;
+
+    @Autowired
+    private StockService stockService;
+
+    @MockitoSpyBean
+    private WaitlistRepository waitlistRepository;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private CatalogRepository catalogRepository;
+
+    @AfterEach
+    void cleanup() {
+        SecurityContextHolder.clearContext();
+        notificationRepository.deleteAllInBatch();
+        waitlistRepository.deleteAllInBatch();
+        catalogRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void testJoinOnlySoldOutBooksAndOnce() {
+        Book soldOut = save(0);
+        Book inStock = save(3);
+        login("alice");
+
+        waitlistService.join(soldOut.getId().toString());
+        assertEquals(1, waitlistService.join(soldOut.getId().toString()).getEntries().size());
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> waitlistService.join(inStock.getId().toString()));
+        assertEquals("Book is in stock: " + inStock.getId(), ex.getMessage());
+
+        assertTrue(waitlistService.leave(soldOut.getId().toString()).getEntries().isEmpty());
+    }
+
+    @Test
+    void testJoinThatLosesTheRaceToInsertIsAlreadyWaiting() {
+        Book soldOut = save(0);
+        login("alice");
+        waitlistService.join(soldOut.getId().toString());
+        // A concurrent join that looked before the first one committed
+        doReturn(Optional.empty()).when(waitlistRepository).findByUsernameAndBookId("alice", soldOut.getId());
+
+        WaitlistResponse response = waitlistService.join(soldOut.getId().toString());
+
+        assertEquals("Added to the waitlist", response.getMessage());
+        assertEquals(1, response.getEntries().size());
+        assertEquals(1, waitlistRepository.count());
+    }
+
+    @Test
+    void testRestockDrainsWaitlistInBatchesOldestFirst() {
+        Book book = save(0);
+        List<String> customers = List.of("c1", "c2", "c3", "c4", "c5");
+        for (String customer : customers) {
+            login(customer);
+            waitlistService.join(book.getId().toString());
+        }
+
+        stockService.increment(book.getId(), 2);
+        assertTrue(notificationRepository.findAll().isEmpty(), "nothing recorded on the request path");
+        waitlistService.drain();
+
+        List<Notification> notifications = notificationRepository.findByBookId(book.getId());
+        assertEquals(customers, notifications.stream()
+                .sorted(Comparator.comparing(Notification::getCreatedAt).thenComparing(Notification::getUsername))
+                .map(Notification::getUsername).toList());
+        assertTrue(notifications.stream().allMatch(n -> n.getType() == NotificationType.BACK_IN_STOCK && n.getSentAt() == null));
+        assertEquals(0, waitlistRepository.count());
+    }
+
+    @Test
+    void testSoldOutAgainBeforeDrainKeepsWaitingUntilReconciled() {
+        Book book = save(0);
+        login("alice");
+        waitlistService.join(book.getId().toString());
+
+        stockService.increment(book.getId(), 1);
+        stockService.decrement(book.getId(), 1);
+        waitlistService.drain();
+        assertTrue(notificationRepository.findAll().isEmpty());
+        assertEquals(1, waitlistRepository.count());
+
+        // Another restock that raced the drain; only the periodic reconcile notices it
+        catalogRepository.findById(book.getId()).ifPresent(b -> {
+            b.setStock(4);
+            catalogRepository.save(b);
+        });
+        waitlistService.drain();
+        assertTrue(notificationRepository.findAll().isEmpty());
+        waitlistService.reconcile();
+        waitlistService.drain();
+        assertEquals(1, notificationRepository.findByBookId(book.getId()).size());
+    }
+
+    private void login(String username) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                User.builder().username(username).build(), null, List.of()));
+    }
+
+    private Book save(int stock) {
+        return catalogRepository.save(Book.builder().title("Book").author("Author").genre("Fiction")
+                .price(BigDecimal.TEN).stock(stock).rating(BigDecimal.ONE).build());
+    }
+}